@@ -0,0 +1,21 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class org_wasmer_Compiler */
+
+#ifndef _Included_org_wasmer_Compiler
+#define _Included_org_wasmer_Compiler
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     org_wasmer_Compiler
+ * Method:    nativeIsAvailable
+ * Signature: (I)Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_wasmer_Compiler_nativeIsAvailable
+  (JNIEnv *, jclass, jint);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
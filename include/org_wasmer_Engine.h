@@ -0,0 +1,37 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class org_wasmer_Engine */
+
+#ifndef _Included_org_wasmer_Engine
+#define _Included_org_wasmer_Engine
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     org_wasmer_Engine
+ * Method:    nativeEngineInstantiate
+ * Signature: (II)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Engine_nativeEngineInstantiate
+  (JNIEnv *, jclass, jint, jint);
+
+/*
+ * Class:     org_wasmer_Engine
+ * Method:    nativeDrop
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Engine_nativeDrop
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Engine
+ * Method:    nativeVersion
+ * Signature: (J)Ljava/lang/String;
+ */
+JNIEXPORT jstring JNICALL Java_org_wasmer_Engine_nativeVersion
+  (JNIEnv *, jclass, jlong);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
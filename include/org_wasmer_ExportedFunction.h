@@ -0,0 +1,85 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class org_wasmer_ExportedFunction */
+
+#ifndef _Included_org_wasmer_ExportedFunction
+#define _Included_org_wasmer_ExportedFunction
+#ifdef __cplusplus
+extern "C" {
+#endif
+#undef org_wasmer_ExportedFunction_CALL_OK
+#define org_wasmer_ExportedFunction_CALL_OK 0L
+#undef org_wasmer_ExportedFunction_CALL_FAILED
+#define org_wasmer_ExportedFunction_CALL_FAILED 1L
+#undef org_wasmer_ExportedFunction_CALL_HOST_FUNCTION_FAILED
+#define org_wasmer_ExportedFunction_CALL_HOST_FUNCTION_FAILED 2L
+#undef org_wasmer_ExportedFunction_CALL_TRAPPED
+#define org_wasmer_ExportedFunction_CALL_TRAPPED 256L
+/*
+ * Class:     org_wasmer_ExportedFunction
+ * Method:    nativeResolve
+ * Signature: (JLjava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_ExportedFunction_nativeResolve
+  (JNIEnv *, jclass, jlong, jstring);
+
+/*
+ * Class:     org_wasmer_ExportedFunction
+ * Method:    nativeDrop
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_ExportedFunction_nativeDrop
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_ExportedFunction
+ * Method:    nativeParamTypes
+ * Signature: (J)[I
+ */
+JNIEXPORT jintArray JNICALL Java_org_wasmer_ExportedFunction_nativeParamTypes
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_ExportedFunction
+ * Method:    nativeResultTypes
+ * Signature: (J)[I
+ */
+JNIEXPORT jintArray JNICALL Java_org_wasmer_ExportedFunction_nativeResultTypes
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_ExportedFunction
+ * Method:    nativeCall
+ * Signature: (J[J[J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_ExportedFunction_nativeCall
+  (JNIEnv *, jclass, jlong, jlongArray, jlongArray);
+
+/*
+ * Class:     org_wasmer_ExportedFunction
+ * Method:    nativeCallI32
+ * Signature: (J[I)I
+ */
+JNIEXPORT jint JNICALL Java_org_wasmer_ExportedFunction_nativeCallI32
+  (JNIEnv *, jclass, jlong, jintArray);
+
+/*
+ * Class:     org_wasmer_ExportedFunction
+ * Method:    nativeCallI32I32ToI64
+ * Signature: (JII)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_ExportedFunction_nativeCallI32I32ToI64
+  (JNIEnv *, jclass, jlong, jint, jint);
+
+/*
+ * Class:     org_wasmer_ExportedFunction
+ * Method:    nativeCallBatch
+ * Signature: (J[JI[J[IZ)I
+ */
+JNIEXPORT jint JNICALL Java_org_wasmer_ExportedFunction_nativeCallBatch
+  (JNIEnv *, jclass, jlong, jlongArray, jint, jlongArray, jintArray, jboolean);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
@@ -0,0 +1,37 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class org_wasmer_Global */
+
+#ifndef _Included_org_wasmer_Global
+#define _Included_org_wasmer_Global
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     org_wasmer_Global
+ * Method:    nativeGet
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Global_nativeGet
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Global
+ * Method:    nativeSet
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Global_nativeSet
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     org_wasmer_Global
+ * Method:    nativeDrop
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Global_nativeDrop
+  (JNIEnv *, jclass, jlong);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
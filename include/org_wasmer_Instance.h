@@ -10,10 +10,10 @@ extern "C" {
 /*
  * Class:     org_wasmer_Instance
  * Method:    nativeInstantiate
- * Signature: (Lorg/wasmer/Instance;[B)J
+ * Signature: (J[B)J
  */
 JNIEXPORT jlong JNICALL Java_org_wasmer_Instance_nativeInstantiate
-  (JNIEnv *, jobject, jobject, jbyteArray);
+  (JNIEnv *, jclass, jlong, jbyteArray);
 
 /*
  * Class:     org_wasmer_Instance
@@ -21,7 +21,7 @@ JNIEXPORT jlong JNICALL Java_org_wasmer_Instance_nativeInstantiate
  * Signature: (J)V
  */
 JNIEXPORT void JNICALL Java_org_wasmer_Instance_nativeDrop
-  (JNIEnv *, jobject, jlong);
+  (JNIEnv *, jclass, jlong);
 
 /*
  * Class:     org_wasmer_Instance
@@ -34,25 +34,57 @@ JNIEXPORT jobjectArray JNICALL Java_org_wasmer_Instance_nativeCallExportedFuncti
 /*
  * Class:     org_wasmer_Instance
  * Method:    nativeInitializeExportedFunctions
- * Signature: (J)V
+ * Signature: (Lorg/wasmer/Instance;J)V
  */
 JNIEXPORT void JNICALL Java_org_wasmer_Instance_nativeInitializeExportedFunctions
-  (JNIEnv *, jclass, jlong);
+  (JNIEnv *, jclass, jobject, jlong);
 
 /*
  * Class:     org_wasmer_Instance
  * Method:    nativeInitializeExportedMemories
- * Signature: (J)V
+ * Signature: (Lorg/wasmer/Instance;J)V
  */
 JNIEXPORT void JNICALL Java_org_wasmer_Instance_nativeInitializeExportedMemories
-  (JNIEnv *, jclass, jlong);
+  (JNIEnv *, jclass, jobject, jlong);
 
 /*
  * Class:     org_wasmer_Instance
  * Method:    nativeInitializeExportedGlobals
- * Signature: (J)V
+ * Signature: (Lorg/wasmer/Instance;J)V
  */
 JNIEXPORT void JNICALL Java_org_wasmer_Instance_nativeInitializeExportedGlobals
+  (JNIEnv *, jclass, jobject, jlong);
+
+/*
+ * Class:     org_wasmer_Instance
+ * Method:    nativeSnapshot
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Instance_nativeSnapshot
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Instance
+ * Method:    nativeRestore
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Instance_nativeRestore
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     org_wasmer_Instance
+ * Method:    nativeSetRemainingPoints
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Instance_nativeSetRemainingPoints
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     org_wasmer_Instance
+ * Method:    nativeGetRemainingPoints
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Instance_nativeGetRemainingPoints
   (JNIEnv *, jclass, jlong);
 
 #ifdef __cplusplus
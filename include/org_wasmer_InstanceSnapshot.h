@@ -0,0 +1,21 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class org_wasmer_InstanceSnapshot */
+
+#ifndef _Included_org_wasmer_InstanceSnapshot
+#define _Included_org_wasmer_InstanceSnapshot
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     org_wasmer_InstanceSnapshot
+ * Method:    nativeDrop
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_InstanceSnapshot_nativeDrop
+  (JNIEnv *, jclass, jlong);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
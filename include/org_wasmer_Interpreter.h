@@ -0,0 +1,165 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class org_wasmer_Interpreter */
+
+#ifndef _Included_org_wasmer_Interpreter
+#define _Included_org_wasmer_Interpreter
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeModule
+ * Signature: (J[B)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Interpreter_nativeModule
+  (JNIEnv *, jclass, jlong, jbyteArray);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeModuleDrop
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Interpreter_nativeModuleDrop
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeInstantiate
+ * Signature: (Lorg/wasmer/Instance;JLjava/util/List;)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Interpreter_nativeInstantiate
+  (JNIEnv *, jclass, jobject, jlong, jobject);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeInstanceDrop
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Interpreter_nativeInstanceDrop
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeResolve
+ * Signature: (JLjava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Interpreter_nativeResolve
+  (JNIEnv *, jclass, jlong, jstring);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeFunctionDrop
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Interpreter_nativeFunctionDrop
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeParamTypes
+ * Signature: (J)[I
+ */
+JNIEXPORT jintArray JNICALL Java_org_wasmer_Interpreter_nativeParamTypes
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeResultTypes
+ * Signature: (J)[I
+ */
+JNIEXPORT jintArray JNICALL Java_org_wasmer_Interpreter_nativeResultTypes
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeCall
+ * Signature: (J[J[J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Interpreter_nativeCall
+  (JNIEnv *, jclass, jlong, jlongArray, jlongArray);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeMemoryDrop
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Interpreter_nativeMemoryDrop
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeMemoryRetain
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Interpreter_nativeMemoryRetain
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeMemoryView
+ * Signature: (J)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_org_wasmer_Interpreter_nativeMemoryView
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeMemoryDataSize
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Interpreter_nativeMemoryDataSize
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeMemorySizeCell
+ * Signature: (J)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_org_wasmer_Interpreter_nativeMemorySizeCell
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeMemoryGrow
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_org_wasmer_Interpreter_nativeMemoryGrow
+  (JNIEnv *, jclass, jlong, jint);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeMemoryCopyWithin
+ * Signature: (JIII)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Interpreter_nativeMemoryCopyWithin
+  (JNIEnv *, jclass, jlong, jint, jint, jint);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeGlobalDrop
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Interpreter_nativeGlobalDrop
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeGlobalGet
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Interpreter_nativeGlobalGet
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Interpreter
+ * Method:    nativeGlobalSet
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Interpreter_nativeGlobalSet
+  (JNIEnv *, jclass, jlong, jlong);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
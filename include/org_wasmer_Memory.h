@@ -7,21 +7,63 @@
 #ifdef __cplusplus
 extern "C" {
 #endif
+#undef org_wasmer_Memory_PAGE_SIZE
+#define org_wasmer_Memory_PAGE_SIZE 65536L
 /*
  * Class:     org_wasmer_Memory
  * Method:    nativeMemoryView
- * Signature: (Lorg/wasmer/Memory;J)V
+ * Signature: (J)Ljava/nio/ByteBuffer;
  */
-JNIEXPORT void JNICALL Java_org_wasmer_Memory_nativeMemoryView
-  (JNIEnv *, jobject, jobject, jlong);
+JNIEXPORT jobject JNICALL Java_org_wasmer_Memory_nativeMemoryView
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Memory
+ * Method:    nativeDataSize
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Memory_nativeDataSize
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Memory
+ * Method:    nativeSizeCell
+ * Signature: (J)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_org_wasmer_Memory_nativeSizeCell
+  (JNIEnv *, jclass, jlong);
 
 /*
  * Class:     org_wasmer_Memory
  * Method:    nativeMemoryGrow
- * Signature: (Lorg/wasmer/Memory;JI)I
+ * Signature: (JI)I
  */
 JNIEXPORT jint JNICALL Java_org_wasmer_Memory_nativeMemoryGrow
-  (JNIEnv *, jobject, jobject, jlong, jint);
+  (JNIEnv *, jclass, jlong, jint);
+
+/*
+ * Class:     org_wasmer_Memory
+ * Method:    nativeCopyWithin
+ * Signature: (JIII)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Memory_nativeCopyWithin
+  (JNIEnv *, jclass, jlong, jint, jint, jint);
+
+/*
+ * Class:     org_wasmer_Memory
+ * Method:    nativeRetain
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Memory_nativeRetain
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_Memory
+ * Method:    nativeDrop
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Memory_nativeDrop
+  (JNIEnv *, jclass, jlong);
 
 #ifdef __cplusplus
 }
@@ -10,10 +10,18 @@ extern "C" {
 /*
  * Class:     org_wasmer_Module
  * Method:    nativeModuleInstantiate
- * Signature: (Lorg/wasmer/Module;[B)J
+ * Signature: (J[B)J
  */
 JNIEXPORT jlong JNICALL Java_org_wasmer_Module_nativeModuleInstantiate
-  (JNIEnv *, jobject, jobject, jbyteArray);
+  (JNIEnv *, jclass, jlong, jbyteArray);
+
+/*
+ * Class:     org_wasmer_Module
+ * Method:    nativeModuleInstantiateMetered
+ * Signature: (J[BJJ[Ljava/lang/String;[J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Module_nativeModuleInstantiateMetered
+  (JNIEnv *, jclass, jlong, jbyteArray, jlong, jlong, jobjectArray, jlongArray);
 
 /*
  * Class:     org_wasmer_Module
@@ -21,23 +29,23 @@ JNIEXPORT jlong JNICALL Java_org_wasmer_Module_nativeModuleInstantiate
  * Signature: (J)V
  */
 JNIEXPORT void JNICALL Java_org_wasmer_Module_nativeDrop
-  (JNIEnv *, jobject, jlong);
+  (JNIEnv *, jclass, jlong);
 
 /*
  * Class:     org_wasmer_Module
  * Method:    nativeInstantiate
- * Signature: (JLorg/wasmer/Instance;J)J
+ * Signature: (JJ)J
  */
 JNIEXPORT jlong JNICALL Java_org_wasmer_Module_nativeInstantiate
-  (JNIEnv *, jobject, jlong, jobject, jlong);
+  (JNIEnv *, jclass, jlong, jlong);
 
 /*
  * Class:     org_wasmer_Module
  * Method:    nativeValidate
- * Signature: ([B)Z
+ * Signature: (J[B)Z
  */
 JNIEXPORT jboolean JNICALL Java_org_wasmer_Module_nativeValidate
-  (JNIEnv *, jclass, jbyteArray);
+  (JNIEnv *, jclass, jlong, jbyteArray);
 
 /*
  * Class:     org_wasmer_Module
@@ -50,10 +58,34 @@ JNIEXPORT jbyteArray JNICALL Java_org_wasmer_Module_nativeSerialize
 /*
  * Class:     org_wasmer_Module
  * Method:    nativeDeserialize
- * Signature: (Lorg/wasmer/Module;[B)J
+ * Signature: (J[B)J
  */
 JNIEXPORT jlong JNICALL Java_org_wasmer_Module_nativeDeserialize
-  (JNIEnv *, jclass, jobject, jbyteArray);
+  (JNIEnv *, jclass, jlong, jbyteArray);
+
+/*
+ * Class:     org_wasmer_Module
+ * Method:    nativeSerializeToFile
+ * Signature: (JLjava/lang/String;)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_Module_nativeSerializeToFile
+  (JNIEnv *, jobject, jlong, jstring);
+
+/*
+ * Class:     org_wasmer_Module
+ * Method:    nativeDeserializeBuffer
+ * Signature: (JLjava/nio/ByteBuffer;)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Module_nativeDeserializeBuffer
+  (JNIEnv *, jclass, jlong, jobject);
+
+/*
+ * Class:     org_wasmer_Module
+ * Method:    nativeCodeBytes
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_Module_nativeCodeBytes
+  (JNIEnv *, jclass, jlong);
 
 #ifdef __cplusplus
 }
@@ -0,0 +1,53 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class org_wasmer_NativeAllocator */
+
+#ifndef _Included_org_wasmer_NativeAllocator
+#define _Included_org_wasmer_NativeAllocator
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     org_wasmer_NativeAllocator
+ * Method:    nativeCreate
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_org_wasmer_NativeAllocator_nativeCreate
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     org_wasmer_NativeAllocator
+ * Method:    nativeDrop
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_NativeAllocator_nativeDrop
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_NativeAllocator
+ * Method:    nativeBind
+ * Signature: (JJZI)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_NativeAllocator_nativeBind
+  (JNIEnv *, jclass, jlong, jlong, jboolean, jint);
+
+/*
+ * Class:     org_wasmer_NativeAllocator
+ * Method:    nativeAllocate
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_org_wasmer_NativeAllocator_nativeAllocate
+  (JNIEnv *, jclass, jlong, jint);
+
+/*
+ * Class:     org_wasmer_NativeAllocator
+ * Method:    nativeFree
+ * Signature: (JI)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_NativeAllocator_nativeFree
+  (JNIEnv *, jclass, jlong, jint);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
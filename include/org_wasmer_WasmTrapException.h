@@ -0,0 +1,37 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class org_wasmer_WasmTrapException */
+
+#ifndef _Included_org_wasmer_WasmTrapException
+#define _Included_org_wasmer_WasmTrapException
+#ifdef __cplusplus
+extern "C" {
+#endif
+#undef org_wasmer_WasmTrapException_serialVersionUID
+#define org_wasmer_WasmTrapException_serialVersionUID -3042686055658047285LL
+#undef org_wasmer_WasmTrapException_serialVersionUID
+#define org_wasmer_WasmTrapException_serialVersionUID -3387516993124229948LL
+#undef org_wasmer_WasmTrapException_serialVersionUID
+#define org_wasmer_WasmTrapException_serialVersionUID -7034897190745766939LL
+#undef org_wasmer_WasmTrapException_serialVersionUID
+#define org_wasmer_WasmTrapException_serialVersionUID 1LL
+/*
+ * Class:     org_wasmer_WasmTrapException
+ * Method:    nativeBacktrace
+ * Signature: (J)[Lorg/wasmer/WasmTrapException/Frame;
+ */
+JNIEXPORT jobjectArray JNICALL Java_org_wasmer_WasmTrapException_nativeBacktrace
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_wasmer_WasmTrapException
+ * Method:    nativeDrop
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_wasmer_WasmTrapException_nativeDrop
+  (JNIEnv *, jclass, jlong);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
@@ -0,0 +1,122 @@
+package org.wasmer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.wasmer.ExportedFunction;
+import org.wasmer.Instance;
+import org.wasmer.exports.Function;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calling the exported functions of `tests.wasm`, one per arity and
+ * type, through the boxed `apply` path and through `ExportedFunction`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CallBenchmark {
+    private Instance instance;
+    private Function sum;
+    private Function arity0;
+    private Function i32I32;
+    private Function i64I64;
+    private Function f32F32;
+    private Function f64F64;
+    private Function i32I64F32F64F64;
+    private Function voidFunction;
+    private ExportedFunction sumExported;
+    private ExportedFunction i64I64Exported;
+    private final long[] arguments = {1, 2};
+    private final long[] results = new long[1];
+
+    @Setup
+    public void setUp() {
+        this.instance = new Instance(Fixtures.getBytes(Fixtures.TESTS));
+        this.sum = this.instance.exports.getFunction("sum");
+        this.arity0 = this.instance.exports.getFunction("arity_0");
+        this.i32I32 = this.instance.exports.getFunction("i32_i32");
+        this.i64I64 = this.instance.exports.getFunction("i64_i64");
+        this.f32F32 = this.instance.exports.getFunction("f32_f32");
+        this.f64F64 = this.instance.exports.getFunction("f64_f64");
+        this.i32I64F32F64F64 = this.instance.exports.getFunction("i32_i64_f32_f64_f64");
+        this.voidFunction = this.instance.exports.getFunction("void");
+        this.sumExported = this.instance.exports.getExportedFunction("sum");
+        this.i64I64Exported = this.instance.exports.getExportedFunction("i64_i64");
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.instance.close();
+    }
+
+    @Benchmark
+    public Object[] applySum() {
+        return this.sum.apply(1, 2);
+    }
+
+    @Benchmark
+    public Object[] applyArity0() {
+        return this.arity0.apply();
+    }
+
+    @Benchmark
+    public Object[] applyI32I32() {
+        return this.i32I32.apply(42);
+    }
+
+    @Benchmark
+    public Object[] applyI64I64() {
+        return this.i64I64.apply(42L);
+    }
+
+    @Benchmark
+    public Object[] applyF32F32() {
+        return this.f32F32.apply(4.2f);
+    }
+
+    @Benchmark
+    public Object[] applyF64F64() {
+        return this.f64F64.apply(4.2d);
+    }
+
+    @Benchmark
+    public Object[] applyI32I64F32F64F64() {
+        return this.i32I64F32F64F64.apply(1, 2L, 3.4f, 5.6d);
+    }
+
+    @Benchmark
+    public Object[] applyVoid() {
+        return this.voidFunction.apply();
+    }
+
+    @Benchmark
+    public Object[] applySumByName() {
+        return this.instance.exports.getFunction("sum").apply(1, 2);
+    }
+
+    @Benchmark
+    public int callI32Sum() {
+        return this.sumExported.callI32(1, 2);
+    }
+
+    @Benchmark
+    public long callIntoSum() {
+        this.sumExported.callInto(this.arguments, this.results);
+
+        return this.results[0];
+    }
+
+    @Benchmark
+    public long callIntoI64I64() {
+        this.i64I64Exported.callInto(this.arguments, this.results);
+
+        return this.results[0];
+    }
+}
@@ -0,0 +1,52 @@
+package org.wasmer.benchmarks;
+
+import com.github.luben.zstd.Zstd;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * The WebAssembly modules of `test/resources`, shared by the
+ * benchmarks.
+ */
+final class Fixtures {
+    /**
+     * Prefix of the Substrate compressed runtimes, followed by a
+     * zstd frame.
+     */
+    private static final byte[] ZSTD_PREFIX = {(byte) 0x52, (byte) 0xbc, (byte) 0x53, (byte) 0x76, (byte) 0x46, (byte) 0xdb, (byte) 0x8e, (byte) 0x05};
+
+    static final String TESTS = "tests.wasm";
+    static final String IMPORT_SIMPLE = "import_simple.wasm";
+    static final String IMPORT_ACCESSMEMORY = "import_accessmemory.wasm";
+    static final String POLKADOT_RUNTIME = "polkadot_runtime-v9360.compact.compressed.wasm";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Return the bytes of the module `name`, decompressed if it is a
+     * compressed runtime.
+     */
+    static byte[] getBytes(String name) {
+        try (InputStream stream = Fixtures.class.getClassLoader().getResourceAsStream(name)) {
+            if (stream == null) {
+                throw new IllegalArgumentException("Fixture `" + name + "` does not exist");
+            }
+
+            byte[] bytes = stream.readAllBytes();
+
+            if (bytes.length > ZSTD_PREFIX.length && Arrays.equals(bytes, 0, ZSTD_PREFIX.length, ZSTD_PREFIX, 0, ZSTD_PREFIX.length)) {
+                byte[] compressed = Arrays.copyOfRange(bytes, ZSTD_PREFIX.length, bytes.length);
+
+                return Zstd.decompress(compressed, (int) Zstd.decompressedSize(compressed));
+            }
+
+            return bytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
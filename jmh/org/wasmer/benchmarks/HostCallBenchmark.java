@@ -0,0 +1,123 @@
+package org.wasmer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.wasmer.ExportedFunction;
+import org.wasmer.HostFunction;
+import org.wasmer.ImportObject;
+import org.wasmer.Imports;
+import org.wasmer.Instance;
+import org.wasmer.Memory;
+import org.wasmer.Module;
+import org.wasmer.Type;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Round trips from WebAssembly to Java host functions: `import_simple`
+ * through the boxed `FuncImport` and through `HostFuncImport`, and
+ * `import_accessmemory`, whose host functions read and write the
+ * instance memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HostCallBenchmark {
+    private static final byte[] MESSAGE = "World\0".getBytes(StandardCharsets.UTF_8);
+    private static final long[] NO_RESULTS = new long[0];
+
+    private Instance funcImportInstance;
+    private Instance hostFuncImportInstance;
+    private Instance accessMemoryInstance;
+    private Imports funcImports;
+    private Imports hostFuncImports;
+    private Imports accessMemoryImports;
+    private ExportedFunction funcImport;
+    private ExportedFunction hostFuncImport;
+    private ExportedFunction greet;
+    private ExportedFunction dropString;
+    private int messagePointer;
+    private final long[] pointer = new long[1];
+
+    @Setup
+    public void setUp() {
+        Module simple = new Module(Fixtures.getBytes(Fixtures.IMPORT_SIMPLE));
+
+        this.funcImports = Imports.from(Collections.singletonList(
+            new ImportObject.FuncImport("env", "mul_from_java", argv -> {
+                argv.set(0, argv.get(0).intValue() * argv.get(1).intValue());
+                return argv;
+            }, Arrays.asList(Type.I32, Type.I32), Collections.singletonList(Type.I32))
+        ), simple);
+        this.funcImportInstance = simple.instantiate(this.funcImports);
+        this.hostFuncImports = Imports.from(Collections.singletonList(
+            new ImportObject.HostFuncImport("env", "mul_from_java", (HostFunction) arguments -> arguments[0] * arguments[1],
+                Arrays.asList(Type.I32, Type.I32), Collections.singletonList(Type.I32))
+        ), simple);
+        this.hostFuncImportInstance = simple.instantiate(this.hostFuncImports);
+        this.funcImport = this.funcImportInstance.exports.getExportedFunction("double_each_arg_then_mul");
+        this.hostFuncImport = this.hostFuncImportInstance.exports.getExportedFunction("double_each_arg_then_mul");
+
+        Module accessMemory = new Module(Fixtures.getBytes(Fixtures.IMPORT_ACCESSMEMORY));
+        AtomicReference<Memory> memory = new AtomicReference<>();
+
+        this.accessMemoryImports = Imports.from(Arrays.asList(
+            new ImportObject.HostFuncImport("env", "get_greet_msg_len_from_java",
+                (HostFunction.I32ToI32) pointer -> MESSAGE.length,
+                Collections.singletonList(Type.I32), Collections.singletonList(Type.I32)),
+            new ImportObject.HostFuncImport("env", "greet_from_java", (HostFunction) arguments -> {
+                memory.get().write((int) arguments[1], MESSAGE, 0, MESSAGE.length);
+                return 0;
+            }, Arrays.asList(Type.I32, Type.I32), Collections.singletonList(Type.I32))
+        ), accessMemory);
+        this.accessMemoryInstance = accessMemory.instantiate(this.accessMemoryImports);
+        memory.set(this.accessMemoryInstance.exports.getMemory("memory"));
+
+        byte[] key = "key\0".getBytes(StandardCharsets.UTF_8);
+        this.messagePointer = this.accessMemoryInstance.exports.getExportedFunction("allocate").callI32(key.length);
+        memory.get().write(this.messagePointer, key, 0, key.length);
+        this.greet = this.accessMemoryInstance.exports.getExportedFunction("greet");
+        this.dropString = this.accessMemoryInstance.exports.getExportedFunction("drop_string");
+
+        simple.close();
+        accessMemory.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.funcImportInstance.close();
+        this.hostFuncImportInstance.close();
+        this.accessMemoryInstance.close();
+        this.funcImports.close();
+        this.hostFuncImports.close();
+        this.accessMemoryImports.close();
+    }
+
+    @Benchmark
+    public int importSimpleFuncImport() {
+        return this.funcImport.callI32(1, 2);
+    }
+
+    @Benchmark
+    public int importSimpleHostFuncImport() {
+        return this.hostFuncImport.callI32(1, 2);
+    }
+
+    @Benchmark
+    public int importAccessMemory() {
+        this.pointer[0] = this.greet.callI32(this.messagePointer);
+        this.dropString.callInto(this.pointer, NO_RESULTS);
+
+        return (int) this.pointer[0];
+    }
+}
@@ -0,0 +1,69 @@
+package org.wasmer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.wasmer.HostFunction;
+import org.wasmer.ImportObject;
+import org.wasmer.Imports;
+import org.wasmer.Instance;
+import org.wasmer.Module;
+import org.wasmer.Type;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instantiating an already compiled module, with and without imports.
+ * The imports are created once, in `setUp`, and closed in `tearDown`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InstanceBenchmark {
+    private Module testsModule;
+    private Module importSimpleModule;
+    private Imports testsImports;
+    private Imports importSimpleImports;
+
+    @Setup
+    public void setUp() {
+        this.testsModule = new Module(Fixtures.getBytes(Fixtures.TESTS));
+        this.importSimpleModule = new Module(Fixtures.getBytes(Fixtures.IMPORT_SIMPLE));
+        this.testsImports = Imports.from(Collections.emptyList(), this.testsModule);
+        this.importSimpleImports = Imports.from(Collections.singletonList(
+            new ImportObject.HostFuncImport("env", "mul_from_java", (HostFunction) arguments -> arguments[0] * arguments[1],
+                Arrays.asList(Type.I32, Type.I32), Collections.singletonList(Type.I32))
+        ), this.importSimpleModule);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.testsImports.close();
+        this.importSimpleImports.close();
+        this.testsModule.close();
+        this.importSimpleModule.close();
+    }
+
+    @Benchmark
+    public Instance instantiate() {
+        Instance instance = this.testsModule.instantiate(this.testsImports);
+        instance.close();
+
+        return instance;
+    }
+
+    @Benchmark
+    public Instance instantiateWithImports() {
+        Instance instance = this.importSimpleModule.instantiate(this.importSimpleImports);
+        instance.close();
+
+        return instance;
+    }
+}
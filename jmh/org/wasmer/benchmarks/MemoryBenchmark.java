@@ -0,0 +1,130 @@
+package org.wasmer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wasmer.Instance;
+import org.wasmer.Memory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Viewing, copying in and out of, and growing the memory of
+ * `tests.wasm`.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MemoryBenchmark {
+    @State(Scope.Thread)
+    public static class Copy {
+        @Param({"32", "4096", "65536"})
+        public int length;
+
+        private Instance instance;
+        private Memory memory;
+        private byte[] bytes;
+
+        @Setup
+        public void setUp() {
+            this.instance = new Instance(Fixtures.getBytes(Fixtures.TESTS));
+            this.memory = this.instance.exports.getMemory("memory");
+            this.bytes = new byte[this.length];
+        }
+
+        @TearDown
+        public void tearDown() {
+            this.instance.close();
+        }
+    }
+
+    /**
+     * A fresh instance per iteration, as a memory cannot shrink.
+     */
+    @State(Scope.Thread)
+    public static class Grow {
+        private Instance instance;
+        private Memory memory;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            this.instance = new Instance(Fixtures.getBytes(Fixtures.TESTS));
+            this.memory = this.instance.exports.getMemory("memory");
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            this.instance.close();
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer buffer(Copy state) {
+        return state.memory.buffer();
+    }
+
+    @Benchmark
+    public byte[] bufferRead(Copy state) {
+        ByteBuffer buffer = state.memory.buffer();
+        buffer.position(1024);
+        buffer.get(state.bytes);
+
+        return state.bytes;
+    }
+
+    @Benchmark
+    public ByteBuffer bufferWrite(Copy state) {
+        ByteBuffer buffer = state.memory.buffer();
+        buffer.position(1024);
+        buffer.put(state.bytes);
+
+        return buffer;
+    }
+
+    @Benchmark
+    public byte[] read(Copy state) {
+        state.memory.read(1024, state.bytes, 0, state.length);
+
+        return state.bytes;
+    }
+
+    @Benchmark
+    public Memory write(Copy state) {
+        state.memory.write(1024, state.bytes, 0, state.length);
+
+        return state.memory;
+    }
+
+    @Benchmark
+    public Memory copyWithin(Copy state) {
+        state.memory.copyWithin(1024, 1024 + state.length, state.length);
+
+        return state.memory;
+    }
+
+    @Benchmark
+    public long getI64(Copy state) {
+        return state.memory.getI64(1024);
+    }
+
+    /**
+     * Batches of 1000 grows of one page, 64MiB per iteration.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, batchSize = 1000)
+    @Measurement(iterations = 10, batchSize = 1000)
+    public int grow(Grow state) {
+        return state.memory.grow(1);
+    }
+}
@@ -0,0 +1,58 @@
+package org.wasmer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.wasmer.Engine;
+import org.wasmer.Module;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiling a module against loading it from its serialized artifact.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ModuleBenchmark {
+    @Param({Fixtures.TESTS, Fixtures.POLKADOT_RUNTIME})
+    public String fixture;
+
+    private byte[] moduleBytes;
+    private byte[] serializedBytes;
+
+    @Setup
+    public void setUp() {
+        this.moduleBytes = Fixtures.getBytes(this.fixture);
+
+        Module module = new Module(this.moduleBytes);
+        this.serializedBytes = module.serialize();
+        module.close();
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return Module.validate(Engine.getDefault(), this.moduleBytes);
+    }
+
+    @Benchmark
+    public Module compile() {
+        Module module = new Module(this.moduleBytes);
+        module.close();
+
+        return module;
+    }
+
+    @Benchmark
+    public Module deserialize() {
+        Module module = Module.deserialize(this.serializedBytes);
+        module.close();
+
+        return module;
+    }
+}
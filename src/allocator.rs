@@ -0,0 +1,356 @@
+//! A freeing-bump allocator of the heap of a linear memory, run in
+//! Rust both by the host functions an instance imports to allocate,
+//! and by the host, see `org.wasmer.NativeAllocator`.
+//!
+//! It is the allocator of the Substrate hosts: allocations are rounded
+//! up to a power of two, from 8 bytes to 32 MiB, and preceded by an
+//! 8-byte header. A freed allocation goes to the free list of its
+//! size, and is reused by the next allocation of that size; otherwise,
+//! allocations are bumped after the previous ones, from the heap base
+//! up, growing the memory when needed.
+
+use crate::{
+    exception::{joption_or_throw, runtime_error, Error},
+    interpreter::{self, InterpretedMemory},
+    memory::Memory,
+    types::{jptr, Pointer},
+};
+use jni::{
+    objects::{JClass, JObject},
+    sys::{jboolean, jint},
+    JNIEnv,
+};
+use std::{
+    convert::TryFrom,
+    panic,
+    sync::{Arc, Mutex},
+};
+use wasmer::{Function, FunctionType, RuntimeError, Store, Type, Value};
+
+const ALIGNMENT: u32 = 8;
+const HEADER_SIZE: u32 = 8;
+const MIN_POSSIBLE_ALLOCATION: u32 = 8;
+const MAX_POSSIBLE_ALLOCATION: u32 = 32 * 1024 * 1024;
+const N_ORDERS: usize = 23;
+const PAGE_SIZE: u32 = 65536;
+
+/// The end of a free list.
+const NIL: u32 = u32::MAX;
+
+/// The flag of the header of an occupied allocation, whose order is in
+/// the low bits. The header of a free allocation is the pointer to the
+/// next free allocation of its order.
+const OCCUPIED: u64 = 1 << 32;
+
+/// A linear memory holding a heap.
+pub trait HeapMemory {
+    /// Return the data of the memory.
+    #[allow(clippy::mut_from_ref)]
+    fn data(&self) -> &mut [u8];
+
+    /// Grow the memory by `pages`.
+    fn grow(&self, pages: u32) -> Result<(), Error>;
+
+    /// Return the memory if it is interpreted, see
+    /// `Allocator::interpreted_memory`.
+    fn interpreted(&self) -> Option<&InterpretedMemory> {
+        None
+    }
+}
+
+impl HeapMemory for Memory {
+    fn data(&self) -> &mut [u8] {
+        unsafe { self.memory.data_unchecked_mut() }
+    }
+
+    fn grow(&self, pages: u32) -> Result<(), Error> {
+        Memory::grow(self, pages).map(|_| ())
+    }
+}
+
+/// The allocations of a heap.
+struct FreeingBump {
+    bumper: u32,
+    free_lists: [u32; N_ORDERS],
+}
+
+impl FreeingBump {
+    fn new(heap_base: u32) -> Self {
+        Self {
+            bumper: (heap_base + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT,
+            free_lists: [NIL; N_ORDERS],
+        }
+    }
+
+    fn order(size: u32) -> Result<usize, Error> {
+        if size > MAX_POSSIBLE_ALLOCATION {
+            return Err(runtime_error(format!(
+                "Cannot allocate {} bytes, more than {}",
+                size, MAX_POSSIBLE_ALLOCATION
+            )));
+        }
+
+        let size = size.max(MIN_POSSIBLE_ALLOCATION).next_power_of_two();
+
+        Ok((size.trailing_zeros() - MIN_POSSIBLE_ALLOCATION.trailing_zeros()) as usize)
+    }
+
+    fn allocate(&mut self, memory: &dyn HeapMemory, size: u32) -> Result<u32, Error> {
+        let order = Self::order(size)?;
+        let header_pointer = match self.free_lists[order] {
+            NIL => {
+                let header_pointer = self.bumper;
+                let end = u64::from(header_pointer) + u64::from(HEADER_SIZE) + (u64::from(MIN_POSSIBLE_ALLOCATION) << order);
+                let end = u32::try_from(end).map_err(|_| runtime_error("The heap is out of space".to_string()))?;
+                let size = memory.data().len() as u64;
+
+                if u64::from(end) > size {
+                    let pages = (u64::from(end) - size + u64::from(PAGE_SIZE) - 1) / u64::from(PAGE_SIZE);
+                    memory.grow(pages as u32)?;
+                }
+
+                self.bumper = end;
+
+                header_pointer
+            }
+            free => {
+                self.free_lists[order] = read_header(memory, free)? as u32;
+
+                free
+            }
+        };
+
+        write_header(memory, header_pointer, OCCUPIED | order as u64)?;
+
+        Ok(header_pointer + HEADER_SIZE)
+    }
+
+    fn deallocate(&mut self, memory: &dyn HeapMemory, pointer: u32) -> Result<(), Error> {
+        let header_pointer = pointer
+            .checked_sub(HEADER_SIZE)
+            .ok_or_else(|| runtime_error(format!("Cannot free {}, it has not been allocated", pointer)))?;
+        let header = read_header(memory, header_pointer)?;
+        let order = (header & !OCCUPIED) as usize;
+
+        if header & OCCUPIED == 0 || order >= N_ORDERS {
+            return Err(runtime_error(format!("Cannot free {}, it is not allocated", pointer)));
+        }
+
+        write_header(memory, header_pointer, u64::from(self.free_lists[order]))?;
+        self.free_lists[order] = header_pointer;
+
+        Ok(())
+    }
+}
+
+fn read_header(memory: &dyn HeapMemory, header_pointer: u32) -> Result<u64, Error> {
+    let start = header_pointer as usize;
+    let bytes = memory
+        .data()
+        .get(start..start + HEADER_SIZE as usize)
+        .ok_or_else(|| runtime_error(format!("The allocation header at {} is out of the memory", header_pointer)))?;
+    let mut header = [0; 8];
+    header.copy_from_slice(bytes);
+
+    Ok(u64::from_le_bytes(header))
+}
+
+fn write_header(memory: &dyn HeapMemory, header_pointer: u32, header: u64) -> Result<(), Error> {
+    let start = header_pointer as usize;
+
+    memory
+        .data()
+        .get_mut(start..start + HEADER_SIZE as usize)
+        .ok_or_else(|| runtime_error(format!("The allocation header at {} is out of the memory", header_pointer)))?
+        .copy_from_slice(&header.to_le_bytes());
+
+    Ok(())
+}
+
+/// An allocator, shared by the Java object and the host functions
+/// using it. It allocates nothing until it is bound to a memory.
+///
+/// Each operation takes the memory to use in place of the bound one, if
+/// any: an interpreted host function must reach the memory through its
+/// caller, which holds the store for the duration of the call, see
+/// `interpreter::CallerMemory`.
+#[derive(Default)]
+pub struct Allocator {
+    heap: Mutex<Option<(Box<dyn HeapMemory + Send>, FreeingBump)>>,
+}
+
+impl Allocator {
+    fn bind(&self, memory: Box<dyn HeapMemory + Send>, heap_base: u32) {
+        *self.heap.lock().unwrap() = Some((memory, FreeingBump::new(heap_base)));
+    }
+
+    /// Run `run` on the memory, `through` or the bound one, and on the
+    /// allocations of the heap.
+    fn with_heap<R>(
+        &self,
+        through: Option<&dyn HeapMemory>,
+        run: impl FnOnce(&dyn HeapMemory, &mut FreeingBump) -> Result<R, Error>,
+    ) -> Result<R, Error> {
+        match &mut *self.heap.lock().unwrap() {
+            Some((memory, heap)) => {
+                let memory: &dyn HeapMemory = match through {
+                    Some(through) => through,
+                    None => memory.as_ref(),
+                };
+
+                run(memory, heap)
+            }
+            None => Err(unbound()),
+        }
+    }
+
+    /// Return the interpreted memory the allocator is bound to, if any.
+    pub fn interpreted_memory(&self) -> Option<InterpretedMemory> {
+        match &*self.heap.lock().unwrap() {
+            Some((memory, _)) => memory.interpreted().cloned(),
+            None => None,
+        }
+    }
+
+    /// Allocate `size` bytes, and return their address.
+    pub fn allocate(&self, through: Option<&dyn HeapMemory>, size: u32) -> Result<u32, Error> {
+        self.with_heap(through, |memory, heap| heap.allocate(memory, size))
+    }
+
+    /// Run `read` on the data of the memory.
+    pub fn read<R>(&self, through: Option<&dyn HeapMemory>, read: impl FnOnce(&[u8]) -> R) -> Result<R, Error> {
+        self.with_heap(through, |memory, _| Ok(read(memory.data())))
+    }
+
+    /// Allocate a copy of `bytes`, and return its address.
+    pub fn allocate_bytes(&self, through: Option<&dyn HeapMemory>, bytes: &[u8]) -> Result<u32, Error> {
+        self.with_heap(through, |memory, heap| {
+            let pointer = heap.allocate(memory, u32::try_from(bytes.len())?)?;
+            memory.data()[pointer as usize..pointer as usize + bytes.len()].copy_from_slice(bytes);
+
+            Ok(pointer)
+        })
+    }
+
+    /// Free the allocation at `pointer`.
+    pub fn deallocate(&self, through: Option<&dyn HeapMemory>, pointer: u32) -> Result<(), Error> {
+        self.with_heap(through, |memory, heap| heap.deallocate(memory, pointer))
+    }
+}
+
+fn unbound() -> Error {
+    runtime_error("The allocator is not bound to a memory".to_string())
+}
+
+/// Return the allocator of an `org.wasmer.ImportObject.AllocatorImport`.
+pub fn allocator_of(env: &JNIEnv, import: JObject) -> Result<Arc<Allocator>, Error> {
+    let allocator = env.get_field(import, "allocator", "Lorg/wasmer/NativeAllocator;")?.l()?;
+    let allocator_pointer = env.get_field(allocator, "allocatorPointer", "J")?.j()?;
+
+    if allocator_pointer == 0 {
+        return Err(runtime_error("The allocator has been closed".to_string()));
+    }
+
+    let allocator: &Arc<Allocator> = Into::<Pointer<Arc<Allocator>>>::into(allocator_pointer).borrow();
+
+    Ok(allocator.clone())
+}
+
+/// Create the host function of an `org.wasmer.ImportObject.AllocatorImport`
+/// for a compiled instance: `(i32) -> i32` to allocate, or `(i32) -> ()`
+/// to free.
+pub fn new_function(env: &JNIEnv, store: &Store, import: JObject) -> Result<Function, Error> {
+    let allocator = allocator_of(env, import)?;
+
+    Ok(if env.get_field(import, "free", "Z")?.z()? {
+        Function::new(store, FunctionType::new(vec![Type::I32], vec![]), move |arguments| {
+            allocator
+                .deallocate(None, arguments[0].unwrap_i32() as u32)
+                .map_err(|e| RuntimeError::new(e.to_string()))?;
+
+            Ok(vec![])
+        })
+    } else {
+        Function::new(store, FunctionType::new(vec![Type::I32], vec![Type::I32]), move |arguments| {
+            let size = u32::try_from(arguments[0].unwrap_i32()).map_err(|e| RuntimeError::new(e.to_string()))?;
+            let pointer = allocator.allocate(None, size).map_err(|e| RuntimeError::new(e.to_string()))?;
+
+            Ok(vec![Value::I32(pointer as i32)])
+        })
+    })
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_NativeAllocator_nativeCreate(env: JNIEnv, _class: JClass) -> jptr {
+    let output = panic::catch_unwind(|| Ok(Pointer::new(Arc::new(Allocator::default())).into()));
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_NativeAllocator_nativeDrop(
+    _env: JNIEnv,
+    _class: JClass,
+    allocator_pointer: jptr,
+) {
+    let _: Pointer<Arc<Allocator>> = allocator_pointer.into();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_NativeAllocator_nativeBind(
+    env: JNIEnv,
+    _class: JClass,
+    allocator_pointer: jptr,
+    memory_pointer: jptr,
+    interpreted: jboolean,
+    heap_base: jint,
+) {
+    let output = panic::catch_unwind(|| {
+        let allocator: &Arc<Allocator> = Into::<Pointer<Arc<Allocator>>>::into(allocator_pointer).borrow();
+        let memory: Box<dyn HeapMemory + Send> = if interpreted != 0 {
+            interpreter::heap_memory(memory_pointer)
+        } else {
+            let memory: &Memory = Into::<Pointer<Memory>>::into(memory_pointer).borrow();
+
+            Box::new(memory.clone())
+        };
+
+        allocator.bind(memory, u32::try_from(heap_base)?);
+
+        Ok(())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_NativeAllocator_nativeAllocate(
+    env: JNIEnv,
+    _class: JClass,
+    allocator_pointer: jptr,
+    size: jint,
+) -> jint {
+    let output = panic::catch_unwind(|| {
+        let allocator: &Arc<Allocator> = Into::<Pointer<Arc<Allocator>>>::into(allocator_pointer).borrow();
+
+        Ok(allocator.allocate(None, u32::try_from(size)?)? as jint)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_NativeAllocator_nativeFree(
+    env: JNIEnv,
+    _class: JClass,
+    allocator_pointer: jptr,
+    pointer: jint,
+) {
+    let output = panic::catch_unwind(|| {
+        let allocator: &Arc<Allocator> = Into::<Pointer<Arc<Allocator>>>::into(allocator_pointer).borrow();
+
+        allocator.deallocate(None, pointer as u32)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(())
+}
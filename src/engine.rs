@@ -0,0 +1,179 @@
+use crate::{
+    exception::{joption_or_throw, runtime_error, Error},
+    types::{jptr, Pointer},
+};
+use jni::{
+    objects::JClass,
+    sys::{jboolean, jint, jstring},
+    JNIEnv,
+};
+use std::panic;
+use wasmer::{self as runtime, CompilerConfig, Triple};
+use wasmer_compiler_cranelift::{Cranelift, CraneliftOptLevel};
+#[cfg(feature = "llvm")]
+use wasmer_compiler_llvm::{LLVMOptLevel, LLVM};
+#[cfg(feature = "singlepass")]
+use wasmer_compiler_singlepass::Singlepass;
+use wasmer_engine_universal::Universal as UniversalEngine;
+
+/// Codes of `org.wasmer.Compiler`.
+const COMPILER_INTERPRETER: jint = 0;
+const COMPILER_CRANELIFT: jint = 1;
+const COMPILER_SINGLEPASS: jint = 2;
+const COMPILER_LLVM: jint = 3;
+
+/// Codes of `org.wasmer.CompilerConfig.OptLevel`.
+const OPT_LEVEL_NONE: jint = 0;
+const OPT_LEVEL_SPEED: jint = 1;
+const OPT_LEVEL_SPEED_AND_SIZE: jint = 2;
+
+fn opt_level_name(opt_level: jint) -> Result<&'static str, Error> {
+    match opt_level {
+        OPT_LEVEL_NONE => Ok("none"),
+        OPT_LEVEL_SPEED => Ok("speed"),
+        OPT_LEVEL_SPEED_AND_SIZE => Ok("speed_and_size"),
+        _ => Err(runtime_error(format!("Unknown optimization level {}", opt_level))),
+    }
+}
+
+/// Return the configuration of the given compiler, and its name.
+pub(crate) fn compiler_config(compiler: jint, opt_level: jint) -> Result<(Box<dyn CompilerConfig>, &'static str), Error> {
+    opt_level_name(opt_level)?;
+
+    match compiler {
+        // Modules are interpreted, see `interpreter`: the store is
+        // never asked to compile, but it still owns the imports.
+        COMPILER_INTERPRETER => Ok((Box::new(Cranelift::default()), "interpreter")),
+
+        COMPILER_CRANELIFT => {
+            let mut config = Cranelift::default();
+            config.opt_level(match opt_level {
+                OPT_LEVEL_NONE => CraneliftOptLevel::None,
+                OPT_LEVEL_SPEED => CraneliftOptLevel::Speed,
+                _ => CraneliftOptLevel::SpeedAndSize,
+            });
+
+            Ok((Box::new(config), "cranelift"))
+        }
+
+        #[cfg(feature = "singlepass")]
+        COMPILER_SINGLEPASS => Ok((Box::new(Singlepass::default()), "singlepass")),
+
+        #[cfg(feature = "llvm")]
+        COMPILER_LLVM => {
+            let mut config = LLVM::default();
+            config.opt_level(match opt_level {
+                OPT_LEVEL_NONE => LLVMOptLevel::None,
+                OPT_LEVEL_SPEED => LLVMOptLevel::Aggressive,
+                _ => LLVMOptLevel::Default,
+            });
+
+            Ok((Box::new(config), "llvm"))
+        }
+
+        _ => Err(runtime_error(format!(
+            "The compiler {} is not available in this build of wasmer-jni",
+            compiler
+        ))),
+    }
+}
+
+fn is_compiler_available(compiler: jint) -> bool {
+    match compiler {
+        COMPILER_INTERPRETER | COMPILER_CRANELIFT => true,
+        COMPILER_SINGLEPASS => cfg!(feature = "singlepass"),
+        COMPILER_LLVM => cfg!(feature = "llvm"),
+        _ => false,
+    }
+}
+
+/// A compilation engine shared by many modules.
+///
+/// The `Store` holds the engine behind an `Arc`, so every module
+/// compiled or deserialized with it keeps the engine alive, and
+/// cloning the store is cheap.
+pub struct Engine {
+    pub(crate) store: runtime::Store,
+    /// The engine of the interpreted modules, used by the interpreter
+    /// and the tiered configurations.
+    pub(crate) interpreter: wasmi::Engine,
+    /// Identifies the code this engine produces: artifacts serialized
+    /// by an engine can only be loaded by an engine with the same version.
+    pub(crate) version: String,
+    /// The compiler settings, to create the stores of the metered
+    /// modules, see `metering`.
+    pub(crate) compiler: jint,
+    pub(crate) opt_level: jint,
+}
+
+impl Engine {
+    fn new(compiler: jint, opt_level: jint) -> Result<Self, Error> {
+        let (config, compiler_name) = compiler_config(compiler, opt_level)?;
+        let store = runtime::Store::new(&UniversalEngine::new(config).engine());
+        let version = format!(
+            "wasmer-jni/{} wasmer/{} engine=universal compiler={} opt_level={} target={}",
+            env!("CARGO_PKG_VERSION"),
+            runtime::VERSION,
+            compiler_name,
+            opt_level_name(opt_level)?,
+            Triple::host(),
+        );
+
+        Ok(Self {
+            store,
+            interpreter: wasmi::Engine::default(),
+            version,
+            compiler,
+            opt_level,
+        })
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Engine_nativeEngineInstantiate(
+    env: JNIEnv,
+    _class: JClass,
+    compiler: jint,
+    opt_level: jint,
+) -> jptr {
+    let output = panic::catch_unwind(|| {
+        let engine = Engine::new(compiler, opt_level)?;
+
+        Ok(Pointer::new(engine).into())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Engine_nativeDrop(
+    _env: JNIEnv,
+    _class: JClass,
+    engine_pointer: jptr,
+) {
+    let _: Pointer<Engine> = engine_pointer.into();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Engine_nativeVersion(
+    env: JNIEnv,
+    _class: JClass,
+    engine_pointer: jptr,
+) -> jstring {
+    let output = panic::catch_unwind(|| {
+        let engine: &Engine = Into::<Pointer<Engine>>::into(engine_pointer).borrow();
+
+        Ok(env.new_string(&engine.version)?.into_inner())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(std::ptr::null_mut())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Compiler_nativeIsAvailable(
+    _env: JNIEnv,
+    _class: JClass,
+    compiler: jint,
+) -> jboolean {
+    is_compiler_available(compiler) as jboolean
+}
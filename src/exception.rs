@@ -1,15 +1,112 @@
 use std::num::TryFromIntError;
 use std::str::Utf8Error;
-use jni::JNIEnv;
-use std::thread;
+use jni::{
+    objects::{GlobalRef, JClass, JObject, JStaticMethodID, JThrowable, JValue},
+    signature::JavaType,
+    sys::jobjectArray,
+    JNIEnv,
+};
+use std::{convert::TryFrom, panic, ptr, sync::Mutex, thread};
 use jni::errors::Error as JNIError;
-use wasmer::MemoryError;
+use wasmer::{Instance as WasmInstance, InstantiationError, MemoryError, RuntimeError};
+use wasmer_vm::TrapCode;
 use wasmer_wasi::{WasiError, WasiStateCreationError};
+use crate::{
+    host_function::{JavaException, MethodId},
+    metering::is_exhausted,
+    types::{jptr, Pointer},
+};
+
+/// Codes of `org.wasmer.WasmTrapException.TrapCode`.
+pub const TRAP_UNKNOWN: i32 = 0;
+const TRAP_UNREACHABLE: i32 = 1;
+const TRAP_MEMORY_OUT_OF_BOUNDS: i32 = 2;
+const TRAP_TABLE_OUT_OF_BOUNDS: i32 = 3;
+const TRAP_INDIRECT_CALL_TO_NULL: i32 = 4;
+const TRAP_BAD_SIGNATURE: i32 = 5;
+const TRAP_INTEGER_OVERFLOW: i32 = 6;
+const TRAP_INTEGER_DIVISION_BY_ZERO: i32 = 7;
+const TRAP_BAD_CONVERSION_TO_INTEGER: i32 = 8;
+const TRAP_STACK_OVERFLOW: i32 = 9;
+const TRAP_MISALIGNED_ACCESS: i32 = 10;
+pub const TRAP_OUT_OF_FUEL: i32 = 11;
+
+/// The signature of `org.wasmer.WasmTrapException.create`.
+const CREATE_SIGNATURE: &str = "(Ljava/lang/String;IJ)Lorg/wasmer/WasmTrapException;";
+
+/// A WebAssembly trap, thrown as an `org.wasmer.WasmTrapException`.
+#[derive(Debug)]
+pub struct Trap {
+    pub code: i32,
+    pub message: String,
+    /// The error of a compiled call, whose backtrace is only read if
+    /// Java asks for it, see `WasmTrapException.getWasmBacktrace`.
+    pub error: Option<RuntimeError>,
+}
+
+impl Trap {
+    pub fn new(code: i32, message: String) -> Self {
+        Self {
+            code,
+            message,
+            error: None,
+        }
+    }
+
+    fn from_runtime_error(error: RuntimeError, code: Option<i32>) -> Self {
+        let code = code.unwrap_or_else(|| match error.clone().to_trap() {
+            Some(TrapCode::UnreachableCodeReached) => TRAP_UNREACHABLE,
+            Some(TrapCode::HeapAccessOutOfBounds) | Some(TrapCode::OutOfBounds) => TRAP_MEMORY_OUT_OF_BOUNDS,
+            Some(TrapCode::TableAccessOutOfBounds) => TRAP_TABLE_OUT_OF_BOUNDS,
+            Some(TrapCode::IndirectCallToNull) => TRAP_INDIRECT_CALL_TO_NULL,
+            Some(TrapCode::BadSignature) => TRAP_BAD_SIGNATURE,
+            Some(TrapCode::IntegerOverflow) => TRAP_INTEGER_OVERFLOW,
+            Some(TrapCode::IntegerDivisionByZero) => TRAP_INTEGER_DIVISION_BY_ZERO,
+            Some(TrapCode::BadConversionToInteger) => TRAP_BAD_CONVERSION_TO_INTEGER,
+            Some(TrapCode::StackOverflow) => TRAP_STACK_OVERFLOW,
+            Some(TrapCode::HeapMisaligned) | Some(TrapCode::UnalignedAtomic) => TRAP_MISALIGNED_ACCESS,
+            _ => TRAP_UNKNOWN,
+        });
+
+        Self {
+            code,
+            message: error.message(),
+            error: Some(error),
+        }
+    }
+}
+
+/// The class of `org.wasmer.WasmTrapException` and the method ID of its
+/// `create`, resolved by the first trap. The global reference keeps the
+/// class loaded, so the method ID stays valid.
+static TRAP_EXCEPTION: Mutex<Option<(GlobalRef, MethodId)>> = Mutex::new(None);
+
+fn trap_exception(env: &JNIEnv) -> Result<(GlobalRef, MethodId), JNIError> {
+    let mut cached = TRAP_EXCEPTION.lock().unwrap();
+
+    if let Some(cached) = &*cached {
+        return Ok(cached.clone());
+    }
+
+    let class = env.find_class("org/wasmer/WasmTrapException")?;
+    let create = MethodId(env.get_static_method_id(class, "create", CREATE_SIGNATURE)?.into_inner());
+    let resolved = (env.new_global_ref(class)?, create);
+    *cached = Some(resolved.clone());
+
+    Ok(resolved)
+}
 
 #[derive(Debug)]
 pub enum Error {
     JNIError(JNIError),
     Message(String),
+    Trap(Trap),
+    Link(String),
+    Compile(String),
+    /// A host function has failed, thrown as an
+    /// `org.wasmer.HostFunctionException` whose cause is the Java
+    /// exception the host function has thrown, if any.
+    HostFunction(String, Option<GlobalRef>),
     WasiError(WasiError),
     WasiStateCreationError(WasiStateCreationError),
     MemoryError(MemoryError),
@@ -46,6 +143,10 @@ impl std::fmt::Display for Error {
         match self {
             Error::JNIError(err) => err.fmt(fmt),
             Error::Message(msg) => msg.fmt(fmt),
+            Error::Trap(trap) => trap.message.fmt(fmt),
+            Error::Link(msg) => msg.fmt(fmt),
+            Error::Compile(msg) => msg.fmt(fmt),
+            Error::HostFunction(msg, _) => msg.fmt(fmt),
             Error::WasiError(err) => err.fmt(fmt),
             Error::WasiStateCreationError(err) => err.fmt(fmt),
             Error::MemoryError(err) => err.fmt(fmt),
@@ -59,6 +160,82 @@ pub fn runtime_error(message: String) -> Error {
     Error::Message(message)
 }
 
+/// Turn the error of a call of `instance` into an `Error`.
+///
+/// Errors with a trap code come from the code itself. Errors without
+/// come from a host function, unless the points of a metered instance
+/// are exhausted: the metering traps with `unreachable`.
+pub fn call_error(instance: &WasmInstance, error: RuntimeError) -> Error {
+    if is_exhausted(instance) {
+        return Error::Trap(Trap::from_runtime_error(error, Some(TRAP_OUT_OF_FUEL)));
+    }
+
+    let error = match error.downcast::<JavaException>() {
+        Ok(exception) => return Error::HostFunction(exception.to_string(), Some(exception.0)),
+        Err(error) => error,
+    };
+
+    if error.clone().to_trap().is_none() {
+        return Error::HostFunction(error.message(), None);
+    }
+
+    Error::Trap(Trap::from_runtime_error(error, None))
+}
+
+/// Turn the error of an instantiation into an `Error`: a failing start
+/// function traps, anything else fails to link.
+pub fn instantiation_error(error: InstantiationError) -> Error {
+    match error {
+        InstantiationError::Start(error) => Error::Trap(Trap::from_runtime_error(error, None)),
+        error => Error::Link(format!("Failed to instantiate a WebAssembly module: {}", error)),
+    }
+}
+
+fn throw(env: &JNIEnv, error: &Error) -> Result<(), JNIError> {
+    match error {
+        Error::Trap(trap) => {
+            let (class, create) = trap_exception(env)?;
+            let message = env.new_string(&trap.message)?;
+            // The exception owns the error, to read its backtrace later.
+            let error_pointer: jptr = match &trap.error {
+                Some(error) if !error.trace().is_empty() => Pointer::new(error.clone()).into(),
+                _ => 0,
+            };
+            let exception = env.call_static_method_unchecked(
+                JClass::from(class.as_obj()),
+                JStaticMethodID::from(create.0),
+                JavaType::Object("org/wasmer/WasmTrapException".to_string()),
+                &[JValue::Object(message.into()), JValue::Int(trap.code), JValue::Long(error_pointer)],
+            );
+            let exception = match exception {
+                Ok(exception) => exception.l()?,
+                Err(e) => {
+                    if error_pointer != 0 {
+                        let _: Pointer<RuntimeError> = error_pointer.into();
+                    }
+
+                    return Err(e);
+                }
+            };
+
+            env.throw(JThrowable::from(exception))
+        }
+        Error::Link(message) => env.throw_new("org/wasmer/LinkException", message),
+        Error::Compile(message) => env.throw_new("org/wasmer/CompileException", message),
+        Error::HostFunction(message, Some(cause)) => {
+            let exception = env.new_object(
+                "org/wasmer/HostFunctionException",
+                "(Ljava/lang/String;Ljava/lang/Throwable;)V",
+                &[JValue::Object(env.new_string(message)?.into()), JValue::Object(cause.as_obj())],
+            )?;
+
+            env.throw(JThrowable::from(exception))
+        }
+        Error::HostFunction(message, None) => env.throw_new("org/wasmer/HostFunctionException", message),
+        error => env.throw_new("java/lang/RuntimeException", error.to_string()),
+    }
+}
+
 #[derive(Debug)]
 pub enum JOption<T> {
     Some(T),
@@ -80,8 +257,7 @@ pub fn joption_or_throw<T>(env: &JNIEnv, result: thread::Result<Result<T, Error>
             Ok(result) => JOption::Some(result),
             Err(error) => {
                 if !env.exception_check().unwrap() {
-                    env.throw_new("java/lang/RuntimeException", &error.to_string())
-                        .expect("Cannot throw a `java/lang/RuntimeException` exception.");
+                    throw(env, &error).expect("Cannot throw an exception.");
                 }
 
                 JOption::None
@@ -95,3 +271,49 @@ pub fn joption_or_throw<T>(env: &JNIEnv, result: thread::Result<Result<T, Error>
         }
     }
 }
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_WasmTrapException_nativeBacktrace(
+    env: JNIEnv,
+    _class: JClass,
+    error_pointer: jptr,
+) -> jobjectArray {
+    let output = panic::catch_unwind(|| {
+        let error: &RuntimeError = Into::<Pointer<RuntimeError>>::into(error_pointer).borrow();
+        let frames = error.trace();
+        let frame_class = env.find_class("org/wasmer/WasmTrapException$Frame")?;
+        let array = env.new_object_array(i32::try_from(frames.len())?, frame_class, JObject::null())?;
+
+        for (nth, frame) in frames.iter().enumerate() {
+            let function_name = match frame.function_name() {
+                Some(name) => JObject::from(env.new_string(name)?),
+                None => JObject::null(),
+            };
+            let frame = env.new_object(
+                frame_class,
+                "(ILjava/lang/String;I)V",
+                &[
+                    JValue::Int(frame.func_index() as i32),
+                    JValue::Object(function_name),
+                    JValue::Int(frame.module_offset() as i32),
+                ],
+            )?;
+
+            env.set_object_array_element(array, i32::try_from(nth)?, frame)?;
+            env.delete_local_ref(frame)?;
+        }
+
+        Ok(array)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(ptr::null_mut())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_WasmTrapException_nativeDrop(
+    _env: JNIEnv,
+    _class: JClass,
+    error_pointer: jptr,
+) {
+    let _: Pointer<RuntimeError> = error_pointer.into();
+}
@@ -0,0 +1,216 @@
+//! C entry points of the `java.lang.foreign` backend, see
+//! `org.wasmer.PanamaBackend`.
+//!
+//! They are called through downcall handles, without any `JNIEnv`: a
+//! function returns a non-zero status on failure, and the error message
+//! is then kept for this thread until `wasmer_jni_take_last_error`.
+//! The statuses are also those of the calls of a batch, see
+//! `org.wasmer.ExportedFunction.callBatch`.
+
+use crate::{
+    exception::{runtime_error, Error},
+    function::ExportedFunction,
+    global::Global,
+    memory::Memory,
+    types::{jptr, Pointer},
+    value::value_to_bits,
+};
+use std::{
+    cell::RefCell,
+    panic::{self, AssertUnwindSafe},
+    ptr, slice,
+};
+
+thread_local! {
+    static LAST_ERROR: RefCell<Option<String>> = RefCell::new(None);
+}
+
+/// Status of any other failure.
+const STATUS_FAILED: i32 = 1;
+
+/// Status of a failed host function, see `org.wasmer.HostFunctionException`.
+const STATUS_HOST_FUNCTION: i32 = 2;
+
+/// Status of a trap: its code of `org.wasmer.WasmTrapException.TrapCode`
+/// is in the low byte.
+const STATUS_TRAP: i32 = 0x100;
+
+/// Return the status of `error`.
+pub(crate) fn error_status(error: &Error) -> i32 {
+    match error {
+        Error::Trap(trap) => STATUS_TRAP | trap.code,
+        Error::HostFunction(..) => STATUS_HOST_FUNCTION,
+        _ => STATUS_FAILED,
+    }
+}
+
+/// Run `f`, and turn its error or its panic into a status.
+fn status<F>(f: F) -> i32
+where
+    F: FnOnce() -> Result<(), Error>,
+{
+    let (message, status) = match panic::catch_unwind(AssertUnwindSafe(f)) {
+        Ok(Ok(())) => return 0,
+        Ok(Err(error)) => {
+            let status = error_status(&error);
+
+            match error {
+                Error::Trap(trap) => (trap.message, status),
+                error => (error.to_string(), status),
+            }
+        }
+        Err(error) => (format!("{:?}", error), STATUS_FAILED),
+    };
+
+    LAST_ERROR.with(|last_error| *last_error.borrow_mut() = Some(message));
+
+    status
+}
+
+/// Return the length, in bytes, of the last error message of this
+/// thread, or -1 if there is none.
+#[no_mangle]
+pub extern "C" fn wasmer_jni_last_error_length() -> i64 {
+    LAST_ERROR.with(|last_error| match &*last_error.borrow() {
+        Some(message) => message.len() as i64,
+        None => -1,
+    })
+}
+
+/// Copy the last error message of this thread, UTF-8 encoded, into
+/// `buffer`, and forget it.
+#[no_mangle]
+pub extern "C" fn wasmer_jni_take_last_error(buffer: *mut u8, length: i64) {
+    LAST_ERROR.with(|last_error| {
+        if let Some(message) = last_error.borrow_mut().take() {
+            let length = message.len().min(length as usize);
+
+            unsafe { ptr::copy_nonoverlapping(message.as_ptr(), buffer, length) };
+        }
+    })
+}
+
+/// Call an `ExportedFunction` with raw arguments, and write its raw
+/// results in `results`. The arrays have one slot per parameter and
+/// per result.
+#[no_mangle]
+pub extern "C" fn wasmer_jni_function_call(function_pointer: jptr, arguments: *const i64, results: *mut i64) -> i32 {
+    status(|| {
+        let function: &ExportedFunction = Into::<Pointer<ExportedFunction>>::into(function_pointer).borrow();
+        let arguments = unsafe { slice::from_raw_parts(arguments, function.params.len()) };
+        let results = unsafe { slice::from_raw_parts_mut(results, function.results.len()) };
+
+        for (slot, value) in results.iter_mut().zip(function.call(arguments)?.iter()) {
+            *slot = value_to_bits(value)?;
+        }
+
+        Ok(())
+    })
+}
+
+/// Call an `ExportedFunction` of type `(i32, i32) -> i64`.
+#[no_mangle]
+pub extern "C" fn wasmer_jni_function_call_i32_i32_to_i64(
+    function_pointer: jptr,
+    argument0: i32,
+    argument1: i32,
+    result: *mut i64,
+) -> i32 {
+    status(|| {
+        let function: &ExportedFunction = Into::<Pointer<ExportedFunction>>::into(function_pointer).borrow();
+        let value = function.call_i32_i32_to_i64(argument0, argument1)?;
+
+        unsafe { *result = value };
+
+        Ok(())
+    })
+}
+
+/// Call an `ExportedFunction` `count` times, see `ExportedFunction::call_batch`,
+/// and write the number of calls run in `run`. Without `statuses`, the
+/// failure that has stopped the batch is the status of this function.
+#[no_mangle]
+pub extern "C" fn wasmer_jni_function_call_batch(
+    function_pointer: jptr,
+    arguments: *const i64,
+    count: i32,
+    results: *mut i64,
+    statuses: *mut i32,
+    stop_on_failure: i32,
+    run: *mut i32,
+) -> i32 {
+    status(|| {
+        let function: &ExportedFunction = Into::<Pointer<ExportedFunction>>::into(function_pointer).borrow();
+        let count = count.max(0) as usize;
+        let arguments = unsafe { slice::from_raw_parts(arguments, count * function.params.len()) };
+        let results = unsafe { slice::from_raw_parts_mut(results, count * function.results.len()) };
+        let statuses = if statuses.is_null() {
+            None
+        } else {
+            Some(unsafe { slice::from_raw_parts_mut(statuses, count) })
+        };
+        let has_statuses = statuses.is_some();
+        let (calls, failure) = function.call_batch(arguments, count, results, statuses, stop_on_failure != 0);
+
+        unsafe { *run = calls as i32 };
+
+        match failure {
+            Some(error) if !has_statuses => Err(error),
+            _ => Ok(()),
+        }
+    })
+}
+
+/// Return the address of the data of a `Memory`.
+#[no_mangle]
+pub extern "C" fn wasmer_jni_memory_data(memory_pointer: jptr) -> *mut u8 {
+    let memory: &Memory = Into::<Pointer<Memory>>::into(memory_pointer).borrow();
+
+    memory.memory.data_ptr()
+}
+
+/// Return the size of the data of a `Memory`, in bytes.
+#[no_mangle]
+pub extern "C" fn wasmer_jni_memory_data_size(memory_pointer: jptr) -> i64 {
+    let memory: &Memory = Into::<Pointer<Memory>>::into(memory_pointer).borrow();
+
+    memory.memory.data_size() as i64
+}
+
+/// Grow a `Memory`, and write the previous number of pages in
+/// `previous_pages`.
+#[no_mangle]
+pub extern "C" fn wasmer_jni_memory_grow(memory_pointer: jptr, number_of_pages: i32, previous_pages: *mut i32) -> i32 {
+    status(|| {
+        let memory: &Memory = Into::<Pointer<Memory>>::into(memory_pointer).borrow();
+
+        if number_of_pages < 0 {
+            return Err(runtime_error(format!("Cannot grow a memory by {} pages", number_of_pages)));
+        }
+
+        let pages = memory.grow(number_of_pages as u32)?;
+
+        unsafe { *previous_pages = pages as i32 };
+
+        Ok(())
+    })
+}
+
+/// Return the raw bits of the value of a `Global`.
+#[no_mangle]
+pub extern "C" fn wasmer_jni_global_get(global_pointer: jptr) -> i64 {
+    let global: &Global = Into::<Pointer<Global>>::into(global_pointer).borrow();
+
+    // Only globals of number types are created, see `global::new_java_global`.
+    global.get().unwrap_or(0)
+}
+
+/// Set the value of a `Global` from its raw bits.
+#[no_mangle]
+pub extern "C" fn wasmer_jni_global_set(global_pointer: jptr, bits: i64) -> i32 {
+    status(|| {
+        let global: &Global = Into::<Pointer<Global>>::into(global_pointer).borrow();
+
+        global.set(bits)
+    })
+}
@@ -0,0 +1,322 @@
+use crate::{
+    exception::{call_error, joption_or_throw, runtime_error, Error},
+    ffi::error_status,
+    instance::Instance,
+    types::{jptr, Pointer},
+    value::{type_to_code, value_from_bits, value_to_bits},
+};
+use jni::{
+    objects::{JClass, JString},
+    sys::{jboolean, jint, jintArray, jlong, jlongArray},
+    JNIEnv,
+};
+use std::{convert::TryFrom, panic, sync::Arc};
+use wasmer::{Function, Instance as WasmInstance, NativeFunc, Type, Value as WasmValue};
+
+/// An exported function resolved once by name, so that calling it
+/// does not need to look it up again.
+pub struct ExportedFunction {
+    pub(crate) function: Function,
+    pub(crate) params: Vec<Type>,
+    pub(crate) results: Vec<Type>,
+    /// Typed entry point for the `(i32, i32) -> i64` signature used
+    /// by most runtime entry points, if the function has it.
+    native_i32_i32_to_i64: Option<NativeFunc<(i32, i32), i64>>,
+    /// The instance, to tell apart the traps of exhausted points.
+    instance: Arc<WasmInstance>,
+}
+
+impl ExportedFunction {
+    fn new(instance: &Instance, export_name: &str) -> Result<Self, Error> {
+        let function = instance
+            .instance
+            .exports
+            .get_function(export_name)
+            .map_err(|_| {
+                runtime_error(format!(
+                    "Exported function `{}` does not exist",
+                    export_name
+                ))
+            })?
+            .clone();
+        let params = function.ty().params().to_vec();
+        let results = function.ty().results().to_vec();
+        let native_i32_i32_to_i64 = function.native::<(i32, i32), i64>().ok();
+
+        Ok(Self {
+            function,
+            params,
+            results,
+            native_i32_i32_to_i64,
+            instance: instance.instance.clone(),
+        })
+    }
+
+    pub(crate) fn call(&self, arguments: &[i64]) -> Result<Box<[WasmValue]>, Error> {
+        if arguments.len() != self.params.len() {
+            return Err(runtime_error(format!(
+                "Expected {} arguments, got {}",
+                self.params.len(),
+                arguments.len()
+            )));
+        }
+
+        let arguments = self
+            .params
+            .iter()
+            .zip(arguments.iter())
+            .map(|(ty, bits)| value_from_bits(ty, *bits))
+            .collect::<Result<Vec<WasmValue>, Error>>()?;
+
+        self.function
+            .call(arguments.as_slice())
+            .map_err(|e| call_error(&self.instance, e))
+    }
+
+    /// Call the function `count` times, with the arguments of the
+    /// `nth` call at `arguments[nth * params..]`, and write its results
+    /// at `results[nth * results..]`.
+    ///
+    /// With `statuses`, the status of each call is written in it, see
+    /// `ffi::error_status`, and a failed call only stops the batch if
+    /// `stop_on_failure`. Without, the first failure stops the batch.
+    /// Return the number of calls run, and the failure that has
+    /// stopped the batch, if any.
+    pub(crate) fn call_batch(
+        &self,
+        arguments: &[i64],
+        count: usize,
+        results: &mut [i64],
+        mut statuses: Option<&mut [i32]>,
+        stop_on_failure: bool,
+    ) -> (usize, Option<Error>) {
+        let (params, returns) = (self.params.len(), self.results.len());
+        let stop_on_failure = stop_on_failure || statuses.is_none();
+
+        for nth in 0..count {
+            let outcome = self.call(&arguments[nth * params..(nth + 1) * params]).and_then(|values| {
+                for (slot, value) in results[nth * returns..(nth + 1) * returns].iter_mut().zip(values.iter()) {
+                    *slot = value_to_bits(value)?;
+                }
+
+                Ok(())
+            });
+            let status = match &outcome {
+                Ok(()) => 0,
+                Err(error) => error_status(error),
+            };
+
+            if let Some(statuses) = statuses.as_mut() {
+                statuses[nth] = status;
+            }
+
+            if let Err(error) = outcome {
+                if stop_on_failure {
+                    return (nth + 1, Some(error));
+                }
+            }
+        }
+
+        (count, None)
+    }
+
+    pub(crate) fn call_i32_i32_to_i64(&self, argument0: i32, argument1: i32) -> Result<i64, Error> {
+        match &self.native_i32_i32_to_i64 {
+            Some(native) => native
+                .call(argument0, argument1)
+                .map_err(|e| call_error(&self.instance, e)),
+            None => Err(runtime_error(format!(
+                "Expected the signature (i32, i32) -> i64, the function has {:?} -> {:?}",
+                self.params, self.results
+            ))),
+        }
+    }
+}
+
+fn types_to_codes(env: &JNIEnv, types: &[Type]) -> Result<jintArray, Error> {
+    let codes = types
+        .iter()
+        .map(type_to_code)
+        .collect::<Result<Vec<jint>, Error>>()?;
+    let array = env.new_int_array(i32::try_from(codes.len())?)?;
+    env.set_int_array_region(array, 0, &codes)?;
+
+    Ok(array)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_ExportedFunction_nativeResolve(
+    env: JNIEnv,
+    _class: JClass,
+    instance_pointer: jptr,
+    export_name: JString,
+) -> jptr {
+    let output = panic::catch_unwind(|| {
+        let instance: &Instance = Into::<Pointer<Instance>>::into(instance_pointer).borrow();
+        let export_name: String = env.get_string(export_name)?.into();
+        let function = ExportedFunction::new(instance, &export_name)?;
+
+        Ok(Pointer::new(function).into())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_ExportedFunction_nativeDrop(
+    _env: JNIEnv,
+    _class: JClass,
+    function_pointer: jptr,
+) {
+    let _: Pointer<ExportedFunction> = function_pointer.into();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_ExportedFunction_nativeParamTypes(
+    env: JNIEnv,
+    _class: JClass,
+    function_pointer: jptr,
+) -> jintArray {
+    let output = panic::catch_unwind(|| {
+        let function: &ExportedFunction = Into::<Pointer<ExportedFunction>>::into(function_pointer).borrow();
+
+        types_to_codes(&env, &function.params)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(std::ptr::null_mut())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_ExportedFunction_nativeResultTypes(
+    env: JNIEnv,
+    _class: JClass,
+    function_pointer: jptr,
+) -> jintArray {
+    let output = panic::catch_unwind(|| {
+        let function: &ExportedFunction = Into::<Pointer<ExportedFunction>>::into(function_pointer).borrow();
+
+        types_to_codes(&env, &function.results)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(std::ptr::null_mut())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_ExportedFunction_nativeCall(
+    env: JNIEnv,
+    _class: JClass,
+    function_pointer: jptr,
+    arguments: jlongArray,
+    results: jlongArray,
+) {
+    let output = panic::catch_unwind(|| {
+        let function: &ExportedFunction = Into::<Pointer<ExportedFunction>>::into(function_pointer).borrow();
+
+        let mut argument_bits = vec![0; function.params.len()];
+        env.get_long_array_region(arguments, 0, &mut argument_bits)?;
+
+        let result_values = function.call(&argument_bits)?;
+        let result_bits = result_values
+            .iter()
+            .map(value_to_bits)
+            .collect::<Result<Vec<jlong>, Error>>()?;
+        env.set_long_array_region(results, 0, &result_bits)?;
+
+        Ok(())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_ExportedFunction_nativeCallI32(
+    env: JNIEnv,
+    _class: JClass,
+    function_pointer: jptr,
+    arguments: jintArray,
+) -> jint {
+    let output = panic::catch_unwind(|| {
+        let function: &ExportedFunction = Into::<Pointer<ExportedFunction>>::into(function_pointer).borrow();
+
+        let mut argument_values = vec![0; function.params.len()];
+        env.get_int_array_region(arguments, 0, &mut argument_values)?;
+        let argument_bits = argument_values
+            .into_iter()
+            .map(|argument| argument as i64)
+            .collect::<Vec<i64>>();
+
+        match function.call(&argument_bits)?.first() {
+            Some(WasmValue::I32(result)) => Ok(*result),
+            _ => Err(runtime_error(format!(
+                "Expected a single i32 result, the function returns {:?}",
+                function.results
+            ))),
+        }
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_ExportedFunction_nativeCallI32I32ToI64(
+    env: JNIEnv,
+    _class: JClass,
+    function_pointer: jptr,
+    argument0: jint,
+    argument1: jint,
+) -> jlong {
+    let output = panic::catch_unwind(|| {
+        let function: &ExportedFunction = Into::<Pointer<ExportedFunction>>::into(function_pointer).borrow();
+
+        function.call_i32_i32_to_i64(argument0, argument1)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_ExportedFunction_nativeCallBatch(
+    env: JNIEnv,
+    _class: JClass,
+    function_pointer: jptr,
+    arguments: jlongArray,
+    count: jint,
+    results: jlongArray,
+    statuses: jintArray,
+    stop_on_failure: jboolean,
+) -> jint {
+    let output = panic::catch_unwind(|| {
+        let function: &ExportedFunction = Into::<Pointer<ExportedFunction>>::into(function_pointer).borrow();
+        let count = usize::try_from(count)?;
+
+        // One copy of the arguments in, and one of the results out,
+        // for the whole batch.
+        let mut argument_bits = vec![0; count * function.params.len()];
+        env.get_long_array_region(arguments, 0, &mut argument_bits)?;
+        let mut result_bits = vec![0; count * function.results.len()];
+        let mut status_codes = if statuses.is_null() { None } else { Some(vec![0; count]) };
+
+        let (calls, failure) = function.call_batch(
+            &argument_bits,
+            count,
+            &mut result_bits,
+            status_codes.as_deref_mut(),
+            stop_on_failure != 0,
+        );
+
+        env.set_long_array_region(results, 0, &result_bits[..calls * function.results.len()])?;
+
+        match status_codes {
+            Some(status_codes) => env.set_int_array_region(statuses, 0, &status_codes[..calls])?,
+            None => {
+                if let Some(error) = failure {
+                    return Err(error);
+                }
+            }
+        }
+
+        Ok(calls as jint)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
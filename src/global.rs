@@ -0,0 +1,103 @@
+//! Exported globals, read and written in place, see `org.wasmer.Global`.
+
+use crate::{
+    exception::{joption_or_throw, runtime_error, Error},
+    types::{jptr, Pointer},
+    value::{type_to_code, value_from_bits, value_to_bits},
+};
+use jni::{
+    objects::{JClass, JObject},
+    sys::jlong,
+    JNIEnv,
+};
+use std::panic;
+use wasmer::{Global as WasmGlobal, Mutability};
+
+/// A global, owned by its `org.wasmer.Global` Java object. It keeps
+/// the store of its instance alive.
+pub struct Global {
+    pub global: WasmGlobal,
+}
+
+impl Global {
+    /// Return the raw bits of the current value, see `value_to_bits`.
+    pub fn get(&self) -> Result<i64, Error> {
+        value_to_bits(&self.global.get())
+    }
+
+    /// Set the current value from its raw bits.
+    pub fn set(&self, bits: i64) -> Result<(), Error> {
+        let ty = self.global.ty();
+
+        if ty.mutability != Mutability::Var {
+            return Err(runtime_error("The global is immutable".to_string()));
+        }
+
+        self.global
+            .set(value_from_bits(&ty.ty, bits)?)
+            .map_err(|e| runtime_error(format!("Failed to set the global: {}", e)))
+    }
+}
+
+/// Create the `org.wasmer.Global` Java object owning `global`, or
+/// `None` if its type is not supported.
+pub fn new_java_global<'a>(env: &JNIEnv<'a>, global: WasmGlobal) -> Result<Option<JObject<'a>>, Error> {
+    let ty = *global.ty();
+    let type_code = match type_to_code(&ty.ty) {
+        Ok(type_code) => type_code,
+        Err(_) => return Ok(None),
+    };
+    let global_pointer: jptr = Pointer::new(Global { global }).into();
+    let global_object = env.new_object(
+        "org/wasmer/Global",
+        "(JIZZ)V",
+        &[
+            global_pointer.into(),
+            type_code.into(),
+            (ty.mutability == Mutability::Var).into(),
+            false.into(),
+        ],
+    )?;
+
+    Ok(Some(global_object))
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Global_nativeGet(
+    env: JNIEnv,
+    _class: JClass,
+    global_pointer: jptr,
+) -> jlong {
+    let output = panic::catch_unwind(|| {
+        let global: &Global = Into::<Pointer<Global>>::into(global_pointer).borrow();
+
+        global.get()
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Global_nativeSet(
+    env: JNIEnv,
+    _class: JClass,
+    global_pointer: jptr,
+    bits: jlong,
+) {
+    let output = panic::catch_unwind(|| {
+        let global: &Global = Into::<Pointer<Global>>::into(global_pointer).borrow();
+
+        global.set(bits)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Global_nativeDrop(
+    _env: JNIEnv,
+    _class: JClass,
+    global_pointer: jptr,
+) {
+    let _: Pointer<Global> = global_pointer.into();
+}
@@ -0,0 +1,207 @@
+//! Hashing and signature host functions run in Rust, see
+//! `org.wasmer.Imports.nativeHashing`.
+//!
+//! They implement the host functions of the Substrate runtimes: the
+//! input is read in place from the memory of the instance, and the
+//! digest is written to an allocation of its heap, whose address is
+//! returned, so a call never crosses into Java. The memory and the heap
+//! are those of a `NativeAllocator`.
+
+use crate::{
+    allocator::{self, Allocator, HeapMemory},
+    exception::{runtime_error, Error},
+};
+use blake2::{
+    digest::consts::{U16, U32},
+    Blake2b,
+};
+use jni::{objects::JObject, JNIEnv};
+use sha2::{Digest, Sha256};
+use std::{convert::TryFrom, hash::Hasher, sync::Arc};
+use tiny_keccak::{Hasher as _, Keccak};
+use twox_hash::XxHash64;
+use wasmer::{Function, FunctionType, RuntimeError, Store, Type, Value};
+
+/// The signing context of the sr25519 signatures of Substrate.
+const SR25519_CONTEXT: &[u8] = b"substrate";
+
+/// A host function of the native hashing imports.
+#[derive(Clone, Copy)]
+pub enum HostFunction {
+    Blake2_128,
+    Blake2_256,
+    Keccak256,
+    Sha2_256,
+    Twox64,
+    Twox128,
+    Twox256,
+    Ed25519Verify,
+    Sr25519Verify,
+}
+
+impl HostFunction {
+    pub fn from_name(name: &str) -> Result<Self, Error> {
+        Ok(match name {
+            "ext_hashing_blake2_128_version_1" => Self::Blake2_128,
+            "ext_hashing_blake2_256_version_1" => Self::Blake2_256,
+            "ext_hashing_keccak_256_version_1" => Self::Keccak256,
+            "ext_hashing_sha2_256_version_1" => Self::Sha2_256,
+            "ext_hashing_twox_64_version_1" => Self::Twox64,
+            "ext_hashing_twox_128_version_1" => Self::Twox128,
+            "ext_hashing_twox_256_version_1" => Self::Twox256,
+            "ext_crypto_ed25519_verify_version_1" => Self::Ed25519Verify,
+            "ext_crypto_sr25519_verify_version_2" => Self::Sr25519Verify,
+            _ => return Err(runtime_error(format!("`{}` is not a native hashing host function", name))),
+        })
+    }
+
+    /// Whether the arguments are `(signature: i32, message: i64,
+    /// public_key: i32)` rather than `(data: i64)`. The result is
+    /// always an `i32`.
+    pub fn is_verify(&self) -> bool {
+        matches!(self, Self::Ed25519Verify | Self::Sr25519Verify)
+    }
+
+    /// Call the host function with `arguments`, whose `i64`s pack a
+    /// length in their high 32 bits and a pointer in their low 32 bits.
+    /// The memory is reached `through` the given one, if any, see
+    /// `Allocator`.
+    pub fn call(
+        &self,
+        allocator: &Allocator,
+        through: Option<&dyn HeapMemory>,
+        arguments: &[i64],
+    ) -> Result<i32, Error> {
+        match self {
+            Self::Ed25519Verify | Self::Sr25519Verify => {
+                let (signature, message, public_key) = match arguments {
+                    [signature, message, public_key] => (*signature as u32, *message, *public_key as u32),
+                    _ => return Err(arity(3, arguments.len())),
+                };
+                let verified = allocator.read(through, |data| -> Result<bool, Error> {
+                    let signature = slice(data, signature, 64)?;
+                    let public_key = slice(data, public_key, 32)?;
+                    let message = packed_slice(data, message)?;
+
+                    Ok(match self {
+                        Self::Ed25519Verify => ed25519_verify(signature, message, public_key),
+                        _ => sr25519_verify(signature, message, public_key),
+                    })
+                })??;
+
+                Ok(verified as i32)
+            }
+            _ => {
+                let data = match arguments {
+                    [data] => *data,
+                    _ => return Err(arity(1, arguments.len())),
+                };
+                let digest = allocator.read(through, |memory| -> Result<Vec<u8>, Error> {
+                    Ok(self.hash(packed_slice(memory, data)?))
+                })??;
+
+                Ok(allocator.allocate_bytes(through, &digest)? as i32)
+            }
+        }
+    }
+
+    fn hash(&self, data: &[u8]) -> Vec<u8> {
+        match self {
+            Self::Blake2_128 => Blake2b::<U16>::digest(data).to_vec(),
+            Self::Blake2_256 => Blake2b::<U32>::digest(data).to_vec(),
+            Self::Keccak256 => {
+                let mut keccak = Keccak::v256();
+                let mut digest = vec![0; 32];
+                keccak.update(data);
+                keccak.finalize(&mut digest);
+
+                digest
+            }
+            Self::Sha2_256 => Sha256::digest(data).to_vec(),
+            Self::Twox64 => twox(data, 1),
+            Self::Twox128 => twox(data, 2),
+            _ => twox(data, 4),
+        }
+    }
+}
+
+/// Concatenate the little-endian xxHash64 of `data` seeded with 0, 1,
+/// etc., as Substrate does.
+fn twox(data: &[u8], hashes: u64) -> Vec<u8> {
+    let mut digest = Vec::with_capacity(8 * hashes as usize);
+
+    for seed in 0..hashes {
+        let mut hasher = XxHash64::with_seed(seed);
+        hasher.write(data);
+        digest.extend_from_slice(&hasher.finish().to_le_bytes());
+    }
+
+    digest
+}
+
+fn ed25519_verify(signature: &[u8], message: &[u8], public_key: &[u8]) -> bool {
+    use ed25519_dalek::{PublicKey, Signature, Verifier};
+
+    match (Signature::try_from(signature), PublicKey::from_bytes(public_key)) {
+        (Ok(signature), Ok(public_key)) => public_key.verify(message, &signature).is_ok(),
+        _ => false,
+    }
+}
+
+fn sr25519_verify(signature: &[u8], message: &[u8], public_key: &[u8]) -> bool {
+    use schnorrkel::{PublicKey, Signature};
+
+    match (Signature::from_bytes(signature), PublicKey::from_bytes(public_key)) {
+        (Ok(signature), Ok(public_key)) => public_key.verify_simple(SR25519_CONTEXT, message, &signature).is_ok(),
+        _ => false,
+    }
+}
+
+fn slice(data: &[u8], pointer: u32, length: u32) -> Result<&[u8], Error> {
+    let start = pointer as usize;
+
+    data.get(start..start + length as usize).ok_or_else(|| {
+        runtime_error(format!(
+            "Out of bounds read of {} bytes at {} in a memory of {} bytes",
+            length,
+            pointer,
+            data.len()
+        ))
+    })
+}
+
+fn packed_slice(data: &[u8], pointer_and_length: i64) -> Result<&[u8], Error> {
+    slice(data, pointer_and_length as u32, (pointer_and_length as u64 >> 32) as u32)
+}
+
+fn arity(expected: usize, actual: usize) -> Error {
+    runtime_error(format!("Expected {} arguments, got {}", expected, actual))
+}
+
+/// Create the host function of an `org.wasmer.ImportObject.HashingImport`
+/// for a compiled instance.
+pub fn new_function(env: &JNIEnv, store: &Store, import: JObject, name: &str) -> Result<Function, Error> {
+    let host_function = HostFunction::from_name(name)?;
+    let allocator: Arc<Allocator> = allocator::allocator_of(env, import)?;
+    let params = if host_function.is_verify() {
+        vec![Type::I32, Type::I64, Type::I32]
+    } else {
+        vec![Type::I64]
+    };
+
+    Ok(Function::new(store, FunctionType::new(params, vec![Type::I32]), move |arguments| {
+        let arguments = arguments
+            .iter()
+            .map(|argument| match argument {
+                Value::I32(argument) => Ok(i64::from(*argument)),
+                Value::I64(argument) => Ok(*argument),
+                _ => Err(RuntimeError::new(format!("Argument of unsupported type {:?}", argument))),
+            })
+            .collect::<Result<Vec<_>, _>>()?;
+        let result = host_function
+            .call(&allocator, None, &arguments)
+            .map_err(|e| RuntimeError::new(e.to_string()))?;
+
+        Ok(vec![Value::I32(result)])
+    }))
+}
@@ -0,0 +1,353 @@
+use crate::{
+    exception::{runtime_error, Error},
+    value::{type_from_code, value_from_bits, value_to_bits},
+};
+use jni::{
+    objects::{GlobalRef, JMethodID, JObject, JValue},
+    signature::{JavaType, Primitive},
+    sys::{jlong, jlongArray, jmethodID},
+    JNIEnv,
+};
+use std::cell::{Cell, RefCell};
+use std::convert::TryFrom;
+use std::{fmt, mem};
+use wasmer::{Function, FunctionType, RuntimeError, Store, Type, Value};
+
+/// A Java exception thrown by a host function. It is carried by the
+/// `RuntimeError` that stops the call, so the WebAssembly frames are
+/// unwound like for any trap, and it is rethrown as the cause of an
+/// `org.wasmer.HostFunctionException`.
+pub struct JavaException(pub GlobalRef);
+
+impl fmt::Debug for JavaException {
+    fn fmt(&self, fmt: &mut fmt::Formatter<'_>) -> fmt::Result {
+        fmt.write_str("JavaException")
+    }
+}
+
+impl fmt::Display for JavaException {
+    fn fmt(&self, fmt: &mut fmt::Formatter<'_>) -> fmt::Result {
+        fmt.write_str("A host function has thrown an exception")
+    }
+}
+
+impl std::error::Error for JavaException {}
+
+/// Take the pending Java exception, if any, clearing it so that Rust
+/// can keep calling JNI while the call unwinds.
+pub fn take_exception(env: &JNIEnv) -> Option<GlobalRef> {
+    if !env.exception_check().unwrap_or(false) {
+        return None;
+    }
+
+    let throwable = env.exception_occurred().ok()?;
+    env.exception_clear().ok()?;
+
+    env.new_global_ref(throwable).ok()
+}
+
+/// Turn the failure of a host function into the `RuntimeError` that
+/// stops the call, carrying the Java exception if it has thrown one.
+pub fn host_error(env: &JNIEnv, error: impl fmt::Display) -> RuntimeError {
+    match take_exception(env) {
+        Some(exception) => RuntimeError::user(Box::new(JavaException(exception))),
+        None => RuntimeError::new(format!("The host function has failed: {}", error)),
+    }
+}
+
+/// The smallest argument buffer allocated for a generic host function.
+const MINIMUM_ARGUMENT_BUFFER_LENGTH: usize = 16;
+
+/// The kind of an `org.wasmer.ImportObject.HostFuncImport`, i.e. which
+/// `org.wasmer.HostFunction` interface it implements.
+#[derive(Clone, Copy)]
+enum Kind {
+    Generic,
+    I32ToI32,
+    I32ToVoid,
+    I32I32ToI64,
+    I64ToI32,
+    I64ToI64,
+    I64I64ToVoid,
+}
+
+impl Kind {
+    fn from_code(code: i32) -> Result<Self, Error> {
+        match code {
+            0 => Ok(Kind::Generic),
+            1 => Ok(Kind::I32ToI32),
+            2 => Ok(Kind::I32ToVoid),
+            3 => Ok(Kind::I32I32ToI64),
+            4 => Ok(Kind::I64ToI32),
+            5 => Ok(Kind::I64ToI64),
+            6 => Ok(Kind::I64I64ToVoid),
+            _ => Err(runtime_error(format!("Unknown host function kind {}", code))),
+        }
+    }
+
+    fn interface(&self) -> &'static str {
+        match self {
+            Kind::Generic => "org/wasmer/HostFunction",
+            Kind::I32ToI32 => "org/wasmer/HostFunction$I32ToI32",
+            Kind::I32ToVoid => "org/wasmer/HostFunction$I32ToVoid",
+            Kind::I32I32ToI64 => "org/wasmer/HostFunction$I32I32ToI64",
+            Kind::I64ToI32 => "org/wasmer/HostFunction$I64ToI32",
+            Kind::I64ToI64 => "org/wasmer/HostFunction$I64ToI64",
+            Kind::I64I64ToVoid => "org/wasmer/HostFunction$I64I64ToVoid",
+        }
+    }
+
+    fn signature(&self) -> &'static str {
+        match self {
+            Kind::Generic => "([J)J",
+            Kind::I32ToI32 => "(I)I",
+            Kind::I32ToVoid => "(I)V",
+            Kind::I32I32ToI64 => "(II)J",
+            Kind::I64ToI32 => "(J)I",
+            Kind::I64ToI64 => "(J)J",
+            Kind::I64I64ToVoid => "(JJ)V",
+        }
+    }
+
+    fn return_type(&self) -> JavaType {
+        JavaType::Primitive(match self {
+            Kind::Generic | Kind::I32I32ToI64 | Kind::I64ToI64 => Primitive::Long,
+            Kind::I32ToI32 | Kind::I64ToI32 => Primitive::Int,
+            Kind::I32ToVoid | Kind::I64I64ToVoid => Primitive::Void,
+        })
+    }
+}
+
+/// A method ID resolved when the import is created. It stays valid as
+/// long as the class is loaded, which the global reference to the host
+/// function guarantees.
+#[derive(Clone, Copy)]
+pub(crate) struct MethodId(pub(crate) jmethodID);
+
+unsafe impl Send for MethodId {}
+unsafe impl Sync for MethodId {}
+
+thread_local! {
+    /// Argument buffers of the generic host functions, indexed by
+    /// nesting level: a host function may call back into WebAssembly,
+    /// which may call another host function on the same thread.
+    static ARGUMENT_BUFFERS: RefCell<Vec<Option<(GlobalRef, usize)>>> = RefCell::new(Vec::new());
+    static DEPTH: Cell<usize> = Cell::new(0);
+}
+
+/// Increments the nesting level of host function calls for its lifetime.
+struct DepthGuard(usize);
+
+impl DepthGuard {
+    fn enter() -> Self {
+        DEPTH.with(|depth| {
+            let current = depth.get();
+            depth.set(current + 1);
+
+            DepthGuard(current)
+        })
+    }
+}
+
+impl Drop for DepthGuard {
+    fn drop(&mut self) {
+        DEPTH.with(|depth| depth.set(self.0));
+    }
+}
+
+/// Return the argument buffer of this thread for the given nesting
+/// level, with room for at least `length` arguments.
+fn argument_buffer(env: &JNIEnv, depth: usize, length: usize) -> Result<jlongArray, Error> {
+    ARGUMENT_BUFFERS.with(|buffers| {
+        let mut buffers = buffers.borrow_mut();
+
+        if buffers.len() <= depth {
+            buffers.resize_with(depth + 1, || None);
+        }
+
+        let is_too_small = match &buffers[depth] {
+            Some((_, capacity)) => *capacity < length,
+            None => true,
+        };
+
+        if is_too_small {
+            let capacity = length.max(MINIMUM_ARGUMENT_BUFFER_LENGTH);
+            let array = env.new_long_array(i32::try_from(capacity)?)?;
+            let buffer = env.new_global_ref(JObject::from(array))?;
+            env.delete_local_ref(JObject::from(array))?;
+            buffers[depth] = Some((buffer, capacity));
+        }
+
+        Ok(buffers[depth].as_ref().unwrap().0.as_obj().into_inner() as jlongArray)
+    })
+}
+
+/// Read a field of type `int[]` holding type codes of `org.wasmer.Type`.
+pub fn types_from_field(env: &JNIEnv, object: JObject, field: &str) -> Result<Vec<Type>, Error> {
+    let array = env.get_field(object, field, "[I")?.l()?.into_inner();
+    let mut codes = vec![0; env.get_array_length(array)? as usize];
+    env.get_int_array_region(array, 0, &mut codes)?;
+
+    codes.into_iter().map(type_from_code).collect()
+}
+
+/// Create the function of an `org.wasmer.ImportObject.HostFuncImport`.
+///
+/// Everything that can be resolved once is resolved here: the method
+/// to call, and the types. A call then costs one JNI call, with
+/// primitive arguments for the typed kinds, or with a reused per-thread
+/// `long[]` for the generic kind.
+pub fn new_host_function(env: &JNIEnv, store: &Store, import: JObject) -> Result<Function, Error> {
+    let host_function = env.get_field(import, "hostFunction", "Lorg/wasmer/HostFunction;")?.l()?;
+    let kind = Kind::from_code(env.get_field(import, "hostFunctionKind", "I")?.i()?)?;
+    let params = types_from_field(env, import, "argTypesInt")?;
+    let results = types_from_field(env, import, "retTypesInt")?;
+    let signature = FunctionType::new(params, results.clone());
+    let upcall_address = env.get_field(import, "upcallAddress", "J")?.j()?;
+
+    if upcall_address != 0 {
+        // The import itself owns the upcall stub: holding it keeps the
+        // stub alive as long as the function.
+        let import = env.new_global_ref(import)?;
+
+        return Ok(new_upcall_function(store, signature, kind, results, upcall_address as usize, import));
+    }
+
+    let method_id = MethodId(env.get_method_id(kind.interface(), "call", kind.signature())?.into_inner());
+    let host_function = env.new_global_ref(host_function)?;
+    let jvm = env.get_java_vm()?;
+
+    Ok(Function::new(store, signature, move |argv| {
+        let env = jvm.get_env().map_err(|e| RuntimeError::new(e.to_string()))?;
+        let method_id = JMethodID::from(method_id.0);
+        // A Java exception stops the call with a trap: nothing panics
+        // across the WebAssembly frames.
+        let call = |arguments: &[JValue]| {
+            env.call_method_unchecked(host_function.as_obj(), method_id, kind.return_type(), arguments)
+                .map_err(|e| host_error(&env, e))
+        };
+        let unwrap = |e: jni::errors::Error| host_error(&env, e);
+
+        let result = match kind {
+            Kind::Generic => {
+                let depth = DepthGuard::enter();
+                let buffer = argument_buffer(&env, depth.0, argv.len())
+                    .map_err(|e| RuntimeError::new(e.to_string()))?;
+                let bits = argv
+                    .iter()
+                    .map(value_to_bits)
+                    .collect::<Result<Vec<jlong>, Error>>()
+                    .map_err(|e| RuntimeError::new(e.to_string()))?;
+                env.set_long_array_region(buffer, 0, &bits).map_err(unwrap)?;
+
+                let bits = call(&[JObject::from(buffer).into()])?.j().map_err(unwrap)?;
+
+                match results.first() {
+                    Some(ty) => Some(value_from_bits(ty, bits).map_err(|e| RuntimeError::new(e.to_string()))?),
+                    None => None,
+                }
+            }
+            Kind::I32ToI32 => Some(Value::I32(
+                call(&[JValue::Int(argv[0].unwrap_i32())])?.i().map_err(unwrap)?,
+            )),
+            Kind::I32ToVoid => {
+                call(&[JValue::Int(argv[0].unwrap_i32())])?;
+                None
+            }
+            Kind::I32I32ToI64 => Some(Value::I64(
+                call(&[JValue::Int(argv[0].unwrap_i32()), JValue::Int(argv[1].unwrap_i32())])?
+                    .j()
+                    .map_err(unwrap)?,
+            )),
+            Kind::I64ToI32 => Some(Value::I32(
+                call(&[JValue::Long(argv[0].unwrap_i64())])?.i().map_err(unwrap)?,
+            )),
+            Kind::I64ToI64 => Some(Value::I64(
+                call(&[JValue::Long(argv[0].unwrap_i64())])?.j().map_err(unwrap)?,
+            )),
+            Kind::I64I64ToVoid => {
+                call(&[JValue::Long(argv[0].unwrap_i64()), JValue::Long(argv[1].unwrap_i64())])?;
+                None
+            }
+        };
+
+        Ok(result.into_iter().collect())
+    }))
+}
+
+/// Create a function calling an upcall stub of the `java.lang.foreign`
+/// backend, see `org.wasmer.PanamaBackend`, instead of going through
+/// JNI. Each stub takes the arguments of its kind, followed by a status
+/// pointer set to non-zero when the Java code has thrown.
+fn new_upcall_function(
+    store: &Store,
+    signature: FunctionType,
+    kind: Kind,
+    results: Vec<Type>,
+    address: usize,
+    owner: GlobalRef,
+) -> Function {
+    Function::new(store, signature, move |argv| {
+        let _ = &owner;
+        let mut status: i32 = 0;
+
+        let result = unsafe {
+            match kind {
+                Kind::Generic => {
+                    let upcall: extern "C" fn(*const i64, i32, *mut i32) -> i64 = mem::transmute(address);
+                    let bits = argv
+                        .iter()
+                        .map(value_to_bits)
+                        .collect::<Result<Vec<jlong>, Error>>()
+                        .map_err(|e| RuntimeError::new(e.to_string()))?;
+                    let bits = upcall(bits.as_ptr(), bits.len() as i32, &mut status);
+
+                    match results.first() {
+                        Some(ty) if status == 0 => {
+                            Some(value_from_bits(ty, bits).map_err(|e| RuntimeError::new(e.to_string()))?)
+                        }
+                        _ => None,
+                    }
+                }
+                Kind::I32ToI32 => {
+                    let upcall: extern "C" fn(i32, *mut i32) -> i32 = mem::transmute(address);
+
+                    Some(Value::I32(upcall(argv[0].unwrap_i32(), &mut status)))
+                }
+                Kind::I32ToVoid => {
+                    let upcall: extern "C" fn(i32, *mut i32) = mem::transmute(address);
+                    upcall(argv[0].unwrap_i32(), &mut status);
+
+                    None
+                }
+                Kind::I32I32ToI64 => {
+                    let upcall: extern "C" fn(i32, i32, *mut i32) -> i64 = mem::transmute(address);
+
+                    Some(Value::I64(upcall(argv[0].unwrap_i32(), argv[1].unwrap_i32(), &mut status)))
+                }
+                Kind::I64ToI32 => {
+                    let upcall: extern "C" fn(i64, *mut i32) -> i32 = mem::transmute(address);
+
+                    Some(Value::I32(upcall(argv[0].unwrap_i64(), &mut status)))
+                }
+                Kind::I64ToI64 => {
+                    let upcall: extern "C" fn(i64, *mut i32) -> i64 = mem::transmute(address);
+
+                    Some(Value::I64(upcall(argv[0].unwrap_i64(), &mut status)))
+                }
+                Kind::I64I64ToVoid => {
+                    let upcall: extern "C" fn(i64, i64, *mut i32) = mem::transmute(address);
+                    upcall(argv[0].unwrap_i64(), argv[1].unwrap_i64(), &mut status);
+
+                    None
+                }
+            }
+        };
+
+        if status != 0 {
+            return Err(RuntimeError::new("The host function has thrown an exception"));
+        }
+
+        Ok(result.into_iter().collect())
+    })
+}
@@ -1,7 +1,11 @@
 use crate::{
+    allocator,
     exception::{joption_or_throw},
+    hashing,
+    host_function::{host_error, new_host_function},
     types::{jptr, Pointer},
     module::Module,
+    value::{type_from_code, value_from_bits},
 };
 use jni::{
     sys::{jlong},
@@ -11,12 +15,16 @@ use jni::{
 use std::{collections::HashMap, panic};
 use std::convert::TryFrom;
 use std::sync::Arc;
-use wasmer::{ImportObject, NamedResolver, ChainableNamedResolver, Exports, Function, FunctionType, Type, Value, Memory, MemoryType};
+use wasmer::{ImportObject, NamedResolver, ChainableNamedResolver, Exports, Function, FunctionType, Global, RuntimeError, Type, Value, Memory, MemoryType};
 use wasmer_wasi::WasiState;
-use crate::memory::{IMPORTED_MEMORY, Memory as MemoryWrapper};
+use crate::memory::Memory as MemoryWrapper;
 
 pub struct Imports {
     pub(crate) import_object: Box<dyn NamedResolver>,
+    /// The memories created for the memory imports, by import name.
+    /// Each `Imports` owns its memories, so that instances created
+    /// from different `Imports` never share one.
+    pub(crate) memories: HashMap<String, MemoryWrapper>,
 }
 
 fn array2vec<'a, T: TypeArray>(array: &'a AutoArray<T>) -> Vec<&'a T> {
@@ -38,6 +46,7 @@ pub extern "system" fn Java_org_wasmer_Imports_nativeImportsInstantiate(
 ) -> jptr {
     let output = panic::catch_unwind(|| {
         let mut namespaces = HashMap::<String, _>::new();
+        let mut memories = HashMap::new();
         let mut import_object = ImportObject::new();
         let module: &Module = Into::<Pointer<Module>>::into(module).borrow();
         let store = module.module.store();
@@ -49,7 +58,16 @@ pub extern "system" fn Java_org_wasmer_Imports_nativeImportsInstantiate(
             let name = env.get_field(import, "name", "Ljava/lang/String;")?.l()?;
             let name = env.get_string(name.into())?.to_str()?.to_string();
 
-            if name == "memory" {
+            if env.is_instance_of(import, "org/wasmer/ImportObject$GlobalImport")? {
+                let ty = type_from_code(env.get_field(import, "typeInt", "I")?.i()?)?;
+                let value = value_from_bits(&ty, env.get_field(import, "bits", "J")?.j()?)?;
+                let global = if env.get_field(import, "mutable", "Z")?.z()? {
+                    Global::new_mut(store, value)
+                } else {
+                    Global::new(store, value)
+                };
+                namespaces.entry(namespace).or_insert_with(|| Exports::new()).insert(name, global);
+            } else if name == "memory" {
                 let min_pages = env.get_field(import, "minPages", "I")?.i()?;
                 let max_pages = env.get_field(import, "maxPages", "Ljava/lang/Integer;")?.l()?;
                 let max_pages = if max_pages.is_null() {
@@ -62,8 +80,17 @@ pub extern "system" fn Java_org_wasmer_Imports_nativeImportsInstantiate(
                 let shared = env.get_field(import, "shared", "Z")?.z()?;
                 let memory_type = MemoryType::new(u32::try_from(min_pages)?, max_pages, shared);
                 let memory = Memory::new(&store, memory_type)?;
-                IMPORTED_MEMORY.lock().unwrap().replace(MemoryWrapper::new(Arc::new(memory.clone())));
+                memories.insert(name.clone(), MemoryWrapper::new(Arc::new(memory.clone())));
                 namespaces.entry(namespace).or_insert_with(|| Exports::new()).insert(name, memory)
+            } else if env.is_instance_of(import, "org/wasmer/ImportObject$AllocatorImport")? {
+                let function = allocator::new_function(&env, store, import)?;
+                namespaces.entry(namespace).or_insert_with(|| Exports::new()).insert(name, function);
+            } else if env.is_instance_of(import, "org/wasmer/ImportObject$HashingImport")? {
+                let function = hashing::new_function(&env, store, import, &name)?;
+                namespaces.entry(namespace).or_insert_with(|| Exports::new()).insert(name, function);
+            } else if env.is_instance_of(import, "org/wasmer/ImportObject$HostFuncImport")? {
+                let function = new_host_function(&env, store, import)?;
+                namespaces.entry(namespace).or_insert_with(|| Exports::new()).insert(name, function);
             } else {
                 let function = env.get_field(import, "function", "Ljava/util/function/Function;")?.l()?;
                 let params = env.get_field(import, "argTypesInt", "[I")?.l()?;
@@ -79,31 +106,33 @@ pub extern "system" fn Java_org_wasmer_Imports_nativeImportsInstantiate(
                 namespaces.entry(namespace).or_insert_with(|| Exports::new()).insert(name, Function::new(store, sig, move |argv| {
                     // There are many ways of transferring the args from wasm to java, JList being the cleanest,
                     // but probably also slowest by far (two JNI calls per argument). Benchmark?
-                    let env = jvm.get_env().expect("Couldn't get JNIEnv");
+                    let env = jvm.get_env().map_err(|e| RuntimeError::new(e.to_string()))?;
+                    let fail = |e: jni::errors::Error| host_error(&env, e);
                     env.ensure_local_capacity(argv.len() as i32 + 2).ok();
-                    let jargv = env.new_long_array(argv.len() as i32).expect("Couldn't create array");
-                    let argv = argv.into_iter().enumerate().map(|(i, arg)| match arg {
-                        Value::I32(arg) => { assert_eq!(params[i], Type::I32); *arg as i64 },
-                        Value::I64(arg) => { assert_eq!(params[i], Type::I64); *arg as i64 },
-                        Value::F32(arg) => { assert_eq!(params[i], Type::F32); arg.to_bits() as i64 },
-                        Value::F64(arg) => { assert_eq!(params[i], Type::F64); arg.to_bits() as i64 },
-                        _ => panic!("Argument of unsupported type {:?}", arg)
-                    }).collect::<Vec<jlong>>();
-                    env.set_long_array_region(jargv, 0, &argv).expect("Couldn't set array region");
+                    let jargv = env.new_long_array(argv.len() as i32).map_err(fail)?;
+                    let argv = argv.into_iter().map(|arg| match arg {
+                        Value::I32(arg) => Ok(*arg as i64),
+                        Value::I64(arg) => Ok(*arg as i64),
+                        Value::F32(arg) => Ok(arg.to_bits() as i64),
+                        Value::F64(arg) => Ok(arg.to_bits() as i64),
+                        _ => Err(RuntimeError::new(format!("Argument of unsupported type {:?}", arg))),
+                    }).collect::<Result<Vec<jlong>, RuntimeError>>()?;
+                    env.set_long_array_region(jargv, 0, &argv).map_err(fail)?;
+                    // An exception thrown by `apply` stops the call with a trap.
                     let jret = env.call_method(function.as_obj(), "apply", "(Ljava/lang/Object;)Ljava/lang/Object;", &[jargv.into()])
-                        .expect("Couldn't call 'apply' function").l().expect("Failed to unwrap object");
+                        .and_then(|jret| jret.l()).map_err(fail)?;
                     let ret = match returns.len() {
                         0 => vec![],
                         len => {
                             let mut ret = vec![0; len];
-                            env.get_long_array_region(*jret, 0, &mut ret).expect("Couldn't get array region");
+                            env.get_long_array_region(*jret, 0, &mut ret).map_err(fail)?;
                             ret.into_iter().enumerate().map(|(i, ret)| match returns[i] {
-                                Type::I32 => Value::I32(ret as i32),
-                                Type::I64 => Value::I64(ret as i64),
-                                Type::F32 => Value::F32(f32::from_bits(ret as u32)),
-                                Type::F64 => Value::F64(f64::from_bits(ret as u64)),
-                                t => panic!("Return of unsupported type {:?}", t)
-                            }).collect()
+                                Type::I32 => Ok(Value::I32(ret as i32)),
+                                Type::I64 => Ok(Value::I64(ret as i64)),
+                                Type::F32 => Ok(Value::F32(f32::from_bits(ret as u32))),
+                                Type::F64 => Ok(Value::F64(f64::from_bits(ret as u64))),
+                                t => Err(RuntimeError::new(format!("Return of unsupported type {:?}", t))),
+                            }).collect::<Result<Vec<_>, RuntimeError>>()?
                         }
                     };
                     Ok(ret)
@@ -116,7 +145,7 @@ pub extern "system" fn Java_org_wasmer_Imports_nativeImportsInstantiate(
         }
         let import_object = Box::new(import_object);
 
-        Ok(Pointer::new(Imports { import_object }).into())
+        Ok(Pointer::new(Imports { import_object, memories }).into())
     });
 
     joption_or_throw(&env, output).unwrap_or(0)
@@ -134,7 +163,7 @@ pub extern "system" fn Java_org_wasmer_Imports_nativeImportsWasi(
         let import_object = wasi.import_object(&module.module)?;
         let import_object = Box::new(import_object);
 
-        Ok(Pointer::new(Imports { import_object }).into())
+        Ok(Pointer::new(Imports { import_object, memories: HashMap::new() }).into())
     });
 
     joption_or_throw(&env, output).unwrap_or(0)
@@ -151,9 +180,21 @@ pub extern "system" fn Java_org_wasmer_Imports_nativeImportsChain(
         let back: &Imports = Into::<Pointer<Imports>>::into(back).borrow();
         let front: &Imports = Into::<Pointer<Imports>>::into(front).borrow();
         let import_object = Box::new((&back.import_object).chain_front(&front.import_object));
+        // As for the resolvers, the memories of `front` take precedence.
+        let mut memories = back.memories.clone();
+        memories.extend(front.memories.clone());
 
-        Ok(Pointer::new(Imports { import_object }).into())
+        Ok(Pointer::new(Imports { import_object, memories }).into())
     });
 
     joption_or_throw(&env, output).unwrap_or(0)
 }
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Imports_nativeDrop(
+    _env: JNIEnv,
+    _class: JClass,
+    imports_pointer: jptr,
+) {
+    let _: Pointer<Imports> = imports_pointer.into();
+}
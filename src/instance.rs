@@ -1,44 +1,39 @@
 use crate::{
-    exception::{joption_or_throw, runtime_error, Error},
+    engine::Engine,
+    exception::{call_error, instantiation_error, joption_or_throw, runtime_error, Error},
+    global,
     memory,
     memory::Memory,
     types::{jptr, Pointer},
     value::{Value, DOUBLE_CLASS, FLOAT_CLASS, INT_CLASS, LONG_CLASS},
 };
 use jni::{
-    objects::{GlobalRef, JClass, JObject, JString, JValue},
+    objects::{JClass, JObject, JString, JValue},
     sys::{jbyteArray, jobjectArray},
     JNIEnv,
 };
-use std::{collections::HashMap, convert::TryFrom, panic, rc::Rc};
+use std::{collections::HashMap, convert::TryFrom, panic};
 use std::sync::Arc;
-use wasmer::{imports, Extern, Value as WasmValue, Function, Exportable, Global, Type};
+use wasmer::{imports, Extern, Value as WasmValue, Function};
 use wasmer as core;
-use wasmer_compiler_cranelift::Cranelift;
-use wasmer_engine_universal::Universal as UniversalEngine;
 
+/// A WebAssembly instance.
+///
+/// The instance itself is `Send` and `Sync`, so it can be called from
+/// any Java thread, but its linear memory and globals are mutated by
+/// calls: the Java side makes sure one thread uses it at a time.
 pub struct Instance {
-    pub java_instance_object: GlobalRef,
-    pub instance: Rc<core::Instance>,
+    pub instance: Arc<core::Instance>,
     pub memories: HashMap<String, Memory>,
 }
 
 impl Instance {
-    fn new(java_instance_object: GlobalRef, module_bytes: Vec<u8>) -> Result<Self, Error> {
+    fn new(engine: &Engine, module_bytes: Vec<u8>) -> Result<Self, Error> {
         let module_bytes = module_bytes.as_slice();
         let imports = imports! {};
-        let store = core::Store::new(&UniversalEngine::new(Cranelift::default()).engine());
-        let module = core::Module::new(&store, module_bytes)
-            .map_err(|e| runtime_error(format!("Failed to compile the module: {}", e)))?;
-        let instance = match core::Instance::new(&module, &imports) {
-            Ok(instance) => Rc::new(instance),
-            Err(e) => {
-                return Err(runtime_error(format!(
-                    "Failed to instantiate the module: {}",
-                    e
-                )))
-            }
-        };
+        let module = core::Module::new(&engine.store, module_bytes)
+            .map_err(|e| Error::Compile(format!("Failed to compile the module: {}", e)))?;
+        let instance = Arc::new(core::Instance::new(&module, &imports).map_err(instantiation_error)?);
 
         let memories: HashMap<String, Memory> = instance
             .exports
@@ -50,7 +45,6 @@ impl Instance {
             .collect();
 
         Ok(Self {
-            java_instance_object,
             instance,
             memories,
         })
@@ -70,7 +64,7 @@ impl Instance {
 
         function
             .call(arguments.as_slice())
-            .map_err(|e| runtime_error(format!("{}", e)))
+            .map_err(|e| call_error(&self.instance, e))
     }
 }
 
@@ -78,14 +72,14 @@ impl Instance {
 pub extern "system" fn Java_org_wasmer_Instance_nativeInstantiate(
     env: JNIEnv,
     _class: JClass,
-    this: JObject,
+    engine_pointer: jptr,
     module_bytes: jbyteArray,
 ) -> jptr {
     let output = panic::catch_unwind(|| {
         let module_bytes = env.convert_byte_array(module_bytes)?;
-        let java_instance = env.new_global_ref(this)?;
+        let engine: &Engine = Into::<Pointer<Engine>>::into(engine_pointer).borrow();
 
-        let instance = Instance::new(java_instance, module_bytes)?;
+        let instance = Instance::new(engine, module_bytes)?;
 
         Ok(Pointer::new(instance).into())
     });
@@ -178,6 +172,7 @@ pub extern "system" fn Java_org_wasmer_Instance_nativeCallExportedFunction<'a>(
 pub extern "system" fn Java_org_wasmer_Instance_nativeInitializeExportedFunctions(
     env: JNIEnv,
     _class: JClass,
+    java_instance: JObject,
     instance_pointer: jptr,
 ) {
     let output = panic::catch_unwind(|| {
@@ -185,7 +180,7 @@ pub extern "system" fn Java_org_wasmer_Instance_nativeInitializeExportedFunction
 
         let exports_object: JObject = env
             .get_field(
-                instance.java_instance_object.as_obj(),
+                java_instance,
                 "exports",
                 "Lorg/wasmer/Exports;",
             )?
@@ -213,12 +208,13 @@ pub extern "system" fn Java_org_wasmer_Instance_nativeInitializeExportedFunction
 pub extern "system" fn Java_org_wasmer_Instance_nativeInitializeExportedMemories(
     env: JNIEnv,
     _class: JClass,
+    java_instance: JObject,
     instance_pointer: jptr,
 ) {
     let output = panic::catch_unwind(|| {
         let instance: &Instance = Into::<Pointer<Instance>>::into(instance_pointer).borrow();
 
-        memory::java::initialize_memories(&env, instance)?;
+        memory::java::initialize_memories(&env, java_instance, instance)?;
 
         Ok(())
     });
@@ -230,54 +226,34 @@ pub extern "system" fn Java_org_wasmer_Instance_nativeInitializeExportedMemories
 pub extern "system" fn Java_org_wasmer_Instance_nativeInitializeExportedGlobals(
     env: JNIEnv,
     _class: JClass,
+    java_instance: JObject,
     instance_pointer: jptr,
 ) {
     let output = panic::catch_unwind(|| {
         let instance: &Instance = Into::<Pointer<Instance>>::into(instance_pointer).borrow();
 
-        // Get the `org.wasmer.Global` class.
-        let global_class = env.find_class("org/wasmer/Global")?;
         let exports_object: JObject = env
             .get_field(
-                instance.java_instance_object.as_obj(),
+                java_instance,
                 "exports",
                 "Lorg/wasmer/Exports;",
             )?
             .l()?;
 
         for (export_name, export) in instance.instance.exports.iter() {
-            if let Extern::Global { .. } = export {
-                let global = Global::get_self_from_extern(export).unwrap();
-                let name = env.new_string(export_name)?;
-                let global_object = env.new_object(global_class, "()V", &[])?;
-
-                // Sets the two fields of the Global class - value and type
-                match global.get().ty() {
-                    Type::I32 => {
-                        env.set_field(global_object, "value", "Ljava/lang/String;", env.new_string(global.get().unwrap_i32().to_string())?.into())?;
-                        env.set_field(global_object, "type", "Ljava/lang/String;", env.new_string("i32")?.into())?
-                    },
-                    Type::I64 => {
-                        env.set_field(global_object, "value", "Ljava/lang/String;", env.new_string(global.get().unwrap_i64().to_string())?.into())?;
-                        env.set_field(global_object, "type", "Ljava/lang/String;", env.new_string("i64")?.into())?
-                    },
-                    Type::F32 => {
-                        env.set_field(global_object, "value", "Ljava/lang/String;", env.new_string(global.get().unwrap_f32().to_string())?.into())?;
-                        env.set_field(global_object, "type", "Ljava/lang/String;", env.new_string("f32")?.into())?
-                    },
-                    Type::F64 => {
-                        env.set_field(global_object, "value", "Ljava/lang/String;", env.new_string(global.get().unwrap_f64().to_string())?.into())?;
-                        env.set_field(global_object, "type", "Ljava/lang/String;", env.new_string("f64")?.into())?
-                    },
-                    _ => println!("No current support for globals of type {}", global.get().ty())
-                }
+            if let Extern::Global(global) = export {
+                // Globals of other types than numbers are not exported.
+                let global_object = match global::new_java_global(&env, global.clone())? {
+                    Some(global_object) => global_object,
+                    None => continue,
+                };
 
                 env.call_method(
                     exports_object,
                     "addGlobal",
                     "(Ljava/lang/String;Lorg/wasmer/Global;)V",
                     &[
-                        JObject::from(name).into(),
+                        JObject::from(env.new_string(export_name)?).into(),
                         global_object.into()
                     ],
                 )?;
@@ -0,0 +1,952 @@
+//! Interpreted modules and instances, run by `wasmi` instead of being
+//! compiled, see `org.wasmer.Interpreter`.
+//!
+//! Creating an interpreted instance costs next to nothing, so it suits
+//! one-shot calls. The Java classes are the same as for compiled
+//! instances: only the pointers they hold, and the natives they call,
+//! differ.
+
+use crate::{
+    allocator::{self, Allocator, HeapMemory},
+    engine::Engine,
+    hashing::HostFunction as HashingFunction,
+    exception::{joption_or_throw, runtime_error, Error, Trap as TrapError, TRAP_UNKNOWN},
+    host_function::{take_exception, JavaException},
+    types::{jptr, Pointer},
+};
+use jni::{
+    objects::{GlobalRef, JClass, JObject, JString},
+    sys::{jbyteArray, jint, jintArray, jlong, jlongArray, jobject},
+    JNIEnv,
+};
+use std::{
+    cell::UnsafeCell,
+    collections::HashMap,
+    convert::TryFrom,
+    panic, slice,
+    sync::{
+        atomic::{AtomicU64, Ordering},
+        Arc, Mutex,
+    },
+};
+use wasmer::wasmparser::{ExternalKind, Parser, Payload};
+use wasmi::{
+    core::{HostError, Pages, Trap, Value, ValueType, F32, F64},
+    Caller, Extern, Func, FuncType, Global as WasmGlobal, Linker, Memory as WasmMemory, MemoryType, Module as WasmModule,
+    Mutability, Store,
+};
+
+/// A module parsed by the interpreter.
+pub struct InterpretedModule {
+    engine: wasmi::Engine,
+    module: WasmModule,
+    /// Names of the exported functions, memories and globals. The
+    /// export section is read once, at parse time.
+    function_exports: Vec<String>,
+    memory_exports: Vec<String>,
+    global_exports: Vec<String>,
+}
+
+impl InterpretedModule {
+    fn new(engine: &Engine, module_bytes: &[u8]) -> Result<Self, Error> {
+        let module = WasmModule::new(&engine.interpreter, module_bytes)
+            .map_err(|e| Error::Compile(format!("Failed to parse the module: {}", e)))?;
+        let mut function_exports = Vec::new();
+        let mut memory_exports = Vec::new();
+        let mut global_exports = Vec::new();
+
+        for payload in Parser::new(0).parse_all(module_bytes) {
+            if let Payload::ExportSection(reader) = payload
+                .map_err(|e| Error::Compile(format!("Failed to parse the module: {}", e)))?
+            {
+                for export in reader {
+                    let export = export.map_err(|e| Error::Compile(format!("Failed to parse the module: {}", e)))?;
+
+                    match export.kind {
+                        ExternalKind::Function => function_exports.push(export.field.to_string()),
+                        ExternalKind::Memory => memory_exports.push(export.field.to_string()),
+                        ExternalKind::Global => global_exports.push(export.field.to_string()),
+                        _ => {}
+                    }
+                }
+            }
+        }
+
+        Ok(Self {
+            engine: engine.interpreter.clone(),
+            module,
+            function_exports,
+            memory_exports,
+            global_exports,
+        })
+    }
+}
+
+/// The store of an interpreted instance, shared by its functions and
+/// memories so that they stay usable as long as any of them is alive.
+///
+/// The Java side makes sure one thread uses an instance at a time, but
+/// a Java host function may read the memory while a call holds the
+/// store: as with `wasmer::Memory::data_unchecked`, the memory data is
+/// then accessed through a raw pointer. The host functions run in Rust
+/// go through their caller instead, see `CallerMemory`.
+struct SharedStore {
+    store: UnsafeCell<Store<()>>,
+    sizes: Arc<MemorySizes>,
+}
+
+unsafe impl Send for SharedStore {}
+unsafe impl Sync for SharedStore {}
+
+impl SharedStore {
+    #[allow(clippy::mut_from_ref)]
+    fn get(&self) -> &mut Store<()> {
+        unsafe { &mut *self.store.get() }
+    }
+
+    /// Publish the sizes of the memories, once nothing holds the store.
+    fn publish_sizes(&self) {
+        let store: &Store<()> = self.get();
+
+        self.sizes.publish(|memory| memory.data(store).len());
+    }
+}
+
+/// The sizes of the memories of an interpreted instance, in bytes, in
+/// cells that `org.wasmer.Memory` reads without a call.
+///
+/// wasmi grows a memory without notice, so the sizes are published
+/// whenever Java may observe them: when a call returns, before a host
+/// function runs, and when a memory is grown from Java.
+#[derive(Default)]
+struct MemorySizes(Mutex<Vec<(WasmMemory, Arc<AtomicU64>)>>);
+
+impl MemorySizes {
+    fn register(&self, store: &Store<()>, memory: WasmMemory) -> Arc<AtomicU64> {
+        let size = Arc::new(AtomicU64::new(memory.data(store).len() as u64));
+        self.0.lock().unwrap().push((memory, size.clone()));
+
+        size
+    }
+
+    fn publish(&self, size_of: impl Fn(&WasmMemory) -> usize) {
+        for (memory, size) in self.0.lock().unwrap().iter() {
+            size.store(size_of(memory) as u64, Ordering::Release);
+        }
+    }
+}
+
+pub struct InterpretedInstance {
+    store: Arc<SharedStore>,
+    instance: wasmi::Instance,
+}
+
+pub struct InterpretedFunction {
+    store: Arc<SharedStore>,
+    function: Func,
+    params: Vec<ValueType>,
+    results: Vec<ValueType>,
+}
+
+impl InterpretedFunction {
+    fn call(&self, arguments: &[i64], results: &mut [i64]) -> Result<(), Error> {
+        let inputs = self
+            .params
+            .iter()
+            .zip(arguments.iter())
+            .map(|(ty, bits)| value_from_bits(*ty, *bits))
+            .collect::<Vec<Value>>();
+        let mut outputs = self.results.iter().map(|ty| Value::default(*ty)).collect::<Vec<Value>>();
+
+        let outcome = self.function.call(self.store.get(), &inputs, &mut outputs);
+        self.store.publish_sizes();
+
+        outcome.map_err(|e| match e {
+                wasmi::Error::Trap(trap) => trap_error(trap),
+                e => Error::Trap(TrapError::new(TRAP_UNKNOWN, format!("{}", e))),
+            })?;
+
+        for (slot, value) in results.iter_mut().zip(outputs.iter()) {
+            *slot = value_to_bits(value);
+        }
+
+        Ok(())
+    }
+}
+
+#[derive(Clone)]
+pub struct InterpretedMemory {
+    store: Arc<SharedStore>,
+    memory: WasmMemory,
+    /// The published size of the memory, see `MemorySizes`.
+    size: Arc<AtomicU64>,
+}
+
+impl InterpretedMemory {
+    fn data(&self) -> &mut [u8] {
+        let data = self.memory.data_mut(self.store.get());
+
+        unsafe { slice::from_raw_parts_mut(data.as_mut_ptr(), data.len()) }
+    }
+}
+
+impl HeapMemory for InterpretedMemory {
+    fn data(&self) -> &mut [u8] {
+        InterpretedMemory::data(self)
+    }
+
+    fn grow(&self, pages: u32) -> Result<(), Error> {
+        let pages = Pages::new(pages).ok_or_else(|| runtime_error(format!("Cannot grow a memory by {} pages", pages)))?;
+
+        self.memory
+            .grow(self.store.get(), pages)
+            .map(|_| self.store.publish_sizes())
+            .map_err(|e| runtime_error(format!("Failed to grow the memory: {}", e)))
+    }
+
+    fn interpreted(&self) -> Option<&InterpretedMemory> {
+        Some(self)
+    }
+}
+
+/// Return the memory of an `org.wasmer.Memory` of an interpreted
+/// instance, for an allocator, see `allocator::Allocator`.
+pub fn heap_memory(memory_pointer: jptr) -> Box<dyn HeapMemory + Send> {
+    let memory: &InterpretedMemory = Into::<Pointer<InterpretedMemory>>::into(memory_pointer).borrow();
+
+    Box::new(memory.clone())
+}
+
+/// The memory of an allocator, reached through the caller of a host
+/// function: wasmi holds the store for the duration of the call, so it
+/// must not be reached through the `SharedStore` meanwhile.
+struct CallerMemory<'a> {
+    caller: UnsafeCell<Caller<'a, ()>>,
+    memory: WasmMemory,
+    sizes: &'a MemorySizes,
+}
+
+impl<'a> CallerMemory<'a> {
+    /// Return the memory the allocator is bound to, through `caller`,
+    /// if it belongs to the store of `sizes`, i.e. to the calling
+    /// instance. Otherwise, the allocator uses its own memory.
+    fn of(allocator: &Allocator, caller: Caller<'a, ()>, sizes: &'a Arc<MemorySizes>) -> Option<Self> {
+        allocator
+            .interpreted_memory()
+            .filter(|memory| Arc::ptr_eq(&memory.store.sizes, sizes))
+            .map(|memory| CallerMemory {
+                caller: UnsafeCell::new(caller),
+                memory: memory.memory,
+                sizes: sizes.as_ref(),
+            })
+    }
+
+    #[allow(clippy::mut_from_ref)]
+    fn caller(&self) -> &mut Caller<'a, ()> {
+        unsafe { &mut *self.caller.get() }
+    }
+}
+
+impl HeapMemory for CallerMemory<'_> {
+    fn data(&self) -> &mut [u8] {
+        let data = self.memory.data_mut(self.caller());
+
+        unsafe { slice::from_raw_parts_mut(data.as_mut_ptr(), data.len()) }
+    }
+
+    fn grow(&self, pages: u32) -> Result<(), Error> {
+        let pages = Pages::new(pages).ok_or_else(|| runtime_error(format!("Cannot grow a memory by {} pages", pages)))?;
+        let caller = self.caller();
+
+        self.memory
+            .grow(&mut *caller, pages)
+            .map_err(|e| runtime_error(format!("Failed to grow the memory: {}", e)))?;
+        self.sizes.publish(|memory| memory.data(&*caller).len());
+
+        Ok(())
+    }
+}
+
+pub struct InterpretedGlobal {
+    store: Arc<SharedStore>,
+    global: WasmGlobal,
+}
+
+/// A Java exception thrown by a host function travels in the trap
+/// that stops the interpreter.
+impl HostError for JavaException {}
+
+/// Turn a trap of the interpreter into an `Error`, as
+/// `exception::call_error` does for compiled instances.
+fn trap_error(trap: Trap) -> Error {
+    match trap.downcast_ref::<JavaException>() {
+        Some(exception) => Error::HostFunction(exception.to_string(), Some(exception.0.clone())),
+        None => Error::Trap(TrapError::new(TRAP_UNKNOWN, format!("{}", trap))),
+    }
+}
+
+fn type_to_code(ty: ValueType) -> jint {
+    match ty {
+        ValueType::I32 => 1,
+        ValueType::I64 => 2,
+        ValueType::F32 => 3,
+        ValueType::F64 => 4,
+    }
+}
+
+fn type_from_code(code: jint) -> Result<ValueType, Error> {
+    match code {
+        1 => Ok(ValueType::I32),
+        2 => Ok(ValueType::I64),
+        3 => Ok(ValueType::F32),
+        4 => Ok(ValueType::F64),
+        _ => Err(runtime_error(format!("Unknown type code {}", code))),
+    }
+}
+
+fn value_from_bits(ty: ValueType, bits: i64) -> Value {
+    match ty {
+        ValueType::I32 => Value::I32(bits as i32),
+        ValueType::I64 => Value::I64(bits),
+        ValueType::F32 => Value::F32(F32::from_bits(bits as u32)),
+        ValueType::F64 => Value::F64(F64::from_bits(bits as u64)),
+    }
+}
+
+fn value_to_bits(value: &Value) -> i64 {
+    match value {
+        Value::I32(value) => *value as i64,
+        Value::I64(value) => *value,
+        Value::F32(value) => value.to_bits() as i64,
+        Value::F64(value) => value.to_bits() as i64,
+    }
+}
+
+fn types_from_field(env: &JNIEnv, object: JObject, field: &str) -> Result<Vec<ValueType>, Error> {
+    let array = env.get_field(object, field, "[I")?.l()?.into_inner();
+    let mut codes = vec![0; env.get_array_length(array)? as usize];
+    env.get_int_array_region(array, 0, &mut codes)?;
+
+    codes.into_iter().map(type_from_code).collect()
+}
+
+fn types_to_codes(env: &JNIEnv, types: &[ValueType]) -> Result<jintArray, Error> {
+    let codes = types.iter().map(|ty| type_to_code(*ty)).collect::<Vec<jint>>();
+    let array = env.new_int_array(i32::try_from(codes.len())?)?;
+    env.set_int_array_region(array, 0, &codes)?;
+
+    Ok(array)
+}
+
+/// Create an interpreted function calling a Java object with raw
+/// arguments: `HostFunction.call(long[])` for a `HostFuncImport`, or
+/// `Function.apply(Object)` for a `FuncImport`. A Java exception stops
+/// the call with a trap carrying it, see `JavaException`.
+fn new_host_function(
+    env: &JNIEnv,
+    store: &mut Store<()>,
+    sizes: &Arc<MemorySizes>,
+    import: JObject,
+) -> Result<Func, Error> {
+    let is_host_function = env.is_instance_of(import, "org/wasmer/ImportObject$HostFuncImport")?;
+    let (target, method, signature) = if is_host_function {
+        (
+            env.get_field(import, "hostFunction", "Lorg/wasmer/HostFunction;")?.l()?,
+            "call",
+            "([J)J",
+        )
+    } else {
+        (
+            env.get_field(import, "function", "Ljava/util/function/Function;")?.l()?,
+            "apply",
+            "(Ljava/lang/Object;)Ljava/lang/Object;",
+        )
+    };
+    let params = types_from_field(env, import, "argTypesInt")?;
+    let results = types_from_field(env, import, "retTypesInt")?;
+    let target = env.new_global_ref(target)?;
+    let jvm = env.get_java_vm()?;
+    let ty = FuncType::new(params, results.clone());
+    let sizes = sizes.clone();
+
+    Ok(Func::new(store, ty, move |caller, inputs, outputs| {
+        // The host function may read the memories.
+        sizes.publish(|memory| memory.data(&caller).len());
+
+        let target: &GlobalRef = &target;
+        let env = jvm.get_env().map_err(|e| Trap::new(e.to_string()))?;
+        let trap = |e: jni::errors::Error| match take_exception(&env) {
+            Some(exception) => Trap::from(JavaException(exception)),
+            None => Trap::new(format!("The host function has failed: {}", e)),
+        };
+        let bits = inputs.iter().map(value_to_bits).collect::<Vec<jlong>>();
+        let arguments = env.new_long_array(bits.len() as i32).map_err(trap)?;
+        env.set_long_array_region(arguments, 0, &bits).map_err(trap)?;
+
+        let result = env
+            .call_method(target.as_obj(), method, signature, &[JObject::from(arguments).into()])
+            .map_err(trap)?;
+
+        if results.is_empty() {
+            return Ok(());
+        }
+
+        if is_host_function {
+            outputs[0] = value_from_bits(results[0], result.j().map_err(trap)?);
+        } else {
+            let returned = result.l().map_err(trap)?.into_inner();
+            let mut bits = vec![0; results.len()];
+            env.get_long_array_region(returned, 0, &mut bits).map_err(trap)?;
+
+            for (nth, ty) in results.iter().enumerate() {
+                outputs[nth] = value_from_bits(*ty, bits[nth]);
+            }
+        }
+
+        Ok(())
+    }))
+}
+
+/// Create the interpreted host function of an
+/// `org.wasmer.ImportObject.AllocatorImport`, see `allocator::new_function`.
+fn new_allocator_function(
+    env: &JNIEnv,
+    store: &mut Store<()>,
+    sizes: &Arc<MemorySizes>,
+    import: JObject,
+) -> Result<Func, Error> {
+    let allocator = allocator::allocator_of(env, import)?;
+    let sizes = sizes.clone();
+    let argument = |inputs: &[Value]| match inputs.first() {
+        Some(Value::I32(argument)) => Ok(*argument),
+        _ => Err(Trap::new("Expected an i32 argument".to_string())),
+    };
+
+    Ok(if env.get_field(import, "free", "Z")?.z()? {
+        Func::new(store, FuncType::new(vec![ValueType::I32], vec![]), move |caller, inputs, _outputs| {
+            let memory = CallerMemory::of(&allocator, caller, &sizes);
+
+            allocator
+                .deallocate(memory.as_ref().map(|memory| memory as &dyn HeapMemory), argument(inputs)? as u32)
+                .map_err(|e| Trap::new(e.to_string()))
+        })
+    } else {
+        Func::new(store, FuncType::new(vec![ValueType::I32], vec![ValueType::I32]), move |caller, inputs, outputs| {
+            let memory = CallerMemory::of(&allocator, caller, &sizes);
+            let size = u32::try_from(argument(inputs)?).map_err(|e| Trap::new(e.to_string()))?;
+            let pointer = allocator
+                .allocate(memory.as_ref().map(|memory| memory as &dyn HeapMemory), size)
+                .map_err(|e| Trap::new(e.to_string()))?;
+            outputs[0] = Value::I32(pointer as i32);
+
+            Ok(())
+        })
+    })
+}
+
+/// Create the interpreted host function of an
+/// `org.wasmer.ImportObject.HashingImport`, see `hashing::new_function`.
+fn new_hashing_function(
+    env: &JNIEnv,
+    store: &mut Store<()>,
+    sizes: &Arc<MemorySizes>,
+    import: JObject,
+    name: &str,
+) -> Result<Func, Error> {
+    let host_function = HashingFunction::from_name(name)?;
+    let allocator = allocator::allocator_of(env, import)?;
+    let sizes = sizes.clone();
+    let params = if host_function.is_verify() {
+        vec![ValueType::I32, ValueType::I64, ValueType::I32]
+    } else {
+        vec![ValueType::I64]
+    };
+
+    Ok(Func::new(store, FuncType::new(params, vec![ValueType::I32]), move |caller, inputs, outputs| {
+        let memory = CallerMemory::of(&allocator, caller, &sizes);
+        let arguments = inputs
+            .iter()
+            .map(|input| match input {
+                Value::I32(input) => Ok(i64::from(*input)),
+                Value::I64(input) => Ok(*input),
+                _ => Err(Trap::new(format!("Argument of unsupported type {:?}", input))),
+            })
+            .collect::<Result<Vec<_>, _>>()?;
+        outputs[0] = Value::I32(
+            host_function
+                .call(&allocator, memory.as_ref().map(|memory| memory as &dyn HeapMemory), &arguments)
+                .map_err(|e| Trap::new(e.to_string()))?,
+        );
+
+        Ok(())
+    }))
+}
+
+/// Create the Java objects of the exports of an interpreted instance,
+/// as `instance::java` does for compiled instances.
+fn initialize_exports(
+    env: &JNIEnv,
+    java_instance: JObject,
+    module: &InterpretedModule,
+    instance: &InterpretedInstance,
+) -> Result<(), Error> {
+    let exports_object = env.get_field(java_instance, "exports", "Lorg/wasmer/Exports;")?.l()?;
+    let memory_class = env.find_class("org/wasmer/Memory")?;
+    let global_class = env.find_class("org/wasmer/Global")?;
+
+    for name in &module.function_exports {
+        env.call_method(
+            exports_object,
+            "addFunction",
+            "(Ljava/lang/String;)V",
+            &[JObject::from(env.new_string(name)?).into()],
+        )?;
+    }
+
+    for name in &module.memory_exports {
+        let memory = match instance.instance.get_export(instance.store.get(), name) {
+            Some(Extern::Memory(memory)) => memory,
+            _ => continue,
+        };
+        let size = instance.store.sizes.register(instance.store.get(), memory.clone());
+        let memory_pointer: jptr = Pointer::new(InterpretedMemory {
+            store: instance.store.clone(),
+            memory,
+            size,
+        })
+        .into();
+        let memory_object = env.new_object(memory_class, "(JZ)V", &[memory_pointer.into(), true.into()])?;
+
+        env.call_method(
+            exports_object,
+            "addMemory",
+            "(Ljava/lang/String;Lorg/wasmer/Memory;)V",
+            &[JObject::from(env.new_string(name)?).into(), memory_object.into()],
+        )?;
+    }
+
+    for name in &module.global_exports {
+        let global = match instance.instance.get_export(instance.store.get(), name) {
+            Some(Extern::Global(global)) => global,
+            _ => continue,
+        };
+        let ty = global.global_type(instance.store.get());
+        let global_pointer: jptr = Pointer::new(InterpretedGlobal {
+            store: instance.store.clone(),
+            global,
+        })
+        .into();
+        let global_object = env.new_object(
+            global_class,
+            "(JIZZ)V",
+            &[
+                global_pointer.into(),
+                type_to_code(ty.value_type()).into(),
+                (ty.mutability() == Mutability::Mutable).into(),
+                true.into(),
+            ],
+        )?;
+
+        env.call_method(
+            exports_object,
+            "addGlobal",
+            "(Ljava/lang/String;Lorg/wasmer/Global;)V",
+            &[JObject::from(env.new_string(name)?).into(), global_object.into()],
+        )?;
+    }
+
+    Ok(())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeModule(
+    env: JNIEnv,
+    _class: JClass,
+    engine_pointer: jptr,
+    module_bytes: jbyteArray,
+) -> jptr {
+    let output = panic::catch_unwind(|| {
+        let engine: &Engine = Into::<Pointer<Engine>>::into(engine_pointer).borrow();
+        let module_bytes = env.convert_byte_array(module_bytes)?;
+        let module = InterpretedModule::new(engine, &module_bytes)?;
+
+        Ok(Pointer::new(module).into())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeModuleDrop(
+    _env: JNIEnv,
+    _class: JClass,
+    module_pointer: jptr,
+) {
+    let _: Pointer<InterpretedModule> = module_pointer.into();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeInstantiate(
+    env: JNIEnv,
+    _class: JClass,
+    java_instance: JObject,
+    module_pointer: jptr,
+    imports: JObject,
+) -> jptr {
+    let output = panic::catch_unwind(|| {
+        let module: &InterpretedModule = Into::<Pointer<InterpretedModule>>::into(module_pointer).borrow();
+        let mut store = Store::new(&module.engine, ());
+        let mut linker = Linker::<()>::new();
+        let mut defined = HashMap::new();
+        let sizes = Arc::new(MemorySizes::default());
+
+        for import in env.get_list(imports)?.iter()? {
+            let namespace = env.get_field(import, "namespace", "Ljava/lang/String;")?.l()?;
+            let namespace: String = env.get_string(namespace.into())?.into();
+            let name = env.get_field(import, "name", "Ljava/lang/String;")?.l()?;
+            let name: String = env.get_string(name.into())?.into();
+
+            // As for chained imports, the first definition wins.
+            if defined.insert((namespace.clone(), name.clone()), ()).is_some() {
+                continue;
+            }
+
+            let item: Extern = if env.is_instance_of(import, "org/wasmer/ImportObject$GlobalImport")? {
+                let ty = type_from_code(env.get_field(import, "typeInt", "I")?.i()?)?;
+                let value = value_from_bits(ty, env.get_field(import, "bits", "J")?.j()?);
+                let mutability = if env.get_field(import, "mutable", "Z")?.z()? {
+                    Mutability::Mutable
+                } else {
+                    Mutability::Const
+                };
+
+                WasmGlobal::new(&mut store, value, mutability).into()
+            } else if env.is_instance_of(import, "org/wasmer/ImportObject$AllocatorImport")? {
+                new_allocator_function(&env, &mut store, &sizes, import)?.into()
+            } else if env.is_instance_of(import, "org/wasmer/ImportObject$HashingImport")? {
+                new_hashing_function(&env, &mut store, &sizes, import, &name)?.into()
+            } else if env.is_instance_of(import, "org/wasmer/ImportObject$MemoryImport")? {
+                let min_pages = env.get_field(import, "minPages", "I")?.i()?;
+                let max_pages = env.get_field(import, "maxPages", "Ljava/lang/Integer;")?.l()?;
+                let max_pages = if max_pages.is_null() {
+                    None
+                } else {
+                    Some(u32::try_from(env.call_method(max_pages, "intValue", "()I", &[])?.i()?)?)
+                };
+                let memory_type = MemoryType::new(u32::try_from(min_pages)?, max_pages);
+
+                WasmMemory::new(&mut store, memory_type)
+                    .map_err(|e| Error::Link(format!("Failed to create the memory `{}`: {}", name, e)))?
+                    .into()
+            } else {
+                new_host_function(&env, &mut store, &sizes, import)?.into()
+            };
+
+            linker
+                .define(&namespace, &name, item)
+                .map_err(|e| Error::Link(format!("Failed to import `{}.{}`: {}", namespace, name, e)))?;
+        }
+
+        let instance = linker
+            .instantiate(&mut store, &module.module)
+            .and_then(|instance| instance.start(&mut store))
+            .map_err(|e| match e {
+                wasmi::Error::Trap(trap) => trap_error(trap),
+                e => Error::Link(format!("Failed to instantiate the module: {}", e)),
+            })?;
+        let instance = InterpretedInstance {
+            store: Arc::new(SharedStore {
+                store: UnsafeCell::new(store),
+                sizes,
+            }),
+            instance,
+        };
+
+        initialize_exports(&env, java_instance, module, &instance)?;
+
+        Ok(Pointer::new(instance).into())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeInstanceDrop(
+    _env: JNIEnv,
+    _class: JClass,
+    instance_pointer: jptr,
+) {
+    let _: Pointer<InterpretedInstance> = instance_pointer.into();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeResolve(
+    env: JNIEnv,
+    _class: JClass,
+    instance_pointer: jptr,
+    export_name: JString,
+) -> jptr {
+    let output = panic::catch_unwind(|| {
+        let instance: &InterpretedInstance = Into::<Pointer<InterpretedInstance>>::into(instance_pointer).borrow();
+        let export_name: String = env.get_string(export_name)?.into();
+        let function = match instance.instance.get_export(instance.store.get(), &export_name) {
+            Some(Extern::Func(function)) => function,
+            _ => {
+                return Err(runtime_error(format!(
+                    "Exported function `{}` does not exist",
+                    export_name
+                )))
+            }
+        };
+        let ty = function.func_type(instance.store.get());
+
+        Ok(Pointer::new(InterpretedFunction {
+            store: instance.store.clone(),
+            function,
+            params: ty.params().to_vec(),
+            results: ty.results().to_vec(),
+        })
+        .into())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeFunctionDrop(
+    _env: JNIEnv,
+    _class: JClass,
+    function_pointer: jptr,
+) {
+    let _: Pointer<InterpretedFunction> = function_pointer.into();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeParamTypes(
+    env: JNIEnv,
+    _class: JClass,
+    function_pointer: jptr,
+) -> jintArray {
+    let output = panic::catch_unwind(|| {
+        let function: &InterpretedFunction = Into::<Pointer<InterpretedFunction>>::into(function_pointer).borrow();
+
+        types_to_codes(&env, &function.params)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(std::ptr::null_mut())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeResultTypes(
+    env: JNIEnv,
+    _class: JClass,
+    function_pointer: jptr,
+) -> jintArray {
+    let output = panic::catch_unwind(|| {
+        let function: &InterpretedFunction = Into::<Pointer<InterpretedFunction>>::into(function_pointer).borrow();
+
+        types_to_codes(&env, &function.results)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(std::ptr::null_mut())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeCall(
+    env: JNIEnv,
+    _class: JClass,
+    function_pointer: jptr,
+    arguments: jlongArray,
+    results: jlongArray,
+) {
+    let output = panic::catch_unwind(|| {
+        let function: &InterpretedFunction = Into::<Pointer<InterpretedFunction>>::into(function_pointer).borrow();
+
+        let mut argument_bits = vec![0; function.params.len()];
+        env.get_long_array_region(arguments, 0, &mut argument_bits)?;
+
+        let mut result_bits = vec![0; function.results.len()];
+        function.call(&argument_bits, &mut result_bits)?;
+        env.set_long_array_region(results, 0, &result_bits)?;
+
+        Ok(())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeMemoryDrop(
+    _env: JNIEnv,
+    _class: JClass,
+    memory_pointer: jptr,
+) {
+    let _: Pointer<InterpretedMemory> = memory_pointer.into();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeMemoryRetain(
+    env: JNIEnv,
+    _class: JClass,
+    memory_pointer: jptr,
+) -> jptr {
+    let output = panic::catch_unwind(|| {
+        let memory: &InterpretedMemory = Into::<Pointer<InterpretedMemory>>::into(memory_pointer).borrow();
+
+        // It shares the store, see `Java_org_wasmer_Memory_nativeRetain`.
+        Ok(Pointer::new(memory.clone()).into())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeMemoryView(
+    env: JNIEnv,
+    _class: JClass,
+    memory_pointer: jptr,
+) -> jobject {
+    let output = panic::catch_unwind(|| {
+        let memory: &InterpretedMemory = Into::<Pointer<InterpretedMemory>>::into(memory_pointer).borrow();
+        let byte_buffer = env.new_direct_byte_buffer(memory.data())?;
+
+        Ok(JObject::from(byte_buffer).into_inner())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(JObject::null().into_inner())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeMemoryDataSize(
+    env: JNIEnv,
+    _class: JClass,
+    memory_pointer: jptr,
+) -> jlong {
+    let output = panic::catch_unwind(|| {
+        let memory: &InterpretedMemory = Into::<Pointer<InterpretedMemory>>::into(memory_pointer).borrow();
+
+        Ok(memory.data().len() as jlong)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeMemorySizeCell(
+    env: JNIEnv,
+    _class: JClass,
+    memory_pointer: jptr,
+) -> jobject {
+    let output = panic::catch_unwind(|| {
+        let memory: &InterpretedMemory = Into::<Pointer<InterpretedMemory>>::into(memory_pointer).borrow();
+        let size = unsafe { slice::from_raw_parts_mut(memory.size.as_ref() as *const AtomicU64 as *mut u8, 8) };
+        let byte_buffer = env.new_direct_byte_buffer(size)?;
+
+        Ok(JObject::from(byte_buffer).into_inner())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(JObject::null().into_inner())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeMemoryGrow(
+    env: JNIEnv,
+    _class: JClass,
+    memory_pointer: jptr,
+    number_of_pages: jint,
+) -> jint {
+    let output = panic::catch_unwind(|| {
+        let memory: &InterpretedMemory = Into::<Pointer<InterpretedMemory>>::into(memory_pointer).borrow();
+        let pages = u32::try_from(number_of_pages)
+            .ok()
+            .and_then(Pages::new)
+            .ok_or_else(|| runtime_error(format!("Cannot grow a memory by {} pages", number_of_pages)))?;
+        let previous_pages = memory
+            .memory
+            .grow(memory.store.get(), pages)
+            .map_err(|e| runtime_error(format!("Failed to grow the memory: {}", e)))?;
+        memory.store.publish_sizes();
+
+        Ok(u32::from(previous_pages) as jint)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeMemoryCopyWithin(
+    env: JNIEnv,
+    _class: JClass,
+    memory_pointer: jptr,
+    source: jint,
+    destination: jint,
+    length: jint,
+) {
+    let output = panic::catch_unwind(|| {
+        let memory: &InterpretedMemory = Into::<Pointer<InterpretedMemory>>::into(memory_pointer).borrow();
+        let data = memory.data();
+        let (source, destination, length) = (source as usize, destination as usize, length as usize);
+
+        if source.checked_add(length).map_or(true, |end| end > data.len())
+            || destination.checked_add(length).map_or(true, |end| end > data.len())
+        {
+            return Err(runtime_error(format!(
+                "Out of bounds copy of {} bytes from {} to {} in a memory of {} bytes",
+                length,
+                source,
+                destination,
+                data.len()
+            )));
+        }
+
+        data.copy_within(source..source + length, destination);
+
+        Ok(())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeGlobalDrop(
+    _env: JNIEnv,
+    _class: JClass,
+    global_pointer: jptr,
+) {
+    let _: Pointer<InterpretedGlobal> = global_pointer.into();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeGlobalGet(
+    env: JNIEnv,
+    _class: JClass,
+    global_pointer: jptr,
+) -> jlong {
+    let output = panic::catch_unwind(|| {
+        let global: &InterpretedGlobal = Into::<Pointer<InterpretedGlobal>>::into(global_pointer).borrow();
+
+        Ok(value_to_bits(&global.global.get(global.store.get())))
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Interpreter_nativeGlobalSet(
+    env: JNIEnv,
+    _class: JClass,
+    global_pointer: jptr,
+    bits: jlong,
+) {
+    let output = panic::catch_unwind(|| {
+        let global: &InterpretedGlobal = Into::<Pointer<InterpretedGlobal>>::into(global_pointer).borrow();
+        let ty = global.global.global_type(global.store.get()).value_type();
+
+        global
+            .global
+            .set(global.store.get(), value_from_bits(ty, bits))
+            .map_err(|e| runtime_error(format!("Failed to set the global: {}", e)))
+    });
+
+    joption_or_throw(&env, output).unwrap_or(())
+}
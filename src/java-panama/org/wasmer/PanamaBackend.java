@@ -0,0 +1,471 @@
+package org.wasmer;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/**
+ * `PanamaBackend` is the `java.lang.foreign` backend, see `Backend`.
+ *
+ * Exported functions and memories are reached through downcall
+ * handles on the C entry points of the native library, and host
+ * functions are called back through upcall stubs, without any JNI
+ * lookup. Instantiation still goes through JNI, as it creates the Java
+ * objects of the exports.
+ *
+ * It is compiled with `--enable-preview`, as `java.lang.foreign` is a
+ * preview API in Java 21. It is selected with:
+ * <pre>{@code
+ * java --enable-preview --enable-native-access=ALL-UNNAMED -Dorg.wasmer.backend=panama ...
+ * }</pre>
+ */
+public final class PanamaBackend implements Backend {
+    private static final Linker LINKER = Linker.nativeLinker();
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * The exception thrown by the last host function that failed on
+     * this thread, rethrown as the cause of the failed call.
+     */
+    private static final ThreadLocal<Throwable> PENDING_EXCEPTION = new ThreadLocal<>();
+
+    /**
+     * The status of a failed host function, and of a trap, whose code
+     * is in the low byte, see `ffi.rs`.
+     */
+    private static final int STATUS_HOST_FUNCTION = 2;
+    private static final int STATUS_TRAP = 0x100;
+
+    private final MethodHandle lastErrorLength;
+    private final MethodHandle takeLastError;
+    private final MethodHandle functionCall;
+    private final MethodHandle functionCallI32I32ToI64;
+    private final MethodHandle functionCallBatch;
+    private final MethodHandle memoryData;
+    private final MethodHandle memoryDataSize;
+    private final MethodHandle memoryGrow;
+    private final MethodHandle globalGet;
+    private final MethodHandle globalSet;
+
+    PanamaBackend() {
+        if (!Native.LOADED_EMBEDDED_LIBRARY) {
+            System.loadLibrary("wasmer_jni");
+        }
+
+        SymbolLookup lookup = SymbolLookup.loaderLookup();
+        Linker.Option trivial = Linker.Option.isTrivial();
+
+        this.lastErrorLength = downcall(lookup, "wasmer_jni_last_error_length", FunctionDescriptor.of(JAVA_LONG));
+        this.takeLastError = downcall(lookup, "wasmer_jni_take_last_error", FunctionDescriptor.ofVoid(ADDRESS, JAVA_LONG));
+        this.functionCall = downcall(lookup, "wasmer_jni_function_call", FunctionDescriptor.of(JAVA_INT, JAVA_LONG, ADDRESS, ADDRESS));
+        this.functionCallI32I32ToI64 = downcall(lookup, "wasmer_jni_function_call_i32_i32_to_i64", FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_INT, JAVA_INT, ADDRESS));
+        this.functionCallBatch = downcall(lookup, "wasmer_jni_function_call_batch", FunctionDescriptor.of(JAVA_INT, JAVA_LONG, ADDRESS, JAVA_INT, ADDRESS, ADDRESS, JAVA_INT, ADDRESS));
+        this.memoryData = downcall(lookup, "wasmer_jni_memory_data", FunctionDescriptor.of(ADDRESS, JAVA_LONG), trivial);
+        this.memoryDataSize = downcall(lookup, "wasmer_jni_memory_data_size", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG), trivial);
+        this.memoryGrow = downcall(lookup, "wasmer_jni_memory_grow", FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_INT, ADDRESS));
+        this.globalGet = downcall(lookup, "wasmer_jni_global_get", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG), trivial);
+        this.globalSet = downcall(lookup, "wasmer_jni_global_set", FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG));
+    }
+
+    /**
+     * Return the data of `memory` as a memory segment, bounds-checked
+     * to the current size of the memory. The segment must not be used
+     * after the memory has grown.
+     *
+     * @param memory The memory to view.
+     * @return A segment over the memory data.
+     */
+    public static MemorySegment segment(Memory memory) {
+        PanamaBackend backend = (PanamaBackend) Backend.CURRENT;
+
+        return backend.memorySegment(memory.getMemoryPointer());
+    }
+
+    @Override
+    public String getName() {
+        return "panama";
+    }
+
+    @Override
+    public void call(long functionPointer, long[] arguments, long[] results) throws RuntimeException {
+        Scratch scratch = SCRATCH.get();
+        MemorySegment segment = scratch.enter(arguments.length + results.length);
+
+        try {
+            MemorySegment argumentSegment = segment.asSlice(0, arguments.length * 8L);
+            MemorySegment resultSegment = segment.asSlice(arguments.length * 8L, results.length * 8L);
+            MemorySegment.copy(arguments, 0, argumentSegment, JAVA_LONG, 0, arguments.length);
+
+            this.check((int) this.functionCall.invokeExact(functionPointer, argumentSegment, resultSegment));
+
+            MemorySegment.copy(resultSegment, JAVA_LONG, 0, results, 0, results.length);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            scratch.exit();
+        }
+    }
+
+    @Override
+    public int callI32(long functionPointer, int[] arguments) throws RuntimeException {
+        long[] bits = new long[arguments.length];
+
+        for (int nth = 0; nth < arguments.length; nth++) {
+            bits[nth] = arguments[nth];
+        }
+
+        long[] results = new long[1];
+        this.call(functionPointer, bits, results);
+
+        return (int) results[0];
+    }
+
+    @Override
+    public long callI32I32ToI64(long functionPointer, int argument0, int argument1) throws RuntimeException {
+        Scratch scratch = SCRATCH.get();
+        MemorySegment result = scratch.enter(1);
+
+        try {
+            this.check((int) this.functionCallI32I32ToI64.invokeExact(functionPointer, argument0, argument1, result));
+
+            return result.get(JAVA_LONG, 0);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            scratch.exit();
+        }
+    }
+
+    @Override
+    public int callBatch(long functionPointer, long[] arguments, int count, long[] results, int[] statuses, boolean stopOnFailure) throws RuntimeException {
+        Scratch scratch = SCRATCH.get();
+        int argumentSlots = arguments.length;
+        int resultSlots = results.length;
+        // One slot for the number of calls run, and half a slot per status.
+        MemorySegment segment = scratch.enter(argumentSlots + resultSlots + 1 + (statuses == null ? 0 : (count + 1) / 2));
+
+        try {
+            MemorySegment argumentSegment = segment.asSlice(0, argumentSlots * 8L);
+            MemorySegment resultSegment = segment.asSlice(argumentSlots * 8L, resultSlots * 8L);
+            MemorySegment runSegment = segment.asSlice((argumentSlots + resultSlots) * 8L, 8L);
+            MemorySegment statusSegment = statuses == null
+                ? MemorySegment.NULL
+                : segment.asSlice((argumentSlots + resultSlots + 1) * 8L, count * 4L);
+            MemorySegment.copy(arguments, 0, argumentSegment, JAVA_LONG, 0, argumentSlots);
+            // Only the results of the calls run are written.
+            MemorySegment.copy(results, 0, resultSegment, JAVA_LONG, 0, resultSlots);
+
+            int status = (int) this.functionCallBatch.invokeExact(
+                functionPointer, argumentSegment, count, resultSegment, statusSegment, stopOnFailure ? 1 : 0, runSegment
+            );
+            int run = runSegment.get(JAVA_INT, 0);
+
+            MemorySegment.copy(resultSegment, JAVA_LONG, 0, results, 0, resultSlots);
+
+            if (statuses != null) {
+                MemorySegment.copy(statusSegment, JAVA_INT, 0, statuses, 0, run);
+            }
+
+            this.check(status);
+
+            return run;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            scratch.exit();
+        }
+    }
+
+    @Override
+    public ByteBuffer memoryView(long memoryPointer) {
+        return this.memorySegment(memoryPointer).asByteBuffer();
+    }
+
+    @Override
+    public long memoryDataSize(long memoryPointer) {
+        try {
+            return (long) this.memoryDataSize.invokeExact(memoryPointer);
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public int memoryGrow(long memoryPointer, int page) throws RuntimeException {
+        Scratch scratch = SCRATCH.get();
+        MemorySegment previousPages = scratch.enter(1);
+
+        try {
+            this.check((int) this.memoryGrow.invokeExact(memoryPointer, page, previousPages));
+
+            return previousPages.get(JAVA_INT, 0);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            scratch.exit();
+        }
+    }
+
+    @Override
+    public long globalGet(long globalPointer) {
+        try {
+            return (long) this.globalGet.invokeExact(globalPointer);
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void globalSet(long globalPointer, long bits) throws RuntimeException {
+        try {
+            this.check((int) this.globalSet.invokeExact(globalPointer, bits));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void prepareHostFunction(ImportObject.HostFuncImport hostFunction) {
+        if (hostFunction.upcallAddress != 0L) {
+            return;
+        }
+
+        MethodHandle target;
+        FunctionDescriptor descriptor;
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HostFunction function = hostFunction.getHostFunction();
+
+            switch (hostFunction.getHostFunctionKind()) {
+                case ImportObject.HostFuncImport.KIND_I32_TO_I32:
+                    target = lookup.findStatic(PanamaBackend.class, "callI32ToI32", MethodType.methodType(int.class, HostFunction.I32ToI32.class, int.class, MemorySegment.class));
+                    descriptor = FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS);
+                    break;
+
+                case ImportObject.HostFuncImport.KIND_I32_TO_VOID:
+                    target = lookup.findStatic(PanamaBackend.class, "callI32ToVoid", MethodType.methodType(void.class, HostFunction.I32ToVoid.class, int.class, MemorySegment.class));
+                    descriptor = FunctionDescriptor.ofVoid(JAVA_INT, ADDRESS);
+                    break;
+
+                case ImportObject.HostFuncImport.KIND_I32_I32_TO_I64:
+                    target = lookup.findStatic(PanamaBackend.class, "callI32I32ToI64", MethodType.methodType(long.class, HostFunction.I32I32ToI64.class, int.class, int.class, MemorySegment.class));
+                    descriptor = FunctionDescriptor.of(JAVA_LONG, JAVA_INT, JAVA_INT, ADDRESS);
+                    break;
+
+                case ImportObject.HostFuncImport.KIND_I64_TO_I32:
+                    target = lookup.findStatic(PanamaBackend.class, "callI64ToI32", MethodType.methodType(int.class, HostFunction.I64ToI32.class, long.class, MemorySegment.class));
+                    descriptor = FunctionDescriptor.of(JAVA_INT, JAVA_LONG, ADDRESS);
+                    break;
+
+                case ImportObject.HostFuncImport.KIND_I64_TO_I64:
+                    target = lookup.findStatic(PanamaBackend.class, "callI64ToI64", MethodType.methodType(long.class, HostFunction.I64ToI64.class, long.class, MemorySegment.class));
+                    descriptor = FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, ADDRESS);
+                    break;
+
+                case ImportObject.HostFuncImport.KIND_I64_I64_TO_VOID:
+                    target = lookup.findStatic(PanamaBackend.class, "callI64I64ToVoid", MethodType.methodType(void.class, HostFunction.I64I64ToVoid.class, long.class, long.class, MemorySegment.class));
+                    descriptor = FunctionDescriptor.ofVoid(JAVA_LONG, JAVA_LONG, ADDRESS);
+                    break;
+
+                default:
+                    target = lookup.findStatic(PanamaBackend.class, "callGeneric", MethodType.methodType(long.class, HostFunction.class, MemorySegment.class, int.class, MemorySegment.class));
+                    descriptor = FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_INT, ADDRESS);
+                    break;
+            }
+
+            target = target.bindTo(function);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+
+        // The stub lives as long as the import, which Rust holds as
+        // long as the function.
+        Arena arena = Arena.ofAuto();
+
+        hostFunction.upcallAddress = LINKER.upcallStub(target, descriptor, arena).address();
+        hostFunction.upcallArena = arena;
+    }
+
+    private MemorySegment memorySegment(long memoryPointer) {
+        try {
+            MemorySegment data = (MemorySegment) this.memoryData.invokeExact(memoryPointer);
+
+            return data.reinterpret(this.memoryDataSize(memoryPointer));
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Throw the last error of this thread if `status` is a failure.
+     */
+    private void check(int status) throws Throwable {
+        if (status == 0) {
+            return;
+        }
+
+        long length = (long) this.lastErrorLength.invokeExact();
+        String message = "Unknown error";
+
+        if (length >= 0) {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment buffer = arena.allocate(Math.max(length, 1));
+                this.takeLastError.invokeExact(buffer, length);
+                message = new String(buffer.asSlice(0, length).toArray(JAVA_BYTE), StandardCharsets.UTF_8);
+            }
+        }
+
+        Throwable cause = PENDING_EXCEPTION.get();
+        PENDING_EXCEPTION.remove();
+
+        if ((status & STATUS_TRAP) != 0) {
+            // The backtrace is not reported through this binding layer.
+            throw WasmTrapException.create(message, status & 0xff, 0L);
+        }
+
+        if (status == STATUS_HOST_FUNCTION) {
+            throw new HostFunctionException(message, cause);
+        }
+
+        throw new RuntimeException(message, cause);
+    }
+
+    private static MethodHandle downcall(SymbolLookup lookup, String name, FunctionDescriptor descriptor, Linker.Option... options) {
+        MemorySegment symbol = lookup
+            .find(name)
+            .orElseThrow(() -> new IllegalStateException("Symbol `" + name + "` is missing from the native library"));
+
+        return LINKER.downcallHandle(symbol, descriptor, options);
+    }
+
+    // Upcall targets. An exception must not unwind through Rust: it is
+    // kept for the thread, and reported through the status pointer.
+
+    private static void fail(MemorySegment status, Throwable exception) {
+        PENDING_EXCEPTION.set(exception);
+        status.reinterpret(JAVA_INT.byteSize()).set(JAVA_INT, 0, 1);
+    }
+
+    private static long callGeneric(HostFunction function, MemorySegment arguments, int length, MemorySegment status) {
+        try {
+            return function.call(arguments.reinterpret(length * 8L).toArray(JAVA_LONG));
+        } catch (Throwable e) {
+            fail(status, e);
+
+            return 0;
+        }
+    }
+
+    private static int callI32ToI32(HostFunction.I32ToI32 function, int argument0, MemorySegment status) {
+        try {
+            return function.call(argument0);
+        } catch (Throwable e) {
+            fail(status, e);
+
+            return 0;
+        }
+    }
+
+    private static void callI32ToVoid(HostFunction.I32ToVoid function, int argument0, MemorySegment status) {
+        try {
+            function.call(argument0);
+        } catch (Throwable e) {
+            fail(status, e);
+        }
+    }
+
+    private static long callI32I32ToI64(HostFunction.I32I32ToI64 function, int argument0, int argument1, MemorySegment status) {
+        try {
+            return function.call(argument0, argument1);
+        } catch (Throwable e) {
+            fail(status, e);
+
+            return 0;
+        }
+    }
+
+    private static int callI64ToI32(HostFunction.I64ToI32 function, long argument0, MemorySegment status) {
+        try {
+            return function.call(argument0);
+        } catch (Throwable e) {
+            fail(status, e);
+
+            return 0;
+        }
+    }
+
+    private static long callI64ToI64(HostFunction.I64ToI64 function, long argument0, MemorySegment status) {
+        try {
+            return function.call(argument0);
+        } catch (Throwable e) {
+            fail(status, e);
+
+            return 0;
+        }
+    }
+
+    private static void callI64I64ToVoid(HostFunction.I64I64ToVoid function, long argument0, long argument1, MemorySegment status) {
+        try {
+            function.call(argument0, argument1);
+        } catch (Throwable e) {
+            fail(status, e);
+        }
+    }
+
+    /**
+     * Native memory for the arguments and results of the downcalls of
+     * a thread, one segment per nesting level: a host function may call
+     * back into WebAssembly on the same thread.
+     */
+    private static final class Scratch {
+        private final Arena arena = Arena.ofAuto();
+        private MemorySegment[] segments = new MemorySegment[4];
+        private int depth;
+
+        MemorySegment enter(int slots) {
+            if (this.depth == this.segments.length) {
+                this.segments = Arrays.copyOf(this.segments, this.depth * 2);
+            }
+
+            MemorySegment segment = this.segments[this.depth];
+            long size = Math.max(slots, 16) * 8L;
+
+            if (segment == null || segment.byteSize() < size) {
+                segment = this.arena.allocate(size, 8);
+                this.segments[this.depth] = segment;
+            }
+
+            this.depth++;
+
+            return segment;
+        }
+
+        void exit() {
+            this.depth--;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.wasmer;
+
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * `Backend` is the binding layer used for the hot paths: calling an
+ * exported function, viewing and growing a memory, reading and
+ * writing a global, and calling host functions back.
+ *
+ * Two backends exist: JNI, the default, and `java.lang.foreign`, see
+ * `PanamaBackend`. The backend is selected once, with the
+ * `org.wasmer.backend` system property set to `jni` or `panama`. The
+ * `java.lang.foreign` API is a preview API in Java 21, so the Panama
+ * backend needs `--enable-preview`; when it cannot be loaded, JNI is
+ * used instead.
+ */
+interface Backend {
+    /**
+     * The selected backend.
+     */
+    Backend CURRENT = load();
+
+    String getName();
+
+    void call(long functionPointer, long[] arguments, long[] results) throws RuntimeException;
+
+    int callI32(long functionPointer, int[] arguments) throws RuntimeException;
+
+    long callI32I32ToI64(long functionPointer, int argument0, int argument1) throws RuntimeException;
+
+    /**
+     * Call a function `count` times, see `ExportedFunction.callBatch`.
+     */
+    int callBatch(long functionPointer, long[] arguments, int count, long[] results, int[] statuses, boolean stopOnFailure) throws RuntimeException;
+
+    ByteBuffer memoryView(long memoryPointer);
+
+    long memoryDataSize(long memoryPointer);
+
+    int memoryGrow(long memoryPointer, int page) throws RuntimeException;
+
+    /**
+     * Return the raw bits of the value of a global, see `Global`.
+     */
+    long globalGet(long globalPointer);
+
+    void globalSet(long globalPointer, long bits) throws RuntimeException;
+
+    /**
+     * Prepare a host function before Rust reads it, e.g. to create
+     * its upcall stub.
+     */
+    void prepareHostFunction(ImportObject.HostFuncImport hostFunction);
+
+    private static Backend load() {
+        String name = System.getProperty("org.wasmer.backend", "jni");
+
+        if (name.equals("panama")) {
+            try {
+                return (Backend) Class.forName("org.wasmer.PanamaBackend").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                Logger.getLogger(Backend.class.getName())
+                    .log(Level.WARNING, "Failed to load the `java.lang.foreign` backend, falling back to JNI", e);
+            }
+        } else if (!name.equals("jni")) {
+            Logger.getLogger(Backend.class.getName())
+                .warning("Unknown backend `" + name + "`, falling back to JNI");
+        }
+
+        return new JniBackend();
+    }
+}
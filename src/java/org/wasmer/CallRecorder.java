@@ -0,0 +1,85 @@
+package org.wasmer;
+
+import java.util.List;
+
+/**
+ * Records the calls of one function crossing the boundary, for
+ * `WasmerMetrics` and for a `Profiler`, when either is enabled.
+ *
+ * Example:
+ * <pre>{@code
+ * long start = recorder.enter();
+ *
+ * try {
+ *     return call();
+ * } finally {
+ *     recorder.exit(start);
+ * }
+ * }</pre>
+ */
+final class CallRecorder {
+    /**
+     * The latencies recorded for `WasmerMetrics`, or `null`.
+     */
+    final LatencyHistogram calls;
+    final Profiler profiler;
+    private final Profiler.Entry entry;
+    private final long valueBytes;
+
+    private CallRecorder(LatencyHistogram calls, Profiler profiler, String name, long valueBytes) {
+        this.calls = calls;
+        this.profiler = profiler;
+        this.entry = profiler == null ? null : profiler.entry(name);
+        this.valueBytes = valueBytes;
+    }
+
+    /**
+     * Create a recorder for the exported function `name`.
+     */
+    static CallRecorder forExport(String name, FunctionType type, Profiler profiler) {
+        LatencyHistogram calls = WasmerMetrics.callsEnabled ? WasmerMetrics.get().exportCalls(name) : null;
+
+        return new CallRecorder(calls, profiler, name, valueBytes(type.getParams()) + valueBytes(type.getResults()));
+    }
+
+    /**
+     * Create a recorder for the host function `namespace.name`.
+     */
+    static CallRecorder forImport(String namespace, String name, List<Type> argTypes, List<Type> retTypes, Profiler profiler) {
+        LatencyHistogram calls = WasmerMetrics.callsEnabled ? WasmerMetrics.get().importCalls(namespace, name) : null;
+
+        return new CallRecorder(calls, profiler, namespace + "." + name, valueBytes(argTypes) + valueBytes(retTypes));
+    }
+
+    private static long valueBytes(List<Type> types) {
+        long bytes = 0L;
+
+        for (Type type : types) {
+            bytes += type == Type.I32 || type == Type.F32 ? 4L : 8L;
+        }
+
+        return bytes;
+    }
+
+    long enter() {
+        long start = System.nanoTime();
+
+        if (this.profiler != null) {
+            this.profiler.enter(this.entry, start);
+        }
+
+        return start;
+    }
+
+    void exit(long start) {
+        long end = System.nanoTime();
+
+        if (this.calls != null) {
+            this.calls.record(end - start);
+        }
+
+        if (this.profiler != null) {
+            this.profiler.exit(this.entry, end, this.valueBytes);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.wasmer;
+
+/**
+ * `CompileException` is thrown when WebAssembly bytes cannot be
+ * compiled, or parsed by the interpreter, because they are invalid or
+ * use an unsupported feature.
+ */
+public class CompileException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public CompileException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,48 @@
+package org.wasmer;
+
+/**
+ * `Compiler` is the code generator of an `Engine`, see `CompilerConfig`.
+ *
+ * The compilers are trade-offs between compile time and the speed of
+ * the generated code:
+ *
+ * - `INTERPRETER` does not compile: modules are run by an interpreter,
+ *   for one-shot calls, see `CompilerConfig.interpreter`,
+ * - `SINGLEPASS` compiles in linear time, for short-lived instances,
+ * - `CRANELIFT` is the default, balanced one,
+ * - `LLVM` produces the fastest code, but compiles the slowest.
+ *
+ * Singlepass and LLVM are only available when the native library has
+ * been built with the `singlepass` and `llvm` Cargo features.
+ */
+public enum Compiler {
+    INTERPRETER(0),
+    CRANELIFT(1),
+    SINGLEPASS(2),
+    LLVM(3);
+
+    /**
+     * Native bindings.
+     */
+    static {
+        if (!Native.LOADED_EMBEDDED_LIBRARY) {
+            System.loadLibrary("wasmer_jni");
+        }
+    }
+    private static native boolean nativeIsAvailable(int compiler);
+
+    final int code;
+
+    Compiler(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Check whether the native library has been built with this compiler.
+     *
+     * @return true if, and only if, engines can be created with this compiler.
+     */
+    public boolean isAvailable() {
+        return Compiler.nativeIsAvailable(this.code);
+    }
+}
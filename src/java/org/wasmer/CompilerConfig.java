@@ -0,0 +1,150 @@
+package org.wasmer;
+
+import java.util.Objects;
+
+/**
+ * `CompilerConfig` is a Java class that represents the compiler of an
+ * `Engine` and its settings.
+ *
+ * Example:
+ * <pre>{@code
+ * // Fast startup, for short-lived instances.
+ * Engine validation = new Engine(CompilerConfig.singlepass());
+ *
+ * // Fast code, for long-running instances.
+ * Engine blockImport = new Engine(CompilerConfig.cranelift(CompilerConfig.OptLevel.SPEED));
+ *
+ * // No compilation at all, for one-shot calls.
+ * Engine oneShot = new Engine(CompilerConfig.interpreter());
+ *
+ * // Interpret until the module is compiled in the background.
+ * Engine tiered = new Engine(CompilerConfig.tiered(CompilerConfig.cranelift()));
+ * }</pre>
+ */
+public final class CompilerConfig {
+    /**
+     * How much the compiler optimizes the generated code. Singlepass
+     * does not optimize, and ignores it.
+     */
+    public enum OptLevel {
+        NONE(0),
+        SPEED(1),
+        SPEED_AND_SIZE(2);
+
+        final int code;
+
+        OptLevel(int code) {
+            this.code = code;
+        }
+    }
+
+    private final Compiler compiler;
+    private final OptLevel optLevel;
+    private final boolean tiered;
+
+    private CompilerConfig(Compiler compiler, OptLevel optLevel, boolean tiered) {
+        this.compiler = Objects.requireNonNull(compiler);
+        this.optLevel = Objects.requireNonNull(optLevel);
+        this.tiered = tiered;
+    }
+
+    private CompilerConfig(Compiler compiler, OptLevel optLevel) {
+        this(compiler, optLevel, false);
+    }
+
+    /**
+     * Return the default configuration: Cranelift, optimizing for speed.
+     */
+    public static CompilerConfig getDefault() {
+        return CompilerConfig.cranelift(OptLevel.SPEED);
+    }
+
+    /**
+     * Cranelift, optimizing for speed.
+     */
+    public static CompilerConfig cranelift() {
+        return CompilerConfig.cranelift(OptLevel.SPEED);
+    }
+
+    /**
+     * Cranelift, with the given optimization level.
+     */
+    public static CompilerConfig cranelift(OptLevel optLevel) {
+        return new CompilerConfig(Compiler.CRANELIFT, optLevel);
+    }
+
+    /**
+     * Singlepass, if available, see `Compiler.isAvailable`.
+     */
+    public static CompilerConfig singlepass() {
+        return new CompilerConfig(Compiler.SINGLEPASS, OptLevel.NONE);
+    }
+
+    /**
+     * LLVM, if available, see `Compiler.isAvailable`.
+     */
+    public static CompilerConfig llvm(OptLevel optLevel) {
+        return new CompilerConfig(Compiler.LLVM, optLevel);
+    }
+
+    /**
+     * The interpreter: modules are not compiled, so they are ready
+     * immediately, but their code runs much slower.
+     */
+    public static CompilerConfig interpreter() {
+        return new CompilerConfig(Compiler.INTERPRETER, OptLevel.NONE);
+    }
+
+    /**
+     * Interpret a module immediately, while it is compiled in the
+     * background with the given configuration. Instances created
+     * before the compilation has finished stay interpreted; the next
+     * ones are compiled, see `Module.whenCompiled`.
+     *
+     * @param compiled The configuration of the background compilation.
+     */
+    public static CompilerConfig tiered(CompilerConfig compiled) {
+        if (compiled.compiler == Compiler.INTERPRETER || compiled.tiered) {
+            throw new IllegalArgumentException("A tiered configuration needs a compiler, got " + compiled);
+        }
+
+        return new CompilerConfig(compiled.compiler, compiled.optLevel, true);
+    }
+
+    public Compiler getCompiler() {
+        return this.compiler;
+    }
+
+    public OptLevel getOptLevel() {
+        return this.optLevel;
+    }
+
+    /**
+     * Return true if, and only if, modules are interpreted until they
+     * are compiled, see `tiered`.
+     */
+    public boolean isTiered() {
+        return this.tiered;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof CompilerConfig)) {
+            return false;
+        }
+
+        CompilerConfig config = (CompilerConfig) other;
+
+        return this.compiler == config.compiler && this.optLevel == config.optLevel && this.tiered == config.tiered;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.compiler, this.optLevel, this.tiered);
+    }
+
+    @Override
+    public String toString() {
+        return "CompilerConfig{compiler=" + this.compiler + ", optLevel=" + this.optLevel + ", tiered=" + this.tiered + "}";
+    }
+}
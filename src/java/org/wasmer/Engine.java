@@ -0,0 +1,156 @@
+package org.wasmer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * `Engine` is a Java class that represents a WebAssembly compilation
+ * engine and its store.
+ *
+ * An engine is expensive to set up and owns the memory the compiled
+ * code lives in, so it is meant to be created once and shared by many
+ * `Module` objects, from any thread.
+ *
+ * Example:
+ * <pre>{@code
+ * Engine engine = new Engine();
+ *
+ * boolean isValid = Module.validate(engine, wasmBytes);
+ * Module module1 = new Module(engine, wasmBytes);
+ * Module module2 = new Module(engine, otherWasmBytes);
+ *
+ * // Pick the compiler.
+ * Engine fastStartup = new Engine(CompilerConfig.singlepass());
+ * }</pre>
+ */
+public class Engine implements AutoCloseable {
+    /**
+     * Native bindings.
+     */
+    static {
+        if (!Native.LOADED_EMBEDDED_LIBRARY) {
+            System.loadLibrary("wasmer_jni");
+        }
+    }
+    private static native long nativeEngineInstantiate(int compiler, int optLevel) throws RuntimeException;
+    private static native void nativeDrop(long enginePointer);
+    private static native String nativeVersion(long enginePointer);
+
+    protected long enginePointer;
+    private final NativeResource resource;
+    private final boolean isDefault;
+    private final CompilerConfig compilerConfig;
+    private final LongAdder compiledModules = new LongAdder();
+    private final LongAdder compileTimeNanos = new LongAdder();
+
+    /**
+     * Lazily created engine used by the constructors that do not take
+     * an engine, such as `new Module(byte[])`.
+     */
+    private static class DefaultEngineHolder {
+        private static final Engine INSTANCE = new Engine(CompilerConfig.getDefault(), true);
+    }
+
+    /**
+     * The constructor instantiates a new compilation engine, with the
+     * default compiler configuration.
+     */
+    public Engine() throws RuntimeException {
+        this(CompilerConfig.getDefault(), false);
+    }
+
+    /**
+     * The constructor instantiates a new compilation engine with the
+     * given compiler configuration.
+     *
+     * @param compilerConfig The compiler and its settings.
+     * @throws RuntimeException if the compiler is not available, see `Compiler.isAvailable`.
+     */
+    public Engine(CompilerConfig compilerConfig) throws RuntimeException {
+        this(compilerConfig, false);
+    }
+
+    private Engine(CompilerConfig compilerConfig, boolean isDefault) throws RuntimeException {
+        this.enginePointer = Engine.nativeEngineInstantiate(compilerConfig.getCompiler().code, compilerConfig.getOptLevel().code);
+        this.resource = new NativeResource(this, this.enginePointer, Engine::nativeDrop);
+        this.isDefault = isDefault;
+        this.compilerConfig = compilerConfig;
+    }
+
+    /**
+     * Return the process-wide engine, created on first use.
+     *
+     * @return The default engine.
+     */
+    public static Engine getDefault() {
+        return DefaultEngineHolder.INSTANCE;
+    }
+
+    /**
+     * Return a description of the code this engine produces, i.e. the
+     * library and wasmer versions, the compiler and the target.
+     * Serialized modules can only be deserialized by an engine with the
+     * same version.
+     *
+     * @return The engine version.
+     */
+    public String getVersion() {
+        return Engine.nativeVersion(this.pointer());
+    }
+
+    /**
+     * Return the compiler configuration of this engine.
+     */
+    public CompilerConfig getCompilerConfig() {
+        return this.compilerConfig;
+    }
+
+    /**
+     * Return the number of modules compiled with this engine.
+     */
+    public long getCompiledModules() {
+        return this.compiledModules.sum();
+    }
+
+    /**
+     * Return the total time spent compiling modules with this engine,
+     * in nanoseconds. Together with `getCompiledModules`, it compares
+     * the compilers on a given workload.
+     */
+    public long getCompileTimeNanos() {
+        return this.compileTimeNanos.sum();
+    }
+
+    void recordCompilation(long compileTimeNanos) {
+        this.compiledModules.increment();
+        this.compileTimeNanos.add(compileTimeNanos);
+        WasmerMetrics.get().getCompileTimes().record(compileTimeNanos);
+    }
+
+    /**
+     * Delete an engine object pointer.
+     *
+     * Modules created with this engine keep their own reference to
+     * it and stay usable. Closing the default engine has no effect.
+     */
+    @Override
+    public void close() {
+        // The default engine lives as long as the process.
+        if (this.isDefault) {
+            return;
+        }
+
+        this.enginePointer = 0L;
+        this.resource.close();
+    }
+
+    /**
+     * Return the engine pointer, checking the engine is not closed.
+     */
+    long pointer() {
+        if (this.enginePointer == 0L) {
+            throw new IllegalStateException("The engine has been closed");
+        }
+
+        return this.enginePointer;
+    }
+}
@@ -0,0 +1,403 @@
+package org.wasmer;
+
+import org.wasmer.exports.Function;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * `ExportedFunction` is a Java class that represents a WebAssembly
+ * exported function, resolved once.
+ *
+ * Unlike `exports.getFunction(name).apply(...)`, the typed entry
+ * points do not look the function up by name, do not box the
+ * arguments and the results, and cross into Rust once per call.
+ * Arguments and results of `callInto` are exchanged as raw bits:
+ * integers as is, floats through `Float.floatToRawIntBits` and
+ * `Double.doubleToRawLongBits`.
+ *
+ * Example:
+ * <pre>{@code
+ * ExportedFunction sum = instance.exports.getExportedFunction("sum");
+ * int result = sum.callI32(1, 2);
+ *
+ * ExportedFunction version = instance.exports.getExportedFunction("Core_version");
+ * long pointerAndSize = version.callI64(dataPointer, dataLength);
+ *
+ * // Three calls of `sum` in one crossing.
+ * long[] results = new long[3];
+ * sum.callBatch(new long[] { 1, 2, 3, 4, 5, 6 }, 3, results);
+ * }</pre>
+ */
+public class ExportedFunction implements Function {
+    /**
+     * Native bindings.
+     */
+    static {
+        if (!Native.LOADED_EMBEDDED_LIBRARY) {
+            System.loadLibrary("wasmer_jni");
+        }
+    }
+    private static native long nativeResolve(long instancePointer, String exportName) throws RuntimeException;
+    private static native void nativeDrop(long functionPointer);
+    private static native int[] nativeParamTypes(long functionPointer);
+    private static native int[] nativeResultTypes(long functionPointer);
+    static native void nativeCall(long functionPointer, long[] arguments, long[] results) throws RuntimeException;
+    static native int nativeCallI32(long functionPointer, int[] arguments) throws RuntimeException;
+    static native long nativeCallI32I32ToI64(long functionPointer, int argument0, int argument1) throws RuntimeException;
+    static native int nativeCallBatch(long functionPointer, long[] arguments, int count, long[] results, int[] statuses, boolean stopOnFailure) throws RuntimeException;
+
+    /**
+     * The status of a call of a batch that has returned, see `callBatch`.
+     */
+    public static final int CALL_OK = 0;
+
+    /**
+     * The status of a call of a batch that has failed, neither with a
+     * trap nor in a host function.
+     */
+    public static final int CALL_FAILED = 1;
+
+    /**
+     * The status of a call of a batch whose host function has failed,
+     * see `HostFunctionException`.
+     */
+    public static final int CALL_HOST_FUNCTION_FAILED = 2;
+
+    /**
+     * The flag of the status of a call of a batch that has trapped. The
+     * low byte holds the trap code, see `trapCodeOf`.
+     */
+    public static final int CALL_TRAPPED = 0x100;
+
+    private final Instance instance;
+    private final String name;
+    private final FunctionType type;
+    private final boolean isI32ToI32;
+    private final boolean isI32I32ToI64;
+    private final boolean interpreted;
+    private long functionPointer;
+    private final NativeResource resource;
+    /**
+     * Records the calls, once recorded by `WasmerMetrics` or by the
+     * profiler of the instance.
+     */
+    private CallRecorder recorder;
+
+    /**
+     * The constructor resolves the exported function `name` of the
+     * given instance.
+     */
+    ExportedFunction(Instance instance, String name) throws RuntimeException {
+        this.instance = instance;
+        this.name = name;
+        this.interpreted = instance.interpreted;
+
+        if (this.interpreted) {
+            this.functionPointer = Interpreter.nativeResolve(instance.pointer(), name);
+            this.type = FunctionType.fromCodes(Interpreter.nativeParamTypes(this.functionPointer), Interpreter.nativeResultTypes(this.functionPointer));
+        } else {
+            this.functionPointer = nativeResolve(instance.pointer(), name);
+            this.type = FunctionType.fromCodes(nativeParamTypes(this.functionPointer), nativeResultTypes(this.functionPointer));
+        }
+
+        this.resource = new NativeResource(this, this.functionPointer, this.interpreted ? Interpreter::nativeFunctionDrop : ExportedFunction::nativeDrop);
+
+        this.isI32ToI32 = this.type.getParams().stream().allMatch(param -> param == Type.I32)
+            && this.type.getResults().equals(Collections.singletonList(Type.I32));
+        this.isI32I32ToI64 = this.type.matches(Arrays.asList(Type.I32, Type.I32), Collections.singletonList(Type.I64));
+    }
+
+    /**
+     * Return the name of this exported function.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Return the signature of this exported function.
+     */
+    public FunctionType getType() {
+        return this.type;
+    }
+
+    /**
+     * Call the function with raw arguments, and write its raw results
+     * in `results`.
+     *
+     * @param arguments One value per parameter.
+     * @param results Receives one value per result.
+     */
+    public void callInto(long[] arguments, long[] results) throws RuntimeException {
+        if (WasmerMetrics.callsEnabled || this.instance.profiler != null) {
+            CallRecorder recorder = this.recorder();
+            long start = recorder.enter();
+
+            try {
+                this.invokeInto(arguments, results);
+            } finally {
+                recorder.exit(start);
+            }
+
+            return;
+        }
+
+        this.invokeInto(arguments, results);
+    }
+
+    void invokeInto(long[] arguments, long[] results) throws RuntimeException {
+        if (arguments.length < this.type.getParams().size() || results.length < this.type.getResults().size()) {
+            throw new IllegalArgumentException(
+                "Function `" + this.name + "` of type " + this.type + " expects " + this.type.getParams().size()
+                + " arguments and " + this.type.getResults().size() + " results"
+            );
+        }
+
+        if (this.interpreted) {
+            Interpreter.nativeCall(this.pointer(), arguments, results);
+        } else {
+            Backend.CURRENT.call(this.pointer(), arguments, results);
+        }
+    }
+
+    /**
+     * Call a function taking only i32 parameters and returning an i32.
+     *
+     * @param arguments One value per parameter.
+     * @return The result.
+     */
+    public int callI32(int... arguments) throws RuntimeException {
+        if (WasmerMetrics.callsEnabled || this.instance.profiler != null) {
+            CallRecorder recorder = this.recorder();
+            long start = recorder.enter();
+
+            try {
+                return this.invokeI32(arguments);
+            } finally {
+                recorder.exit(start);
+            }
+        }
+
+        return this.invokeI32(arguments);
+    }
+
+    private int invokeI32(int[] arguments) throws RuntimeException {
+        if (!this.isI32ToI32 || arguments.length != this.type.getParams().size()) {
+            throw new IllegalArgumentException("Function `" + this.name + "` of type " + this.type + " is not callable with " + arguments.length + " i32 arguments returning an i32");
+        }
+
+        if (this.interpreted) {
+            long[] bits = new long[arguments.length];
+            long[] result = new long[1];
+
+            for (int nth = 0; nth < arguments.length; nth++) {
+                bits[nth] = arguments[nth];
+            }
+
+            Interpreter.nativeCall(this.pointer(), bits, result);
+
+            return (int) result[0];
+        }
+
+        return Backend.CURRENT.callI32(this.pointer(), arguments);
+    }
+
+    /**
+     * Call a function of type `(i32, i32) -> i64`, such as the
+     * runtime entry points taking a data pointer and length, and
+     * returning a packed pointer and length.
+     *
+     * @return The result.
+     */
+    public long callI64(int argument0, int argument1) throws RuntimeException {
+        if (WasmerMetrics.callsEnabled || this.instance.profiler != null) {
+            CallRecorder recorder = this.recorder();
+            long start = recorder.enter();
+
+            try {
+                return this.invokeI64(argument0, argument1);
+            } finally {
+                recorder.exit(start);
+            }
+        }
+
+        return this.invokeI64(argument0, argument1);
+    }
+
+    private long invokeI64(int argument0, int argument1) throws RuntimeException {
+        if (!this.isI32I32ToI64) {
+            throw new IllegalArgumentException("Function `" + this.name + "` of type " + this.type + " is not of type [I32, I32] -> [I64]");
+        }
+
+        if (this.interpreted) {
+            long[] result = new long[1];
+            Interpreter.nativeCall(this.pointer(), new long[] { argument0, argument1 }, result);
+
+            return result[0];
+        }
+
+        return Backend.CURRENT.callI32I32ToI64(this.pointer(), argument0, argument1);
+    }
+
+    /**
+     * Call the function `count` times in a single crossing into Rust.
+     * The arguments of the `nth` call start at `nth * params` in
+     * `arguments`, and its results are written at `nth * results` in
+     * `results`, as raw bits, like `callInto`.
+     *
+     * The first failed call stops the batch, and its exception is
+     * thrown; the results of the calls before it are written.
+     *
+     * A batch is recorded as one call by `WasmerMetrics` and by the
+     * `Profiler`.
+     *
+     * @param arguments `count` rows of one value per parameter.
+     * @param count The number of calls.
+     * @param results Receives `count` rows of one value per result.
+     * @return The number of calls, `count`.
+     */
+    public int callBatch(long[] arguments, int count, long[] results) throws RuntimeException {
+        return this.callBatch(arguments, count, results, null, true);
+    }
+
+    /**
+     * Call the function `count` times in a single crossing into Rust,
+     * like `callBatch(long[], int, long[])`, without throwing for the
+     * failed calls: the status of each call is written in `statuses`
+     * instead, `CALL_OK` or the reason of the failure, and the results
+     * of a failed call are zero.
+     *
+     * @param statuses Receives the status of each call run.
+     * @param stopOnFailure Whether a failed call stops the batch.
+     * @return The number of calls run, i.e. `count`, or the index of
+     * the failed call plus one if it has stopped the batch.
+     */
+    public int callBatch(long[] arguments, int count, long[] results, int[] statuses, boolean stopOnFailure) throws RuntimeException {
+        int params = this.type.getParams().size();
+        int returns = this.type.getResults().size();
+
+        if (count < 0 || (long) count * params > arguments.length || (long) count * returns > results.length || (statuses != null && count > statuses.length)) {
+            throw new IllegalArgumentException(
+                "Function `" + this.name + "` of type " + this.type + " cannot be called " + count + " times with "
+                + arguments.length + " arguments and " + results.length + " results"
+            );
+        }
+
+        if (WasmerMetrics.callsEnabled || this.instance.profiler != null) {
+            CallRecorder recorder = this.recorder();
+            long start = recorder.enter();
+
+            try {
+                return this.invokeBatch(arguments, count, results, statuses, stopOnFailure);
+            } finally {
+                recorder.exit(start);
+            }
+        }
+
+        return this.invokeBatch(arguments, count, results, statuses, stopOnFailure);
+    }
+
+    private int invokeBatch(long[] arguments, int count, long[] results, int[] statuses, boolean stopOnFailure) throws RuntimeException {
+        if (!this.interpreted) {
+            return Backend.CURRENT.callBatch(this.pointer(), arguments, count, results, statuses, stopOnFailure);
+        }
+
+        // The interpreter is not behind a crossing as costly: the calls
+        // are run one by one.
+        int params = this.type.getParams().size();
+        int returns = this.type.getResults().size();
+        long[] callArguments = new long[params];
+        long[] callResults = new long[returns];
+
+        for (int nth = 0; nth < count; nth++) {
+            System.arraycopy(arguments, nth * params, callArguments, 0, params);
+
+            try {
+                Interpreter.nativeCall(this.pointer(), callArguments, callResults);
+                System.arraycopy(callResults, 0, results, nth * returns, returns);
+
+                if (statuses != null) {
+                    statuses[nth] = CALL_OK;
+                }
+            } catch (RuntimeException e) {
+                if (statuses == null) {
+                    throw e;
+                }
+
+                Arrays.fill(results, nth * returns, (nth + 1) * returns, 0L);
+                statuses[nth] = statusOf(e);
+
+                if (stopOnFailure) {
+                    return nth + 1;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Return the trap code of the status of a call of a batch, or
+     * `null` if the call has not trapped.
+     */
+    public static WasmTrapException.TrapCode trapCodeOf(int status) {
+        if ((status & CALL_TRAPPED) == 0) {
+            return null;
+        }
+
+        return WasmTrapException.TrapCode.fromCode(status & 0xff);
+    }
+
+    private static int statusOf(RuntimeException exception) {
+        if (exception instanceof WasmTrapException) {
+            return CALL_TRAPPED | ((WasmTrapException) exception).getTrapCode().code;
+        } else if (exception instanceof HostFunctionException) {
+            return CALL_HOST_FUNCTION_FAILED;
+        }
+
+        return CALL_FAILED;
+    }
+
+    /**
+     * Call the function with boxed arguments, like
+     * `exports.getFunction(name).apply(...)`.
+     */
+    @Override
+    public Object[] apply(Object... inputs) {
+        return this.instance.callExportedFunction(this.name, inputs);
+    }
+
+    /**
+     * Delete the exported function object pointer. It is called when
+     * the instance is closed.
+     */
+    public void close() {
+        this.functionPointer = 0L;
+        this.resource.close();
+    }
+
+    /**
+     * Return the recorder of the calls, created again when calls start
+     * or stop being recorded, or when the profiler changes.
+     */
+    CallRecorder recorder() {
+        CallRecorder recorder = this.recorder;
+        Profiler profiler = this.instance.profiler;
+
+        if (recorder == null || recorder.profiler != profiler || (recorder.calls != null) != WasmerMetrics.callsEnabled) {
+            recorder = CallRecorder.forExport(this.name, this.type, profiler);
+            this.recorder = recorder;
+        }
+
+        return recorder;
+    }
+
+    private long pointer() {
+        if (this.functionPointer == 0L) {
+            throw new IllegalStateException("Function `" + this.name + "` has been closed");
+        }
+
+        return this.functionPointer;
+    }
+}
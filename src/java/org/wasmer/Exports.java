@@ -20,6 +20,9 @@ import java.util.Map;
  * // Get, manually downcast, and run an exported function.
  * Export sum = instance.exports.get("sum");
  * Object[] result = ((Function) sum).apply(1, 2);
+ *
+ * // Resolve an exported function once, and run it without boxing.
+ * int result = instance.exports.getExportedFunction("sum").callI32(1, 2);
  * }</pre>
  */
 public class Exports {
@@ -29,8 +32,9 @@ public class Exports {
      * This takes a function name and returns the function to call WebAssembly function.
      */
     private java.util.function.Function<String, Function> functionWrapperGenerator =
-            functionName -> arguments -> this.instance.nativeCallExportedFunction(this.instance.instancePointer, functionName, arguments);
+            functionName -> arguments -> this.instance.callExportedFunction(functionName, arguments);
     private final Map<String, Export> inner;
+    private final Map<String, ExportedFunction> exportedFunctions;
     private Instance instance;
 
     /**
@@ -40,6 +44,7 @@ public class Exports {
      */
     protected Exports(Instance instance) {
         this.inner = new HashMap<>();
+        this.exportedFunctions = new HashMap<>();
         this.instance = instance;
     }
 
@@ -61,6 +66,24 @@ public class Exports {
         return (Function) this.inner.get(name);
     }
 
+    /**
+     * Return the export with the name `name` as a resolved exported
+     * function. The function is resolved on the first call, and the
+     * same object is returned afterwards.
+     *
+     * @param name Name of the exported function.
+     */
+    public ExportedFunction getExportedFunction(String name) throws RuntimeException {
+        ExportedFunction function = this.exportedFunctions.get(name);
+
+        if (function == null) {
+            function = new ExportedFunction(this.instance, name);
+            this.exportedFunctions.put(name, function);
+        }
+
+        return function;
+    }
+
     /**
      * Return the export with the name `name` as an exported memory.
      *
@@ -100,6 +123,26 @@ public class Exports {
         this.inner.put(name, global);
     }
 
+    /**
+     * Delete the resolved exported functions, see `getExportedFunction`,
+     * and the exported memories and globals.
+     */
+    void close() {
+        for (ExportedFunction function : this.exportedFunctions.values()) {
+            function.close();
+        }
+
+        this.exportedFunctions.clear();
+
+        for (Export export : this.inner.values()) {
+            if (export instanceof Memory) {
+                ((Memory) export).close();
+            } else if (export instanceof Global) {
+                ((Global) export).close();
+            }
+        }
+    }
+
     /**
      * Generate the exported function wrapper.
      */
@@ -0,0 +1,73 @@
+package org.wasmer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * `FunctionType` is a Java class that represents the signature of a
+ * WebAssembly function: its parameter and result types.
+ */
+public class FunctionType {
+    private final List<Type> params;
+    private final List<Type> results;
+
+    public FunctionType(List<Type> params, List<Type> results) {
+        this.params = Collections.unmodifiableList(new ArrayList<>(params));
+        this.results = Collections.unmodifiableList(new ArrayList<>(results));
+    }
+
+    /**
+     * Build a function type from the type codes returned by Rust.
+     */
+    static FunctionType fromCodes(int[] params, int[] results) {
+        List<Type> paramTypes = new ArrayList<>(params.length);
+        List<Type> resultTypes = new ArrayList<>(results.length);
+
+        for (int param : params) {
+            paramTypes.add(Type.fromCode(param));
+        }
+
+        for (int result : results) {
+            resultTypes.add(Type.fromCode(result));
+        }
+
+        return new FunctionType(paramTypes, resultTypes);
+    }
+
+    public List<Type> getParams() {
+        return this.params;
+    }
+
+    public List<Type> getResults() {
+        return this.results;
+    }
+
+    /**
+     * Check whether this type is `(params) -> (results)`.
+     */
+    public boolean matches(List<Type> params, List<Type> results) {
+        return this.params.equals(params) && this.results.equals(results);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof FunctionType)) {
+            return false;
+        }
+
+        FunctionType that = (FunctionType) other;
+
+        return this.params.equals(that.params) && this.results.equals(that.results);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.params.hashCode() + this.results.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.params + " -> " + this.results;
+    }
+}
@@ -2,45 +2,208 @@ package org.wasmer;
 
 import org.wasmer.exports.Export;
 
-@SuppressWarnings("unused")
-public class Global implements Export {
-    private String value;
-    //TODO: maybe find a way to use the Type enum for this type as well
-    private String type;
+import java.util.Locale;
 
-    private Global() {
+/**
+ * `Global` is a Java class that represents a WebAssembly global.
+ *
+ * The global is a handle on the live value: each read returns the
+ * current value, and writing a mutable global is seen by the next
+ * WebAssembly call. Values are exchanged as primitives, with no
+ * boxing and no conversion to strings.
+ *
+ * Example:
+ * <pre>{@code
+ * Global stackPointer = instance.exports.getGlobal("__stack_pointer");
+ * int pointer = stackPointer.getInt();
+ * stackPointer.setInt(pointer - 16);
+ * }</pre>
+ */
+public class Global implements Export, AutoCloseable {
+    static native long nativeGet(long globalPointer);
+    static native void nativeSet(long globalPointer, long bits) throws RuntimeException;
+    private static native void nativeDrop(long globalPointer);
+
+    private final Type valueType;
+    private final boolean mutable;
+    private long globalPointer;
+    private final NativeResource resource;
+
+    /**
+     * Whether `globalPointer` is a global of an interpreted instance,
+     * see `Compiler.INTERPRETER`.
+     */
+    final boolean interpreted;
+
+    private Global(long globalPointer, int typeCode, boolean mutable, boolean interpreted) {
         // This object is instantiated by Rust.
+        this.globalPointer = globalPointer;
+        this.valueType = Type.fromCode(typeCode);
+        this.mutable = mutable;
+        this.interpreted = interpreted;
+        this.resource = new NativeResource(this, globalPointer, interpreted ? Interpreter::nativeGlobalDrop : Global::nativeDrop);
     }
 
+    /**
+     * Return the type of this global: `i32`, `i64`, `f32` or `f64`.
+     */
     public String getType() {
-        return this.type;
+        return this.valueType.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Return the type of this global.
+     */
+    public Type getValueType() {
+        return this.valueType;
+    }
+
+    /**
+     * Return true if, and only if, this global can be written.
+     */
+    public boolean isMutable() {
+        return this.mutable;
+    }
+
+    /**
+     * Return the current value of an `i32` global.
+     */
+    public int getInt() {
+        this.expect(Type.I32);
+
+        return (int) this.getBits();
+    }
+
+    /**
+     * Return the current value of an `i64` global.
+     */
+    public long getLong() {
+        this.expect(Type.I64);
+
+        return this.getBits();
+    }
+
+    /**
+     * Return the current value of an `f32` global.
+     */
+    public float getFloat() {
+        this.expect(Type.F32);
+
+        return Float.intBitsToFloat((int) this.getBits());
+    }
+
+    /**
+     * Return the current value of an `f64` global.
+     */
+    public double getDouble() {
+        this.expect(Type.F64);
+
+        return Double.longBitsToDouble(this.getBits());
+    }
+
+    /**
+     * Set the value of a mutable `i32` global.
+     */
+    public void setInt(int value) {
+        this.expectMutable(Type.I32);
+        this.setBits(value);
     }
 
+    /**
+     * Set the value of a mutable `i64` global.
+     */
+    public void setLong(long value) {
+        this.expectMutable(Type.I64);
+        this.setBits(value);
+    }
+
+    /**
+     * Set the value of a mutable `f32` global.
+     */
+    public void setFloat(float value) {
+        this.expectMutable(Type.F32);
+        this.setBits(Float.floatToRawIntBits(value));
+    }
+
+    /**
+     * Set the value of a mutable `f64` global.
+     */
+    public void setDouble(double value) {
+        this.expectMutable(Type.F64);
+        this.setBits(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Same as `getInt`.
+     */
     public int getIntValue() {
-        if (!type.equals("i32")) {
-            throw new RuntimeException("Type mismatch, wanted type is i32 but global type is " + this.type);
-        }
-        return Integer.parseInt(this.value);
+        return this.getInt();
     }
 
+    /**
+     * Same as `getLong`.
+     */
     public long getLongValue() {
-        if (!type.equals("i64")) {
-            throw new RuntimeException("Type mismatch, wanted type is i64 but global type is " + this.type);
-        }
-        return Long.parseLong(this.value);
+        return this.getLong();
     }
 
+    /**
+     * Same as `getFloat`.
+     */
     public float getFloatValue() {
-        if (!type.equals("f32")) {
-            throw new RuntimeException("Type mismatch, wanted type is f32 but global type is " + this.type);
-        }
-        return Float.parseFloat(this.value);
+        return this.getFloat();
     }
 
+    /**
+     * Same as `getDouble`.
+     */
     public double getDoubleValue() {
-        if (!type.equals("f64")) {
-            throw new RuntimeException("Type mismatch, wanted type is f64 but global type is " + this.type);
+        return this.getDouble();
+    }
+
+    /**
+     * Delete the global object pointer. It is called when the instance
+     * is closed.
+     */
+    @Override
+    public void close() {
+        this.globalPointer = 0L;
+        this.resource.close();
+    }
+
+    private long getBits() {
+        return this.interpreted
+            ? Interpreter.nativeGlobalGet(this.pointer())
+            : Backend.CURRENT.globalGet(this.pointer());
+    }
+
+    private void setBits(long bits) {
+        if (this.interpreted) {
+            Interpreter.nativeGlobalSet(this.pointer(), bits);
+        } else {
+            Backend.CURRENT.globalSet(this.pointer(), bits);
         }
-        return Double.parseDouble(this.value);
+    }
+
+    private void expect(Type type) {
+        if (this.valueType != type) {
+            throw new RuntimeException("Type mismatch, wanted type is " + type.name().toLowerCase(Locale.ROOT) + " but global type is " + this.getType());
+        }
+    }
+
+    private void expectMutable(Type type) {
+        this.expect(type);
+
+        if (!this.mutable) {
+            throw new IllegalStateException("The global is immutable");
+        }
+    }
+
+    private long pointer() {
+        if (this.globalPointer == 0L) {
+            throw new IllegalStateException("The global has been closed");
+        }
+
+        return this.globalPointer;
     }
 }
@@ -0,0 +1,104 @@
+package org.wasmer;
+
+/**
+ * Functional interface for host functions imported by a WebAssembly
+ * module, see `ImportObject.HostFuncImport`.
+ *
+ * Arguments are passed as raw bits: integers as is, floats through
+ * `Float.floatToRawIntBits` and `Double.doubleToRawLongBits`. The
+ * `arguments` array is a per-thread buffer reused by the next calls:
+ * it may be longer than the number of parameters, and must not be
+ * kept after the call returns. The result is ignored when the function
+ * returns nothing.
+ *
+ * The nested interfaces are typed variants for the most common
+ * signatures. They are called with primitive arguments directly,
+ * without any array.
+ *
+ * Example:
+ * <pre>{@code
+ * new ImportObject.HostFuncImport("env", "ext_allocator_malloc_version_1",
+ *     (HostFunction.I32ToI32) size -> allocator.malloc(size),
+ *     Collections.singletonList(Type.I32), Collections.singletonList(Type.I32));
+ * }</pre>
+ */
+@FunctionalInterface
+public interface HostFunction {
+    long call(long[] arguments);
+
+    /**
+     * `(i32) -> i32`, e.g. `ext_allocator_malloc_version_1`.
+     */
+    @FunctionalInterface
+    interface I32ToI32 extends HostFunction {
+        int call(int argument0);
+
+        default long call(long[] arguments) {
+            return this.call((int) arguments[0]);
+        }
+    }
+
+    /**
+     * `(i32) -> ()`, e.g. `ext_allocator_free_version_1`.
+     */
+    @FunctionalInterface
+    interface I32ToVoid extends HostFunction {
+        void call(int argument0);
+
+        default long call(long[] arguments) {
+            this.call((int) arguments[0]);
+
+            return 0;
+        }
+    }
+
+    /**
+     * `(i32, i32) -> i64`.
+     */
+    @FunctionalInterface
+    interface I32I32ToI64 extends HostFunction {
+        long call(int argument0, int argument1);
+
+        default long call(long[] arguments) {
+            return this.call((int) arguments[0], (int) arguments[1]);
+        }
+    }
+
+    /**
+     * `(i64) -> i32`, e.g. `ext_hashing_blake2_256_version_1`.
+     */
+    @FunctionalInterface
+    interface I64ToI32 extends HostFunction {
+        int call(long argument0);
+
+        default long call(long[] arguments) {
+            return this.call(arguments[0]);
+        }
+    }
+
+    /**
+     * `(i64) -> i64`, e.g. `ext_storage_get_version_1`.
+     */
+    @FunctionalInterface
+    interface I64ToI64 extends HostFunction {
+        long call(long argument0);
+
+        default long call(long[] arguments) {
+            return this.call(arguments[0]);
+        }
+    }
+
+    /**
+     * `(i64, i64) -> ()`, e.g. `ext_storage_set_version_1`.
+     */
+    @FunctionalInterface
+    interface I64I64ToVoid extends HostFunction {
+        void call(long argument0, long argument1);
+
+        default long call(long[] arguments) {
+            this.call(arguments[0], arguments[1]);
+
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.wasmer;
+
+/**
+ * `HostFunctionException` is thrown by a WebAssembly call when a host
+ * function it has called has failed. The exception thrown by the host
+ * function, if any, is the cause.
+ */
+public class HostFunctionException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public HostFunctionException(String message) {
+        super(message);
+    }
+
+    public HostFunctionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
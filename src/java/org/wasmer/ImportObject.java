@@ -1,5 +1,6 @@
 package org.wasmer;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
@@ -21,6 +22,23 @@ public class ImportObject {
         this.namespace = namespace;
     }
 
+    String getNamespace() {
+        return this.namespace;
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    /**
+     * Return a copy of this import whose calls are recorded by
+     * `WasmerMetrics`, if enabled, and by `profiler`, if not `null`,
+     * or this import if it is not a function.
+     */
+    ImportObject observed(Profiler profiler) {
+        return this;
+    }
+
     public static class FuncImport extends ImportObject {
         private Function<long[], long[]> function;
         private final List<Type> argTypes;
@@ -68,6 +86,283 @@ public class ImportObject {
             this.argTypes = Collections.unmodifiableList(argTypes);
             this.retTypes = Collections.unmodifiableList(retTypes);
         }
+
+        private FuncImport(FuncImport source, Function<long[], long[]> function) {
+            super(source.getNamespace(), source.getName());
+            this.function = function;
+            this.argTypesInt = source.argTypesInt;
+            this.retTypesInt = source.retTypesInt;
+            this.argTypes = source.argTypes;
+            this.retTypes = source.retTypes;
+        }
+
+        @Override
+        ImportObject observed(Profiler profiler) {
+            Function<long[], long[]> function = this.function;
+            CallRecorder recorder = CallRecorder.forImport(this.getNamespace(), this.getName(), this.argTypes, this.retTypes, profiler);
+
+            return new FuncImport(this, argv -> {
+                long start = recorder.enter();
+
+                try {
+                    return function.apply(argv);
+                } finally {
+                    recorder.exit(start);
+                }
+            });
+        }
+    }
+
+    /**
+     * A host function with primitive arguments: unlike `FuncImport`,
+     * calling it allocates no list and boxes nothing, see `HostFunction`.
+     */
+    public static class HostFuncImport extends ImportObject {
+        // Kinds of host functions, as read by Rust to pick the method to call.
+        static final int KIND_GENERIC = 0;
+        static final int KIND_I32_TO_I32 = 1;
+        static final int KIND_I32_TO_VOID = 2;
+        static final int KIND_I32_I32_TO_I64 = 3;
+        static final int KIND_I64_TO_I32 = 4;
+        static final int KIND_I64_TO_I64 = 5;
+        static final int KIND_I64_I64_TO_VOID = 6;
+
+        private final HostFunction hostFunction;
+        private final int hostFunctionKind;
+        private final List<Type> argTypes;
+        private final List<Type> retTypes;
+        private final int[] argTypesInt;
+        private final int[] retTypesInt;
+        // Set by the `java.lang.foreign` backend: the address of the
+        // upcall stub that Rust calls instead of going through JNI, and
+        // the arena owning it.
+        long upcallAddress;
+        Object upcallArena;
+
+        public HostFuncImport(String namespace, String name, HostFunction hostFunction, List<Type> argTypes, List<Type> retTypes) {
+            super(namespace, name);
+
+            if (retTypes.size() > 1) {
+                throw new IllegalArgumentException("Host function `" + name + "` cannot return more than one value");
+            }
+
+            this.hostFunction = hostFunction;
+            this.hostFunctionKind = kindOf(name, hostFunction, argTypes, retTypes);
+            this.argTypesInt = argTypes.stream().mapToInt(t -> t.i).toArray();
+            this.retTypesInt = retTypes.stream().mapToInt(t -> t.i).toArray();
+            this.argTypes = Collections.unmodifiableList(argTypes);
+            this.retTypes = Collections.unmodifiableList(retTypes);
+        }
+
+        HostFunction getHostFunction() {
+            return this.hostFunction;
+        }
+
+        @Override
+        ImportObject observed(Profiler profiler) {
+            CallRecorder recorder = CallRecorder.forImport(this.getNamespace(), this.getName(), this.argTypes, this.retTypes, profiler);
+
+            return new HostFuncImport(this.getNamespace(), this.getName(), observed(this.hostFunction, recorder), this.argTypes, this.retTypes);
+        }
+
+        /**
+         * Wrap a host function into one of the same kind, recording its
+         * calls with `recorder`.
+         */
+        private static HostFunction observed(HostFunction hostFunction, CallRecorder recorder) {
+            if (hostFunction instanceof HostFunction.I32ToI32) {
+                HostFunction.I32ToI32 function = (HostFunction.I32ToI32) hostFunction;
+
+                return (HostFunction.I32ToI32) argument0 -> {
+                    long start = recorder.enter();
+
+                    try {
+                        return function.call(argument0);
+                    } finally {
+                        recorder.exit(start);
+                    }
+                };
+            } else if (hostFunction instanceof HostFunction.I32ToVoid) {
+                HostFunction.I32ToVoid function = (HostFunction.I32ToVoid) hostFunction;
+
+                return (HostFunction.I32ToVoid) argument0 -> {
+                    long start = recorder.enter();
+
+                    try {
+                        function.call(argument0);
+                    } finally {
+                        recorder.exit(start);
+                    }
+                };
+            } else if (hostFunction instanceof HostFunction.I32I32ToI64) {
+                HostFunction.I32I32ToI64 function = (HostFunction.I32I32ToI64) hostFunction;
+
+                return (HostFunction.I32I32ToI64) (argument0, argument1) -> {
+                    long start = recorder.enter();
+
+                    try {
+                        return function.call(argument0, argument1);
+                    } finally {
+                        recorder.exit(start);
+                    }
+                };
+            } else if (hostFunction instanceof HostFunction.I64ToI32) {
+                HostFunction.I64ToI32 function = (HostFunction.I64ToI32) hostFunction;
+
+                return (HostFunction.I64ToI32) argument0 -> {
+                    long start = recorder.enter();
+
+                    try {
+                        return function.call(argument0);
+                    } finally {
+                        recorder.exit(start);
+                    }
+                };
+            } else if (hostFunction instanceof HostFunction.I64ToI64) {
+                HostFunction.I64ToI64 function = (HostFunction.I64ToI64) hostFunction;
+
+                return (HostFunction.I64ToI64) argument0 -> {
+                    long start = recorder.enter();
+
+                    try {
+                        return function.call(argument0);
+                    } finally {
+                        recorder.exit(start);
+                    }
+                };
+            } else if (hostFunction instanceof HostFunction.I64I64ToVoid) {
+                HostFunction.I64I64ToVoid function = (HostFunction.I64I64ToVoid) hostFunction;
+
+                return (HostFunction.I64I64ToVoid) (argument0, argument1) -> {
+                    long start = recorder.enter();
+
+                    try {
+                        function.call(argument0, argument1);
+                    } finally {
+                        recorder.exit(start);
+                    }
+                };
+            }
+
+            return arguments -> {
+                long start = recorder.enter();
+
+                try {
+                    return hostFunction.call(arguments);
+                } finally {
+                    recorder.exit(start);
+                }
+            };
+        }
+
+        int getHostFunctionKind() {
+            return this.hostFunctionKind;
+        }
+
+        private static int kindOf(String name, HostFunction hostFunction, List<Type> argTypes, List<Type> retTypes) {
+            int kind;
+            List<Type> expectedArgTypes;
+            List<Type> expectedRetTypes;
+
+            if (hostFunction instanceof HostFunction.I32ToI32) {
+                kind = KIND_I32_TO_I32;
+                expectedArgTypes = Collections.singletonList(Type.I32);
+                expectedRetTypes = Collections.singletonList(Type.I32);
+            } else if (hostFunction instanceof HostFunction.I32ToVoid) {
+                kind = KIND_I32_TO_VOID;
+                expectedArgTypes = Collections.singletonList(Type.I32);
+                expectedRetTypes = Collections.emptyList();
+            } else if (hostFunction instanceof HostFunction.I32I32ToI64) {
+                kind = KIND_I32_I32_TO_I64;
+                expectedArgTypes = Arrays.asList(Type.I32, Type.I32);
+                expectedRetTypes = Collections.singletonList(Type.I64);
+            } else if (hostFunction instanceof HostFunction.I64ToI32) {
+                kind = KIND_I64_TO_I32;
+                expectedArgTypes = Collections.singletonList(Type.I64);
+                expectedRetTypes = Collections.singletonList(Type.I32);
+            } else if (hostFunction instanceof HostFunction.I64ToI64) {
+                kind = KIND_I64_TO_I64;
+                expectedArgTypes = Collections.singletonList(Type.I64);
+                expectedRetTypes = Collections.singletonList(Type.I64);
+            } else if (hostFunction instanceof HostFunction.I64I64ToVoid) {
+                kind = KIND_I64_I64_TO_VOID;
+                expectedArgTypes = Arrays.asList(Type.I64, Type.I64);
+                expectedRetTypes = Collections.emptyList();
+            } else {
+                return KIND_GENERIC;
+            }
+
+            if (!argTypes.equals(expectedArgTypes) || !retTypes.equals(expectedRetTypes)) {
+                throw new IllegalArgumentException(
+                    "Host function `" + name + "` has type " + expectedArgTypes + " -> " + expectedRetTypes
+                    + " but is imported as " + argTypes + " -> " + retTypes
+                );
+            }
+
+            return kind;
+        }
+    }
+
+    /**
+     * A global, created with its initial value for each `Imports`.
+     * Instances read and write it like their own globals; export it to
+     * access it from Java, see `Global`.
+     */
+    public static class GlobalImport extends ImportObject {
+        private final int typeInt;
+        private final long bits;
+        private final boolean mutable;
+
+        public GlobalImport(String namespace, String name, int value, boolean mutable) {
+            this(namespace, name, Type.I32, value, mutable);
+        }
+
+        public GlobalImport(String namespace, String name, long value, boolean mutable) {
+            this(namespace, name, Type.I64, value, mutable);
+        }
+
+        public GlobalImport(String namespace, String name, float value, boolean mutable) {
+            this(namespace, name, Type.F32, Float.floatToRawIntBits(value), mutable);
+        }
+
+        public GlobalImport(String namespace, String name, double value, boolean mutable) {
+            this(namespace, name, Type.F64, Double.doubleToRawLongBits(value), mutable);
+        }
+
+        private GlobalImport(String namespace, String name, Type type, long bits, boolean mutable) {
+            super(namespace, name);
+            this.typeInt = type.i;
+            this.bits = bits;
+            this.mutable = mutable;
+        }
+    }
+
+    /**
+     * A host function of a `NativeAllocator`, see
+     * `NativeAllocator.importObjects`.
+     */
+    public static class AllocatorImport extends ImportObject {
+        private final NativeAllocator allocator;
+        private final boolean free;
+
+        AllocatorImport(String namespace, String name, NativeAllocator allocator, boolean free) {
+            super(namespace, name);
+            this.allocator = allocator;
+            this.free = free;
+        }
+    }
+
+    /**
+     * A hashing or signature host function run in Rust, see
+     * `Imports.nativeHashing`.
+     */
+    public static class HashingImport extends ImportObject {
+        private final NativeAllocator allocator;
+
+        HashingImport(String namespace, String name, NativeAllocator allocator) {
+            super(namespace, name);
+            this.allocator = allocator;
+        }
     }
 
     public static class MemoryImport extends ImportObject {
@@ -1,8 +1,26 @@
 package org.wasmer;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.LongUnaryOperator;
 
-public class Imports {
+/**
+ * `Imports` is a Java class that represents the imports of a module:
+ * host functions, memories, or WASI.
+ *
+ * The imports hold references to the host functions until they are
+ * closed, or unreachable. Instances resolve their imports when they
+ * are created, so closing the imports does not affect them.
+ *
+ * Example:
+ * <pre>{@code
+ * try (Imports imports = Imports.from(importObjects, module)) {
+ *     Instance instance = module.instantiate(imports);
+ * }
+ * }</pre>
+ */
+public class Imports implements AutoCloseable {
 
     static {
         if (!Native.LOADED_EMBEDDED_LIBRARY) {
@@ -12,22 +30,163 @@ public class Imports {
     private static native long nativeImportsInstantiate(List<ImportObject> imports, long modulePointer) throws RuntimeException;
     private static native long nativeImportsChain(long back, long front) throws RuntimeException;
     private static native long nativeImportsWasi(long modulePointer) throws RuntimeException;
+    private static native void nativeDrop(long importsPointer);
 
-    final long importsPointer;
+    /**
+     * The import objects, read by the interpreter, or `null` for
+     * imports only a compiled module can use, such as WASI.
+     */
+    final List<ImportObject> importObjects;
 
-    private Imports(long importsPointer) {
-        this.importsPointer = importsPointer;
+    private static final List<String> NATIVE_HASHING = Arrays.asList(
+        "ext_hashing_blake2_128_version_1",
+        "ext_hashing_blake2_256_version_1",
+        "ext_hashing_keccak_256_version_1",
+        "ext_hashing_sha2_256_version_1",
+        "ext_hashing_twox_64_version_1",
+        "ext_hashing_twox_128_version_1",
+        "ext_hashing_twox_256_version_1",
+        "ext_crypto_ed25519_verify_version_1",
+        "ext_crypto_sr25519_verify_version_2"
+    );
+
+    /**
+     * Creates the native imports from the pointer of the compiled
+     * module. The native imports are created on first use, since the
+     * module of a tiered engine is not compiled yet when its first
+     * instances are created, see `CompilerConfig.tiered`.
+     */
+    private final LongUnaryOperator factory;
+    private long importsPointer;
+    /**
+     * The compiled module the native imports have been created for.
+     */
+    private long modulePointer;
+    private final NativeResource resource = new NativeResource(this, 0L, Imports::nativeDrop, WasmerMetrics.Resource.IMPORTS);
+    private boolean closed;
+
+    private Imports(List<ImportObject> importObjects, LongUnaryOperator factory) {
+        this.importObjects = importObjects;
+        this.factory = factory;
     }
 
     public static Imports from(List<ImportObject> imports, Module module) throws RuntimeException {
-        return new Imports(nativeImportsInstantiate(imports, module.modulePointer));
+        return from(imports, module, null);
     }
 
+    /**
+     * Create the imports of `module`, recording the calls of their
+     * host functions with `profiler`, see `Profiler`.
+     *
+     * @param profiler The profiler, or `null`.
+     */
+    public static Imports from(List<ImportObject> imports, Module module, Profiler profiler) throws RuntimeException {
+        if (WasmerMetrics.callsEnabled || profiler != null) {
+            List<ImportObject> observed = new ArrayList<>(imports.size());
+
+            for (ImportObject importObject : imports) {
+                observed.add(importObject.observed(profiler));
+            }
+
+            imports = observed;
+        }
+
+        for (ImportObject importObject : imports) {
+            if (importObject instanceof ImportObject.HostFuncImport) {
+                Backend.CURRENT.prepareHostFunction((ImportObject.HostFuncImport) importObject);
+            }
+        }
+
+        List<ImportObject> importObjects = imports;
+        Imports result = new Imports(importObjects, modulePointer -> nativeImportsInstantiate(importObjects, modulePointer));
+
+        if (module.isCompiled()) {
+            result.pointer(module.compiledModulePointer());
+        }
+
+        return result;
+    }
+
+    /**
+     * Chain two imports, the front ones taking precedence. The chain
+     * reads the native imports of `back` and `front`: close it before
+     * them.
+     */
     public static Imports chain(Imports back, Imports front) {
-       return new Imports(nativeImportsChain(back.importsPointer, front.importsPointer));
+        List<ImportObject> importObjects = null;
+
+        if (back.importObjects != null && front.importObjects != null) {
+            // The front imports take precedence.
+            importObjects = new ArrayList<>(front.importObjects);
+            importObjects.addAll(back.importObjects);
+        }
+
+        return new Imports(importObjects, modulePointer -> nativeImportsChain(back.pointer(modulePointer), front.pointer(modulePointer)));
+    }
+
+    /**
+     * Create the hashing and signature host functions of the Substrate
+     * runtimes, run in Rust, for `module`:
+     *
+     * - `ext_hashing_blake2_128_version_1`, `ext_hashing_blake2_256_version_1`,
+     * - `ext_hashing_keccak_256_version_1`, `ext_hashing_sha2_256_version_1`,
+     * - `ext_hashing_twox_64_version_1`, `ext_hashing_twox_128_version_1`,
+     *   `ext_hashing_twox_256_version_1`,
+     * - `ext_crypto_ed25519_verify_version_1`, `ext_crypto_sr25519_verify_version_2`.
+     *
+     * Their inputs are read in place from the memory `allocator` is
+     * bound to, and the digests are returned in allocations of its heap,
+     * so a call never crosses into Java. Chain them with the other
+     * imports, see `chain`.
+     *
+     * @param allocator Allocates the digests, see `NativeAllocator.bind`.
+     */
+    public static Imports nativeHashing(Module module, NativeAllocator allocator) throws RuntimeException {
+        List<ImportObject> importObjects = new ArrayList<>(NATIVE_HASHING.size());
+
+        for (String name : NATIVE_HASHING) {
+            importObjects.add(new ImportObject.HashingImport("env", name, allocator));
+        }
+
+        return from(importObjects, module);
     }
 
     public static Imports wasi(Module module) {
-        return new Imports(nativeImportsWasi(module.modulePointer));
+        long modulePointer = module.compiledModulePointer();
+
+        return new Imports(null, ignored -> nativeImportsWasi(modulePointer));
+    }
+
+    /**
+     * Return the native imports for the given compiled module,
+     * creating them on first use.
+     *
+     * @throws IllegalArgumentException if the native imports have been created for another module.
+     */
+    synchronized long pointer(long modulePointer) {
+        if (this.closed) {
+            throw new IllegalStateException("The imports have been closed");
+        }
+
+        if (this.importsPointer == 0L) {
+            this.importsPointer = this.factory.applyAsLong(modulePointer);
+            this.modulePointer = modulePointer;
+            this.resource.set(this.importsPointer);
+        } else if (modulePointer != this.modulePointer) {
+            throw new IllegalArgumentException("The imports have been created for another module");
+        }
+
+        return this.importsPointer;
+    }
+
+    /**
+     * Delete the native imports, and release the host functions they
+     * reference.
+     */
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        this.importsPointer = 0L;
+        this.resource.close();
     }
 }
@@ -1,14 +1,25 @@
 package org.wasmer;
 
+import java.util.Collections;
+
 /**
  * `Instance` is a Java class that represents a WebAssembly instance.
  *
+ * An instance is not thread-safe: calls mutate its memory and globals,
+ * so it must be used by one thread at a time. Use `InstancePool` to run
+ * calls from many threads.
+ *
  * Example:
  * <pre>{@code
  * Instance instance = new Instance(wasmBytes);
+ *
+ * // Free the native instance deterministically.
+ * try (Instance scoped = module.instantiate(imports)) {
+ *     scoped.exports.getFunction("sum").apply(1, 2);
+ * }
  * }</pre>
  */
-public class Instance {
+public class Instance implements AutoCloseable {
     /**
      * Native bindings.
      */
@@ -17,12 +28,16 @@ public class Instance {
             System.loadLibrary("wasmer_jni");
         }
     }
-    private native long nativeInstantiate(Instance self, byte[] moduleBytes) throws RuntimeException;
-    private native void nativeDrop(long instancePointer);
+    private static native long nativeInstantiate(long enginePointer, byte[] moduleBytes) throws RuntimeException;
+    private static native void nativeDrop(long instancePointer);
     protected native Object[] nativeCallExportedFunction(long instancePointer, String exportName, Object[] arguments) throws RuntimeException;
-    protected static native void nativeInitializeExportedFunctions(long instancePointer);
-    protected static native void nativeInitializeExportedMemories(long instancePointer);
-    protected static native void nativeInitializeExportedGlobals(long instancePointer);
+    protected static native void nativeInitializeExportedFunctions(Instance instance, long instancePointer);
+    protected static native void nativeInitializeExportedMemories(Instance instance, long instancePointer);
+    protected static native void nativeInitializeExportedGlobals(Instance instance, long instancePointer);
+    private static native long nativeSnapshot(long instancePointer) throws RuntimeException;
+    private static native void nativeRestore(long instancePointer, long snapshotPointer) throws RuntimeException;
+    private static native void nativeSetRemainingPoints(long instancePointer, long points) throws RuntimeException;
+    private static native long nativeGetRemainingPoints(long instancePointer) throws RuntimeException;
 
     /**
      * All WebAssembly exports.
@@ -34,21 +49,68 @@ public class Instance {
      */
     protected long instancePointer;
 
+    /**
+     * Whether `instancePointer` is an interpreted instance, see
+     * `Compiler.INTERPRETER`.
+     */
+    boolean interpreted;
+
+    /**
+     * Drops the instance when it is closed, or once it is unreachable.
+     */
+    private NativeResource resource;
+
+    /**
+     * Records the calls of the exported functions, or `null`, see
+     * `setProfiler`.
+     */
+    Profiler profiler;
+
     /**
      * The constructor instantiates a new WebAssembly instance based on
-     * WebAssembly bytes.
+     * WebAssembly bytes, compiled with the default engine.
      *
      * @param moduleBytes WebAssembly bytes.
      */
     public Instance(byte[] moduleBytes) throws RuntimeException {
+        this(Engine.getDefault(), moduleBytes);
+    }
+
+    /**
+     * The constructor instantiates a new WebAssembly instance based on
+     * WebAssembly bytes, compiled with the given engine. With an
+     * interpreter or a tiered engine, the instance is interpreted.
+     *
+     * @param engine The engine to compile with.
+     * @param moduleBytes WebAssembly bytes.
+     */
+    public Instance(Engine engine, byte[] moduleBytes) throws RuntimeException {
         this.exports = new Exports(this);
+        long start = System.nanoTime();
 
-        long instancePointer = this.nativeInstantiate(this, moduleBytes);
-        this.instancePointer = instancePointer;
+        CompilerConfig compilerConfig = engine.getCompilerConfig();
+
+        if (compilerConfig.getCompiler() == Compiler.INTERPRETER || compilerConfig.isTiered()) {
+            long modulePointer = Interpreter.nativeModule(engine.pointer(), moduleBytes);
+
+            try {
+                this.interpreted = true;
+                this.setInstancePointer(Interpreter.nativeInstantiate(this, modulePointer, Collections.emptyList()));
+            } finally {
+                Interpreter.nativeModuleDrop(modulePointer);
+            }
 
-        nativeInitializeExportedFunctions(instancePointer);
-        nativeInitializeExportedMemories(instancePointer);
-        nativeInitializeExportedGlobals(instancePointer);
+            WasmerMetrics.get().getInstantiateTimes().record(System.nanoTime() - start);
+            return;
+        }
+
+        long instancePointer = nativeInstantiate(engine.pointer(), moduleBytes);
+        this.setInstancePointer(instancePointer);
+
+        nativeInitializeExportedFunctions(this, instancePointer);
+        nativeInitializeExportedMemories(this, instancePointer);
+        nativeInitializeExportedGlobals(this, instancePointer);
+        WasmerMetrics.get().getInstantiateTimes().record(System.nanoTime() - start);
     }
 
     protected Instance() {
@@ -56,21 +118,168 @@ public class Instance {
     }
 
     /**
-     * Delete an instance object pointer.
+     * Set the instance pointer, compiled or interpreted depending on
+     * `interpreted`, and register it to be dropped.
+     */
+    void setInstancePointer(long instancePointer) {
+        this.instancePointer = instancePointer;
+        this.resource = new NativeResource(
+            this, instancePointer, this.interpreted ? Interpreter::nativeInstanceDrop : Instance::nativeDrop, WasmerMetrics.Resource.INSTANCE
+        );
+    }
+
+    /**
+     * Call the exported function `exportName` with boxed arguments.
+     */
+    Object[] callExportedFunction(String exportName, Object[] arguments) throws RuntimeException {
+        if (WasmerMetrics.callsEnabled || this.profiler != null) {
+            CallRecorder recorder = this.exports.getExportedFunction(exportName).recorder();
+            long start = recorder.enter();
+
+            try {
+                return this.invokeExportedFunction(exportName, arguments);
+            } finally {
+                recorder.exit(start);
+            }
+        }
+
+        return this.invokeExportedFunction(exportName, arguments);
+    }
+
+    private Object[] invokeExportedFunction(String exportName, Object[] arguments) throws RuntimeException {
+        if (this.interpreted) {
+            return Interpreter.apply(this.exports.getExportedFunction(exportName), arguments);
+        }
+
+        return this.nativeCallExportedFunction(this.pointer(), exportName, arguments);
+    }
+
+    /**
+     * Record the calls of the exported functions of this instance
+     * with `profiler`, or stop recording them with `null`. Set it
+     * between calls, not during one.
+     *
+     * @param profiler The profiler, or `null`.
+     */
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Return the profiler recording the calls of this instance, or
+     * `null`, see `setProfiler`.
+     */
+    public Profiler getProfiler() {
+        return this.profiler;
+    }
+
+    /**
+     * Return true if, and only if, this instance is run by the
+     * interpreter rather than compiled, see `CompilerConfig.tiered`.
+     */
+    public boolean isInterpreted() {
+        return this.interpreted;
+    }
+
+    /**
+     * Set the points a metered instance can spend, see `Metering`. The
+     * points are not reset between calls: set them before each call to
+     * give every call the same budget.
+     *
+     * @param points The remaining points.
+     * @throws RuntimeException if the instance is not metered.
+     */
+    public void setRemainingPoints(long points) throws RuntimeException {
+        if (this.interpreted) {
+            throw new UnsupportedOperationException("Interpreted instances are not metered");
+        }
+
+        nativeSetRemainingPoints(this.pointer(), points);
+    }
+
+    /**
+     * Return the points a metered instance can still spend, or 0 once
+     * a call has thrown an `OutOfFuelException`. The difference with
+     * the points set before a call is what the call has cost.
+     *
+     * @return The remaining points.
+     * @throws RuntimeException if the instance is not metered.
+     */
+    public long getRemainingPoints() throws RuntimeException {
+        if (this.interpreted) {
+            throw new UnsupportedOperationException("Interpreted instances are not metered");
+        }
+
+        return nativeGetRemainingPoints(this.pointer());
+    }
+
+    /**
+     * Capture the current state of this instance: its linear memories
+     * and its exported mutable globals. It is typically taken once,
+     * right after instantiation, and restored after every call, which
+     * is much cheaper than a new instantiation.
+     *
+     * Internal globals, such as the stack pointer, are not exported
+     * and thus not captured: they are left as the last call returned
+     * them. Do not restore an instance after a trap, discard it.
+     *
+     * @return The snapshot.
+     * @throws UnsupportedOperationException if the instance is interpreted.
+     */
+    public InstanceSnapshot snapshot() throws RuntimeException {
+        if (this.interpreted) {
+            throw new UnsupportedOperationException("Interpreted instances cannot be snapshotted");
+        }
+
+        return new InstanceSnapshot(nativeSnapshot(this.pointer()));
+    }
+
+    /**
+     * Restore a snapshot taken from this instance. Memory pages that
+     * are zero in the snapshot are released rather than written where
+     * the platform allows it, so untouched pages cost nothing. Memory
+     * cannot shrink: pages grown since the snapshot are zeroed.
+     *
+     * @param snapshot A snapshot taken with `snapshot`.
+     */
+    public void restore(InstanceSnapshot snapshot) throws RuntimeException {
+        if (snapshot.snapshotPointer == 0L) {
+            throw new IllegalStateException("The snapshot has been closed");
+        }
+
+        if (this.interpreted) {
+            throw new UnsupportedOperationException("Interpreted instances cannot be restored");
+        }
+
+        nativeRestore(this.pointer(), snapshot.snapshotPointer);
+    }
+
+    /**
+     * Delete an instance object pointer, with its exported functions
+     * and memories.
+     *
+     * An instance that is not closed is deleted once it is
+     * unreachable, but closing it frees its native memory without
+     * waiting for the garbage collector.
      */
+    @Override
     public void close() {
         // To avoid duplicate native dropping
-        if(this.instancePointer != 0l) {
-            this.nativeDrop(this.instancePointer);
-            this.instancePointer = 0l;
+        if (this.instancePointer != 0L) {
+            this.exports.close();
+            this.resource.close();
+            this.instancePointer = 0L;
         }
     }
 
     /**
-     * Delete an instance object pointer, which is called by the garbage collector
-     * before an object is removed from the memory.
+     * Return the instance pointer, checking the instance is not closed.
      */
-    public void finalize() {
-        this.close();
+    long pointer() {
+        if (this.instancePointer == 0L) {
+            throw new IllegalStateException("The instance has been closed");
+        }
+
+        return this.instancePointer;
     }
 }
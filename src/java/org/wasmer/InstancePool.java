@@ -0,0 +1,442 @@
+package org.wasmer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * `InstancePool` is a Java class that hands out warm instances of a
+ * module to worker threads.
+ *
+ * An `Instance` must only be used by one thread at a time. The pool
+ * guarantees that: a borrowed instance belongs to the borrowing thread
+ * until the lease is closed, so many threads can run calls in parallel,
+ * each on its own instance, without any lock around the calls.
+ *
+ * When a lease is closed, the instance is reset according to the
+ * pool's `ResetPolicy` before being handed out again. An instance that
+ * must not be reused, e.g. after a trap, is dropped with
+ * `Lease.discard`.
+ *
+ * Example:
+ * <pre>{@code
+ * InstancePool pool = new InstancePool(module, m -> Imports.from(importObjects, m), 8, InstancePool.ResetPolicy.RECREATE);
+ *
+ * try (InstancePool.Lease lease = pool.borrow()) {
+ *     long result = lease.getInstance().exports.getExportedFunction("Core_version").callI64(0, 0);
+ * }
+ * }</pre>
+ */
+public class InstancePool implements AutoCloseable {
+    /**
+     * What to do with an instance when its lease is closed.
+     */
+    public enum ResetPolicy {
+        /**
+         * Keep the instance as is: its memory and globals carry over
+         * to the next borrower.
+         */
+        REUSE,
+
+        /**
+         * Replace the instance by a fresh one, created by the thread
+         * closing the lease so that borrowers get warm instances.
+         */
+        RECREATE,
+
+        /**
+         * Restore the state the instance had right after its
+         * instantiation, see `Instance.snapshot`. This is much cheaper
+         * than `RECREATE`, but does not reset the internal globals.
+         * An interpreted instance, e.g. of a tiered module that is not
+         * compiled yet, cannot be snapshot: it is recreated instead.
+         */
+        RESTORE,
+    }
+
+    /**
+     * A borrowed instance. Closing the lease gives the instance back
+     * to the pool.
+     */
+    public class Lease implements AutoCloseable {
+        private Instance instance;
+
+        private Lease(Instance instance) {
+            this.instance = instance;
+        }
+
+        /**
+         * Return the borrowed instance.
+         */
+        public Instance getInstance() {
+            if (this.instance == null) {
+                throw new IllegalStateException("The lease has been closed");
+            }
+
+            return this.instance;
+        }
+
+        /**
+         * Close the instance instead of giving it back, e.g. because
+         * a call trapped and left it in an unknown state.
+         */
+        public void discard() {
+            if (this.instance != null) {
+                Instance instance = this.instance;
+                this.instance = null;
+                InstancePool.this.discard(instance);
+            }
+        }
+
+        /**
+         * Give the instance back to the pool.
+         */
+        @Override
+        public void close() {
+            if (this.instance != null) {
+                Instance instance = this.instance;
+                this.instance = null;
+                InstancePool.this.giveBack(instance);
+            }
+        }
+    }
+
+    /**
+     * A snapshot of the pool statistics.
+     */
+    public static class Statistics {
+        private final int maxSize;
+        private final int idle;
+        private final int inUse;
+        private final long borrowed;
+        private final long created;
+        private final long reset;
+        private final long discarded;
+        private final long waitTimeNanos;
+
+        private Statistics(int maxSize, int idle, int inUse, long borrowed, long created, long reset, long discarded, long waitTimeNanos) {
+            this.maxSize = maxSize;
+            this.idle = idle;
+            this.inUse = inUse;
+            this.borrowed = borrowed;
+            this.created = created;
+            this.reset = reset;
+            this.discarded = discarded;
+            this.waitTimeNanos = waitTimeNanos;
+        }
+
+        /** The maximum number of instances. */
+        public int getMaxSize() { return this.maxSize; }
+
+        /** The number of instances waiting to be borrowed. */
+        public int getIdle() { return this.idle; }
+
+        /** The number of instances currently borrowed. */
+        public int getInUse() { return this.inUse; }
+
+        /** The number of leases handed out. */
+        public long getBorrowed() { return this.borrowed; }
+
+        /** The number of instances created, including the fresh ones replacing dirty instances. */
+        public long getCreated() { return this.created; }
+
+        /** The number of instances reset when their lease was closed. */
+        public long getReset() { return this.reset; }
+
+        /** The number of instances closed through `Lease.discard`, or whose reset failed. */
+        public long getDiscarded() { return this.discarded; }
+
+        /** The total time spent by borrowers waiting for an instance, in nanoseconds. */
+        public long getWaitTimeNanos() { return this.waitTimeNanos; }
+
+        @Override
+        public String toString() {
+            return "InstancePool.Statistics{maxSize=" + this.maxSize + ", idle=" + this.idle + ", inUse=" + this.inUse
+                + ", borrowed=" + this.borrowed + ", created=" + this.created + ", reset=" + this.reset
+                + ", discarded=" + this.discarded + ", waitTimeNanos=" + this.waitTimeNanos + "}";
+        }
+    }
+
+    private final Module module;
+    private final Function<Module, Imports> importsFactory;
+    private final int maxSize;
+    private final ResetPolicy resetPolicy;
+    private final LinkedBlockingDeque<Instance> idle;
+    private final Map<Instance, InstanceSnapshot> snapshots;
+    /**
+     * The imports each pooled instance has been created with, closed
+     * with the instance.
+     */
+    private final Map<Instance, Imports> imports;
+    private final Semaphore permits;
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder reset = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder waitTimeNanos = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * The constructor creates an empty pool. Instances are created on
+     * demand, or ahead of time with `prewarm`.
+     *
+     * @param module The module to instantiate.
+     * @param importsFactory Creates the imports of each new instance, closed with the instance.
+     * @param maxSize The maximum number of instances, borrowed or idle.
+     * @param resetPolicy What to do with an instance when its lease is closed.
+     */
+    public InstancePool(Module module, Function<Module, Imports> importsFactory, int maxSize, ResetPolicy resetPolicy) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size must be positive, got " + maxSize);
+        }
+
+        this.module = module;
+        this.importsFactory = importsFactory;
+        this.maxSize = maxSize;
+        this.resetPolicy = resetPolicy;
+        this.idle = new LinkedBlockingDeque<>();
+        this.snapshots = new ConcurrentHashMap<>();
+        this.imports = new ConcurrentHashMap<>();
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Create instances until `count` instances are idle, so that the
+     * first borrowers do not pay for the instantiation. It is meant to
+     * be called before the pool is used. Each instance is created
+     * under a permit, as by a borrower, so the pool never exceeds its
+     * maximum size.
+     *
+     * @param count The number of idle instances wanted, at most the maximum size.
+     * @throws IllegalStateException if the pool is closed.
+     */
+    public void prewarm(int count) {
+        if (this.closed) {
+            throw new IllegalStateException("The instance pool is closed");
+        }
+
+        int wanted = Math.min(count, this.maxSize);
+
+        while (!this.closed && this.idle.size() < wanted && this.permits.tryAcquire()) {
+            try {
+                // The permit held here is counted as in use.
+                if (this.idle.size() + this.inUse() > this.maxSize) {
+                    break;
+                }
+
+                this.idle.offerFirst(this.create());
+            } finally {
+                this.permits.release();
+            }
+        }
+
+        if (this.closed) {
+            this.closeIdle();
+        }
+    }
+
+    /**
+     * Borrow an instance, waiting as long as all the instances are
+     * borrowed.
+     *
+     * @return The lease of an instance.
+     */
+    public Lease borrow() throws InterruptedException {
+        long start = System.nanoTime();
+        this.permits.acquire();
+        this.waitTimeNanos.add(System.nanoTime() - start);
+
+        return this.lease();
+    }
+
+    /**
+     * Borrow an instance, waiting at most the given time.
+     *
+     * @return The lease of an instance, or `null` if none became available in time.
+     */
+    public Lease borrow(long timeout, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        boolean acquired = this.permits.tryAcquire(timeout, unit);
+        this.waitTimeNanos.add(System.nanoTime() - start);
+
+        return acquired ? this.lease() : null;
+    }
+
+    /**
+     * Return the current statistics of the pool.
+     */
+    public Statistics getStatistics() {
+        int idle = this.idle.size();
+
+        return new Statistics(
+            this.maxSize,
+            idle,
+            this.inUse(),
+            this.borrowed.sum(),
+            this.created.sum(),
+            this.reset.sum(),
+            this.discarded.sum(),
+            this.waitTimeNanos.sum()
+        );
+    }
+
+    /**
+     * Close the idle instances. Borrowed instances are closed when
+     * their lease is closed, and no instance can be borrowed anymore.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.closeIdle();
+    }
+
+    /**
+     * Close the idle instances. Each one is polled by one thread only,
+     * so it is closed once even if several threads close concurrently.
+     */
+    private void closeIdle() {
+        Instance instance;
+
+        while ((instance = this.idle.pollFirst()) != null) {
+            this.closeInstance(instance);
+        }
+    }
+
+    private int inUse() {
+        return this.maxSize - this.permits.availablePermits();
+    }
+
+    private Lease lease() {
+        try {
+            if (this.closed) {
+                throw new IllegalStateException("The instance pool is closed");
+            }
+
+            Instance instance = this.idle.pollFirst();
+
+            if (instance == null) {
+                instance = this.create();
+            }
+
+            this.borrowed.increment();
+
+            return new Lease(instance);
+        } catch (RuntimeException e) {
+            this.permits.release();
+
+            throw e;
+        }
+    }
+
+    private Instance create() {
+        Imports imports = this.importsFactory.apply(this.module);
+        Instance instance;
+
+        try {
+            instance = this.module.instantiate(imports);
+        } catch (RuntimeException e) {
+            imports.close();
+
+            throw e;
+        }
+
+        this.imports.put(instance, imports);
+
+        if (this.resetPolicy == ResetPolicy.RESTORE && !instance.isInterpreted()) {
+            try {
+                this.snapshots.put(instance, instance.snapshot());
+            } catch (RuntimeException e) {
+                this.closeInstance(instance);
+
+                throw e;
+            }
+        }
+
+        this.created.increment();
+
+        return instance;
+    }
+
+    private void closeInstance(Instance instance) {
+        InstanceSnapshot snapshot = this.snapshots.remove(instance);
+
+        if (snapshot != null) {
+            snapshot.close();
+        }
+
+        instance.close();
+
+        Imports imports = this.imports.remove(instance);
+
+        if (imports != null) {
+            imports.close();
+        }
+    }
+
+    private void giveBack(Instance instance) {
+        try {
+            if (this.closed) {
+                this.closeInstance(instance);
+
+                return;
+            }
+
+            switch (this.resetPolicy) {
+                case REUSE:
+                    break;
+
+                case RECREATE:
+                    this.closeInstance(instance);
+                    instance = null;
+                    instance = this.create();
+                    this.reset.increment();
+                    break;
+
+                case RESTORE:
+                    InstanceSnapshot snapshot = this.snapshots.get(instance);
+
+                    if (snapshot != null) {
+                        instance.restore(snapshot);
+                    } else {
+                        // The instance is interpreted: recreate it.
+                        this.closeInstance(instance);
+                        instance = null;
+                        instance = this.create();
+                    }
+
+                    this.reset.increment();
+                    break;
+            }
+
+            // Most recently used first, as its memory is the warmest.
+            this.idle.offerFirst(instance);
+
+            // The pool may have been closed while the instance was
+            // reset, after `close` has drained the idle instances.
+            if (this.closed) {
+                this.closeIdle();
+            }
+        } catch (RuntimeException e) {
+            if (instance != null) {
+                this.closeInstance(instance);
+            }
+
+            this.discarded.increment();
+        } finally {
+            this.permits.release();
+        }
+    }
+
+    private void discard(Instance instance) {
+        try {
+            this.closeInstance(instance);
+            this.discarded.increment();
+        } finally {
+            this.permits.release();
+        }
+    }
+}
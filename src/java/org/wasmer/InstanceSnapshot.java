@@ -0,0 +1,37 @@
+package org.wasmer;
+
+/**
+ * `InstanceSnapshot` is a Java class that represents the state of an
+ * instance at some point: its linear memories and its exported mutable
+ * globals. See `Instance.snapshot` and `Instance.restore`.
+ *
+ * A snapshot keeps its instance alive until it is closed.
+ */
+public class InstanceSnapshot implements AutoCloseable {
+    /**
+     * Native bindings.
+     */
+    static {
+        if (!Native.LOADED_EMBEDDED_LIBRARY) {
+            System.loadLibrary("wasmer_jni");
+        }
+    }
+    private static native void nativeDrop(long snapshotPointer);
+
+    protected long snapshotPointer;
+    private final NativeResource resource;
+
+    InstanceSnapshot(long snapshotPointer) {
+        this.snapshotPointer = snapshotPointer;
+        this.resource = new NativeResource(this, snapshotPointer, InstanceSnapshot::nativeDrop);
+    }
+
+    /**
+     * Delete a snapshot object pointer.
+     */
+    @Override
+    public void close() {
+        this.snapshotPointer = 0L;
+        this.resource.close();
+    }
+}
@@ -0,0 +1,110 @@
+package org.wasmer;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Native bindings of the interpreted modules and instances, see
+ * `Compiler.INTERPRETER`.
+ *
+ * An interpreted instance is used through the same classes as a
+ * compiled one: `Module`, `Instance`, `Exports`, `ExportedFunction`
+ * and `Memory` hold an interpreter pointer instead of a compiled one,
+ * and call these natives instead of their own.
+ */
+final class Interpreter {
+    /**
+     * Native bindings.
+     */
+    static {
+        if (!Native.LOADED_EMBEDDED_LIBRARY) {
+            System.loadLibrary("wasmer_jni");
+        }
+    }
+    static native long nativeModule(long enginePointer, byte[] moduleBytes) throws RuntimeException;
+    static native void nativeModuleDrop(long modulePointer);
+    static native long nativeInstantiate(Instance instance, long modulePointer, List<ImportObject> imports) throws RuntimeException;
+    static native void nativeInstanceDrop(long instancePointer);
+    static native long nativeResolve(long instancePointer, String exportName) throws RuntimeException;
+    static native void nativeFunctionDrop(long functionPointer);
+    static native int[] nativeParamTypes(long functionPointer);
+    static native int[] nativeResultTypes(long functionPointer);
+    static native void nativeCall(long functionPointer, long[] arguments, long[] results) throws RuntimeException;
+    static native void nativeMemoryDrop(long memoryPointer);
+    static native long nativeMemoryRetain(long memoryPointer);
+    static native ByteBuffer nativeMemoryView(long memoryPointer);
+    static native long nativeMemoryDataSize(long memoryPointer);
+    static native ByteBuffer nativeMemorySizeCell(long memoryPointer);
+    static native int nativeMemoryGrow(long memoryPointer, int page) throws RuntimeException;
+    static native void nativeMemoryCopyWithin(long memoryPointer, int source, int destination, int length) throws RuntimeException;
+    static native void nativeGlobalDrop(long globalPointer);
+    static native long nativeGlobalGet(long globalPointer);
+    static native void nativeGlobalSet(long globalPointer, long bits) throws RuntimeException;
+
+    private Interpreter() {}
+
+    /**
+     * Instantiate an interpreted module.
+     *
+     * @param imports The imports, or `null` if there are none.
+     */
+    static Instance instantiate(long modulePointer, Imports imports) throws RuntimeException {
+        if (imports != null && imports.importObjects == null) {
+            throw new UnsupportedOperationException("WASI imports need a compiled module");
+        }
+
+        long start = System.nanoTime();
+        Instance instance = new Instance();
+        instance.interpreted = true;
+        instance.setInstancePointer(nativeInstantiate(instance, modulePointer, imports == null ? List.of() : imports.importObjects));
+        WasmerMetrics.get().getInstantiateTimes().record(System.nanoTime() - start);
+
+        return instance;
+    }
+
+    /**
+     * Call an interpreted function with boxed arguments, and return
+     * boxed results, as `Instance.nativeCallExportedFunction` does for
+     * compiled functions.
+     */
+    static Object[] apply(ExportedFunction function, Object[] inputs) throws RuntimeException {
+        List<Type> params = function.getType().getParams();
+        List<Type> results = function.getType().getResults();
+
+        if (inputs.length != params.size()) {
+            throw new RuntimeException(
+                "Missing or extra arguments: function `" + function.getName() + "` expects " + params.size()
+                + " arguments, got " + inputs.length
+            );
+        }
+
+        long[] arguments = new long[inputs.length];
+
+        for (int nth = 0; nth < inputs.length; nth++) {
+            Number input = (Number) inputs[nth];
+
+            switch (params.get(nth)) {
+                case I32: arguments[nth] = input.intValue(); break;
+                case I64: arguments[nth] = input.longValue(); break;
+                case F32: arguments[nth] = Float.floatToRawIntBits(input.floatValue()); break;
+                case F64: arguments[nth] = Double.doubleToRawLongBits(input.doubleValue()); break;
+            }
+        }
+
+        long[] bits = new long[results.size()];
+        function.invokeInto(arguments, bits);
+
+        Object[] outputs = new Object[bits.length];
+
+        for (int nth = 0; nth < bits.length; nth++) {
+            switch (results.get(nth)) {
+                case I32: outputs[nth] = (int) bits[nth]; break;
+                case I64: outputs[nth] = bits[nth]; break;
+                case F32: outputs[nth] = Float.intBitsToFloat((int) bits[nth]); break;
+                case F64: outputs[nth] = Double.longBitsToDouble(bits[nth]); break;
+            }
+        }
+
+        return outputs;
+    }
+}
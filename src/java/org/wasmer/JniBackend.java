@@ -0,0 +1,63 @@
+package org.wasmer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The JNI backend, see `Backend`.
+ */
+class JniBackend implements Backend {
+    @Override
+    public String getName() {
+        return "jni";
+    }
+
+    @Override
+    public void call(long functionPointer, long[] arguments, long[] results) throws RuntimeException {
+        ExportedFunction.nativeCall(functionPointer, arguments, results);
+    }
+
+    @Override
+    public int callI32(long functionPointer, int[] arguments) throws RuntimeException {
+        return ExportedFunction.nativeCallI32(functionPointer, arguments);
+    }
+
+    @Override
+    public long callI32I32ToI64(long functionPointer, int argument0, int argument1) throws RuntimeException {
+        return ExportedFunction.nativeCallI32I32ToI64(functionPointer, argument0, argument1);
+    }
+
+    @Override
+    public int callBatch(long functionPointer, long[] arguments, int count, long[] results, int[] statuses, boolean stopOnFailure) throws RuntimeException {
+        return ExportedFunction.nativeCallBatch(functionPointer, arguments, count, results, statuses, stopOnFailure);
+    }
+
+    @Override
+    public ByteBuffer memoryView(long memoryPointer) {
+        return Memory.nativeMemoryView(memoryPointer);
+    }
+
+    @Override
+    public long memoryDataSize(long memoryPointer) {
+        return Memory.nativeDataSize(memoryPointer);
+    }
+
+    @Override
+    public int memoryGrow(long memoryPointer, int page) throws RuntimeException {
+        return Memory.nativeMemoryGrow(memoryPointer, page);
+    }
+
+    @Override
+    public long globalGet(long globalPointer) {
+        return Global.nativeGet(globalPointer);
+    }
+
+    @Override
+    public void globalSet(long globalPointer, long bits) throws RuntimeException {
+        Global.nativeSet(globalPointer, bits);
+    }
+
+    @Override
+    public void prepareHostFunction(ImportObject.HostFuncImport hostFunction) {
+        // Rust calls the host function through JNI directly.
+    }
+}
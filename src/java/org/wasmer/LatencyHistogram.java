@@ -0,0 +1,139 @@
+package org.wasmer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * `LatencyHistogram` is a Java class that represents the distribution
+ * of durations, such as the calls of an export, see `WasmerMetrics`.
+ *
+ * Durations are counted in power-of-two buckets of nanoseconds: bucket
+ * `n` counts the durations in `[2^n, 2^(n+1))`, so percentiles are
+ * upper bounds, precise within a factor of two. Recording is lock-free.
+ *
+ * Example:
+ * <pre>{@code
+ * LatencyHistogram calls = WasmerMetrics.get().getExportCalls().get("execute_block");
+ * System.out.println(calls.getCount() + " calls, p99 < " + calls.getP99Nanos() + "ns");
+ * }</pre>
+ */
+public final class LatencyHistogram {
+    /**
+     * Up to 2^40 nanoseconds, i.e. about 18 minutes. Longer durations
+     * are counted in the last bucket.
+     */
+    private static final int BUCKETS = 41;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    LatencyHistogram() {}
+
+    void record(long nanos) {
+        nanos = Math.max(nanos, 0L);
+
+        this.buckets.incrementAndGet(Math.min(63 - Long.numberOfLeadingZeros(nanos | 1L), BUCKETS - 1));
+        this.count.increment();
+        this.totalNanos.add(nanos);
+        this.maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Return the number of recorded durations.
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * Return the sum of the recorded durations, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return this.totalNanos.sum();
+    }
+
+    /**
+     * Return the mean duration, in nanoseconds, or 0 if none has been
+     * recorded.
+     */
+    public long getMeanNanos() {
+        long count = this.getCount();
+
+        return count == 0L ? 0L : this.getTotalNanos() / count;
+    }
+
+    /**
+     * Return the longest recorded duration, in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return this.maxNanos.get();
+    }
+
+    /**
+     * Return the median duration, see `getPercentileNanos`.
+     */
+    public long getP50Nanos() {
+        return this.getPercentileNanos(0.5);
+    }
+
+    /**
+     * Return the 99th percentile duration, see `getPercentileNanos`.
+     */
+    public long getP99Nanos() {
+        return this.getPercentileNanos(0.99);
+    }
+
+    /**
+     * Return an upper bound of the given percentile of the recorded
+     * durations, in nanoseconds, or 0 if none has been recorded.
+     *
+     * @param percentile Between 0 and 1.
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] buckets = this.getBuckets();
+        long count = 0L;
+
+        for (long bucket : buckets) {
+            count += bucket;
+        }
+
+        long rank = (long) Math.ceil(percentile * count);
+        long seen = 0L;
+
+        for (int nth = 0; nth < buckets.length; nth++) {
+            seen += buckets[nth];
+
+            if (seen >= rank && seen > 0L) {
+                return Math.min((1L << (nth + 1)) - 1L, this.getMaxNanos());
+            }
+        }
+
+        return 0L;
+    }
+
+    /**
+     * Return the number of durations in each bucket: bucket `n` counts
+     * the durations in `[2^n, 2^(n+1))` nanoseconds.
+     */
+    public long[] getBuckets() {
+        long[] buckets = new long[BUCKETS];
+
+        for (int nth = 0; nth < BUCKETS; nth++) {
+            buckets[nth] = this.buckets.get(nth);
+        }
+
+        return buckets;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{count=" + this.getCount()
+            + ", meanNanos=" + this.getMeanNanos()
+            + ", p50Nanos=" + this.getP50Nanos()
+            + ", p99Nanos=" + this.getP99Nanos()
+            + ", maxNanos=" + this.getMaxNanos() + "}";
+    }
+}
@@ -0,0 +1,14 @@
+package org.wasmer;
+
+/**
+ * `LinkException` is thrown when a module cannot be instantiated with
+ * the given imports, e.g. because an import is missing or has another
+ * type than the module expects.
+ */
+public class LinkException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public LinkException(String message) {
+        super(message);
+    }
+}
@@ -4,6 +4,7 @@ import org.wasmer.exports.Export;
 import java.lang.IllegalArgumentException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.BufferUnderflowException;
 import java.nio.BufferOverflowException;
 import java.nio.ReadOnlyBufferException;
@@ -26,45 +27,105 @@ import java.nio.ReadOnlyBufferException;
  * memoryBuffer.position(0);
  * memoryBuffer.get(bytes);
  * }</pre>
+ *
+ * The buffers borrow the memory data, and keep it alive for as long as
+ * they are reachable, even once the memory is closed: they only become
+ * stale when the memory grows, see `generation`.
  */
-public class Memory implements Export {
-    private native void nativeMemoryView(Memory memory, long memoryPointer);
-    private native int nativeMemoryGrow(Memory memory, long memoryPointer, int page);
+public class Memory implements Export, AutoCloseable {
+    static native ByteBuffer nativeMemoryView(long memoryPointer);
+    static native long nativeDataSize(long memoryPointer);
+    private static native ByteBuffer nativeSizeCell(long memoryPointer);
+    static native int nativeMemoryGrow(long memoryPointer, int page);
+    private static native void nativeCopyWithin(long memoryPointer, int source, int destination, int length);
+    private static native long nativeRetain(long memoryPointer);
+    private static native void nativeDrop(long memoryPointer);
+
+    /**
+     * The size of a WebAssembly page, in bytes.
+     */
+    public static final int PAGE_SIZE = 65536;
 
     /**
-     * Represents the actual WebAssembly memory data, borrowed from the runtime (in Rust).
-     * The `setBuffer` method must be used to set this attribute.
+     * Represents the actual WebAssembly memory data, borrowed from the
+     * runtime (in Rust). It is created once, and created again only
+     * when the size of the memory changes, see `refresh`.
      */
     private ByteBuffer buffer;
+    private long bufferSize = -1;
+    /**
+     * The size of the memory, in bytes, in a native cell that every
+     * grow updates in place, see `currentSize`.
+     */
+    private ByteBuffer sizeCell;
+    private int generation;
     private long memoryPointer;
+    private final NativeResource resource;
+
+    /**
+     * Whether `memoryPointer` is a memory of an interpreted instance,
+     * see `Compiler.INTERPRETER`.
+     */
+    final boolean interpreted;
 
-    private Memory() {
+    private Memory(long memoryPointer, boolean interpreted) {
         // This object is instantiated by Rust.
+        this.memoryPointer = memoryPointer;
+        this.interpreted = interpreted;
+        this.resource = new NativeResource(this, memoryPointer, interpreted ? Interpreter::nativeMemoryDrop : Memory::nativeDrop, WasmerMetrics.Resource.MEMORY);
+        WasmerMetrics.get().trackMemory(this.resource, interpreted);
     }
 
     /**
-     * Return a _new_ direct byte buffer borrowing the memory data.
+     * Return a _new_ direct byte buffer borrowing the memory data, with
+     * its own position and limit.
+     *
+     * The view it is duplicated from is cached: the underlying native
+     * view is only created again when the memory size has changed, be
+     * it through `grow` or through a `memory.grow` instruction.
      *
      * @return A new direct byte buffer.
      */
     public ByteBuffer buffer() {
-        this.nativeMemoryView(this, this.memoryPointer);
+        return this.view().duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
 
-        return this.buffer;
+    /**
+     * Return the size of this memory, in bytes.
+     *
+     * @return The size in bytes.
+     */
+    public long dataSize() {
+        this.refresh();
+
+        return this.bufferSize;
     }
 
     /**
-     * Set the `ByteBuffer` of this memory. See `Memory.buffer` to learn more.
+     * Return the size of this memory, in pages. 1 page size is 64KiB.
      *
-     * In addition, this method correctly sets the endianess of the `ByteBuffer`.
+     * @return The size in pages.
      */
-    private void setBuffer(ByteBuffer buffer) {
-        this.buffer = buffer;
+    public int size() {
+        return (int) (this.dataSize() / PAGE_SIZE);
+    }
 
-        // Ensure the endianess matches WebAssemly specification.
-        if (this.buffer.order() != ByteOrder.LITTLE_ENDIAN) {
-            this.buffer.order(ByteOrder.LITTLE_ENDIAN);
-        }
+    /**
+     * Return the generation of the views of this memory. It changes
+     * every time the memory has grown, be it through `grow` or through
+     * a `memory.grow` instruction, i.e. every time the buffers returned
+     * by `buffer` before are stale.
+     *
+     * Reading the generation does not cross into Rust: a reader
+     * keeping a buffer compares the generation it got the buffer at
+     * with this one.
+     *
+     * @return The current generation.
+     */
+    public int generation() {
+        this.refresh();
+
+        return this.generation;
     }
 
     /**
@@ -74,6 +135,244 @@ public class Memory implements Export {
      * @return The previous number of pages.
      */
     public int grow(int page) {
-        return this.nativeMemoryGrow(this, this.memoryPointer, page);
+        int previousPages = this.interpreted
+            ? Interpreter.nativeMemoryGrow(this.pointer(), page)
+            : Backend.CURRENT.memoryGrow(this.pointer(), page);
+        this.refresh();
+
+        return previousPages;
+    }
+
+    /**
+     * Copy `length` bytes of this memory, starting at `offset`, into
+     * `destination` starting at `destinationOffset`.
+     *
+     * The read and write methods are absolute: they use the cached view
+     * directly, without changing any position, and copy in bulk.
+     *
+     * @throws IndexOutOfBoundsException if the range is out of the memory or of `destination`.
+     */
+    public void read(int offset, byte[] destination, int destinationOffset, int length) {
+        this.view().get(offset, destination, destinationOffset, length);
+    }
+
+    /**
+     * Return a copy of `length` bytes of this memory, starting at `offset`.
+     *
+     * @throws IndexOutOfBoundsException if the range is out of the memory.
+     */
+    public byte[] readBytes(int offset, int length) {
+        byte[] bytes = new byte[length];
+        this.read(offset, bytes, 0, length);
+
+        return bytes;
+    }
+
+    /**
+     * Copy `length` bytes of `source`, starting at `sourceOffset`, into
+     * this memory starting at `offset`.
+     *
+     * @throws IndexOutOfBoundsException if the range is out of the memory or of `source`.
+     */
+    public void write(int offset, byte[] source, int sourceOffset, int length) {
+        this.view().put(offset, source, sourceOffset, length);
+    }
+
+    /**
+     * Copy the remaining bytes of `source` into this memory starting at
+     * `offset`. Like `ByteBuffer.put(ByteBuffer)`, the position of
+     * `source` is moved to its limit.
+     *
+     * @throws IndexOutOfBoundsException if the range is out of the memory.
+     */
+    public void write(int offset, ByteBuffer source) {
+        int length = source.remaining();
+        this.view().put(offset, source, source.position(), length);
+        source.position(source.position() + length);
+    }
+
+    /**
+     * Read a little-endian `i32` at `offset`.
+     *
+     * @throws IndexOutOfBoundsException if the value is out of the memory.
+     */
+    public int getI32(int offset) {
+        return this.view().getInt(offset);
+    }
+
+    /**
+     * Read a little-endian `i64` at `offset`.
+     *
+     * @throws IndexOutOfBoundsException if the value is out of the memory.
+     */
+    public long getI64(int offset) {
+        return this.view().getLong(offset);
+    }
+
+    /**
+     * Write a little-endian `i32` at `offset`.
+     *
+     * @throws IndexOutOfBoundsException if the value is out of the memory.
+     */
+    public void putI32(int offset, int value) {
+        this.view().putInt(offset, value);
+    }
+
+    /**
+     * Write a little-endian `i64` at `offset`.
+     *
+     * @throws IndexOutOfBoundsException if the value is out of the memory.
+     */
+    public void putI64(int offset, long value) {
+        this.view().putLong(offset, value);
+    }
+
+    /**
+     * Read the UTF-8 string starting at `pointer` and ending before
+     * the first null byte.
+     *
+     * @throws IndexOutOfBoundsException if no null byte ends the string.
+     */
+    public String readCString(int pointer) {
+        ByteBuffer view = this.view();
+        int limit = view.limit();
+        int end = pointer;
+
+        if (pointer < 0 || pointer > limit) {
+            throw new IndexOutOfBoundsException("Pointer " + pointer + " is out of a memory of " + limit + " bytes");
+        }
+
+        while (end < limit && view.get(end) != 0) {
+            end++;
+        }
+
+        if (end == limit) {
+            throw new IndexOutOfBoundsException("The string at " + pointer + " is not null-terminated");
+        }
+
+        byte[] bytes = new byte[end - pointer];
+        view.get(pointer, bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copy `length` bytes from `source` to `destination` in this
+     * memory, like the `memory.copy` instruction. The ranges may
+     * overlap.
+     *
+     * @throws RuntimeException if a range is out of the memory.
+     */
+    public void copyWithin(int source, int destination, int length) {
+        if (source < 0 || destination < 0 || length < 0) {
+            throw new IndexOutOfBoundsException("Invalid copy of " + length + " bytes from " + source + " to " + destination);
+        }
+
+        if (this.interpreted) {
+            Interpreter.nativeMemoryCopyWithin(this.pointer(), source, destination, length);
+        } else {
+            nativeCopyWithin(this.pointer(), source, destination, length);
+        }
+    }
+
+    /**
+     * Delete the memory object pointer. It is called when the instance
+     * is closed. The buffers of this memory keep the memory data alive
+     * on their own, see `refresh`.
+     */
+    @Override
+    public void close() {
+        this.memoryPointer = 0L;
+        this.buffer = null;
+        this.sizeCell = null;
+        this.resource.close();
+    }
+
+    long pointer() {
+        if (this.memoryPointer == 0L) {
+            throw new IllegalStateException("The memory has been closed");
+        }
+
+        return this.memoryPointer;
+    }
+
+    long getMemoryPointer() {
+        if (this.interpreted) {
+            throw new UnsupportedOperationException("The memory of an interpreted instance has no native segment");
+        }
+
+        return this.pointer();
+    }
+
+    /**
+     * Return the cached view, valid for the current size of the memory.
+     * As long as the memory has not grown, it only reads the size cell,
+     * so the absolute accessors do not cross into Rust.
+     */
+    private ByteBuffer view() {
+        ByteBuffer buffer = this.buffer;
+
+        if (buffer != null && this.currentSize() == this.bufferSize) {
+            return buffer;
+        }
+
+        this.refresh();
+
+        return this.buffer;
+    }
+
+    /**
+     * Return the current size of the memory, in bytes, read in place
+     * from the native cell wasmer updates on every grow, or for an
+     * interpreted memory, from the cell the interpreter updates when a
+     * call returns, before a host function runs, and after a grow.
+     */
+    private long currentSize() {
+        ByteBuffer sizeCell = this.sizeCell;
+
+        if (sizeCell == null) {
+            long memoryPointer = this.pointer();
+            sizeCell = this.interpreted
+                ? Interpreter.nativeMemorySizeCell(memoryPointer)
+                : nativeSizeCell(memoryPointer);
+            sizeCell.order(ByteOrder.nativeOrder());
+            this.sizeCell = sizeCell;
+        }
+
+        return sizeCell.capacity() == Long.BYTES
+            ? sizeCell.getLong(0)
+            : Integer.toUnsignedLong(sizeCell.getInt(0));
+    }
+
+    /**
+     * Create the view again if the memory size has changed since it
+     * has been created. It does not cross into Rust unless it has.
+     */
+    private void refresh() {
+        long memoryPointer = this.pointer();
+        long size = this.currentSize();
+
+        if (this.buffer == null || size != this.bufferSize) {
+            ByteBuffer buffer = this.interpreted
+                ? Interpreter.nativeMemoryView(memoryPointer)
+                : Backend.CURRENT.memoryView(memoryPointer);
+
+            // Ensure the endianess matches WebAssemly specification.
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            // The view holds its own handle on the memory, dropped once
+            // the view and every duplicate or slice of it are
+            // unreachable, so that the memory data is not unmapped
+            // under a buffer that outlives this object.
+            new NativeResource(
+                buffer,
+                this.interpreted ? Interpreter.nativeMemoryRetain(memoryPointer) : nativeRetain(memoryPointer),
+                this.interpreted ? Interpreter::nativeMemoryDrop : Memory::nativeDrop
+            );
+
+            this.buffer = buffer;
+            this.bufferSize = size;
+            this.generation++;
+        }
     }
 }
@@ -0,0 +1,117 @@
+package org.wasmer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * `Metering` is a Java class that represents the cost of the
+ * WebAssembly operators of a metered module.
+ *
+ * A metered module is compiled with a cost for each operator, and its
+ * instances get a number of points. Every executed operator spends its
+ * cost, and a call that runs out of points stops with an
+ * `OutOfFuelException`. Since the costs are added at compile time, the
+ * execution limit is deterministic: a call spends the same points
+ * whatever the machine and the load.
+ *
+ * Operators are named after their variant in `wasmparser`, such as
+ * `Call`, `MemoryGrow` or `I64DivU`. Operators without their own cost
+ * cost the default cost.
+ *
+ * Example:
+ * <pre>{@code
+ * Metering metering = Metering.withInitialPoints(1_000_000)
+ *     .withCost("Call", 10)
+ *     .withCost("MemoryGrow", 1_000);
+ * Module module = new Module(engine, wasmBytes, metering);
+ * Instance instance = module.instantiate(imports);
+ *
+ * instance.setRemainingPoints(50_000);
+ * instance.exports.getExportedFunction("Core_version").callI64(0, 0);
+ * long spent = 50_000 - instance.getRemainingPoints();
+ * }</pre>
+ */
+public final class Metering {
+    private final long initialPoints;
+    private final long defaultCost;
+    private final Map<String, Long> costs;
+
+    private Metering(long initialPoints, long defaultCost, Map<String, Long> costs) {
+        if (initialPoints < 0 || defaultCost < 0) {
+            throw new IllegalArgumentException("Points and costs must be positive");
+        }
+
+        this.initialPoints = initialPoints;
+        this.defaultCost = defaultCost;
+        this.costs = Collections.unmodifiableMap(costs);
+    }
+
+    /**
+     * Every operator costs 1 point, and every instance starts with
+     * `initialPoints` points.
+     */
+    public static Metering withInitialPoints(long initialPoints) {
+        return new Metering(initialPoints, 1, new HashMap<>());
+    }
+
+    /**
+     * Return a copy where the operators without their own cost cost
+     * `cost` points.
+     */
+    public Metering withDefaultCost(long cost) {
+        return new Metering(this.initialPoints, cost, new HashMap<>(this.costs));
+    }
+
+    /**
+     * Return a copy where `operator` costs `cost` points.
+     *
+     * @param operator The operator name, such as `Call`.
+     */
+    public Metering withCost(String operator, long cost) {
+        if (cost < 0) {
+            throw new IllegalArgumentException("Points and costs must be positive");
+        }
+
+        Map<String, Long> costs = new HashMap<>(this.costs);
+        costs.put(Objects.requireNonNull(operator), cost);
+
+        return new Metering(this.initialPoints, this.defaultCost, costs);
+    }
+
+    public long getInitialPoints() {
+        return this.initialPoints;
+    }
+
+    public long getDefaultCost() {
+        return this.defaultCost;
+    }
+
+    public Map<String, Long> getCosts() {
+        return this.costs;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Metering)) {
+            return false;
+        }
+
+        Metering metering = (Metering) other;
+
+        return this.initialPoints == metering.initialPoints
+            && this.defaultCost == metering.defaultCost
+            && this.costs.equals(metering.costs);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.initialPoints, this.defaultCost, this.costs);
+    }
+
+    @Override
+    public String toString() {
+        return "Metering{initialPoints=" + this.initialPoints + ", defaultCost=" + this.defaultCost + ", costs=" + this.costs + "}";
+    }
+}
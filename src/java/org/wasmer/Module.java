@@ -1,5 +1,16 @@
 package org.wasmer;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
 /**
  * `Module` is a Java class that represents a WebAssembly module.
  *
@@ -9,9 +20,28 @@ package org.wasmer;
  *
  * Module module = new Module(wasmBytes);
  * Instance instance = module.instantiate();
+ *
+ * // Share one engine between many modules.
+ * Engine engine = new Engine();
+ * Module module1 = new Module(engine, wasmBytes);
+ * Module module2 = new Module(engine, otherWasmBytes);
+ *
+ * // Interpret until the module is compiled in the background.
+ * Module tiered = new Module(new Engine(CompilerConfig.tiered(CompilerConfig.cranelift())), wasmBytes);
+ * Instance first = tiered.instantiate(imports);   // interpreted
+ * tiered.whenCompiled().join();
+ * Instance next = tiered.instantiate(imports);    // compiled
+ *
+ * // Compile without blocking the calling thread.
+ * CompletableFuture<Module> upgrade = Module.compileAsync(engine, wasmBytes, executor);
+ *
+ * // Free the native module deterministically.
+ * try (Module scoped = new Module(wasmBytes)) {
+ *     scoped.instantiate(imports);
+ * }
  * }</pre>
  */
-public class Module {
+public class Module implements AutoCloseable {
     /**
      * Native bindings.
      */
@@ -20,15 +50,54 @@ public class Module {
             System.loadLibrary("wasmer_jni");
         }
     }
-    private native long nativeModuleInstantiate(Module self, byte[] moduleBytes) throws RuntimeException;
-    private native void nativeDrop(long modulePointer);
-    private native long nativeInstantiate(long modulePointer, Instance instance, long importsPointer);
-    private static native boolean nativeValidate(byte[] moduleBytes);
+    private static native long nativeModuleInstantiate(long enginePointer, byte[] moduleBytes) throws RuntimeException;
+    private static native long nativeModuleInstantiateMetered(long enginePointer, byte[] moduleBytes, long initialPoints, long defaultCost, String[] operators, long[] costs) throws RuntimeException;
+    private static native void nativeDrop(long modulePointer);
+    private static native long nativeInstantiate(long modulePointer, long importsPointer);
+    private static native boolean nativeValidate(long enginePointer, byte[] moduleBytes);
     private native byte[] nativeSerialize(long modulePointer);
-    private static native long nativeDeserialize(Module module, byte[] serializedBytes);
+    private static native long nativeDeserialize(long enginePointer, byte[] serializedBytes);
+    private native void nativeSerializeToFile(long modulePointer, String path);
+    private static native long nativeDeserializeBuffer(long enginePointer, ByteBuffer serializedBuffer);
+    private static native long nativeCodeBytes(long modulePointer);
+
+    /**
+     * The compiled module, or 0 while a tiered module is still being
+     * compiled.
+     */
+    protected volatile long modulePointer;
+
+    /**
+     * The interpreted module, or 0 if the engine compiles, see
+     * `Compiler.INTERPRETER` and `CompilerConfig.tiered`.
+     */
+    private long interpretedModulePointer;
+
+    /**
+     * Drop the native modules when the module is closed, or once it
+     * is unreachable.
+     */
+    private final NativeResource compiledResource = new NativeResource(this, 0L, Module::nativeDrop, WasmerMetrics.Resource.MODULE);
+    private final NativeResource interpretedResource = new NativeResource(this, 0L, Interpreter::nativeModuleDrop, WasmerMetrics.Resource.MODULE);
+
+    /**
+     * Completes once the module is compiled.
+     */
+    private CompletableFuture<Module> compilation;
+    private boolean closed;
+
+    /**
+     * The engine this module has been compiled with.
+     */
+    protected Engine engine;
 
-    protected long modulePointer;
+    private long compileTimeNanos;
+    private long codeBytes;
 
+    /**
+     * The metering the module has been compiled with, or `null`.
+     */
+    private Metering metering;
 
     /**
      * Check that given bytes represent a valid WebAssembly module.
@@ -37,54 +106,277 @@ public class Module {
      * @return true if, and only if, given bytes are valid as a WebAssembly module.
      */
     public static boolean validate(byte[] moduleBytes) {
-        return Module.nativeValidate(moduleBytes);
+        return Module.validate(Engine.getDefault(), moduleBytes);
+    }
+
+    /**
+     * Check that given bytes represent a valid WebAssembly module for
+     * the given engine.
+     *
+     * @param engine The engine to validate with.
+     * @param moduleBytes WebAssembly bytes.
+     * @return true if, and only if, given bytes are valid as a WebAssembly module.
+     */
+    public static boolean validate(Engine engine, byte[] moduleBytes) {
+        return Module.nativeValidate(engine.pointer(), moduleBytes);
     }
 
     /**
      * The constructor instantiates a new WebAssembly module based on
-     * WebAssembly bytes.
+     * WebAssembly bytes, compiled with the default engine.
      *
      * @param moduleBytes WebAssembly bytes.
      */
     public Module(byte[] moduleBytes) throws RuntimeException {
-        this.modulePointer = this.nativeModuleInstantiate(this, moduleBytes);
+        this(Engine.getDefault(), moduleBytes);
     }
 
-    private Module() {}
+    /**
+     * The constructor instantiates a new WebAssembly module based on
+     * WebAssembly bytes, compiled with the given engine.
+     *
+     * With an interpreter engine, the module is only parsed. With a
+     * tiered engine, it is parsed, then compiled in the background,
+     * see `whenCompiled`.
+     *
+     * @param engine The engine to compile with.
+     * @param moduleBytes WebAssembly bytes.
+     */
+    public Module(Engine engine, byte[] moduleBytes) throws RuntimeException {
+        this(engine, moduleBytes, null);
+    }
 
     /**
-     * Delete a module object pointer.
+     * The constructor instantiates a new metered WebAssembly module,
+     * compiled with the compiler of the given engine, see `Metering`.
+     *
+     * The metering is part of the compiled code, so a metered module
+     * gets its own compilation engine: it is not cached with the
+     * modules of `engine`. Interpreted modules cannot be metered.
+     *
+     * @param engine The engine whose compiler to compile with.
+     * @param moduleBytes WebAssembly bytes.
+     * @param metering The operator costs, or `null` for no metering.
      */
-    public void close() {
-        // To avoid duplicate native dropping
-        if (this.modulePointer != 0L) {
-            this.nativeDrop(this.modulePointer);
-            this.modulePointer = 0L;
+    public Module(Engine engine, byte[] moduleBytes, Metering metering) throws RuntimeException {
+        CompilerConfig compilerConfig = engine.getCompilerConfig();
+
+        if (metering != null && (compilerConfig.getCompiler() == Compiler.INTERPRETER || compilerConfig.isTiered())) {
+            throw new UnsupportedOperationException("Interpreted modules cannot be metered");
+        }
+
+        this.engine = engine;
+        this.metering = metering;
+
+        if (compilerConfig.getCompiler() == Compiler.INTERPRETER) {
+            this.setInterpretedModulePointer(Interpreter.nativeModule(engine.pointer(), moduleBytes));
+            this.compilation = new CompletableFuture<>();
+            this.compilation.completeExceptionally(new UnsupportedOperationException("The module is interpreted, and never compiled"));
+        } else if (compilerConfig.isTiered()) {
+            this.setInterpretedModulePointer(Interpreter.nativeModule(engine.pointer(), moduleBytes));
+            this.compilation = CompletableFuture.supplyAsync(() -> {
+                this.compile(moduleBytes);
+
+                return this;
+            });
+        } else {
+            this.compile(moduleBytes);
+            this.compilation = CompletableFuture.completedFuture(this);
         }
     }
 
+    private Module() {
+        this.compilation = CompletableFuture.completedFuture(this);
+    }
+
     /**
-     * Delete a module object pointer, which is called by the garbage collector
-     * before an object is removed from the memory.
+     * Compile a module on the given executor, with the default engine,
+     * see `compileAsync(Engine, byte[], Executor)`.
      */
-    public void finalize() {
-        this.close();
+    public static CompletableFuture<Module> compileAsync(byte[] moduleBytes, Executor executor) {
+        return Module.compileAsync(Engine.getDefault(), moduleBytes, executor);
     }
 
     /**
-     * Create an instance object based on a module object.
+     * Compile a module on the given executor, so that the calling
+     * thread, and the modules it runs, are not blocked meanwhile.
+     *
+     * Cancelling the future before the compilation has started skips
+     * it. A compilation cannot be interrupted once started: if the
+     * future is cancelled meanwhile, the module is closed as soon as
+     * it is compiled.
+     *
+     * @param engine The engine to compile with.
+     * @param moduleBytes WebAssembly bytes.
+     * @param executor Runs the compilation.
+     * @return A future completing with the compiled module, or failing with the compilation error.
+     */
+    public static CompletableFuture<Module> compileAsync(Engine engine, byte[] moduleBytes, Executor executor) {
+        CompletableFuture<Module> future = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> {
+                // Cancelled before the compilation has started.
+                if (future.isDone()) {
+                    return;
+                }
+
+                Module module;
+
+                try {
+                    module = new Module(engine, moduleBytes);
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+
+                    return;
+                }
+
+                // Cancelled while compiling.
+                if (!future.complete(module)) {
+                    module.close();
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    private void compile(byte[] moduleBytes) {
+        long start = System.nanoTime();
+        long modulePointer;
+
+        if (this.metering == null) {
+            modulePointer = Module.nativeModuleInstantiate(this.engine.pointer(), moduleBytes);
+        } else {
+            Map<String, Long> costs = this.metering.getCosts();
+            String[] operators = costs.keySet().toArray(new String[0]);
+            long[] operatorCosts = new long[operators.length];
+
+            for (int nth = 0; nth < operators.length; nth++) {
+                operatorCosts[nth] = costs.get(operators[nth]);
+            }
+
+            modulePointer = Module.nativeModuleInstantiateMetered(
+                this.engine.pointer(), moduleBytes,
+                this.metering.getInitialPoints(), this.metering.getDefaultCost(), operators, operatorCosts
+            );
+        }
+        long compileTimeNanos = System.nanoTime() - start;
+
+        synchronized (this) {
+            // A tiered module can be closed before its compilation ends.
+            if (this.closed) {
+                Module.nativeDrop(modulePointer);
+
+                return;
+            }
+
+            this.compileTimeNanos = compileTimeNanos;
+            this.setModulePointer(modulePointer);
+        }
+
+        this.engine.recordCompilation(compileTimeNanos);
+    }
+
+    /**
+     * Return the metering this module has been compiled with, or
+     * `null` if it is not metered.
+     */
+    public Metering getMetering() {
+        return this.metering;
+    }
+
+    /**
+     * Return true if, and only if, the module is compiled. A tiered
+     * module is compiled once its background compilation has finished.
+     */
+    public boolean isCompiled() {
+        return this.modulePointer != 0L;
+    }
+
+    /**
+     * Return a future completing with this module once it is compiled.
+     * It completes immediately for a compiled module, and fails for an
+     * interpreted one, or if the background compilation has failed.
+     */
+    public CompletableFuture<Module> whenCompiled() {
+        return this.compilation.copy();
+    }
+
+    /**
+     * Return the time it took to compile this module, in nanoseconds,
+     * or 0 if it has been deserialized.
+     */
+    public synchronized long getCompileTimeNanos() {
+        return this.compileTimeNanos;
+    }
+
+    private void setModulePointer(long modulePointer) {
+        this.compiledResource.set(modulePointer);
+        this.modulePointer = modulePointer;
+        this.codeBytes = Module.nativeCodeBytes(modulePointer);
+        WasmerMetrics.get().trackCode(this.compiledResource, this.codeBytes);
+    }
+
+    private void setInterpretedModulePointer(long interpretedModulePointer) {
+        this.interpretedResource.set(interpretedModulePointer);
+        this.interpretedModulePointer = interpretedModulePointer;
+    }
+
+    /**
+     * Return the size of the machine code of this module, in bytes, or
+     * 0 while it is not compiled.
+     */
+    public synchronized long getCompiledCodeBytes() {
+        return this.codeBytes;
+    }
+
+    /**
+     * Delete a module object pointer. Instances created from this
+     * module stay usable.
+     *
+     * A module that is not closed is deleted once it is unreachable,
+     * but closing it frees its native memory without waiting for the
+     * garbage collector.
+     */
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        this.modulePointer = 0L;
+        this.interpretedModulePointer = 0L;
+        this.compiledResource.close();
+        this.interpretedResource.close();
+    }
+
+    /**
+     * Create an instance object based on a module object. The instance
+     * is interpreted as long as the module is not compiled.
      *
      * @return Instance object.
      */
     public Instance instantiate(Imports imports) {
+        long modulePointer = this.modulePointer;
+
+        if (modulePointer == 0L && this.interpretedModulePointer != 0L) {
+            return Interpreter.instantiate(this.interpretedModulePointer, imports);
+        }
+
+        if (modulePointer == 0L) {
+            throw new IllegalStateException("The module has been closed");
+        }
+
+        long start = System.nanoTime();
         Instance instance = new Instance();
 
-        long instancePointer = this.nativeInstantiate(this.modulePointer, instance, imports.importsPointer);
-        instance.instancePointer = instancePointer;
+        long instancePointer = Module.nativeInstantiate(modulePointer, imports.pointer(modulePointer));
+        instance.setInstancePointer(instancePointer);
 
-        Instance.nativeInitializeExportedFunctions(instancePointer);
-        Instance.nativeInitializeExportedMemories(instancePointer);
-        Instance.nativeInitializeExportedGlobals(instancePointer);
+        Instance.nativeInitializeExportedFunctions(instance, instancePointer);
+        Instance.nativeInitializeExportedMemories(instance, instancePointer);
+        Instance.nativeInitializeExportedGlobals(instance, instancePointer);
+        WasmerMetrics.get().getInstantiateTimes().record(System.nanoTime() - start);
         return instance;
     }
 
@@ -94,18 +386,115 @@ public class Module {
      * @return Serialized bytes.
      */
     public byte[] serialize() {
-        return this.nativeSerialize(this.modulePointer);
+        return this.nativeSerialize(this.compiledModulePointer());
+    }
+
+    /**
+     * Return the compiled module, waiting for the background
+     * compilation of a tiered module.
+     *
+     * @throws UnsupportedOperationException if the module is interpreted.
+     */
+    long compiledModulePointer() {
+        try {
+            this.compilation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+
+        return this.modulePointer;
     }
 
     /**
-     * Create an original Module object from a byte array.
+     * Create an original Module object from a byte array, with the
+     * default engine.
      *
      * @return Module object.
      */
     public static Module deserialize(byte[] serializedBytes) {
+        return Module.deserialize(Engine.getDefault(), serializedBytes);
+    }
+
+    /**
+     * Create an original Module object from a byte array, with the
+     * given engine.
+     *
+     * @param engine The engine to load the module into.
+     * @param serializedBytes Serialized bytes.
+     * @return Module object.
+     */
+    public static Module deserialize(Engine engine, byte[] serializedBytes) {
         Module module = new Module();
-        long modulePointer = Module.nativeDeserialize(module, serializedBytes);
-        module.modulePointer = modulePointer;
+        module.engine = engine;
+        module.setModulePointer(Module.nativeDeserialize(engine.pointer(), serializedBytes));
         return module;
     }
+
+    /**
+     * Write the serialized module to a file, without copying it
+     * through the Java heap.
+     *
+     * @param path The file to write.
+     */
+    public void serializeToFile(Path path) {
+        this.nativeSerializeToFile(this.compiledModulePointer(), path.toString());
+    }
+
+    /**
+     * Create an original Module object from a direct byte buffer, with
+     * the given engine. The buffer is read in place, from its position
+     * to its limit, which are left unchanged.
+     *
+     * @param engine The engine to load the module into.
+     * @param serializedBuffer A direct buffer holding serialized bytes
+     *     between its position and its limit.
+     * @return Module object.
+     */
+    public static Module deserialize(Engine engine, ByteBuffer serializedBuffer) {
+        if (!serializedBuffer.isDirect()) {
+            throw new IllegalArgumentException("The serialized module buffer must be a direct buffer.");
+        }
+
+        Module module = new Module();
+        module.engine = engine;
+        // Rust reads the buffer from its address up to its capacity:
+        // slice it, so that it reads the remaining bytes only.
+        module.setModulePointer(Module.nativeDeserializeBuffer(engine.pointer(), serializedBuffer.slice()));
+        return module;
+    }
+
+    /**
+     * Create an original Module object from a file written by
+     * `serializeToFile`, with the default engine.
+     *
+     * @param path The file to read.
+     * @return Module object.
+     */
+    public static Module deserializeFromFile(Path path) throws IOException {
+        return Module.deserializeFromFile(Engine.getDefault(), path);
+    }
+
+    /**
+     * Create an original Module object from a file written by
+     * `serializeToFile`, with the given engine. The file is
+     * memory-mapped, so its content never goes through the Java heap.
+     *
+     * Deserialization trusts the file content: only load files
+     * produced by this library, from a trusted location.
+     *
+     * @param engine The engine to load the module into.
+     * @param path The file to read.
+     * @return Module object.
+     */
+    public static Module deserializeFromFile(Engine engine, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer serializedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            return Module.deserialize(engine, serializedBuffer);
+        }
+    }
 }
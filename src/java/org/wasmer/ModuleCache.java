@@ -0,0 +1,166 @@
+package org.wasmer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * `ModuleCache` is a Java class that stores compiled WebAssembly
+ * modules on disk, so that a module is compiled once and then loaded
+ * by every later run.
+ *
+ * Artifacts are keyed by a hash of the WebAssembly bytes and of the
+ * engine version, so a library or compiler upgrade never loads a stale
+ * artifact. They are loaded with `Module.deserializeFromFile`, i.e.
+ * memory-mapped.
+ *
+ * The directory must only be writable by trusted processes:
+ * deserialization trusts the artifacts it reads.
+ *
+ * Example:
+ * <pre>{@code
+ * ModuleCache cache = new ModuleCache(engine, Paths.get("/var/cache/runtime"));
+ *
+ * // Compiles and stores the module on the first run, loads it afterwards.
+ * Module module = cache.load(wasmBytes);
+ * }</pre>
+ */
+public class ModuleCache {
+    private static final String ARTIFACT_EXTENSION = ".wasmu";
+
+    private final Engine engine;
+    private final Path directory;
+
+    /**
+     * The constructor creates a cache for the default engine.
+     *
+     * @param directory The directory the artifacts are stored in.
+     */
+    public ModuleCache(Path directory) {
+        this(Engine.getDefault(), directory);
+    }
+
+    /**
+     * The constructor creates a cache for the given engine.
+     *
+     * @param engine The engine the modules are compiled with.
+     * @param directory The directory the artifacts are stored in.
+     */
+    public ModuleCache(Engine engine, Path directory) {
+        this.engine = engine;
+        this.directory = directory;
+    }
+
+    /**
+     * Return the module for the given WebAssembly bytes: the cached
+     * artifact if there is a usable one, otherwise a freshly compiled
+     * module, which is then stored.
+     *
+     * @param moduleBytes WebAssembly bytes.
+     * @return Module object.
+     */
+    public Module load(byte[] moduleBytes) throws IOException {
+        String key = this.key(moduleBytes);
+        Module module = this.get(key);
+
+        if (module == null) {
+            module = new Module(this.engine, moduleBytes);
+            this.put(key, module);
+        }
+
+        return module;
+    }
+
+    /**
+     * Return the cached module for the given key, or `null` if there
+     * is none. An artifact that cannot be loaded, e.g. a truncated
+     * file, is removed when possible, and overwritten by the next `put`
+     * otherwise.
+     *
+     * @param key The key, see `key`.
+     * @return Module object, or `null`.
+     */
+    public Module get(String key) throws IOException {
+        Path path = this.path(key);
+
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try {
+            return Module.deserializeFromFile(this.engine, path);
+        } catch (RuntimeException e) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+                // The file may still be mapped, e.g. on Windows.
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Store a module under the given key. The artifact is written to
+     * a temporary file first and then moved in place, so concurrent
+     * readers never see a partial artifact.
+     *
+     * @param key The key, see `key`.
+     * @param module The module, compiled from the bytes the key has been computed from.
+     */
+    public void put(String key, Module module) throws IOException {
+        Files.createDirectories(this.directory);
+
+        Path temporaryPath = Files.createTempFile(this.directory, key, ".tmp");
+
+        try {
+            module.serializeToFile(temporaryPath);
+            Files.move(temporaryPath, this.path(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+
+    /**
+     * Compute the key of the given WebAssembly bytes, i.e. the
+     * hexadecimal SHA-256 of the engine version and of the bytes.
+     *
+     * @param moduleBytes WebAssembly bytes.
+     * @return The key.
+     */
+    public String key(byte[] moduleBytes) {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        digest.update(this.engine.getVersion().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(moduleBytes);
+
+        StringBuilder key = new StringBuilder();
+
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Return the path of the artifact for the given key.
+     *
+     * @param key The key, see `key`.
+     * @return The artifact path.
+     */
+    public Path path(String key) {
+        return this.directory.resolve(key + ARTIFACT_EXTENSION);
+    }
+}
@@ -53,6 +53,14 @@ public class Native {
         return osName + "-" + System.getProperty("os.arch");
     }
 
+    /**
+     * Return the name of the binding layer in use, `jni` or `panama`.
+     * It is selected with the `org.wasmer.backend` system property.
+     */
+    public static String getBackendName() {
+        return Backend.CURRENT.getName();
+    }
+
     private static boolean loadEmbeddedLibrary() {
         boolean usingEmbedded = false;
 
@@ -0,0 +1,137 @@
+package org.wasmer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * `NativeAllocator` is a Java class that allocates the heap of the
+ * linear memory of an instance, above `__heap_base`, entirely in Rust.
+ *
+ * It implements the `ext_allocator_malloc_version_1` and
+ * `ext_allocator_free_version_1` host functions, see `importObjects`,
+ * with no call back into Java, and lets the host allocate in the same
+ * heap, e.g. to place the inputs of a call, with `alloc` and `free`.
+ *
+ * It is the freeing-bump allocator of the Substrate hosts: sizes are
+ * rounded up to a power of two, from 8 bytes to 32 MiB, and a freed
+ * allocation is reused by the next allocation of the same size. The
+ * memory grows when the heap needs it.
+ *
+ * An allocator serves one instance: bind it to the memory of the
+ * instance once instantiated, before any call allocates.
+ *
+ * Example:
+ * <pre>{@code
+ * NativeAllocator allocator = new NativeAllocator();
+ * List<ImportObject> importObjects = new ArrayList<>(allocator.importObjects("env"));
+ * importObjects.add(new ImportObject.MemoryImport("env", 20, false));
+ *
+ * Instance instance = module.instantiate(Imports.from(importObjects, module));
+ * allocator.bind(instance);
+ *
+ * int pointer = allocator.alloc(input.length);
+ * instance.exports.getMemory("memory").buffer().put(pointer, input);
+ * long result = instance.exports.getExportedFunction("Core_version").callI64(pointer, input.length);
+ * allocator.free(pointer);
+ * }</pre>
+ */
+public final class NativeAllocator implements AutoCloseable {
+    static {
+        if (!Native.LOADED_EMBEDDED_LIBRARY) {
+            System.loadLibrary("wasmer_jni");
+        }
+    }
+
+    private static native long nativeCreate();
+    private static native void nativeDrop(long allocatorPointer);
+    private static native void nativeBind(long allocatorPointer, long memoryPointer, boolean interpreted, int heapBase) throws RuntimeException;
+    private static native int nativeAllocate(long allocatorPointer, int size) throws RuntimeException;
+    private static native void nativeFree(long allocatorPointer, int pointer) throws RuntimeException;
+
+    /**
+     * Read by Rust when the host functions are created, see
+     * `ImportObject.AllocatorImport`.
+     */
+    private long allocatorPointer;
+    private final NativeResource resource;
+
+    /**
+     * Create an allocator, bound to no memory yet.
+     */
+    public NativeAllocator() {
+        this.allocatorPointer = nativeCreate();
+        this.resource = new NativeResource(this, this.allocatorPointer, NativeAllocator::nativeDrop);
+    }
+
+    /**
+     * Return the `ext_allocator_malloc_version_1` and
+     * `ext_allocator_free_version_1` host functions in `namespace`,
+     * run by this allocator.
+     */
+    public List<ImportObject> importObjects(String namespace) {
+        return Arrays.asList(
+            new ImportObject.AllocatorImport(namespace, "ext_allocator_malloc_version_1", this, false),
+            new ImportObject.AllocatorImport(namespace, "ext_allocator_free_version_1", this, true)
+        );
+    }
+
+    /**
+     * Bind this allocator to the memory `memory` of `instance`, with
+     * the heap starting at its `__heap_base` global.
+     */
+    public void bind(Instance instance) {
+        Memory memory = instance.exports.getMemory("memory");
+        Global heapBase = instance.exports.getGlobal("__heap_base");
+
+        if (memory == null || heapBase == null) {
+            throw new IllegalArgumentException("The instance has no `memory` memory or no `__heap_base` global");
+        }
+
+        this.bind(memory, heapBase.getInt());
+    }
+
+    /**
+     * Bind this allocator to `memory`, with the heap starting at
+     * `heapBase`. The previous allocations, if any, are forgotten.
+     */
+    public void bind(Memory memory, int heapBase) {
+        nativeBind(this.pointer(), memory.pointer(), memory.interpreted, heapBase);
+    }
+
+    /**
+     * Allocate `size` bytes in the heap, and return their address in
+     * the memory.
+     *
+     * @throws RuntimeException if the allocator is not bound, or the
+     *         heap cannot grow.
+     */
+    public int alloc(int size) {
+        return nativeAllocate(this.pointer(), size);
+    }
+
+    /**
+     * Free the allocation at `pointer`, returned by `alloc` or by
+     * `ext_allocator_malloc_version_1`.
+     */
+    public void free(int pointer) {
+        nativeFree(this.pointer(), pointer);
+    }
+
+    /**
+     * Delete the allocator object pointer. The host functions of the
+     * instances already created keep running.
+     */
+    @Override
+    public void close() {
+        this.allocatorPointer = 0L;
+        this.resource.close();
+    }
+
+    private long pointer() {
+        if (this.allocatorPointer == 0L) {
+            throw new IllegalStateException("The allocator has been closed");
+        }
+
+        return this.allocatorPointer;
+    }
+}
@@ -0,0 +1,104 @@
+package org.wasmer;
+
+import java.lang.ref.Cleaner;
+import java.util.function.LongConsumer;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * `NativeResource` owns a native pointer on behalf of a Java object,
+ * and drops it exactly once: when the object is closed, or once the
+ * object is unreachable, through a shared `Cleaner`.
+ *
+ * The drop function must not reference the owner, or the owner would
+ * never become unreachable: use a static native method, such as
+ * `Module::nativeDrop`.
+ */
+final class NativeResource implements Runnable {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final LongConsumer drop;
+    private final WasmerMetrics.Resource kind;
+    private final Cleaner.Cleanable cleanable;
+    private long pointer;
+    private boolean closed;
+
+    /**
+     * Register a resource for `owner`, not counted by `WasmerMetrics`.
+     */
+    NativeResource(Object owner, long pointer, LongConsumer drop) {
+        this(owner, pointer, drop, null);
+    }
+
+    /**
+     * Register a resource for `owner`. The pointer can be set later,
+     * see `set`.
+     *
+     * @param owner The object the resource is dropped with.
+     * @param pointer The native pointer, or 0.
+     * @param drop Drops the native pointer.
+     * @param kind What `WasmerMetrics` counts the resource as, or `null`.
+     */
+    NativeResource(Object owner, long pointer, LongConsumer drop, WasmerMetrics.Resource kind) {
+        this.drop = drop;
+        this.kind = kind;
+        this.pointer = pointer;
+        this.cleanable = CLEANER.register(owner, this);
+
+        if (pointer != 0L) {
+            WasmerMetrics.get().acquired(kind);
+        }
+    }
+
+    /**
+     * Set the native pointer, once it is created. It is dropped at
+     * once if the resource has already been closed.
+     */
+    synchronized void set(long pointer) {
+        if (this.pointer != 0L) {
+            throw new IllegalStateException("The native pointer has already been set");
+        }
+
+        if (this.closed) {
+            this.drop.accept(pointer);
+
+            return;
+        }
+
+        this.pointer = pointer;
+        WasmerMetrics.get().acquired(this.kind);
+    }
+
+    /**
+     * Apply `function` to the native pointer, which cannot be dropped
+     * meanwhile, or return 0 if it has been dropped.
+     */
+    synchronized long apply(LongUnaryOperator function) {
+        if (this.pointer == 0L) {
+            return 0L;
+        }
+
+        return function.applyAsLong(this.pointer);
+    }
+
+    /**
+     * Drop the native pointer now. Later calls have no effect.
+     */
+    void close() {
+        this.cleanable.clean();
+    }
+
+    /**
+     * Called once, by `close` or by the cleaner.
+     */
+    @Override
+    public synchronized void run() {
+        this.closed = true;
+
+        // To avoid duplicate native dropping
+        if (this.pointer != 0L) {
+            this.drop.accept(this.pointer);
+            this.pointer = 0L;
+            WasmerMetrics.get().released(this.kind, this);
+        }
+    }
+}
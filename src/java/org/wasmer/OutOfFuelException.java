@@ -0,0 +1,22 @@
+package org.wasmer;
+
+/**
+ * `OutOfFuelException` is thrown by a call of a metered instance that
+ * has spent all its points, see `Metering`.
+ *
+ * The call has been stopped by a trap, like `unreachable`: the
+ * instance is left in the state the call had brought it to. Give it
+ * points again with `Instance.setRemainingPoints` to keep using it, or
+ * discard it.
+ */
+public class OutOfFuelException extends WasmTrapException {
+    private static final long serialVersionUID = 1L;
+
+    public OutOfFuelException(String message) {
+        super(message, TrapCode.OUT_OF_FUEL);
+    }
+
+    OutOfFuelException(String message, long errorPointer) {
+        super(message, TrapCode.OUT_OF_FUEL, errorPointer);
+    }
+}
@@ -0,0 +1,260 @@
+package org.wasmer;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * `Profiler` is a Java class that records where the time goes across
+ * the boundary: the calls of the exported functions of the instances it
+ * is set on, see `Instance.setProfiler`, and of the host functions of
+ * the imports it is created with, see `Imports.from`.
+ *
+ * For each function, it counts the calls, the cumulative time, the
+ * self time, i.e. the time not spent in nested calls (such as the host
+ * functions an export calls), and the bytes of the arguments and
+ * results crossing the boundary. The nested calls are also recorded as
+ * stacks, dumped in the collapsed format of flame graphs.
+ *
+ * Profiling is opt-in: instances and imports without a profiler do
+ * not pay for it. The counters are `LongAdder`s, and the call stacks
+ * are per thread.
+ *
+ * Example:
+ * <pre>{@code
+ * Profiler profiler = new Profiler();
+ * Imports imports = Imports.from(importObjects, module, profiler);
+ * Instance instance = module.instantiate(imports);
+ * instance.setProfiler(profiler);
+ *
+ * instance.exports.getExportedFunction("execute_block").callI64(pointer, length);
+ *
+ * System.out.println(profiler.getEntries().get("env.ext_storage_get_version_1"));
+ * profiler.writeCollapsedStacks(Files.newBufferedWriter(Paths.get("profile.folded")));
+ * }</pre>
+ */
+public final class Profiler {
+    /**
+     * The calls of one function.
+     */
+    public static final class Entry {
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder selfNanos = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private Entry(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Return the name of the function: the export name, or
+         * `namespace.name` for a host function.
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Return the number of calls.
+         */
+        public long getCalls() {
+            return this.calls.sum();
+        }
+
+        /**
+         * Return the time spent in the calls, nested calls included,
+         * in nanoseconds.
+         */
+        public long getTotalNanos() {
+            return this.totalNanos.sum();
+        }
+
+        /**
+         * Return the time spent in the calls, nested calls excluded,
+         * in nanoseconds.
+         */
+        public long getSelfNanos() {
+            return this.selfNanos.sum();
+        }
+
+        /**
+         * Return the bytes of the arguments and results of the calls.
+         */
+        public long getBytes() {
+            return this.bytes.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{name=" + this.name
+                + ", calls=" + this.getCalls()
+                + ", totalNanos=" + this.getTotalNanos()
+                + ", selfNanos=" + this.getSelfNanos()
+                + ", bytes=" + this.getBytes() + "}";
+        }
+    }
+
+    /**
+     * A node of the call tree: a function, called from the stack of
+     * its parents.
+     */
+    private static final class Node {
+        private final Entry entry;
+        private final Node parent;
+        private final Map<Entry, Node> children = new ConcurrentHashMap<>();
+        private final LongAdder selfNanos = new LongAdder();
+
+        private Node(Entry entry, Node parent) {
+            this.entry = entry;
+            this.parent = parent;
+        }
+
+        private Node child(Entry entry) {
+            Node child = this.children.get(entry);
+
+            if (child == null) {
+                child = this.children.computeIfAbsent(entry, ignored -> new Node(entry, this));
+            }
+
+            return child;
+        }
+    }
+
+    /**
+     * A call in progress.
+     */
+    private static final class Frame {
+        private Node node;
+        private long start;
+        private long childNanos;
+    }
+
+    /**
+     * The calls in progress on a thread. Frames are reused, so
+     * profiling a call allocates nothing.
+     */
+    private static final class Stack {
+        private Frame[] frames = new Frame[0];
+        private int depth;
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Node root = new Node(null, null);
+    private final ThreadLocal<Stack> stacks = ThreadLocal.withInitial(Stack::new);
+
+    /**
+     * Return the calls of each function, by name.
+     */
+    public Map<String, Entry> getEntries() {
+        return Collections.unmodifiableMap(new TreeMap<>(this.entries));
+    }
+
+    /**
+     * Write the self time of each call stack, in nanoseconds, one
+     * stack per line, in the collapsed format read by `flamegraph.pl`
+     * and speedscope, e.g. `execute_block;env.ext_storage_get_version_1 1200`.
+     *
+     * @param output Receives the stacks.
+     */
+    public void writeCollapsedStacks(Appendable output) throws IOException {
+        this.writeCollapsedStacks(output, this.root);
+
+        if (output instanceof java.io.Flushable) {
+            ((java.io.Flushable) output).flush();
+        }
+    }
+
+    private void writeCollapsedStacks(Appendable output, Node node) throws IOException {
+        for (Node child : node.children.values()) {
+            long selfNanos = child.selfNanos.sum();
+
+            if (selfNanos > 0L) {
+                output.append(stackOf(child)).append(' ').append(Long.toString(selfNanos)).append('\n');
+            }
+
+            this.writeCollapsedStacks(output, child);
+        }
+    }
+
+    private static String stackOf(Node node) {
+        StringBuilder stack = new StringBuilder(node.entry.name);
+
+        for (Node parent = node.parent; parent.entry != null; parent = parent.parent) {
+            stack.insert(0, ';').insert(0, parent.entry.name);
+        }
+
+        return stack.toString();
+    }
+
+    /**
+     * Forget all the recorded calls. The calls in progress are still
+     * recorded when they return.
+     */
+    public void reset() {
+        this.entries.clear();
+        this.root.children.clear();
+    }
+
+    /**
+     * Return the entry of the function `name`, created on first use.
+     */
+    Entry entry(String name) {
+        Entry entry = this.entries.get(name);
+
+        if (entry == null) {
+            entry = this.entries.computeIfAbsent(name, Entry::new);
+        }
+
+        return entry;
+    }
+
+    void enter(Entry entry, long start) {
+        Stack stack = this.stacks.get();
+
+        if (stack.depth == stack.frames.length) {
+            Frame[] frames = new Frame[Math.max(8, stack.frames.length * 2)];
+            System.arraycopy(stack.frames, 0, frames, 0, stack.depth);
+
+            for (int nth = stack.depth; nth < frames.length; nth++) {
+                frames[nth] = new Frame();
+            }
+
+            stack.frames = frames;
+        }
+
+        Node parent = stack.depth == 0 ? this.root : stack.frames[stack.depth - 1].node;
+        Frame frame = stack.frames[stack.depth++];
+        frame.node = parent.child(entry);
+        frame.start = start;
+        frame.childNanos = 0L;
+    }
+
+    void exit(Entry entry, long end, long bytes) {
+        Stack stack = this.stacks.get();
+
+        // The profiler has been set during the call.
+        if (stack.depth == 0 || stack.frames[stack.depth - 1].node.entry != entry) {
+            return;
+        }
+
+        Frame frame = stack.frames[--stack.depth];
+        long totalNanos = end - frame.start;
+        long selfNanos = totalNanos - frame.childNanos;
+
+        if (stack.depth > 0) {
+            stack.frames[stack.depth - 1].childNanos += totalNanos;
+        }
+
+        entry.calls.increment();
+        entry.totalNanos.add(totalNanos);
+        entry.selfNanos.add(selfNanos);
+        entry.bytes.add(bytes);
+        frame.node.selfNanos.add(selfNanos);
+        frame.node = null;
+    }
+}
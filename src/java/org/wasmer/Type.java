@@ -11,4 +11,17 @@ public enum Type {
     Type(byte i) {
         this.i = i;
     }
+
+    /**
+     * Return the type with the given code, as exchanged with Rust.
+     */
+    static Type fromCode(int code) {
+        for (Type type : Type.values()) {
+            if (type.i == code) {
+                return type;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown type code " + code);
+    }
 }
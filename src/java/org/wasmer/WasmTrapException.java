@@ -0,0 +1,205 @@
+package org.wasmer;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * `WasmTrapException` is thrown when a WebAssembly call traps, e.g.
+ * on an `unreachable` instruction or an out of bounds memory access.
+ *
+ * Traps are part of the normal flow of some callers, so they are
+ * cheap to throw: the Java stack trace is not captured, and the
+ * WebAssembly backtrace is only read from the native error when
+ * `getWasmBacktrace` is called.
+ *
+ * Example:
+ * <pre>{@code
+ * try {
+ *     instance.exports.getExportedFunction("execute_block").callI64(pointer, length);
+ * } catch (WasmTrapException e) {
+ *     if (e.getTrapCode() == WasmTrapException.TrapCode.UNREACHABLE) {
+ *         // The runtime has panicked.
+ *     }
+ *
+ *     System.err.println(e.getWasmBacktrace());
+ * }
+ * }</pre>
+ */
+public class WasmTrapException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Why a call has trapped.
+     */
+    public enum TrapCode {
+        /** The trap has no code, e.g. it has been raised by the interpreter. */
+        UNKNOWN(0),
+        /** An `unreachable` instruction has been executed. */
+        UNREACHABLE(1),
+        /** A memory access, or a bulk memory operation, is out of bounds. */
+        MEMORY_OUT_OF_BOUNDS(2),
+        /** A table access is out of bounds. */
+        TABLE_OUT_OF_BOUNDS(3),
+        /** An indirect call has hit a null table entry. */
+        INDIRECT_CALL_TO_NULL(4),
+        /** An indirect call has hit a function of another signature. */
+        BAD_SIGNATURE(5),
+        /** An integer arithmetic operation has overflowed. */
+        INTEGER_OVERFLOW(6),
+        /** An integer has been divided by zero. */
+        INTEGER_DIVISION_BY_ZERO(7),
+        /** A float could not be converted to an integer. */
+        BAD_CONVERSION_TO_INTEGER(8),
+        /** The call stack is exhausted. */
+        STACK_OVERFLOW(9),
+        /** An atomic access is misaligned. */
+        MISALIGNED_ACCESS(10),
+        /** A metered instance has spent all its points, see `OutOfFuelException`. */
+        OUT_OF_FUEL(11);
+
+        final int code;
+
+        TrapCode(int code) {
+            this.code = code;
+        }
+
+        static TrapCode fromCode(int code) {
+            for (TrapCode trapCode : TrapCode.values()) {
+                if (trapCode.code == code) {
+                    return trapCode;
+                }
+            }
+
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * A frame of the WebAssembly backtrace.
+     */
+    public static final class Frame implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int functionIndex;
+        private final String functionName;
+        private final int moduleOffset;
+
+        private Frame(int functionIndex, String functionName, int moduleOffset) {
+            this.functionIndex = functionIndex;
+            this.functionName = functionName;
+            this.moduleOffset = moduleOffset;
+        }
+
+        /** The index of the function in its module. */
+        public int getFunctionIndex() { return this.functionIndex; }
+
+        /** The name of the function, or `null` if the module has no names. */
+        public String getFunctionName() { return this.functionName; }
+
+        /** The offset of the trapping instruction in the module bytes. */
+        public int getModuleOffset() { return this.moduleOffset; }
+
+        @Override
+        public String toString() {
+            String name = this.functionName == null ? "<unnamed>" : this.functionName;
+
+            return name + " (function " + this.functionIndex + ", offset 0x" + Integer.toHexString(this.moduleOffset) + ")";
+        }
+    }
+
+    /**
+     * Native bindings.
+     */
+    static {
+        if (!Native.LOADED_EMBEDDED_LIBRARY) {
+            System.loadLibrary("wasmer_jni");
+        }
+    }
+    private static native Frame[] nativeBacktrace(long errorPointer);
+    private static native void nativeDrop(long errorPointer);
+
+    private final TrapCode trapCode;
+    /**
+     * The native error the backtrace is read from, or `null` if the
+     * trap has no backtrace.
+     */
+    private final transient NativeResource error;
+    /**
+     * The frames, once read from the native error, see `getWasmBacktrace`.
+     */
+    private Frame[] frames;
+    private transient List<Frame> backtrace;
+
+    public WasmTrapException(String message, TrapCode trapCode) {
+        this(message, trapCode, 0L);
+    }
+
+    /**
+     * @param errorPointer The native error, owned by the exception, or 0.
+     */
+    WasmTrapException(String message, TrapCode trapCode, long errorPointer) {
+        super(message, null, false, false);
+        this.trapCode = trapCode;
+        this.error = errorPointer == 0L ? null : new NativeResource(this, errorPointer, WasmTrapException::nativeDrop);
+    }
+
+    /**
+     * Called by Rust to create the exception of a trap.
+     */
+    static WasmTrapException create(String message, int trapCode, long errorPointer) {
+        if (trapCode == TrapCode.OUT_OF_FUEL.code) {
+            return new OutOfFuelException(message, errorPointer);
+        }
+
+        return new WasmTrapException(message, TrapCode.fromCode(trapCode), errorPointer);
+    }
+
+    /**
+     * Return why the call has trapped.
+     */
+    public TrapCode getTrapCode() {
+        return this.trapCode;
+    }
+
+    /**
+     * Return the WebAssembly frames of the trap, innermost first. The
+     * backtrace is empty when the binding layer does not report it.
+     */
+    public synchronized List<Frame> getWasmBacktrace() {
+        if (this.backtrace == null) {
+            if (this.frames == null) {
+                Frame[][] frames = {new Frame[0]};
+
+                if (this.error != null) {
+                    this.error.apply(errorPointer -> {
+                        frames[0] = nativeBacktrace(errorPointer);
+
+                        return 0L;
+                    });
+
+                    // The frames are read once: the native error is not needed anymore.
+                    this.error.close();
+                }
+
+                this.frames = frames[0];
+            }
+
+            this.backtrace = Collections.unmodifiableList(Arrays.asList(this.frames));
+        }
+
+        return this.backtrace;
+    }
+
+    /**
+     * Read the backtrace before writing the exception: the native error
+     * is not serialized.
+     */
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        this.getWasmBacktrace();
+        out.defaultWriteObject();
+    }
+}
@@ -0,0 +1,215 @@
+package org.wasmer;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * `WasmerMetrics` is a Java class that represents the native resources
+ * used by the library, for capacity planning and for catching leaks:
+ * live modules, instances, memories and imports, committed linear
+ * memory, compiled code, compilation and instantiation times, and
+ * the latencies of the calls of each export and host function.
+ *
+ * Resources are always counted, at the cost of a counter update when
+ * they are created and dropped. Calls are only recorded once enabled
+ * with `setCallMetricsEnabled`, since timing them costs two clock
+ * reads per call. Host functions are only timed when their imports
+ * have been created while calls were recorded.
+ *
+ * Example:
+ * <pre>{@code
+ * WasmerMetrics metrics = WasmerMetrics.get();
+ * metrics.register();                  // Expose over JMX as `org.wasmer:type=WasmerMetrics`.
+ * metrics.setCallMetricsEnabled(true);
+ *
+ * System.out.println(metrics.getLiveInstances() + " instances, " + metrics.getCommittedMemoryBytes() + " bytes");
+ * System.out.println(metrics.getExportCalls().get("execute_block"));
+ * }</pre>
+ */
+public final class WasmerMetrics implements WasmerMetricsMXBean {
+    /**
+     * The name the metrics are registered with, see `register`.
+     */
+    public static final String OBJECT_NAME = "org.wasmer:type=WasmerMetrics";
+
+    private static final WasmerMetrics INSTANCE = new WasmerMetrics();
+
+    /**
+     * Read on every call: static, so that a disabled check costs one
+     * field read.
+     */
+    static volatile boolean callsEnabled;
+
+    /**
+     * The native resources counted by the metrics, see `NativeResource`.
+     */
+    enum Resource {
+        MODULE,
+        INSTANCE,
+        MEMORY,
+        IMPORTS,
+    }
+
+    private final LongAdder[] live = new LongAdder[Resource.values().length];
+    /**
+     * The live memories, and whether each one is interpreted.
+     */
+    private final Map<NativeResource, Boolean> memories = new ConcurrentHashMap<>();
+    /**
+     * The code size of the live compiled modules.
+     */
+    private final Map<NativeResource, Long> codeBytes = new ConcurrentHashMap<>();
+    private final LatencyHistogram compileTimes = new LatencyHistogram();
+    private final LatencyHistogram instantiateTimes = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> exportCalls = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> importCalls = new ConcurrentHashMap<>();
+
+    private WasmerMetrics() {
+        for (int nth = 0; nth < this.live.length; nth++) {
+            this.live[nth] = new LongAdder();
+        }
+    }
+
+    /**
+     * Return the process-wide metrics.
+     */
+    public static WasmerMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Register the metrics with the platform MBean server, as
+     * `OBJECT_NAME`. Registering them again has no effect.
+     *
+     * @return The name the metrics are registered with.
+     */
+    public ObjectName register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                // Already registered.
+            }
+
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register the metrics as `" + OBJECT_NAME + "`", e);
+        }
+    }
+
+    @Override
+    public long getLiveModules() {
+        return this.live[Resource.MODULE.ordinal()].sum();
+    }
+
+    @Override
+    public long getLiveInstances() {
+        return this.live[Resource.INSTANCE.ordinal()].sum();
+    }
+
+    @Override
+    public long getLiveMemories() {
+        return this.live[Resource.MEMORY.ordinal()].sum();
+    }
+
+    @Override
+    public long getLiveImports() {
+        return this.live[Resource.IMPORTS.ordinal()].sum();
+    }
+
+    @Override
+    public long getCommittedMemoryBytes() {
+        long bytes = 0L;
+
+        for (Map.Entry<NativeResource, Boolean> memory : this.memories.entrySet()) {
+            bytes += memory.getValue()
+                ? memory.getKey().apply(Interpreter::nativeMemoryDataSize)
+                : memory.getKey().apply(Backend.CURRENT::memoryDataSize);
+        }
+
+        return bytes;
+    }
+
+    @Override
+    public long getCompiledCodeBytes() {
+        long bytes = 0L;
+
+        for (long moduleBytes : this.codeBytes.values()) {
+            bytes += moduleBytes;
+        }
+
+        return bytes;
+    }
+
+    @Override
+    public LatencyHistogram getCompileTimes() {
+        return this.compileTimes;
+    }
+
+    @Override
+    public LatencyHistogram getInstantiateTimes() {
+        return this.instantiateTimes;
+    }
+
+    @Override
+    public boolean isCallMetricsEnabled() {
+        return callsEnabled;
+    }
+
+    @Override
+    public void setCallMetricsEnabled(boolean enabled) {
+        callsEnabled = enabled;
+    }
+
+    @Override
+    public Map<String, LatencyHistogram> getExportCalls() {
+        return Collections.unmodifiableMap(new TreeMap<>(this.exportCalls));
+    }
+
+    @Override
+    public Map<String, LatencyHistogram> getImportCalls() {
+        return Collections.unmodifiableMap(new TreeMap<>(this.importCalls));
+    }
+
+    void acquired(Resource kind) {
+        if (kind != null) {
+            this.live[kind.ordinal()].increment();
+        }
+    }
+
+    void released(Resource kind, NativeResource resource) {
+        if (kind != null) {
+            this.live[kind.ordinal()].decrement();
+        }
+
+        this.memories.remove(resource);
+        this.codeBytes.remove(resource);
+    }
+
+    void trackMemory(NativeResource memory, boolean interpreted) {
+        this.memories.put(memory, interpreted);
+    }
+
+    void trackCode(NativeResource module, long codeBytes) {
+        this.codeBytes.put(module, codeBytes);
+    }
+
+    LatencyHistogram exportCalls(String name) {
+        return this.exportCalls.computeIfAbsent(name, ignored -> new LatencyHistogram());
+    }
+
+    LatencyHistogram importCalls(String namespace, String name) {
+        return this.importCalls.computeIfAbsent(namespace + "." + name, ignored -> new LatencyHistogram());
+    }
+}
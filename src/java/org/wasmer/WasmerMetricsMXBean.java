@@ -0,0 +1,77 @@
+package org.wasmer;
+
+import java.util.Map;
+
+/**
+ * The management interface of `WasmerMetrics`, as exposed over JMX.
+ */
+public interface WasmerMetricsMXBean {
+    /**
+     * Return the number of native modules alive. A tiered module
+     * counts once as long as it is only interpreted, and twice once
+     * it is compiled too, see `CompilerConfig.tiered`.
+     */
+    long getLiveModules();
+
+    /**
+     * Return the number of native instances alive.
+     */
+    long getLiveInstances();
+
+    /**
+     * Return the number of `Memory` objects alive, one per exported
+     * memory of each instance.
+     */
+    long getLiveMemories();
+
+    /**
+     * Return the number of native imports alive.
+     */
+    long getLiveImports();
+
+    /**
+     * Return the size of the linear memories of the live `Memory`
+     * objects, in bytes, read when called.
+     */
+    long getCommittedMemoryBytes();
+
+    /**
+     * Return the size of the machine code of the live compiled
+     * modules, in bytes.
+     */
+    long getCompiledCodeBytes();
+
+    /**
+     * Return the compilation times of all the modules compiled so far.
+     */
+    LatencyHistogram getCompileTimes();
+
+    /**
+     * Return the instantiation times of all the instances created so
+     * far.
+     */
+    LatencyHistogram getInstantiateTimes();
+
+    /**
+     * Return true if, and only if, calls are recorded.
+     */
+    boolean isCallMetricsEnabled();
+
+    /**
+     * Start or stop recording calls, see `getExportCalls` and
+     * `getImportCalls`.
+     */
+    void setCallMetricsEnabled(boolean enabled);
+
+    /**
+     * Return the call latencies of the exported functions, by export
+     * name, across all instances.
+     */
+    Map<String, LatencyHistogram> getExportCalls();
+
+    /**
+     * Return the call latencies of the imported host functions, by
+     * `namespace.name`, across all imports.
+     */
+    Map<String, LatencyHistogram> getImportCalls();
+}
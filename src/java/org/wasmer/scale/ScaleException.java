@@ -0,0 +1,14 @@
+package org.wasmer.scale;
+
+/**
+ * `ScaleException` is thrown when SCALE data cannot be decoded, e.g.
+ * because it is truncated or a compact integer is out of range, or
+ * when a value cannot be encoded in the space left.
+ */
+public class ScaleException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ScaleException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,321 @@
+package org.wasmer.scale;
+
+import org.wasmer.Memory;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * `ScaleReader` is a Java class that decodes values in the SCALE codec
+ * of Substrate, straight from a `ByteBuffer`, such as a view of the
+ * memory of an instance: nothing is copied but the decoded values.
+ *
+ * Byte arrays can be read as views too, see `readByteBuffer`, and
+ * vectors can be decoded one element at a time, see `vectorIterator`,
+ * so large results such as the metadata of a runtime are streamed
+ * rather than copied out of the memory.
+ *
+ * Example:
+ * <pre>{@code
+ * long result = instance.exports.getExportedFunction("Metadata_metadata").callI64(0, 0);
+ * ScaleReader reader = ScaleReader.ofResult(memory, result);
+ * ByteBuffer metadata = reader.readByteBuffer();
+ * }</pre>
+ */
+public final class ScaleReader {
+    private final ByteBuffer buffer;
+
+    /**
+     * Create a reader of the remaining bytes of `buffer`. The buffer
+     * is not duplicated: its position follows the reads.
+     */
+    public ScaleReader(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Create a reader of `length` bytes at `offset` in `memory`.
+     *
+     * The view of the memory is taken once: do not read across a call
+     * that grows the memory.
+     */
+    public static ScaleReader at(Memory memory, int offset, int length) {
+        ByteBuffer buffer = memory.buffer();
+
+        if (offset < 0 || length < 0 || (long) offset + length > buffer.capacity()) {
+            throw new ScaleException("Cannot read " + length + " bytes at " + offset + ", the memory has " + buffer.capacity());
+        }
+
+        buffer.limit(offset + length).position(offset);
+
+        return new ScaleReader(buffer);
+    }
+
+    /**
+     * Create a reader of the result of a runtime entry point, returned
+     * as an `i64` packing its length in the high 32 bits and its
+     * pointer in the low 32 bits.
+     */
+    public static ScaleReader ofResult(Memory memory, long pointerAndLength) {
+        return at(memory, (int) pointerAndLength, (int) (pointerAndLength >>> 32));
+    }
+
+    /**
+     * Return the position of the next read.
+     */
+    public int position() {
+        return this.buffer.position();
+    }
+
+    /**
+     * Return the number of bytes left to read.
+     */
+    public int remaining() {
+        return this.buffer.remaining();
+    }
+
+    /**
+     * Skip `length` bytes.
+     */
+    public ScaleReader skip(int length) {
+        this.ensure(length);
+        this.buffer.position(this.buffer.position() + length);
+
+        return this;
+    }
+
+    public int readU8() {
+        this.ensure(1);
+
+        return this.buffer.get() & 0xff;
+    }
+
+    public boolean readBool() {
+        int value = this.readU8();
+
+        if (value > 1) {
+            throw new ScaleException("Cannot decode " + value + " as a boolean");
+        }
+
+        return value == 1;
+    }
+
+    public int readU16() {
+        this.ensure(2);
+
+        return this.buffer.getShort() & 0xffff;
+    }
+
+    /**
+     * Read a `u32`, returned with the bits of an `int`.
+     */
+    public int readU32() {
+        this.ensure(4);
+
+        return this.buffer.getInt();
+    }
+
+    /**
+     * Read a `u64`, returned with the bits of a `long`.
+     */
+    public long readU64() {
+        this.ensure(8);
+
+        return this.buffer.getLong();
+    }
+
+    /**
+     * Read a compact integer up to 2^64 - 1, returned with the bits of
+     * a `long`.
+     */
+    public long readCompact() {
+        int first = this.readU8();
+
+        switch (first & 0b11) {
+            case 0b00:
+                return first >>> 2;
+            case 0b01:
+                this.buffer.position(this.buffer.position() - 1);
+
+                return this.readU16() >>> 2;
+            case 0b10:
+                this.buffer.position(this.buffer.position() - 1);
+
+                return Integer.toUnsignedLong(this.readU32()) >>> 2;
+            default:
+                int length = (first >>> 2) + 4;
+
+                if (length > 8) {
+                    throw new ScaleException("Cannot decode a compact integer of " + length + " bytes as a long");
+                }
+
+                this.ensure(length);
+                long value = 0L;
+
+                for (int nth = 0; nth < length; nth++) {
+                    value |= (this.buffer.get() & 0xffL) << (8 * nth);
+                }
+
+                return value;
+        }
+    }
+
+    /**
+     * Read a compact integer that is a length or an index, i.e. up to
+     * `Integer.MAX_VALUE`.
+     */
+    public int readCompactInt() {
+        long value = this.readCompact();
+
+        if (value < 0L || value > Integer.MAX_VALUE) {
+            throw new ScaleException("Cannot decode " + Long.toUnsignedString(value) + " as an int");
+        }
+
+        return (int) value;
+    }
+
+    /**
+     * Read a compact integer up to 2^536 - 1, e.g. a `u128` balance.
+     */
+    public BigInteger readCompactBigInteger() {
+        int first = this.buffer.hasRemaining() ? this.buffer.get(this.buffer.position()) & 0xff : -1;
+
+        if ((first & 0b11) != 0b11 || (first >>> 2) + 4 <= 8) {
+            return new BigInteger(Long.toUnsignedString(this.readCompact()));
+        }
+
+        int length = (this.readU8() >>> 2) + 4;
+        this.ensure(length);
+        byte[] bytes = new byte[length + 1];
+
+        // Big-endian, with a leading zero for the sign.
+        for (int nth = length; nth > 0; nth--) {
+            bytes[nth] = this.buffer.get();
+        }
+
+        return new BigInteger(bytes);
+    }
+
+    /**
+     * Read a byte array preceded by its compact length, i.e. a
+     * `Vec<u8>`, into a new array.
+     */
+    public byte[] readBytes() {
+        return this.readRaw(this.readCompactInt());
+    }
+
+    /**
+     * Read a byte array preceded by its compact length, i.e. a
+     * `Vec<u8>`, as a view of the underlying buffer: nothing is copied.
+     */
+    public ByteBuffer readByteBuffer() {
+        return this.readRawBuffer(this.readCompactInt());
+    }
+
+    /**
+     * Read `length` bytes with no length, i.e. a `[u8; N]`, into a new
+     * array.
+     */
+    public byte[] readRaw(int length) {
+        this.ensure(length);
+        byte[] bytes = new byte[length];
+        this.buffer.get(bytes);
+
+        return bytes;
+    }
+
+    /**
+     * Read `length` bytes with no length, i.e. a `[u8; N]`, as a view
+     * of the underlying buffer: nothing is copied.
+     */
+    public ByteBuffer readRawBuffer(int length) {
+        this.ensure(length);
+        ByteBuffer bytes = this.buffer.slice();
+        bytes.limit(length);
+        this.buffer.position(this.buffer.position() + length);
+
+        return bytes;
+    }
+
+    /**
+     * Read a UTF-8 string preceded by its compact length.
+     */
+    public String readString() {
+        return StandardCharsets.UTF_8.decode(this.readByteBuffer()).toString();
+    }
+
+    /**
+     * Read an `Option<T>`, decoding `Some` with `element`.
+     */
+    public <T> Optional<T> readOption(Function<ScaleReader, T> element) {
+        int tag = this.readU8();
+
+        switch (tag) {
+            case 0:
+                return Optional.empty();
+            case 1:
+                return Optional.of(element.apply(this));
+            default:
+                throw new ScaleException("Cannot decode " + tag + " as an option");
+        }
+    }
+
+    /**
+     * Read a `Vec<T>` into a new list, decoding each element with
+     * `element`.
+     */
+    public <T> List<T> readVector(Function<ScaleReader, T> element) {
+        int length = this.readCompactInt();
+        // Do not trust the length before the elements are read.
+        List<T> values = new ArrayList<>(Math.min(length, this.buffer.remaining()));
+
+        for (int nth = 0; nth < length; nth++) {
+            values.add(element.apply(this));
+        }
+
+        return values;
+    }
+
+    /**
+     * Read the compact length of a `Vec<T>`, then return an iterator
+     * decoding its elements with `element` as they are iterated. The
+     * elements must be iterated before anything else is read.
+     */
+    public <T> Iterator<T> vectorIterator(Function<ScaleReader, T> element) {
+        int length = this.readCompactInt();
+
+        return new Iterator<T>() {
+            private int left = length;
+
+            @Override
+            public boolean hasNext() {
+                return this.left > 0;
+            }
+
+            @Override
+            public T next() {
+                if (this.left == 0) {
+                    throw new NoSuchElementException();
+                }
+
+                this.left--;
+
+                return element.apply(ScaleReader.this);
+            }
+        };
+    }
+
+    private void ensure(int length) {
+        if (length < 0 || this.buffer.remaining() < length) {
+            throw new ScaleException("Cannot read " + length + " bytes at " + this.buffer.position() + ", only " + this.buffer.remaining() + " are left");
+        }
+    }
+}
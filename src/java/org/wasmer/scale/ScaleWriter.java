@@ -0,0 +1,249 @@
+package org.wasmer.scale;
+
+import org.wasmer.Memory;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * `ScaleWriter` is a Java class that encodes values in the SCALE codec
+ * of Substrate, straight into a `ByteBuffer`, such as a view of the
+ * memory of an instance: the encoded bytes are not copied again.
+ *
+ * The values are written from the position of the buffer, which is
+ * advanced. `compactSize` and friends return the size of a value, to
+ * allocate the space it is written to first.
+ *
+ * Example:
+ * <pre>{@code
+ * int length = ScaleWriter.compactSize(block.length) + block.length;
+ * int pointer = allocator.alloc(length);
+ *
+ * ScaleWriter.at(memory, pointer).writeBytes(block);
+ * instance.exports.getExportedFunction("Core_execute_block").callI64(pointer, length);
+ * }</pre>
+ */
+public final class ScaleWriter {
+    private static final long MAX_SINGLE_BYTE = 1L << 6;
+    private static final long MAX_TWO_BYTES = 1L << 14;
+    private static final long MAX_FOUR_BYTES = 1L << 30;
+    private static final BigInteger MAX_COMPACT = BigInteger.ONE.shiftLeft(8 * 67);
+
+    private final ByteBuffer buffer;
+
+    /**
+     * Create a writer at the position of `buffer`. The buffer is not
+     * duplicated: its position follows the writes.
+     */
+    public ScaleWriter(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Create a writer at `offset` in `memory`.
+     *
+     * The view of the memory is taken once: do not write across a
+     * call that grows the memory.
+     */
+    public static ScaleWriter at(Memory memory, int offset) {
+        ByteBuffer buffer = memory.buffer();
+        buffer.position(offset);
+
+        return new ScaleWriter(buffer);
+    }
+
+    /**
+     * Return the size of the compact encoding of `value`, unsigned.
+     */
+    public static int compactSize(long value) {
+        if (Long.compareUnsigned(value, MAX_SINGLE_BYTE) < 0) {
+            return 1;
+        } else if (Long.compareUnsigned(value, MAX_TWO_BYTES) < 0) {
+            return 2;
+        } else if (Long.compareUnsigned(value, MAX_FOUR_BYTES) < 0) {
+            return 4;
+        }
+
+        return 1 + Math.max(4, (64 - Long.numberOfLeadingZeros(value) + 7) / 8);
+    }
+
+    /**
+     * Return the size of `bytes`, encoded with `writeBytes`.
+     */
+    public static int bytesSize(int length) {
+        return compactSize(length) + length;
+    }
+
+    /**
+     * Return the position of the next write.
+     */
+    public int position() {
+        return this.buffer.position();
+    }
+
+    public ScaleWriter writeU8(int value) {
+        this.ensure(1);
+        this.buffer.put((byte) value);
+
+        return this;
+    }
+
+    public ScaleWriter writeBool(boolean value) {
+        return this.writeU8(value ? 1 : 0);
+    }
+
+    public ScaleWriter writeU16(int value) {
+        this.ensure(2);
+        this.buffer.putShort((short) value);
+
+        return this;
+    }
+
+    public ScaleWriter writeU32(int value) {
+        this.ensure(4);
+        this.buffer.putInt(value);
+
+        return this;
+    }
+
+    public ScaleWriter writeU64(long value) {
+        this.ensure(8);
+        this.buffer.putLong(value);
+
+        return this;
+    }
+
+    /**
+     * Write the compact encoding of `value`, unsigned.
+     */
+    public ScaleWriter writeCompact(long value) {
+        int size = compactSize(value);
+        this.ensure(size);
+
+        switch (size) {
+            case 1:
+                this.buffer.put((byte) (value << 2));
+                break;
+            case 2:
+                this.buffer.putShort((short) ((value << 2) | 0b01));
+                break;
+            case 4:
+                this.buffer.putInt((int) ((value << 2) | 0b10));
+                break;
+            default:
+                this.buffer.put((byte) (((size - 5) << 2) | 0b11));
+
+                for (int nth = 0; nth < size - 1; nth++) {
+                    this.buffer.put((byte) (value >>> (8 * nth)));
+                }
+        }
+
+        return this;
+    }
+
+    /**
+     * Write the compact encoding of `value`, up to 2^536 - 1, e.g. a
+     * `u128` balance.
+     */
+    public ScaleWriter writeCompact(BigInteger value) {
+        if (value.signum() < 0 || value.compareTo(MAX_COMPACT) >= 0) {
+            throw new ScaleException("Cannot encode " + value + " as a compact integer");
+        }
+
+        if (value.bitLength() < 64) {
+            return this.writeCompact(value.longValue());
+        }
+
+        int length = Math.max(4, (value.bitLength() + 7) / 8);
+        this.ensure(1 + length);
+        this.buffer.put((byte) (((length - 4) << 2) | 0b11));
+
+        for (int nth = 0; nth < length; nth++) {
+            this.buffer.put(value.shiftRight(8 * nth).byteValue());
+        }
+
+        return this;
+    }
+
+    /**
+     * Write `bytes`, preceded by their compact length, i.e. a `Vec<u8>`.
+     */
+    public ScaleWriter writeBytes(byte[] bytes) {
+        return this.writeCompact(bytes.length).writeRaw(bytes);
+    }
+
+    /**
+     * Write the remaining bytes of `bytes`, preceded by their compact
+     * length, i.e. a `Vec<u8>`. The position of `bytes` is advanced.
+     */
+    public ScaleWriter writeBytes(ByteBuffer bytes) {
+        return this.writeCompact(bytes.remaining()).writeRaw(bytes);
+    }
+
+    /**
+     * Write `bytes` with no length, i.e. a `[u8; N]`.
+     */
+    public ScaleWriter writeRaw(byte[] bytes) {
+        this.ensure(bytes.length);
+        this.buffer.put(bytes);
+
+        return this;
+    }
+
+    /**
+     * Write the remaining bytes of `bytes` with no length, i.e. a
+     * `[u8; N]`. The position of `bytes` is advanced.
+     */
+    public ScaleWriter writeRaw(ByteBuffer bytes) {
+        this.ensure(bytes.remaining());
+        this.buffer.put(bytes);
+
+        return this;
+    }
+
+    /**
+     * Write `string` in UTF-8, preceded by its compact length.
+     */
+    public ScaleWriter writeString(String string) {
+        return this.writeBytes(string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write `None` if `value` is `null`, or `Some` and `value` with
+     * `element` otherwise.
+     */
+    public <T> ScaleWriter writeOption(T value, BiConsumer<ScaleWriter, T> element) {
+        if (value == null) {
+            return this.writeU8(0);
+        }
+
+        this.writeU8(1);
+        element.accept(this, value);
+
+        return this;
+    }
+
+    /**
+     * Write the compact length of `values`, then each of them with
+     * `element`, i.e. a `Vec<T>`.
+     */
+    public <T> ScaleWriter writeVector(List<T> values, BiConsumer<ScaleWriter, T> element) {
+        this.writeCompact(values.size());
+
+        for (T value : values) {
+            element.accept(this, value);
+        }
+
+        return this;
+    }
+
+    private void ensure(int length) {
+        if (this.buffer.remaining() < length) {
+            throw new ScaleException("Cannot write " + length + " bytes at " + this.buffer.position() + ", only " + this.buffer.remaining() + " are left");
+        }
+    }
+}
@@ -1,8 +1,18 @@
+mod allocator;
+mod engine;
 mod exception;
+mod ffi;
+mod function;
+mod global;
+mod hashing;
+mod host_function;
 mod instance;
 mod memory;
+mod metering;
 mod module;
+mod snapshot;
 mod types;
 mod value;
 mod imports;
+mod interpreter;
 mod util;
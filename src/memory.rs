@@ -4,20 +4,16 @@ use crate::{
 };
 use jni::{
     objects::{JClass, JObject},
-    sys::jint,
+    sys::{jint, jlong, jobject},
     JNIEnv,
 };
-use std::{cell::Cell, panic, slice};
-use std::sync::{Arc, Mutex};
-use wasmer::MemoryView;
+use std::{cell::Cell, mem, panic, slice};
+use std::sync::Arc;
+use wasmer::vm::Memory as _;
+use wasmer::{Export, Exportable, MemoryView};
 use wasmer::Pages;
 use wasmer::Memory as WasmMemory;
 
-/// A static variable holding the imported memory if there's such
-///
-/// Note that `Memory` here refers to the local struct and not `wasmer::Memory`
-pub static IMPORTED_MEMORY: Mutex<Option<Memory>> = Mutex::new(None);
-
 #[derive(Clone)]
 pub struct Memory {
     pub memory: Arc<WasmMemory>,
@@ -34,15 +30,54 @@ impl Memory {
             .map(|previous_pages| previous_pages.0)
             .map_err(|e| runtime_error(format!("Failed to grow the memory: {}", e)))
     }
+
+    /// Return the current length of the memory data, as stored by
+    /// wasmer: it is updated in place by every grow, be it through
+    /// `Memory.grow` or through a `memory.grow` instruction, so Java
+    /// reads it without a call, see `org.wasmer.Memory.currentSize`.
+    pub fn length_cell(&self) -> &mut [u8] {
+        let definition = match self.memory.to_export() {
+            Export::Memory(memory) => memory.from.vmmemory(),
+            _ => unreachable!("A memory is exported as a memory"),
+        };
+
+        unsafe {
+            let length = &mut (*definition.as_ptr()).current_length;
+
+            slice::from_raw_parts_mut(length as *mut _ as *mut u8, mem::size_of_val(length))
+        }
+    }
+
+    /// Copy `length` bytes from `source` to `destination`, which may
+    /// overlap, like `memory.copy`.
+    pub fn copy_within(&self, source: u32, destination: u32, length: u32) -> Result<(), Error> {
+        let data = unsafe { self.memory.data_unchecked_mut() };
+        let (source, destination, length) = (source as usize, destination as usize, length as usize);
+
+        if source.checked_add(length).map_or(true, |end| end > data.len())
+            || destination.checked_add(length).map_or(true, |end| end > data.len())
+        {
+            return Err(runtime_error(format!(
+                "Out of bounds copy of {} bytes from {} to {} in a memory of {} bytes",
+                length,
+                source,
+                destination,
+                data.len()
+            )));
+        }
+
+        data.copy_within(source..source + length, destination);
+
+        Ok(())
+    }
 }
 
 #[no_mangle]
 pub extern "system" fn Java_org_wasmer_Memory_nativeMemoryView(
     env: JNIEnv,
     _class: JClass,
-    memory_object: JObject,
     memory_pointer: jptr,
-) {
+) -> jobject {
     let output = panic::catch_unwind(|| {
         let memory: &Memory = Into::<Pointer<Memory>>::into(memory_pointer).borrow();
         let view: MemoryView<u8> = memory.memory.view();
@@ -54,26 +89,47 @@ pub extern "system" fn Java_org_wasmer_Memory_nativeMemoryView(
         // borrowing the data from the WebAssembly memory.
         let byte_buffer = env.new_direct_byte_buffer(data)?;
 
-        // Try to rewrite the `org.wasmer.Memory.buffer` attribute by
-        // calling the `org.wasmer.Memory.setBuffer` method.
-        env.call_method(
-            memory_object,
-            "setBuffer",
-            "(Ljava/nio/ByteBuffer;)V",
-            &[JObject::from(byte_buffer).into()],
-        )?;
+        Ok(JObject::from(byte_buffer).into_inner())
+    });
 
-        Ok(())
+    joption_or_throw(&env, output).unwrap_or(JObject::null().into_inner())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Memory_nativeDataSize(
+    env: JNIEnv,
+    _class: JClass,
+    memory_pointer: jptr,
+) -> jlong {
+    let output = panic::catch_unwind(|| {
+        let memory: &Memory = Into::<Pointer<Memory>>::into(memory_pointer).borrow();
+
+        Ok(memory.memory.data_size() as jlong)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Memory_nativeSizeCell(
+    env: JNIEnv,
+    _class: JClass,
+    memory_pointer: jptr,
+) -> jobject {
+    let output = panic::catch_unwind(|| {
+        let memory: &Memory = Into::<Pointer<Memory>>::into(memory_pointer).borrow();
+        let byte_buffer = env.new_direct_byte_buffer(memory.length_cell())?;
+
+        Ok(JObject::from(byte_buffer).into_inner())
     });
 
-    joption_or_throw(&env, output);
+    joption_or_throw(&env, output).unwrap_or(JObject::null().into_inner())
 }
 
 #[no_mangle]
 pub extern "system" fn Java_org_wasmer_Memory_nativeMemoryGrow(
     env: JNIEnv,
     _class: JClass,
-    memory_object: JObject,
     memory_pointer: jptr,
     number_of_pages: jint,
 ) -> jint {
@@ -81,32 +137,57 @@ pub extern "system" fn Java_org_wasmer_Memory_nativeMemoryGrow(
         let memory: &Memory = Into::<Pointer<Memory>>::into(memory_pointer).borrow();
         let old_pages = memory.grow(number_of_pages as u32)?;
 
-        let view: MemoryView<u8> = memory.memory.view();
-        let data = unsafe {
-            std::slice::from_raw_parts_mut(
-                view[..].as_ptr() as *mut Cell<u8> as *mut u8,
-                view.len(),
-            )
-        };
-        // Create a new `JByteBuffer`, aka `java.nio.ByteBuffer`,
-        // borrowing the data from the WebAssembly memory.
-        let byte_buffer = env.new_direct_byte_buffer(data)?;
+        Ok(old_pages as i32)
+    });
 
-        // Try to rewrite the `org.wasmer.Memory.buffer` attribute by
-        // calling the `org.wasmer.Memory.setBuffer` method.
-        env.call_method(
-            memory_object,
-            "setBuffer",
-            "(Ljava/nio/ByteBuffer;)V",
-            &[JObject::from(byte_buffer).into()],
-        )?;
+    joption_or_throw(&env, output).unwrap_or(0)
+}
 
-        Ok(old_pages as i32)
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Memory_nativeCopyWithin(
+    env: JNIEnv,
+    _class: JClass,
+    memory_pointer: jptr,
+    source: jint,
+    destination: jint,
+    length: jint,
+) {
+    let output = panic::catch_unwind(|| {
+        let memory: &Memory = Into::<Pointer<Memory>>::into(memory_pointer).borrow();
+
+        memory.copy_within(source as u32, destination as u32, length as u32)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Memory_nativeRetain(
+    env: JNIEnv,
+    _class: JClass,
+    memory_pointer: jptr,
+) -> jptr {
+    let output = panic::catch_unwind(|| {
+        let memory: &Memory = Into::<Pointer<Memory>>::into(memory_pointer).borrow();
+
+        // Another handle on the same memory, which keeps it mapped
+        // while a view of it is reachable. It is dropped by
+        // `Java_org_wasmer_Memory_nativeDrop`.
+        Ok(Pointer::new(memory.clone()).into())
     });
 
     joption_or_throw(&env, output).unwrap_or(0)
 }
 
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Memory_nativeDrop(
+    _env: JNIEnv,
+    _class: JClass,
+    memory_pointer: jptr,
+) {
+    let _: Pointer<Memory> = memory_pointer.into();
+}
+
 pub mod java {
     use crate::{
         exception::Error,
@@ -114,12 +195,11 @@ pub mod java {
         types::{jptr, Pointer},
     };
     use jni::{objects::JObject, JNIEnv};
-    use crate::memory::IMPORTED_MEMORY;
 
-    pub fn initialize_memories(env: &JNIEnv, instance: &Instance) -> Result<(), Error> {
+    pub fn initialize_memories(env: &JNIEnv, java_instance: JObject, instance: &Instance) -> Result<(), Error> {
         let exports_object: JObject = env
             .get_field(
-                instance.java_instance_object.as_obj(),
+                java_instance,
                 "exports",
                 "Lorg/wasmer/Exports;",
             )?
@@ -127,34 +207,12 @@ pub mod java {
 
         // Get the `org.wasmer.Memory` class.
         let memory_class = env.find_class("org/wasmer/Memory")?;
-        let memory_lock = IMPORTED_MEMORY.lock().unwrap();
-        if memory_lock.is_some() {
-            let memory_object = env.new_object(memory_class, "()V", &[])?;
-
-            // Try to set the memory pointer to the field `org.wasmer.Memory.memoryPointer`.
-            let memory_pointer: jptr = Pointer::new(memory_lock.clone().unwrap()).into();
-            env.set_field(memory_object, "memoryPointer", "J", memory_pointer.into())?;
-
-            // Add the newly created `org.wasmer.Memory` in the
-            // `org.wasmer.Exports` collection.
-            env.call_method(
-                exports_object,
-                "addMemory",
-                "(Ljava/lang/String;Lorg/wasmer/Memory;)V",
-                &[
-                    JObject::from(env.new_string("memory")?).into(),
-                    memory_object.into(),
-                ],
-            )?;
-        }
 
         for (memory_name, memory) in &instance.memories {
-            // Instantiate the `Memory` class.
-            let memory_object = env.new_object(memory_class, "()V", &[])?;
-
-            // Try to set the memory pointer to the field `org.wasmer.Memory.memoryPointer`.
+            // Instantiate the `Memory` class, which owns the memory
+            // pointer, see `Java_org_wasmer_Memory_nativeDrop`.
             let memory_pointer: jptr = Pointer::new(memory.clone()).into();
-            env.set_field(memory_object, "memoryPointer", "J", memory_pointer.into())?;
+            let memory_object = env.new_object(memory_class, "(JZ)V", &[memory_pointer.into(), false.into()])?;
 
             // Add the newly created `org.wasmer.Memory` in the
             // `org.wasmer.Exports` collection.
@@ -0,0 +1,384 @@
+//! Metered modules, whose instances stop with an `OutOfFuelException`
+//! once they have spent their points, see `org.wasmer.Metering`.
+
+use crate::{
+    engine::{compiler_config, Engine},
+    exception::{joption_or_throw, runtime_error, Error},
+    instance::Instance,
+    types::{jptr, Pointer},
+};
+use jni::{
+    objects::{JClass, JObject},
+    sys::{jlong, jlongArray, jobjectArray},
+    JNIEnv,
+};
+use std::{
+    collections::HashMap,
+    fmt::{self, Write},
+    panic,
+    sync::Arc,
+};
+use wasmer::{wasmparser::Operator, Instance as WasmInstance, Store};
+use wasmer_engine_universal::Universal as UniversalEngine;
+use wasmer_middlewares::{
+    metering::{get_remaining_points, set_remaining_points, MeteringPoints},
+    Metering,
+};
+
+/// The global the metering middleware exports from every metered
+/// instance.
+const REMAINING_POINTS_GLOBAL: &str = "wasmer_metering_remaining_points";
+
+/// The cost of the operators, by name, such as `Call` or `I64DivU`.
+struct Costs {
+    default_cost: u64,
+    costs: HashMap<String, u64>,
+}
+
+impl Costs {
+    fn cost(&self, operator: &Operator) -> u64 {
+        if self.costs.is_empty() {
+            return self.default_cost;
+        }
+
+        let cost = match operator_name(operator) {
+            Some(name) => self.costs.get(name),
+            None => {
+                let mut name = VariantName { name: [0; 48], length: 0 };
+                let _ = write!(name, "{:?}", operator);
+
+                std::str::from_utf8(&name.name[..name.length])
+                    .ok()
+                    .and_then(|name| self.costs.get(name))
+            }
+        };
+
+        cost.copied().unwrap_or(self.default_cost)
+    }
+}
+
+/// Return the name of `operator`, the name of its variant, without
+/// formatting it: `BrTable` alone would print its whole table. The
+/// SIMD, atomic and exception operators are not listed, see
+/// `VariantName`.
+fn operator_name(operator: &Operator) -> Option<&'static str> {
+    Some(match operator {
+        Operator::Unreachable { .. } => "Unreachable",
+        Operator::Nop { .. } => "Nop",
+        Operator::Block { .. } => "Block",
+        Operator::Loop { .. } => "Loop",
+        Operator::If { .. } => "If",
+        Operator::Else { .. } => "Else",
+        Operator::End { .. } => "End",
+        Operator::Br { .. } => "Br",
+        Operator::BrIf { .. } => "BrIf",
+        Operator::BrTable { .. } => "BrTable",
+        Operator::Return { .. } => "Return",
+        Operator::Call { .. } => "Call",
+        Operator::CallIndirect { .. } => "CallIndirect",
+        Operator::ReturnCall { .. } => "ReturnCall",
+        Operator::ReturnCallIndirect { .. } => "ReturnCallIndirect",
+        Operator::Drop { .. } => "Drop",
+        Operator::Select { .. } => "Select",
+        Operator::TypedSelect { .. } => "TypedSelect",
+        Operator::LocalGet { .. } => "LocalGet",
+        Operator::LocalSet { .. } => "LocalSet",
+        Operator::LocalTee { .. } => "LocalTee",
+        Operator::GlobalGet { .. } => "GlobalGet",
+        Operator::GlobalSet { .. } => "GlobalSet",
+        Operator::I32Load { .. } => "I32Load",
+        Operator::I64Load { .. } => "I64Load",
+        Operator::F32Load { .. } => "F32Load",
+        Operator::F64Load { .. } => "F64Load",
+        Operator::I32Load8S { .. } => "I32Load8S",
+        Operator::I32Load8U { .. } => "I32Load8U",
+        Operator::I32Load16S { .. } => "I32Load16S",
+        Operator::I32Load16U { .. } => "I32Load16U",
+        Operator::I64Load8S { .. } => "I64Load8S",
+        Operator::I64Load8U { .. } => "I64Load8U",
+        Operator::I64Load16S { .. } => "I64Load16S",
+        Operator::I64Load16U { .. } => "I64Load16U",
+        Operator::I64Load32S { .. } => "I64Load32S",
+        Operator::I64Load32U { .. } => "I64Load32U",
+        Operator::I32Store { .. } => "I32Store",
+        Operator::I64Store { .. } => "I64Store",
+        Operator::F32Store { .. } => "F32Store",
+        Operator::F64Store { .. } => "F64Store",
+        Operator::I32Store8 { .. } => "I32Store8",
+        Operator::I32Store16 { .. } => "I32Store16",
+        Operator::I64Store8 { .. } => "I64Store8",
+        Operator::I64Store16 { .. } => "I64Store16",
+        Operator::I64Store32 { .. } => "I64Store32",
+        Operator::MemorySize { .. } => "MemorySize",
+        Operator::MemoryGrow { .. } => "MemoryGrow",
+        Operator::I32Const { .. } => "I32Const",
+        Operator::I64Const { .. } => "I64Const",
+        Operator::F32Const { .. } => "F32Const",
+        Operator::F64Const { .. } => "F64Const",
+        Operator::RefNull { .. } => "RefNull",
+        Operator::RefIsNull { .. } => "RefIsNull",
+        Operator::RefFunc { .. } => "RefFunc",
+        Operator::I32Eqz { .. } => "I32Eqz",
+        Operator::I32Eq { .. } => "I32Eq",
+        Operator::I32Ne { .. } => "I32Ne",
+        Operator::I32LtS { .. } => "I32LtS",
+        Operator::I32LtU { .. } => "I32LtU",
+        Operator::I32GtS { .. } => "I32GtS",
+        Operator::I32GtU { .. } => "I32GtU",
+        Operator::I32LeS { .. } => "I32LeS",
+        Operator::I32LeU { .. } => "I32LeU",
+        Operator::I32GeS { .. } => "I32GeS",
+        Operator::I32GeU { .. } => "I32GeU",
+        Operator::I64Eqz { .. } => "I64Eqz",
+        Operator::I64Eq { .. } => "I64Eq",
+        Operator::I64Ne { .. } => "I64Ne",
+        Operator::I64LtS { .. } => "I64LtS",
+        Operator::I64LtU { .. } => "I64LtU",
+        Operator::I64GtS { .. } => "I64GtS",
+        Operator::I64GtU { .. } => "I64GtU",
+        Operator::I64LeS { .. } => "I64LeS",
+        Operator::I64LeU { .. } => "I64LeU",
+        Operator::I64GeS { .. } => "I64GeS",
+        Operator::I64GeU { .. } => "I64GeU",
+        Operator::F32Eq { .. } => "F32Eq",
+        Operator::F32Ne { .. } => "F32Ne",
+        Operator::F32Lt { .. } => "F32Lt",
+        Operator::F32Gt { .. } => "F32Gt",
+        Operator::F32Le { .. } => "F32Le",
+        Operator::F32Ge { .. } => "F32Ge",
+        Operator::F64Eq { .. } => "F64Eq",
+        Operator::F64Ne { .. } => "F64Ne",
+        Operator::F64Lt { .. } => "F64Lt",
+        Operator::F64Gt { .. } => "F64Gt",
+        Operator::F64Le { .. } => "F64Le",
+        Operator::F64Ge { .. } => "F64Ge",
+        Operator::I32Clz { .. } => "I32Clz",
+        Operator::I32Ctz { .. } => "I32Ctz",
+        Operator::I32Popcnt { .. } => "I32Popcnt",
+        Operator::I32Add { .. } => "I32Add",
+        Operator::I32Sub { .. } => "I32Sub",
+        Operator::I32Mul { .. } => "I32Mul",
+        Operator::I32DivS { .. } => "I32DivS",
+        Operator::I32DivU { .. } => "I32DivU",
+        Operator::I32RemS { .. } => "I32RemS",
+        Operator::I32RemU { .. } => "I32RemU",
+        Operator::I32And { .. } => "I32And",
+        Operator::I32Or { .. } => "I32Or",
+        Operator::I32Xor { .. } => "I32Xor",
+        Operator::I32Shl { .. } => "I32Shl",
+        Operator::I32ShrS { .. } => "I32ShrS",
+        Operator::I32ShrU { .. } => "I32ShrU",
+        Operator::I32Rotl { .. } => "I32Rotl",
+        Operator::I32Rotr { .. } => "I32Rotr",
+        Operator::I64Clz { .. } => "I64Clz",
+        Operator::I64Ctz { .. } => "I64Ctz",
+        Operator::I64Popcnt { .. } => "I64Popcnt",
+        Operator::I64Add { .. } => "I64Add",
+        Operator::I64Sub { .. } => "I64Sub",
+        Operator::I64Mul { .. } => "I64Mul",
+        Operator::I64DivS { .. } => "I64DivS",
+        Operator::I64DivU { .. } => "I64DivU",
+        Operator::I64RemS { .. } => "I64RemS",
+        Operator::I64RemU { .. } => "I64RemU",
+        Operator::I64And { .. } => "I64And",
+        Operator::I64Or { .. } => "I64Or",
+        Operator::I64Xor { .. } => "I64Xor",
+        Operator::I64Shl { .. } => "I64Shl",
+        Operator::I64ShrS { .. } => "I64ShrS",
+        Operator::I64ShrU { .. } => "I64ShrU",
+        Operator::I64Rotl { .. } => "I64Rotl",
+        Operator::I64Rotr { .. } => "I64Rotr",
+        Operator::F32Abs { .. } => "F32Abs",
+        Operator::F32Neg { .. } => "F32Neg",
+        Operator::F32Ceil { .. } => "F32Ceil",
+        Operator::F32Floor { .. } => "F32Floor",
+        Operator::F32Trunc { .. } => "F32Trunc",
+        Operator::F32Nearest { .. } => "F32Nearest",
+        Operator::F32Sqrt { .. } => "F32Sqrt",
+        Operator::F32Add { .. } => "F32Add",
+        Operator::F32Sub { .. } => "F32Sub",
+        Operator::F32Mul { .. } => "F32Mul",
+        Operator::F32Div { .. } => "F32Div",
+        Operator::F32Min { .. } => "F32Min",
+        Operator::F32Max { .. } => "F32Max",
+        Operator::F32Copysign { .. } => "F32Copysign",
+        Operator::F64Abs { .. } => "F64Abs",
+        Operator::F64Neg { .. } => "F64Neg",
+        Operator::F64Ceil { .. } => "F64Ceil",
+        Operator::F64Floor { .. } => "F64Floor",
+        Operator::F64Trunc { .. } => "F64Trunc",
+        Operator::F64Nearest { .. } => "F64Nearest",
+        Operator::F64Sqrt { .. } => "F64Sqrt",
+        Operator::F64Add { .. } => "F64Add",
+        Operator::F64Sub { .. } => "F64Sub",
+        Operator::F64Mul { .. } => "F64Mul",
+        Operator::F64Div { .. } => "F64Div",
+        Operator::F64Min { .. } => "F64Min",
+        Operator::F64Max { .. } => "F64Max",
+        Operator::F64Copysign { .. } => "F64Copysign",
+        Operator::I32WrapI64 { .. } => "I32WrapI64",
+        Operator::I32TruncF32S { .. } => "I32TruncF32S",
+        Operator::I32TruncF32U { .. } => "I32TruncF32U",
+        Operator::I32TruncF64S { .. } => "I32TruncF64S",
+        Operator::I32TruncF64U { .. } => "I32TruncF64U",
+        Operator::I64ExtendI32S { .. } => "I64ExtendI32S",
+        Operator::I64ExtendI32U { .. } => "I64ExtendI32U",
+        Operator::I64TruncF32S { .. } => "I64TruncF32S",
+        Operator::I64TruncF32U { .. } => "I64TruncF32U",
+        Operator::I64TruncF64S { .. } => "I64TruncF64S",
+        Operator::I64TruncF64U { .. } => "I64TruncF64U",
+        Operator::F32ConvertI32S { .. } => "F32ConvertI32S",
+        Operator::F32ConvertI32U { .. } => "F32ConvertI32U",
+        Operator::F32ConvertI64S { .. } => "F32ConvertI64S",
+        Operator::F32ConvertI64U { .. } => "F32ConvertI64U",
+        Operator::F32DemoteF64 { .. } => "F32DemoteF64",
+        Operator::F64ConvertI32S { .. } => "F64ConvertI32S",
+        Operator::F64ConvertI32U { .. } => "F64ConvertI32U",
+        Operator::F64ConvertI64S { .. } => "F64ConvertI64S",
+        Operator::F64ConvertI64U { .. } => "F64ConvertI64U",
+        Operator::F64PromoteF32 { .. } => "F64PromoteF32",
+        Operator::I32ReinterpretF32 { .. } => "I32ReinterpretF32",
+        Operator::I64ReinterpretF64 { .. } => "I64ReinterpretF64",
+        Operator::F32ReinterpretI32 { .. } => "F32ReinterpretI32",
+        Operator::F64ReinterpretI64 { .. } => "F64ReinterpretI64",
+        Operator::I32Extend8S { .. } => "I32Extend8S",
+        Operator::I32Extend16S { .. } => "I32Extend16S",
+        Operator::I64Extend8S { .. } => "I64Extend8S",
+        Operator::I64Extend16S { .. } => "I64Extend16S",
+        Operator::I64Extend32S { .. } => "I64Extend32S",
+        Operator::I32TruncSatF32S { .. } => "I32TruncSatF32S",
+        Operator::I32TruncSatF32U { .. } => "I32TruncSatF32U",
+        Operator::I32TruncSatF64S { .. } => "I32TruncSatF64S",
+        Operator::I32TruncSatF64U { .. } => "I32TruncSatF64U",
+        Operator::I64TruncSatF32S { .. } => "I64TruncSatF32S",
+        Operator::I64TruncSatF32U { .. } => "I64TruncSatF32U",
+        Operator::I64TruncSatF64S { .. } => "I64TruncSatF64S",
+        Operator::I64TruncSatF64U { .. } => "I64TruncSatF64U",
+        Operator::MemoryInit { .. } => "MemoryInit",
+        Operator::DataDrop { .. } => "DataDrop",
+        Operator::MemoryCopy { .. } => "MemoryCopy",
+        Operator::MemoryFill { .. } => "MemoryFill",
+        Operator::TableInit { .. } => "TableInit",
+        Operator::ElemDrop { .. } => "ElemDrop",
+        Operator::TableCopy { .. } => "TableCopy",
+        Operator::TableFill { .. } => "TableFill",
+        Operator::TableGet { .. } => "TableGet",
+        Operator::TableSet { .. } => "TableSet",
+        Operator::TableGrow { .. } => "TableGrow",
+        Operator::TableSize { .. } => "TableSize",
+        _ => return None,
+    })
+}
+
+/// Receives the `Debug` output of an operator `operator_name` does not
+/// list, and fails at the first character after the variant name, so
+/// the immediates are never formatted.
+struct VariantName {
+    name: [u8; 48],
+    length: usize,
+}
+
+impl fmt::Write for VariantName {
+    fn write_str(&mut self, output: &str) -> fmt::Result {
+        for byte in output.bytes() {
+            if !byte.is_ascii_alphanumeric() || self.length == self.name.len() {
+                return Err(fmt::Error);
+            }
+
+            self.name[self.length] = byte;
+            self.length += 1;
+        }
+
+        Ok(())
+    }
+}
+
+/// Create a store compiling with the compiler of `engine`, and the
+/// metering middleware. The cost function is applied at compile
+/// time, so the costs do not slow the calls down.
+pub fn metered_store(
+    engine: &Engine,
+    initial_points: u64,
+    default_cost: u64,
+    costs: HashMap<String, u64>,
+) -> Result<Store, Error> {
+    let (mut config, _) = compiler_config(engine.compiler, engine.opt_level)?;
+    let costs = Costs { default_cost, costs };
+    let metering = Metering::new(initial_points, move |operator: &Operator| costs.cost(operator));
+    config.push_middleware(Arc::new(metering));
+
+    Ok(Store::new(&UniversalEngine::new(config).engine()))
+}
+
+pub fn is_metered(instance: &WasmInstance) -> bool {
+    instance.exports.get_global(REMAINING_POINTS_GLOBAL).is_ok()
+}
+
+/// Return true if, and only if, `instance` is metered and has spent
+/// all its points.
+pub fn is_exhausted(instance: &WasmInstance) -> bool {
+    is_metered(instance) && matches!(get_remaining_points(instance), MeteringPoints::Exhausted)
+}
+
+fn metered_instance(instance: &Instance) -> Result<&WasmInstance, Error> {
+    if !is_metered(&instance.instance) {
+        return Err(runtime_error(format!(
+            "The instance is not metered, see `org.wasmer.Metering`"
+        )));
+    }
+
+    Ok(&instance.instance)
+}
+
+pub fn read_costs(env: &JNIEnv, operators: jobjectArray, costs: jlongArray) -> Result<HashMap<String, u64>, Error> {
+    let length = env.get_array_length(operators)?;
+    let mut values = vec![0; length as usize];
+    env.get_long_array_region(costs, 0, &mut values)?;
+
+    let mut result = HashMap::new();
+
+    for (nth, cost) in values.into_iter().enumerate() {
+        let operator: JObject = env.get_object_array_element(operators, nth as i32)?;
+        let operator: String = env.get_string(operator.into())?.into();
+
+        result.insert(operator, cost as u64);
+    }
+
+    Ok(result)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Instance_nativeSetRemainingPoints(
+    env: JNIEnv,
+    _class: JClass,
+    instance_pointer: jptr,
+    points: jlong,
+) {
+    let output = panic::catch_unwind(|| {
+        let instance: &Instance = Into::<Pointer<Instance>>::into(instance_pointer).borrow();
+
+        set_remaining_points(metered_instance(instance)?, points as u64);
+
+        Ok(())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Instance_nativeGetRemainingPoints(
+    env: JNIEnv,
+    _class: JClass,
+    instance_pointer: jptr,
+) -> jlong {
+    let output = panic::catch_unwind(|| {
+        let instance: &Instance = Into::<Pointer<Instance>>::into(instance_pointer).borrow();
+
+        match get_remaining_points(metered_instance(instance)?) {
+            MeteringPoints::Remaining(points) => Ok(points as jlong),
+            MeteringPoints::Exhausted => Ok(0),
+        }
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
@@ -1,38 +1,32 @@
 use crate::{
-    exception::{joption_or_throw, runtime_error, Error},
+    engine::Engine,
+    exception::{instantiation_error, joption_or_throw, runtime_error, Error},
     instance::Instance,
     memory::Memory,
+    metering::{metered_store, read_costs},
     types::{jptr, Pointer},
     imports::Imports,
 };
 use jni::{
-    objects::{GlobalRef, JClass, JObject},
-    sys::{jboolean, jbyteArray},
+    objects::{JByteBuffer, JClass, JObject, JString},
+    sys::{jboolean, jbyteArray, jlong, jlongArray, jobjectArray},
     JNIEnv,
 };
-use std::{collections::HashMap, panic, rc::Rc};
+use std::{collections::HashMap, panic};
 use std::sync::Arc;
 use wasmer::{self as runtime, Extern, Engine as _};
-use wasmer_compiler_cranelift::Cranelift;
-use wasmer_engine_universal::Universal as UniversalEngine;
 
 pub struct Module {
-    #[allow(unused)]
-    java_module_object: GlobalRef,
     pub(crate) module: runtime::Module,
 }
 
 impl Module {
-    fn new(java_module_object: GlobalRef, module_bytes: Vec<u8>) -> Result<Self, Error> {
-        let store = runtime::Store::new(&UniversalEngine::new(Cranelift::default()).engine());
+    fn new(store: &runtime::Store, module_bytes: Vec<u8>) -> Result<Self, Error> {
         let module_bytes = module_bytes.as_slice();
-        let module = runtime::Module::new(&store, module_bytes)
-            .map_err(|e| runtime_error(format!("Failed to compile the module: {:?}", e)))?;
+        let module = runtime::Module::new(store, module_bytes)
+            .map_err(|e| Error::Compile(format!("Failed to compile the module: {:?}", e)))?;
 
-        Ok(Self {
-            java_module_object,
-            module,
-        })
+        Ok(Self { module })
     }
 
     fn serialize(&self) -> Result<Vec<u8>, Error> {
@@ -46,20 +40,19 @@ impl Module {
         }
     }
 
-    fn deserialize(
-        java_module_object: GlobalRef,
-        serialized_module: Vec<u8>,
-    ) -> Result<Self, Error> {
-        let store = runtime::Store::new(&UniversalEngine::new(Cranelift::default()).engine());
-        let module = match unsafe { runtime::Module::deserialize(&store, serialized_module.as_slice()) } {
+    fn serialize_to_file(&self, path: &str) -> Result<(), Error> {
+        self.module.serialize_to_file(path).map_err(|e| {
+            runtime_error(format!("Failed to serialize the module artifact: {}", e))
+        })
+    }
+
+    fn deserialize(engine: &Engine, serialized_module: &[u8]) -> Result<Self, Error> {
+        let module = match unsafe { runtime::Module::deserialize(&engine.store, serialized_module) } {
             Ok(module) => module,
             Err(_) => return Err(runtime_error(format!("Failed to deserialize the module."))),
         };
 
-        Ok(Self {
-            java_module_object,
-            module,
-        })
+        Ok(Self { module })
     }
 }
 
@@ -67,14 +60,14 @@ impl Module {
 pub extern "system" fn Java_org_wasmer_Module_nativeModuleInstantiate(
     env: JNIEnv,
     _class: JClass,
-    this: JObject,
+    engine_pointer: jptr,
     module_bytes: jbyteArray,
 ) -> jptr {
     let output = panic::catch_unwind(|| {
         let module_bytes = env.convert_byte_array(module_bytes)?;
-        let java_module = env.new_global_ref(this)?;
+        let engine: &Engine = Into::<Pointer<Engine>>::into(engine_pointer).borrow();
 
-        let module = Module::new(java_module, module_bytes)?;
+        let module = Module::new(&engine.store, module_bytes)?;
 
         Ok(Pointer::new(module).into())
     });
@@ -82,6 +75,55 @@ pub extern "system" fn Java_org_wasmer_Module_nativeModuleInstantiate(
     joption_or_throw(&env, output).unwrap_or(0)
 }
 
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Module_nativeModuleInstantiateMetered(
+    env: JNIEnv,
+    _class: JClass,
+    engine_pointer: jptr,
+    module_bytes: jbyteArray,
+    initial_points: jlong,
+    default_cost: jlong,
+    operators: jobjectArray,
+    costs: jlongArray,
+) -> jptr {
+    let output = panic::catch_unwind(|| {
+        let module_bytes = env.convert_byte_array(module_bytes)?;
+        let engine: &Engine = Into::<Pointer<Engine>>::into(engine_pointer).borrow();
+        let costs = read_costs(&env, operators, costs)?;
+        let store = metered_store(engine, initial_points as u64, default_cost as u64, costs)?;
+
+        let module = Module::new(&store, module_bytes)?;
+
+        Ok(Pointer::new(module).into())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+/// Return the size of the machine code of a compiled module: the
+/// bodies of its local functions, without the trampolines.
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Module_nativeCodeBytes(
+    env: JNIEnv,
+    _class: JClass,
+    module_pointer: jptr,
+) -> jlong {
+    let output = panic::catch_unwind(|| {
+        let module: &Module = Into::<Pointer<Module>>::into(module_pointer).borrow();
+        let code_bytes: usize = module
+            .module
+            .artifact()
+            .finished_functions()
+            .values()
+            .map(|function| unsafe { (*function.0).len() })
+            .sum();
+
+        Ok(code_bytes as jlong)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
 #[no_mangle]
 pub extern "system" fn Java_org_wasmer_Module_nativeDrop(
     _env: JNIEnv,
@@ -96,29 +138,25 @@ pub extern "system" fn Java_org_wasmer_Module_nativeInstantiate(
     env: JNIEnv,
     _class: JClass,
     module_pointer: jptr,
-    instance_object: JObject,
     imports: jptr,
 ) -> jptr {
     let output = panic::catch_unwind(|| {
-        let java_instance_object = env.new_global_ref(instance_object)?;
-
         let module: &Module = Into::<Pointer<Module>>::into(module_pointer).borrow();
         let imports: &Imports = Into::<Pointer<Imports>>::into(imports).borrow();
-        let instance = runtime::Instance::new(&module.module, &imports.import_object).map_err(|e| {
-            runtime_error(format!("Failed to instantiate a WebAssembly module: {}", e))
-        })?;
-        let memories: HashMap<String, Memory> = instance
+        let instance = runtime::Instance::new(&module.module, &imports.import_object).map_err(instantiation_error)?;
+        // Imported memories belong to the imports the instance has
+        // been created with; exported memories come from the instance.
+        let mut memories: HashMap<String, Memory> = imports.memories.clone();
+        memories.extend(instance
             .exports
             .iter()
             .filter_map(|(export_name, export)| match export {
                 Extern::Memory(memory) => Some((export_name.to_string(), Memory::new(Arc::new(memory.clone())))),
                 _ => None,
-            })
-            .collect();
+            }));
 
         Ok(Pointer::new(Instance {
-            java_instance_object,
-            instance: Rc::new(instance),
+            instance: Arc::new(instance),
             memories,
         })
         .into())
@@ -131,11 +169,13 @@ pub extern "system" fn Java_org_wasmer_Module_nativeInstantiate(
 pub extern "system" fn Java_org_wasmer_Module_nativeValidate(
     env: JNIEnv,
     _class: JClass,
+    engine_pointer: jptr,
     module_bytes: jbyteArray,
 ) -> jboolean {
     let output = panic::catch_unwind(|| {
         let module_bytes = env.convert_byte_array(module_bytes)?;
-        match UniversalEngine::new(Cranelift::default()).engine().validate(module_bytes.as_slice()) {
+        let engine: &Engine = Into::<Pointer<Engine>>::into(engine_pointer).borrow();
+        match engine.store.engine().validate(module_bytes.as_slice()) {
             Ok(()) => Ok(1),
             Err(_) => Ok(0),
         }
@@ -164,13 +204,49 @@ pub extern "system" fn Java_org_wasmer_Module_nativeSerialize(
 pub extern "system" fn Java_org_wasmer_Module_nativeDeserialize(
     env: JNIEnv,
     _class: JClass,
-    java_module: JObject,
+    engine_pointer: jptr,
     java_serialized_module: jbyteArray,
 ) -> jptr {
     let output = panic::catch_unwind(|| {
-        let java_module_object = env.new_global_ref(java_module)?;
+        let engine: &Engine = Into::<Pointer<Engine>>::into(engine_pointer).borrow();
         let serialized_module = env.convert_byte_array(java_serialized_module)?;
-        let module = Module::deserialize(java_module_object, serialized_module)?;
+        let module = Module::deserialize(engine, serialized_module.as_slice())?;
+        Ok(Pointer::new(module).into())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Module_nativeSerializeToFile(
+    env: JNIEnv,
+    _class: JClass,
+    module_pointer: jptr,
+    path: JString,
+) {
+    let output = panic::catch_unwind(|| {
+        let module: &Module = Into::<Pointer<Module>>::into(module_pointer).borrow();
+        let path: String = env.get_string(path)?.into();
+        module.serialize_to_file(&path)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Module_nativeDeserializeBuffer(
+    env: JNIEnv,
+    _class: JClass,
+    engine_pointer: jptr,
+    java_serialized_module: JByteBuffer,
+) -> jptr {
+    let output = panic::catch_unwind(|| {
+        let engine: &Engine = Into::<Pointer<Engine>>::into(engine_pointer).borrow();
+        // The buffer is direct (typically a memory-mapped file), so
+        // the artifact is read in place, without a copy through the
+        // Java heap.
+        let serialized_module = env.get_direct_buffer_address(java_serialized_module)?;
+        let module = Module::deserialize(engine, serialized_module)?;
         Ok(Pointer::new(module).into())
     });
 
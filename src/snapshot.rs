@@ -0,0 +1,217 @@
+use crate::{
+    exception::{joption_or_throw, runtime_error, Error},
+    instance::Instance,
+    types::{jptr, Pointer},
+};
+use jni::{objects::JClass, JNIEnv};
+use std::{panic, ptr, sync::Arc};
+use wasmer::{Extern, Global, Instance as WasmInstance, Memory, Mutability, Value};
+
+/// The state of an instance: its linear memories and its exported
+/// mutable globals.
+///
+/// Memories are stored by chunks of one host page, and chunks that are
+/// all zeros are not stored at all. Restoring a run of zero chunks on
+/// Linux gives its pages back to the kernel with a single
+/// `madvise(MADV_DONTNEED)`, which costs nothing for the pages the call
+/// has not touched. A saved chunk is only copied back if it has changed.
+pub struct Snapshot {
+    instance: Arc<WasmInstance>,
+    memories: Vec<MemorySnapshot>,
+    globals: Vec<(Global, Value)>,
+}
+
+struct MemorySnapshot {
+    memory: Memory,
+    size: usize,
+    chunks: Vec<Option<Box<[u8]>>>,
+}
+
+impl Snapshot {
+    pub fn new(instance: &Instance) -> Result<Self, Error> {
+        let chunk_size = page_size();
+        let mut memories: Vec<MemorySnapshot> = Vec::new();
+
+        for memory in instance.memories.values() {
+            let memory = memory.memory.as_ref();
+
+            // The same memory can be both imported and exported.
+            if memories.iter().any(|snapshot| snapshot.memory.data_ptr() == memory.data_ptr()) {
+                continue;
+            }
+
+            let data = unsafe { memory.data_unchecked() };
+            let chunks = data
+                .chunks(chunk_size)
+                .map(|chunk| {
+                    if is_zero(chunk) {
+                        None
+                    } else {
+                        Some(chunk.to_vec().into_boxed_slice())
+                    }
+                })
+                .collect();
+
+            memories.push(MemorySnapshot {
+                memory: memory.clone(),
+                size: data.len(),
+                chunks,
+            });
+        }
+
+        let globals = instance
+            .instance
+            .exports
+            .iter()
+            .filter_map(|(_, export)| match export {
+                Extern::Global(global) if global.ty().mutability == Mutability::Var => {
+                    Some((global.clone(), global.get()))
+                }
+                _ => None,
+            })
+            .collect();
+
+        Ok(Self {
+            instance: instance.instance.clone(),
+            memories,
+            globals,
+        })
+    }
+
+    pub fn restore(&self, instance: &Instance) -> Result<(), Error> {
+        if !Arc::ptr_eq(&self.instance, &instance.instance) {
+            return Err(runtime_error(format!(
+                "The snapshot has been taken from another instance"
+            )));
+        }
+
+        let chunk_size = page_size();
+
+        for snapshot in &self.memories {
+            let data = unsafe { snapshot.memory.data_unchecked_mut() };
+            // The start of the current run of zero chunks.
+            let mut zeros: Option<usize> = None;
+
+            for (nth, saved) in snapshot.chunks.iter().enumerate() {
+                let start = nth * chunk_size;
+
+                match saved {
+                    None => {
+                        zeros.get_or_insert(start);
+                    }
+                    Some(saved) => {
+                        if let Some(from) = zeros.take() {
+                            zero(&mut data[from..start]);
+                        }
+
+                        // Comparing only reads the chunk: an unchanged
+                        // page is neither written nor dirtied.
+                        let chunk = &mut data[start..start + saved.len()];
+
+                        if chunk != &saved[..] {
+                            chunk.copy_from_slice(saved);
+                        }
+                    }
+                }
+            }
+
+            // Memory cannot shrink: pages grown since the snapshot are
+            // zeroed instead, along with the trailing run of zero chunks.
+            let from = zeros.unwrap_or(snapshot.size);
+
+            if data.len() > from {
+                zero(&mut data[from..]);
+            }
+        }
+
+        for (global, value) in &self.globals {
+            global
+                .set(value.clone())
+                .map_err(|e| runtime_error(format!("Failed to restore a global: {}", e)))?;
+        }
+
+        Ok(())
+    }
+}
+
+fn is_zero(data: &[u8]) -> bool {
+    data.iter().all(|byte| *byte == 0)
+}
+
+#[cfg(target_os = "linux")]
+fn page_size() -> usize {
+    unsafe { libc::sysconf(libc::_SC_PAGESIZE) as usize }
+}
+
+#[cfg(not(target_os = "linux"))]
+fn page_size() -> usize {
+    4096
+}
+
+/// Zero the given page-aligned data.
+#[cfg(target_os = "linux")]
+fn zero(data: &mut [u8]) {
+    // Linear memories are private anonymous mappings: once dropped, a
+    // page reads as zeros again, without being written.
+    let advised = unsafe {
+        libc::madvise(data.as_mut_ptr() as *mut libc::c_void, data.len(), libc::MADV_DONTNEED)
+    };
+
+    if advised != 0 {
+        unsafe { ptr::write_bytes(data.as_mut_ptr(), 0, data.len()) };
+    }
+}
+
+/// Zero the given data, leaving the pages that are already zeroed
+/// untouched, so they are not committed.
+#[cfg(not(target_os = "linux"))]
+fn zero(data: &mut [u8]) {
+    for chunk in data.chunks_mut(page_size()) {
+        if !is_zero(chunk) {
+            unsafe { ptr::write_bytes(chunk.as_mut_ptr(), 0, chunk.len()) };
+        }
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Instance_nativeSnapshot(
+    env: JNIEnv,
+    _class: JClass,
+    instance_pointer: jptr,
+) -> jptr {
+    let output = panic::catch_unwind(|| {
+        let instance: &Instance = Into::<Pointer<Instance>>::into(instance_pointer).borrow();
+        let snapshot = Snapshot::new(instance)?;
+
+        Ok(Pointer::new(snapshot).into())
+    });
+
+    joption_or_throw(&env, output).unwrap_or(0)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_Instance_nativeRestore(
+    env: JNIEnv,
+    _class: JClass,
+    instance_pointer: jptr,
+    snapshot_pointer: jptr,
+) {
+    let output = panic::catch_unwind(|| {
+        let instance: &Instance = Into::<Pointer<Instance>>::into(instance_pointer).borrow();
+        let snapshot: &Snapshot = Into::<Pointer<Snapshot>>::into(snapshot_pointer).borrow();
+
+        snapshot.restore(instance)
+    });
+
+    joption_or_throw(&env, output).unwrap_or(())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_org_wasmer_InstanceSnapshot_nativeDrop(
+    _env: JNIEnv,
+    _class: JClass,
+    snapshot_pointer: jptr,
+) {
+    let _: Pointer<Snapshot> = snapshot_pointer.into();
+}
+
@@ -1,7 +1,7 @@
 use crate::exception::{runtime_error, Error};
 use jni::{errors::Error as JNIError, objects::JObject, JNIEnv};
 use std::convert::TryFrom;
-use wasmer::Value as WasmValue;
+use wasmer::{Type, Value as WasmValue};
 
 /// Value wrapping the real WebAssembly value.
 pub struct Value(WasmValue);
@@ -43,3 +43,49 @@ impl TryFrom<(&JNIEnv<'_>, JObject<'_>)> for Value {
         ))
     }
 }
+
+/// Convert a type code of `org.wasmer.Type` to a WebAssembly type.
+pub fn type_from_code(code: i32) -> Result<Type, Error> {
+    match code {
+        1 => Ok(Type::I32),
+        2 => Ok(Type::I64),
+        3 => Ok(Type::F32),
+        4 => Ok(Type::F64),
+        _ => Err(runtime_error(format!("Unknown type code {}", code))),
+    }
+}
+
+/// Convert a WebAssembly type to a type code of `org.wasmer.Type`.
+pub fn type_to_code(ty: &Type) -> Result<i32, Error> {
+    match ty {
+        Type::I32 => Ok(1),
+        Type::I64 => Ok(2),
+        Type::F32 => Ok(3),
+        Type::F64 => Ok(4),
+        _ => Err(runtime_error(format!("No current support for the type {}", ty))),
+    }
+}
+
+/// Build a WebAssembly value from its raw bits, as exchanged with
+/// Java in `long` arrays: integers are sign-extended, floats are
+/// stored as their IEEE 754 bits.
+pub fn value_from_bits(ty: &Type, bits: i64) -> Result<WasmValue, Error> {
+    match ty {
+        Type::I32 => Ok(WasmValue::I32(bits as i32)),
+        Type::I64 => Ok(WasmValue::I64(bits)),
+        Type::F32 => Ok(WasmValue::F32(f32::from_bits(bits as u32))),
+        Type::F64 => Ok(WasmValue::F64(f64::from_bits(bits as u64))),
+        _ => Err(runtime_error(format!("No current support for the type {}", ty))),
+    }
+}
+
+/// Return the raw bits of a WebAssembly value, see `value_from_bits`.
+pub fn value_to_bits(value: &WasmValue) -> Result<i64, Error> {
+    match value {
+        WasmValue::I32(value) => Ok(*value as i64),
+        WasmValue::I64(value) => Ok(*value),
+        WasmValue::F32(value) => Ok(value.to_bits() as i64),
+        WasmValue::F64(value) => Ok(value.to_bits() as i64),
+        _ => Err(runtime_error(format!("No current support for the value {:?}", value))),
+    }
+}
@@ -0,0 +1,64 @@
+package org.wasmer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class GlobalTest {
+    private byte[] getBytes(String filename) throws Exception {
+        Path modulePath = Paths.get(getClass().getClassLoader().getResource(filename).toURI());
+        return Files.readAllBytes(modulePath);
+    }
+
+    @Test
+    void readAndWriteLiveValues() throws Exception {
+        try (Module module = new Module(getBytes("globals.wasm"))) {
+            assertLiveValues(module);
+        }
+    }
+
+    @Test
+    void readAndWriteInterpretedLiveValues() throws Exception {
+        try (Engine engine = new Engine(CompilerConfig.interpreter());
+             Module module = new Module(engine, getBytes("globals.wasm"))) {
+            assertLiveValues(module);
+        }
+    }
+
+    private static void assertLiveValues(Module module) {
+        try (Imports imports = Imports.from(Collections.singletonList(new ImportObject.GlobalImport("env", "base", 35, false)), module);
+             Instance instance = module.instantiate(imports)) {
+            Global counter = instance.exports.getGlobal("counter");
+            Global big = instance.exports.getGlobal("big");
+            Global ratio = instance.exports.getGlobal("ratio");
+
+            assertEquals(Type.I32, counter.getValueType());
+            assertEquals("i32", counter.getType());
+            assertTrue(counter.isMutable());
+            assertFalse(big.isMutable());
+            assertEquals(7, counter.getInt());
+            assertEquals(42L, big.getLong());
+            assertEquals(0.5, ratio.getDouble());
+            assertEquals(35, instance.exports.getGlobal("base").getInt());
+
+            assertEquals(8, instance.exports.getExportedFunction("increment").callI32());
+            assertEquals(8, counter.getInt());
+
+            counter.setInt(100);
+            assertEquals(135, instance.exports.getExportedFunction("base_plus_counter").callI32());
+
+            ratio.setDouble(1.25);
+            assertEquals(1.25, ratio.getDouble());
+
+            assertThrows(RuntimeException.class, counter::getLong);
+            assertThrows(IllegalStateException.class, () -> big.setLong(1L));
+        }
+    }
+}
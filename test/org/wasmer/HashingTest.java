@@ -0,0 +1,85 @@
+package org.wasmer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.jupiter.api.Test;
+
+class HashingTest {
+    private static final byte[] ED25519_PUBLIC_KEY = hex("d75a980182b10ab7d54bfed3c964073a0ee172f3daa62325af021a68f707511a");
+    private static final byte[] ED25519_SIGNATURE = hex("e5564300c360ac729086e2cc806e828a84877f1eb8e5d974d873e065224901555fb8821590a33bacc61e39701cf9b46bd25bf5f0595bbe24655141438e7a100b");
+
+    private byte[] getBytes(String filename) throws Exception {
+        Path modulePath = Paths.get(getClass().getClassLoader().getResource(filename).toURI());
+        return Files.readAllBytes(modulePath);
+    }
+
+    private static byte[] hex(String hex) {
+        byte[] bytes = new BigInteger("ff" + hex, 16).toByteArray();
+        byte[] result = new byte[hex.length() / 2];
+        System.arraycopy(bytes, bytes.length - result.length, result, 0, result.length);
+
+        return result;
+    }
+
+    @Test
+    void hashAndVerify() throws Exception {
+        try (Module module = new Module(getBytes("hashing.wasm"))) {
+            assertHashes(module);
+        }
+    }
+
+    @Test
+    void hashAndVerifyInterpreted() throws Exception {
+        try (Engine engine = new Engine(CompilerConfig.interpreter());
+             Module module = new Module(engine, getBytes("hashing.wasm"))) {
+            assertHashes(module);
+        }
+    }
+
+    private static void assertHashes(Module module) {
+        try (NativeAllocator allocator = new NativeAllocator();
+             Imports allocatorImports = Imports.from(allocator.importObjects("env"), module);
+             Imports hashingImports = Imports.nativeHashing(module, allocator);
+             Imports imports = Imports.chain(allocatorImports, hashingImports);
+             Instance instance = module.instantiate(imports)) {
+            allocator.bind(instance);
+            Memory memory = instance.exports.getMemory("memory");
+
+            assertDigest(instance, memory, "blake2_256", "abc", "bddd813c634239723171ef3fee98579b94964e3bb1cb3e427262c8c068d52319");
+            assertDigest(instance, memory, "keccak_256", "abc", "4e03657aea45a94fc7d47ba826c8d667c0d1e6e33a64a036ec44f58fa12d6c45");
+            assertDigest(instance, memory, "sha2_256", "abc", "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+            assertDigest(instance, memory, "twox_128", "System", "26aa394eea5630e07c48ae0c9558cef7");
+
+            // The first test vector of RFC 8032, whose message is empty.
+            memory.write(0, ED25519_SIGNATURE, 0, 64);
+            memory.write(64, ED25519_PUBLIC_KEY, 0, 32);
+            assertEquals(1, verify(instance, "ed25519_verify", 0, 96, 0, 64));
+            assertEquals(0, verify(instance, "ed25519_verify", 0, 96, 1, 64));
+            assertEquals(0, verify(instance, "sr25519_verify", 0, 96, 0, 64));
+        }
+    }
+
+    private static void assertDigest(Instance instance, Memory memory, String function, String input, String digest) {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        memory.write(128, bytes, 0, bytes.length);
+
+        Object[] results = instance.exports.getExportedFunction(function).apply(packed(128, bytes.length));
+        byte[] expected = hex(digest);
+
+        assertArrayEquals(expected, memory.readBytes((Integer) results[0], expected.length));
+    }
+
+    private static int verify(Instance instance, String function, int signature, int message, int messageLength, int publicKey) {
+        return (Integer) instance.exports.getExportedFunction(function).apply(signature, packed(message, messageLength), publicKey)[0];
+    }
+
+    private static long packed(int pointer, int length) {
+        return ((long) length << 32) | pointer;
+    }
+}
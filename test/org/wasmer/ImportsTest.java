@@ -17,6 +17,7 @@ import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class ImportsTest {
     private byte[] getBytes(String name) throws Exception {
@@ -67,6 +68,96 @@ class ImportsTest {
         instance.close();
     }
 
+    @Test
+    void hostFunction() throws Exception {
+        Module module = new Module(getBytes("import_simple.wasm"));
+        AtomicReference<long[]> argvr = new AtomicReference<>();
+        Imports imports = Imports.from(Collections.singletonList(
+            new ImportObject.HostFuncImport("env", "mul_from_java", argv -> {
+                argvr.set(new long[]{argv[0], argv[1]});
+                return (int) argv[0] * (int) argv[1];
+            }, Arrays.asList(Type.I32, Type.I32), Collections.singletonList(Type.I32))
+        ), module);
+        Instance instance = module.instantiate(imports);
+
+        assertEquals(24, instance.exports.getExportedFunction("double_each_arg_then_mul").callI32(2, 3));
+        assertEquals(4, argvr.get()[0]);
+        assertEquals(6, argvr.get()[1]);
+
+        instance.close();
+        module.close();
+    }
+
+    @Test
+    void hostFunctionThrows() throws Exception {
+        Module module = new Module(getBytes("import_simple.wasm"));
+        IllegalStateException thrown = new IllegalStateException("mul_from_java has failed");
+        Imports imports = Imports.from(Collections.singletonList(
+            new ImportObject.FuncImport("env", "mul_from_java", argv -> {
+                throw thrown;
+            }, Arrays.asList(Type.I32, Type.I32), Collections.singletonList(Type.I32))
+        ), module);
+        Instance instance = module.instantiate(imports);
+
+        HostFunctionException exception = assertThrows(
+            HostFunctionException.class,
+            () -> instance.exports.getFunction("double_each_arg_then_mul").apply(2, 3)
+        );
+        assertEquals(thrown, exception.getCause());
+
+        // The instance can still be called once the call has been unwound.
+        assertThrows(HostFunctionException.class, () -> instance.exports.getFunction("double_each_arg_then_mul").apply(2, 3));
+
+        instance.close();
+        module.close();
+    }
+
+    @Test
+    void hostFunctionTypeMismatch() {
+        assertThrows(IllegalArgumentException.class, () -> new ImportObject.HostFuncImport(
+            "env", "mul_from_java", (HostFunction.I32ToI32) x -> x,
+            Arrays.asList(Type.I32, Type.I32), Collections.singletonList(Type.I32)
+        ));
+    }
+
+    @Test
+    void importsBelongToTheirModule() throws Exception {
+        Module module = new Module(getBytes("import_memory.wasm"));
+        Module other = new Module(getBytes("import_memory.wasm"));
+        Imports imports = Imports.from(Collections.singletonList(
+            new ImportObject.MemoryImport("env", 1, false)
+        ), module);
+
+        assertThrows(IllegalArgumentException.class, () -> other.instantiate(imports));
+
+        imports.close();
+        other.close();
+        module.close();
+    }
+
+    @Test
+    void importedMemoriesAreIndependent() throws Exception {
+        Module module = new Module(getBytes("import_memory.wasm"));
+        Instance instance1 = module.instantiate(Imports.from(Collections.singletonList(
+            new ImportObject.MemoryImport("env", 1, false)
+        ), module));
+        Instance instance2 = module.instantiate(Imports.from(Collections.singletonList(
+            new ImportObject.MemoryImport("env", 1, false)
+        ), module));
+
+        instance1.exports.getFunction("store").apply(8, 42);
+        instance2.exports.getFunction("store").apply(8, 7);
+
+        assertEquals(42, instance1.exports.getFunction("load").apply(8)[0]);
+        assertEquals(7, instance2.exports.getFunction("load").apply(8)[0]);
+        assertEquals(42, instance1.exports.getMemory("memory").buffer().getInt(8));
+        assertEquals(7, instance2.exports.getMemory("memory").buffer().getInt(8));
+
+        instance1.close();
+        instance2.close();
+        module.close();
+    }
+
     @Test
     void accessMemory() throws IOException,Exception {
         HashMap<String, String> msg = new HashMap<>();
@@ -0,0 +1,255 @@
+package org.wasmer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class InstancePoolTest {
+    private byte[] getBytes(String filename) throws Exception {
+        Path modulePath = Paths.get(getClass().getClassLoader().getResource(filename).toURI());
+        return Files.readAllBytes(modulePath);
+    }
+
+    @Test
+    void reuse() throws Exception {
+        Module module = new Module(getBytes("simple.wasm"));
+        InstancePool pool = new InstancePool(module, m -> Imports.from(Collections.emptyList(), m), 1, InstancePool.ResetPolicy.REUSE);
+        Instance first;
+
+        try (InstancePool.Lease lease = pool.borrow()) {
+            first = lease.getInstance();
+            assertNull(pool.borrow(10, TimeUnit.MILLISECONDS));
+        }
+
+        try (InstancePool.Lease lease = pool.borrow()) {
+            assertSame(first, lease.getInstance());
+        }
+
+        assertEquals(1, pool.getStatistics().getCreated());
+        assertEquals(2, pool.getStatistics().getBorrowed());
+
+        pool.close();
+        module.close();
+    }
+
+    @Test
+    void recreate() throws Exception {
+        Module module = new Module(getBytes("simple.wasm"));
+        InstancePool pool = new InstancePool(module, m -> Imports.from(Collections.emptyList(), m), 1, InstancePool.ResetPolicy.RECREATE);
+        Instance first;
+
+        try (InstancePool.Lease lease = pool.borrow()) {
+            first = lease.getInstance();
+        }
+
+        try (InstancePool.Lease lease = pool.borrow()) {
+            assertNotSame(first, lease.getInstance());
+        }
+
+        InstancePool.Statistics statistics = pool.getStatistics();
+        assertEquals(3, statistics.getCreated());
+        assertEquals(2, statistics.getReset());
+        assertEquals(1, statistics.getIdle());
+        assertEquals(0, statistics.getInUse());
+
+        pool.close();
+        module.close();
+    }
+
+    @Test
+    void importsAreClosedWithTheirInstance() throws Exception {
+        Module module = new Module(getBytes("simple.wasm"));
+        List<Imports> created = new ArrayList<>();
+        InstancePool pool = new InstancePool(module, m -> {
+            Imports imports = Imports.from(Collections.emptyList(), m);
+            created.add(imports);
+
+            return imports;
+        }, 1, InstancePool.ResetPolicy.RECREATE);
+
+        try (InstancePool.Lease lease = pool.borrow()) {
+            lease.discard();
+        }
+
+        assertEquals(1, created.size());
+        assertThrows(IllegalStateException.class, () -> created.get(0).pointer(0L));
+
+        // Recreating an instance closes the imports of the previous one.
+        try (InstancePool.Lease lease = pool.borrow()) {
+            assertEquals(2, created.size());
+        }
+
+        assertEquals(3, created.size());
+        assertThrows(IllegalStateException.class, () -> created.get(1).pointer(0L));
+
+        pool.close();
+        assertThrows(IllegalStateException.class, () -> created.get(2).pointer(0L));
+        module.close();
+    }
+
+    @Test
+    void restore() throws Exception {
+        Module module = new Module(getBytes("import_memory.wasm"));
+        InstancePool pool = new InstancePool(module, m -> Imports.from(Collections.singletonList(
+            new ImportObject.MemoryImport("env", 1, false)
+        ), m), 1, InstancePool.ResetPolicy.RESTORE);
+        Instance first;
+
+        try (InstancePool.Lease lease = pool.borrow()) {
+            first = lease.getInstance();
+            first.exports.getFunction("store").apply(8, 42);
+        }
+
+        try (InstancePool.Lease lease = pool.borrow()) {
+            assertSame(first, lease.getInstance());
+            assertEquals(0, lease.getInstance().exports.getFunction("load").apply(8)[0]);
+        }
+
+        assertEquals(1, pool.getStatistics().getCreated());
+        assertEquals(2, pool.getStatistics().getReset());
+
+        pool.close();
+        module.close();
+    }
+
+    @Test
+    void restoreRecreatesInterpretedInstances() throws Exception {
+        Engine engine = new Engine(CompilerConfig.interpreter());
+        Module module = new Module(engine, getBytes("simple.wasm"));
+        InstancePool pool = new InstancePool(module, m -> Imports.from(Collections.emptyList(), m), 1, InstancePool.ResetPolicy.RESTORE);
+        Instance first;
+
+        try (InstancePool.Lease lease = pool.borrow()) {
+            first = lease.getInstance();
+            assertTrue(first.isInterpreted());
+        }
+
+        try (InstancePool.Lease lease = pool.borrow()) {
+            assertNotSame(first, lease.getInstance());
+            assertEquals(3, lease.getInstance().exports.getExportedFunction("sum").callI32(1, 2));
+        }
+
+        InstancePool.Statistics statistics = pool.getStatistics();
+        assertEquals(3, statistics.getCreated());
+        assertEquals(2, statistics.getReset());
+
+        pool.close();
+        module.close();
+        engine.close();
+    }
+
+    @Test
+    void prewarmStaysWithinTheMaximumSize() throws Exception {
+        Module module = new Module(getBytes("simple.wasm"));
+        InstancePool pool = new InstancePool(module, m -> Imports.from(Collections.emptyList(), m), 2, InstancePool.ResetPolicy.REUSE);
+
+        try (InstancePool.Lease first = pool.borrow(); InstancePool.Lease second = pool.borrow()) {
+            // All the permits are borrowed: nothing can be created.
+            pool.prewarm(2);
+            assertEquals(0, pool.getStatistics().getIdle());
+        }
+
+        try (InstancePool.Lease lease = pool.borrow()) {
+            pool.prewarm(2);
+            assertEquals(2, pool.getStatistics().getCreated());
+        }
+
+        pool.close();
+        assertThrows(IllegalStateException.class, () -> pool.prewarm(1));
+        module.close();
+    }
+
+    @Test
+    void closeWhileBorrowing() throws Exception {
+        Module module = new Module(getBytes("simple.wasm"));
+        List<Imports> created = Collections.synchronizedList(new ArrayList<>());
+        InstancePool pool = new InstancePool(module, m -> {
+            Imports imports = Imports.from(Collections.emptyList(), m);
+            created.add(imports);
+
+            return imports;
+        }, 4, InstancePool.ResetPolicy.RECREATE);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> borrowers = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            borrowers.add(executor.submit(() -> {
+                try {
+                    while (true) {
+                        try (InstancePool.Lease lease = pool.borrow()) {
+                            lease.getInstance().exports.getExportedFunction("sum").callI32(1, 2);
+                        }
+                    }
+                } catch (IllegalStateException e) {
+                    // The pool is closed.
+                    return null;
+                }
+            }));
+        }
+
+        Thread.sleep(50);
+        pool.close();
+
+        for (Future<?> borrower : borrowers) {
+            borrower.get();
+        }
+
+        executor.shutdown();
+
+        // Every instance, and thus its imports, has been closed.
+        for (Imports imports : created) {
+            assertThrows(IllegalStateException.class, () -> imports.pointer(0L));
+        }
+
+        assertEquals(0, pool.getStatistics().getIdle());
+        module.close();
+    }
+
+    @Test
+    void concurrentCalls() throws Exception {
+        Module module = new Module(getBytes("simple.wasm"));
+        InstancePool pool = new InstancePool(module, m -> Imports.from(Collections.emptyList(), m), 4, InstancePool.ResetPolicy.REUSE);
+        pool.prewarm(4);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            int x = i;
+
+            results.add(executor.submit(() -> {
+                try (InstancePool.Lease lease = pool.borrow()) {
+                    return lease.getInstance().exports.getExportedFunction("sum").callI32(x, 1);
+                }
+            }));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i + 1, results.get(i).get());
+        }
+
+        executor.shutdown();
+
+        InstancePool.Statistics statistics = pool.getStatistics();
+        assertEquals(4, statistics.getCreated());
+        assertEquals(200, statistics.getBorrowed());
+        assertEquals(4, statistics.getIdle());
+
+        pool.close();
+        module.close();
+    }
+}
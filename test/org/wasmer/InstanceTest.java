@@ -2,8 +2,11 @@ package org.wasmer;
 
 import org.wasmer.exports.Function;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
@@ -12,6 +15,8 @@ import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import org.junit.jupiter.api.Test;
 
 class InstanceTest {
@@ -120,4 +125,120 @@ class InstanceTest {
 
         instance.close();
     }
+
+    @Test
+    void exportedFunctionCallI32() throws IOException,Exception {
+        Instance instance = new Instance(getBytes());
+        ExportedFunction sum = instance.exports.getExportedFunction("sum");
+
+        assertSame(sum, instance.exports.getExportedFunction("sum"));
+        assertEquals(new FunctionType(Arrays.asList(Type.I32, Type.I32), Collections.singletonList(Type.I32)), sum.getType());
+        assertEquals(3, sum.callI32(1, 2));
+        assertEquals(42, instance.exports.getExportedFunction("arity_0").callI32());
+        assertEquals(3, sum.apply(1, 2)[0]);
+
+        instance.close();
+    }
+
+    @Test
+    void exportedFunctionCallBatch() throws IOException,Exception {
+        Instance instance = new Instance(getBytes());
+        ExportedFunction sum = instance.exports.getExportedFunction("sum");
+        long[] results = new long[4];
+
+        assertEquals(3, sum.callBatch(new long[]{1, 2, 3, 4, 5, 6}, 3, results));
+        assertArrayEquals(new long[]{3, 7, 11, 0}, results);
+        assertThrows(IllegalArgumentException.class, () -> sum.callBatch(new long[]{1, 2}, 2, results));
+
+        instance.close();
+    }
+
+    @Test
+    void exportedFunctionCallInto() throws IOException,Exception {
+        Instance instance = new Instance(getBytes());
+        ExportedFunction function = instance.exports.getExportedFunction("i32_i64_f32_f64_f64");
+        long[] results = new long[1];
+
+        function.callInto(new long[]{1, 2l, Float.floatToRawIntBits(3.0f), Double.doubleToRawLongBits(4.0d)}, results);
+
+        assertEquals(10.0d, Double.longBitsToDouble(results[0]));
+
+        instance.close();
+    }
+
+    @Test
+    void exportedFunctionTypeMismatch() throws IOException,Exception {
+        Instance instance = new Instance(getBytes());
+        ExportedFunction function = instance.exports.getExportedFunction("i64_i64");
+
+        assertThrows(IllegalArgumentException.class, () -> function.callI32(1));
+        assertThrows(IllegalArgumentException.class, () -> function.callI64(1, 2));
+        assertThrows(IllegalArgumentException.class, () -> function.callInto(new long[0], new long[1]));
+
+        instance.close();
+
+        assertThrows(IllegalStateException.class, () -> function.callInto(new long[]{1}, new long[1]));
+    }
+
+    @Test
+    void snapshotAndRestore() throws IOException,Exception {
+        Instance instance = new Instance(getBytes());
+        Memory memory = instance.exports.getMemory("memory");
+        int pointer = (Integer) instance.exports.getFunction("string").apply()[0];
+        InstanceSnapshot snapshot = instance.snapshot();
+
+        ByteBuffer memoryBuffer = memory.buffer();
+        memoryBuffer.put(pointer, (byte) 'A');
+        memoryBuffer.put(0, (byte) 1);
+        memory.grow(1);
+        memory.buffer().put(1114112, (byte) 2);
+
+        instance.restore(snapshot);
+
+        memoryBuffer = memory.buffer();
+        assertEquals('H', memoryBuffer.get(pointer));
+        assertEquals(0, memoryBuffer.get(0));
+        assertEquals(0, memoryBuffer.get(1114112));
+
+        instance.close();
+        assertThrows(IllegalStateException.class, instance::snapshot);
+        assertThrows(IllegalStateException.class, () -> instance.restore(snapshot));
+        snapshot.close();
+    }
+
+    @Test
+    void backendIsSelectedBySystemProperty() throws IOException,Exception {
+        Instance instance = new Instance(getBytes());
+        String expected = System.getProperty("org.wasmer.backend", "jni");
+
+        assertEquals(expected, Native.getBackendName());
+        assertEquals(3, instance.exports.getExportedFunction("sum").callI32(1, 2));
+
+        instance.close();
+    }
+
+    @Test
+    void closeReleasesNativeResources() throws IOException,Exception {
+        Memory memory;
+        ExportedFunction sum;
+        Instance[] closed = new Instance[1];
+
+        try (Module module = new Module(getBytes());
+             Imports imports = Imports.from(Collections.emptyList(), module);
+             Instance instance = module.instantiate(imports)) {
+            memory = instance.exports.getMemory("memory");
+            sum = instance.exports.getExportedFunction("sum");
+            closed[0] = instance;
+            assertEquals(3, sum.callI32(1, 2));
+
+            imports.close();
+            assertThrows(IllegalStateException.class, () -> module.instantiate(imports));
+        }
+
+        // Closing the instance has closed its exports.
+        assertThrows(IllegalStateException.class, memory::buffer);
+        assertThrows(IllegalStateException.class, () -> sum.callI32(1, 2));
+        assertThrows(IllegalStateException.class, () -> new ExportedFunction(closed[0], "sum"));
+        memory.close();
+    }
 }
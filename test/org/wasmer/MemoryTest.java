@@ -14,6 +14,7 @@ import java.nio.ReadOnlyBufferException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Disabled;
@@ -93,6 +94,24 @@ class MemoryTest {
         instance.close();
     }
 
+    @Test
+    void bufferOutlivesTheInstance() throws IOException,Exception {
+        Instance instance = new Instance(getBytes("tests.wasm"));
+
+        ByteBuffer memoryBuffer = instance.exports.getMemory("memory").buffer();
+        memoryBuffer.put(new byte[]{1, 2, 3, 4, 5});
+
+        instance.close();
+        instance = null;
+        System.gc();
+
+        byte[] readData = new byte[5];
+        memoryBuffer.position(0);
+        memoryBuffer.get(readData);
+
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, readData);
+    }
+
     @Test
     void noMemory() throws IOException,Exception {
         Instance instance = new Instance(getBytes("no_memory.wasm"));
@@ -153,4 +172,96 @@ class MemoryTest {
 
         instance.close();
     }
+
+    @Test
+    void viewIsCachedUntilTheSizeChanges() throws IOException,Exception {
+        Instance instance = new Instance(getBytes("tests.wasm"));
+        Memory memory = instance.exports.getMemory("memory");
+
+        assertEquals(17, memory.size());
+        assertEquals(1114112, memory.dataSize());
+
+        int generation = memory.generation();
+        memory.buffer().put(0, (byte) 42);
+        assertEquals(42, memory.buffer().get(0));
+        assertEquals(generation, memory.generation());
+
+        memory.grow(1);
+
+        assertTrue(memory.generation() != generation);
+        assertEquals(18, memory.size());
+        assertEquals(42, memory.buffer().get(0));
+
+        instance.close();
+    }
+
+    @Test
+    void growFromWebAssemblyIsSeen() throws Exception {
+        try (Module module = new Module(getBytes("grow.wasm"))) {
+            assertGrowFromWebAssemblyIsSeen(module);
+        }
+    }
+
+    @Test
+    void growFromInterpretedWebAssemblyIsSeen() throws Exception {
+        try (Engine engine = new Engine(CompilerConfig.interpreter());
+             Module module = new Module(engine, getBytes("grow.wasm"))) {
+            assertGrowFromWebAssemblyIsSeen(module);
+        }
+    }
+
+    private static void assertGrowFromWebAssemblyIsSeen(Module module) {
+        try (Imports imports = Imports.from(Collections.emptyList(), module);
+             Instance instance = module.instantiate(imports)) {
+            Memory memory = instance.exports.getMemory("memory");
+            ByteBuffer buffer = memory.buffer();
+            int generation = memory.generation();
+
+            assertEquals(1, instance.exports.getExportedFunction("grow").callI32(2));
+
+            assertTrue(memory.generation() != generation);
+            assertEquals(3, memory.size());
+            assertEquals(Memory.PAGE_SIZE, buffer.capacity());
+            assertEquals(3 * Memory.PAGE_SIZE, memory.buffer().capacity());
+            memory.putI32(3 * Memory.PAGE_SIZE - 4, 42);
+            assertEquals(42, memory.getI32(3 * Memory.PAGE_SIZE - 4));
+
+            // The absolute accessors see the grow too, with no call to `buffer`.
+            assertEquals(3, instance.exports.getExportedFunction("grow").callI32(1));
+            memory.putI64(4 * Memory.PAGE_SIZE - 8, 7L);
+            assertEquals(7L, memory.getI64(4 * Memory.PAGE_SIZE - 8));
+            assertEquals(42, memory.getI32(3 * Memory.PAGE_SIZE - 4));
+        }
+    }
+
+    @Test
+    void bulkAccessors() throws IOException,Exception {
+        Instance instance = new Instance(getBytes("tests.wasm"));
+        Memory memory = instance.exports.getMemory("memory");
+
+        memory.write(0, new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, 0, 8);
+        assertEquals(0x04030201, memory.getI32(0));
+        assertEquals(0x0807060504030201L, memory.getI64(0));
+
+        memory.putI64(8, -1L);
+        assertArrayEquals(new byte[]{8, -1, -1}, memory.readBytes(7, 3));
+
+        ByteBuffer source = ByteBuffer.wrap("hello\0".getBytes());
+        memory.write(16, source);
+        assertEquals(0, source.remaining());
+        assertEquals("hello", memory.readCString(16));
+
+        memory.copyWithin(16, 18, 6);
+        assertEquals("hehello", memory.readCString(16));
+
+        byte[] destination = new byte[4];
+        memory.read(1, destination, 1, 3);
+        assertArrayEquals(new byte[]{0, 2, 3, 4}, destination);
+
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> memory.getI32(1114110));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> memory.readBytes(-1, 2));
+        Assertions.assertThrows(RuntimeException.class, () -> memory.copyWithin(0, 1114110, 4));
+
+        instance.close();
+    }
 }
@@ -0,0 +1,67 @@
+package org.wasmer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class MeteringTest {
+    private byte[] getBytes(String filename) throws Exception {
+        Path modulePath = Paths.get(getClass().getClassLoader().getResource(filename).toURI());
+        return Files.readAllBytes(modulePath);
+    }
+
+    @Test
+    void callsSpendPoints() throws Exception {
+        Metering metering = Metering.withInitialPoints(1000).withCost("I32Add", 10);
+        Module module = new Module(Engine.getDefault(), getBytes("spin.wasm"), metering);
+        Instance instance = module.instantiate(Imports.from(Collections.emptyList(), module));
+
+        assertEquals(metering, module.getMetering());
+        assertEquals(1000, instance.getRemainingPoints());
+
+        assertEquals(3, instance.exports.getExportedFunction("sum").callI32(1, 2));
+        long spent = 1000 - instance.getRemainingPoints();
+        assertTrue(spent >= 10);
+
+        instance.setRemainingPoints(1000);
+        instance.exports.getFunction("sum").apply(1, 2);
+        assertEquals(spent, 1000 - instance.getRemainingPoints());
+
+        instance.close();
+        assertThrows(IllegalStateException.class, () -> instance.setRemainingPoints(1000));
+        assertThrows(IllegalStateException.class, instance::getRemainingPoints);
+        module.close();
+    }
+
+    @Test
+    void runawayCallRunsOutOfFuel() throws Exception {
+        Module module = new Module(Engine.getDefault(), getBytes("spin.wasm"), Metering.withInitialPoints(100_000));
+        Instance instance = module.instantiate(Imports.from(Collections.emptyList(), module));
+
+        OutOfFuelException exception = assertThrows(OutOfFuelException.class, () -> instance.exports.getExportedFunction("spin").callInto(new long[0], new long[0]));
+        assertEquals(WasmTrapException.TrapCode.OUT_OF_FUEL, exception.getTrapCode());
+        assertEquals(0, instance.getRemainingPoints());
+
+        // More points make the instance usable again.
+        instance.setRemainingPoints(100);
+        assertEquals(3, instance.exports.getExportedFunction("sum").callI32(1, 2));
+
+        instance.close();
+        module.close();
+    }
+
+    @Test
+    void unmeteredInstance() throws Exception {
+        Instance instance = new Instance(getBytes("spin.wasm"));
+
+        assertThrows(RuntimeException.class, instance::getRemainingPoints);
+
+        instance.close();
+    }
+}
@@ -0,0 +1,64 @@
+package org.wasmer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ModuleCacheTest {
+    private byte[] getBytes(String filename) throws Exception {
+        Path modulePath = Paths.get(getClass().getClassLoader().getResource(filename).toURI());
+        return Files.readAllBytes(modulePath);
+    }
+
+    @Test
+    void key() throws Exception {
+        ModuleCache cache = new ModuleCache(Paths.get("unused"));
+
+        assertEquals(64, cache.key(getBytes("simple.wasm")).length());
+        assertEquals(cache.key(getBytes("simple.wasm")), cache.key(getBytes("simple.wasm")));
+        assertNotEquals(cache.key(getBytes("simple.wasm")), cache.key(getBytes("tests.wasm")));
+    }
+
+    @Test
+    void loadStoresThenReuses(@TempDir Path directory) throws Exception {
+        Engine engine = new Engine();
+        byte[] moduleBytes = getBytes("simple.wasm");
+        ModuleCache cache = new ModuleCache(engine, directory);
+        String key = cache.key(moduleBytes);
+
+        assertNull(cache.get(key));
+
+        Module compiled = cache.load(moduleBytes);
+        assertTrue(Files.isRegularFile(cache.path(key)));
+        compiled.close();
+
+        Module cached = new ModuleCache(engine, directory).get(key);
+        Instance instance = cached.instantiate(Imports.from(Collections.emptyList(), cached));
+        assertEquals(3, (Integer) instance.exports.getFunction("sum").apply(1, 2)[0]);
+
+        instance.close();
+        cached.close();
+    }
+
+    @Test
+    void corruptedArtifactIsDiscarded(@TempDir Path directory) throws Exception {
+        byte[] moduleBytes = getBytes("simple.wasm");
+        ModuleCache cache = new ModuleCache(directory);
+        String key = cache.key(moduleBytes);
+        Files.write(cache.path(key), new byte[]{1, 2, 3});
+
+        assertNull(cache.get(key));
+
+        Module module = cache.load(moduleBytes);
+        assertTrue(Files.size(cache.path(key)) > 3);
+        module.close();
+    }
+}
@@ -1,12 +1,20 @@
 package org.wasmer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
 import java.lang.RuntimeException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -31,6 +39,167 @@ class ModuleTest {
         assertTrue(new Module(getBytes("tests.wasm")) instanceof Module);
     }
 
+    @Test
+    void compileWithSharedEngine() throws Exception {
+        Engine engine = new Engine();
+        assertTrue(Module.validate(engine, getBytes("tests.wasm")));
+
+        Module module1 = new Module(engine, getBytes("tests.wasm"));
+        Module module2 = new Module(engine, getBytes("simple.wasm"));
+        engine.close();
+
+        Instance instance = module2.instantiate(Imports.from(Collections.emptyList(), module2));
+        assertEquals(3, (Integer) instance.exports.getFunction("sum").apply(1, 2)[0]);
+
+        instance.close();
+        module1.close();
+        module2.close();
+    }
+
+    @Test
+    void compileWithCompilerConfig() throws Exception {
+        for (CompilerConfig config : new CompilerConfig[]{
+            CompilerConfig.cranelift(CompilerConfig.OptLevel.NONE),
+            CompilerConfig.cranelift(CompilerConfig.OptLevel.SPEED_AND_SIZE),
+            CompilerConfig.singlepass(),
+            CompilerConfig.llvm(CompilerConfig.OptLevel.SPEED),
+        }) {
+            if (!config.getCompiler().isAvailable()) {
+                Assertions.assertThrows(RuntimeException.class, () -> new Engine(config));
+                continue;
+            }
+
+            Engine engine = new Engine(config);
+            assertEquals(config, engine.getCompilerConfig());
+            assertTrue(engine.getVersion().contains("compiler=" + config.getCompiler().name().toLowerCase()));
+
+            Module module = new Module(engine, getBytes("tests.wasm"));
+            assertTrue(module.getCompileTimeNanos() > 0);
+            assertEquals(1, engine.getCompiledModules());
+            assertEquals(module.getCompileTimeNanos(), engine.getCompileTimeNanos());
+
+            Instance instance = module.instantiate(Imports.from(Collections.emptyList(), module));
+            assertEquals(3, (Integer) instance.exports.getFunction("sum").apply(1, 2)[0]);
+
+            instance.close();
+            module.close();
+            engine.close();
+        }
+
+        assertTrue(Compiler.CRANELIFT.isAvailable());
+    }
+
+    @Test
+    void interpret() throws Exception {
+        Engine engine = new Engine(CompilerConfig.interpreter());
+        assertTrue(engine.getVersion().contains("compiler=interpreter"));
+
+        Module module = new Module(engine, getBytes("tests.wasm"));
+        assertFalse(module.isCompiled());
+        assertEquals(0, engine.getCompiledModules());
+        Assertions.assertThrows(UnsupportedOperationException.class, module::serialize);
+
+        Instance instance = module.instantiate(Imports.from(Collections.emptyList(), module));
+        assertTrue(instance.isInterpreted());
+        assertEquals(3, (Integer) instance.exports.getFunction("sum").apply(1, 2)[0]);
+        assertEquals(3, instance.exports.getExportedFunction("sum").callI32(1, 2));
+        assertEquals(1114112, instance.exports.getMemory("memory").dataSize());
+
+        instance.close();
+        module.close();
+        engine.close();
+    }
+
+    @Test
+    void closedEngineIsRejected() throws Exception {
+        Engine engine = new Engine(CompilerConfig.cranelift());
+        byte[] moduleBytes = getBytes("tests.wasm");
+        engine.close();
+
+        Assertions.assertThrows(IllegalStateException.class, engine::getVersion);
+        Assertions.assertThrows(IllegalStateException.class, () -> new Module(engine, moduleBytes));
+        Assertions.assertThrows(IllegalStateException.class, () -> new Instance(engine, moduleBytes));
+    }
+
+    @Test
+    void deserializeTheRemainingBytesOfABuffer() throws Exception {
+        Engine engine = new Engine();
+        Module module = new Module(engine, getBytes("tests.wasm"));
+        byte[] serialized = module.serialize();
+        module.close();
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(serialized.length + 8);
+        buffer.put(new byte[]{1, 2, 3, 4});
+        buffer.put(serialized);
+        buffer.put(new byte[]{5, 6, 7, 8});
+        buffer.position(4).limit(4 + serialized.length);
+
+        Module deserialized = Module.deserialize(engine, buffer);
+        assertEquals(4, buffer.position());
+
+        Instance instance = deserialized.instantiate(Imports.from(Collections.emptyList(), deserialized));
+        assertEquals(3, (Integer) instance.exports.getFunction("sum").apply(1, 2)[0]);
+
+        instance.close();
+        deserialized.close();
+        engine.close();
+    }
+
+    @Test
+    void interpretUntilCompiled() throws Exception {
+        Engine engine = new Engine(CompilerConfig.tiered(CompilerConfig.cranelift()));
+        Module module = new Module(engine, getBytes("tests.wasm"));
+        Imports imports = Imports.from(Collections.emptyList(), module);
+
+        Instance interpreted = module.instantiate(imports);
+        assertEquals(3, (Integer) interpreted.exports.getFunction("sum").apply(1, 2)[0]);
+
+        assertEquals(module, module.whenCompiled().get());
+        assertTrue(module.isCompiled());
+        assertEquals(1, engine.getCompiledModules());
+
+        Instance compiled = module.instantiate(imports);
+        assertFalse(compiled.isInterpreted());
+        assertEquals(3, (Integer) compiled.exports.getFunction("sum").apply(1, 2)[0]);
+
+        interpreted.close();
+        compiled.close();
+        module.close();
+        engine.close();
+    }
+
+    @Test
+    void compileAsync() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Module module = Module.compileAsync(getBytes("tests.wasm"), executor).get();
+            Instance instance = module.instantiate(Imports.from(Collections.emptyList(), module));
+            assertEquals(3, (Integer) instance.exports.getFunction("sum").apply(1, 2)[0]);
+
+            instance.close();
+            module.close();
+
+            CompletableFuture<Module> failed = Module.compileAsync(getBytes("invalid.wasm"), executor);
+            Exception exception = Assertions.assertThrows(Exception.class, failed::get);
+            assertTrue(exception.getCause() instanceof RuntimeException);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void cancelCompileAsync() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        CompletableFuture<Module> future = Module.compileAsync(getBytes("tests.wasm"), tasks::add);
+
+        assertTrue(future.cancel(false));
+        tasks.forEach(Runnable::run);
+
+        assertTrue(future.isCancelled());
+        assertEquals(1, tasks.size());
+    }
+
     @Test
     void failedToCompile() {
         Exception exception = Assertions.assertThrows(RuntimeException.class, () -> {
@@ -0,0 +1,66 @@
+package org.wasmer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.jupiter.api.Test;
+
+class NativeAllocatorTest {
+    private byte[] getBytes(String filename) throws Exception {
+        Path modulePath = Paths.get(getClass().getClassLoader().getResource(filename).toURI());
+        return Files.readAllBytes(modulePath);
+    }
+
+    @Test
+    void allocateAndFree() throws Exception {
+        try (Module module = new Module(getBytes("allocator.wasm"))) {
+            assertAllocations(module);
+        }
+    }
+
+    @Test
+    void allocateAndFreeInterpreted() throws Exception {
+        try (Engine engine = new Engine(CompilerConfig.interpreter());
+             Module module = new Module(engine, getBytes("allocator.wasm"))) {
+            assertAllocations(module);
+        }
+    }
+
+    private static void assertAllocations(Module module) {
+        try (NativeAllocator allocator = new NativeAllocator();
+             Imports imports = Imports.from(allocator.importObjects("env"), module);
+             Instance instance = module.instantiate(imports)) {
+            ExportedFunction malloc = instance.exports.getExportedFunction("malloc");
+            ExportedFunction free = instance.exports.getExportedFunction("free");
+
+            assertThrows(RuntimeException.class, () -> allocator.alloc(8));
+
+            allocator.bind(instance);
+
+            // The heap starts at `__heap_base` (1028), aligned on 8 bytes,
+            // and each allocation is preceded by its 8-byte header.
+            assertEquals(1040, allocator.alloc(5));
+            assertEquals(1056, malloc.callI32(20));
+
+            // A freed allocation is reused by the next one of its size.
+            free.apply(1040);
+            assertEquals(1040, malloc.callI32(8));
+            allocator.free(1056);
+            assertEquals(1056, allocator.alloc(32));
+
+            assertThrows(RuntimeException.class, () -> allocator.free(1028));
+
+            // The memory grows to hold the heap.
+            Memory memory = instance.exports.getMemory("memory");
+            assertEquals(1, memory.size());
+            int pointer = malloc.callI32(100_000);
+            assertTrue(memory.size() >= 3);
+            memory.putI32(pointer + 99_996, 42);
+            assertEquals(42, memory.getI32(pointer + 99_996));
+        }
+    }
+}
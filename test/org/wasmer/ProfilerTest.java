@@ -0,0 +1,55 @@
+package org.wasmer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class ProfilerTest {
+    private byte[] getBytes(String filename) throws Exception {
+        Path modulePath = Paths.get(getClass().getClassLoader().getResource(filename).toURI());
+        return Files.readAllBytes(modulePath);
+    }
+
+    @Test
+    void profileExportsAndImports() throws Exception {
+        Profiler profiler = new Profiler();
+
+        try (Module module = new Module(getBytes("import_simple.wasm"));
+             Imports imports = Imports.from(Collections.singletonList(
+                 new ImportObject.HostFuncImport("env", "mul_from_java", (HostFunction) argv -> (int) argv[0] * (int) argv[1],
+                     Arrays.asList(Type.I32, Type.I32), Collections.singletonList(Type.I32))
+             ), module, profiler);
+             Instance instance = module.instantiate(imports)) {
+            instance.setProfiler(profiler);
+
+            assertEquals(24, instance.exports.getExportedFunction("double_each_arg_then_mul").callI32(2, 3));
+            assertEquals(24, instance.exports.getFunction("double_each_arg_then_mul").apply(2, 3)[0]);
+
+            Profiler.Entry export = profiler.getEntries().get("double_each_arg_then_mul");
+            Profiler.Entry hostFunction = profiler.getEntries().get("env.mul_from_java");
+            assertEquals(2, export.getCalls());
+            assertEquals(2 * 12, export.getBytes());
+            assertEquals(2, hostFunction.getCalls());
+            assertTrue(export.getSelfNanos() <= export.getTotalNanos());
+            assertTrue(hostFunction.getTotalNanos() <= export.getTotalNanos());
+
+            StringBuilder stacks = new StringBuilder();
+            profiler.writeCollapsedStacks(stacks);
+            assertTrue(stacks.toString().contains("double_each_arg_then_mul;env.mul_from_java "));
+
+            instance.setProfiler(null);
+            instance.exports.getExportedFunction("double_each_arg_then_mul").callI32(2, 3);
+            assertEquals(2, profiler.getEntries().get("double_each_arg_then_mul").getCalls());
+
+            profiler.reset();
+            assertNull(profiler.getEntries().get("double_each_arg_then_mul"));
+        }
+    }
+}
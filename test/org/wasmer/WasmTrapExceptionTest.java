@@ -0,0 +1,100 @@
+package org.wasmer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class WasmTrapExceptionTest {
+    private byte[] getBytes(String filename) throws Exception {
+        Path modulePath = Paths.get(getClass().getClassLoader().getResource(filename).toURI());
+        return Files.readAllBytes(modulePath);
+    }
+
+    @Test
+    void trapCodes() throws Exception {
+        Instance instance = new Instance(getBytes("trap.wasm"));
+
+        WasmTrapException unreachable = assertThrows(WasmTrapException.class, () -> instance.exports.getFunction("trap").apply());
+        assertEquals(WasmTrapException.TrapCode.UNREACHABLE, unreachable.getTrapCode());
+        assertEquals(0, unreachable.getStackTrace().length);
+        assertFalse(unreachable.getWasmBacktrace().isEmpty());
+        // The backtrace is read from the native error once.
+        assertSame(unreachable.getWasmBacktrace(), unreachable.getWasmBacktrace());
+
+        WasmTrapException divisionByZero = assertThrows(WasmTrapException.class, () -> instance.exports.getExportedFunction("divide").callI32(1, 0));
+        assertEquals(WasmTrapException.TrapCode.INTEGER_DIVISION_BY_ZERO, divisionByZero.getTrapCode());
+
+        WasmTrapException overflow = assertThrows(WasmTrapException.class, () -> instance.exports.getExportedFunction("divide").callI32(Integer.MIN_VALUE, -1));
+        assertEquals(WasmTrapException.TrapCode.INTEGER_OVERFLOW, overflow.getTrapCode());
+
+        instance.close();
+    }
+
+    @Test
+    void serializeWithTheBacktrace() throws Exception {
+        Instance instance = new Instance(getBytes("trap.wasm"));
+        WasmTrapException trap = assertThrows(WasmTrapException.class, () -> instance.exports.getFunction("trap").apply());
+        instance.close();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(trap);
+        }
+
+        WasmTrapException copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (WasmTrapException) in.readObject();
+        }
+
+        assertEquals(WasmTrapException.TrapCode.UNREACHABLE, copy.getTrapCode());
+        assertEquals(trap.getWasmBacktrace().toString(), copy.getWasmBacktrace().toString());
+    }
+
+    @Test
+    void batchTrapStatuses() throws Exception {
+        Instance instance = new Instance(getBytes("trap.wasm"));
+        ExportedFunction divide = instance.exports.getExportedFunction("divide");
+        long[] arguments = {6, 3, 1, 0, 8, 2};
+        long[] results = new long[3];
+        int[] statuses = new int[3];
+
+        assertEquals(3, divide.callBatch(arguments, 3, results, statuses, false));
+        assertEquals(ExportedFunction.CALL_OK, statuses[0]);
+        assertEquals(WasmTrapException.TrapCode.INTEGER_DIVISION_BY_ZERO, ExportedFunction.trapCodeOf(statuses[1]));
+        assertEquals(ExportedFunction.CALL_OK, statuses[2]);
+        assertEquals(2, results[0]);
+        assertEquals(4, results[2]);
+
+        assertEquals(2, divide.callBatch(arguments, 3, new long[3], statuses, true));
+
+        WasmTrapException exception = assertThrows(WasmTrapException.class, () -> divide.callBatch(arguments, 3, new long[3]));
+        assertEquals(WasmTrapException.TrapCode.INTEGER_DIVISION_BY_ZERO, exception.getTrapCode());
+
+        instance.close();
+    }
+
+    @Test
+    void compileException() throws Exception {
+        assertThrows(CompileException.class, () -> new Module(getBytes("invalid.wasm")));
+    }
+
+    @Test
+    void linkException() throws Exception {
+        Module module = new Module(getBytes("import_simple.wasm"));
+
+        assertThrows(LinkException.class, () -> module.instantiate(Imports.from(Collections.emptyList(), module)));
+
+        module.close();
+    }
+}
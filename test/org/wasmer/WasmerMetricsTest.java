@@ -0,0 +1,80 @@
+package org.wasmer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+
+class WasmerMetricsTest {
+    private byte[] getBytes(String filename) throws Exception {
+        Path modulePath = Paths.get(getClass().getClassLoader().getResource(filename).toURI());
+        return Files.readAllBytes(modulePath);
+    }
+
+    @Test
+    void countLiveResources() throws Exception {
+        WasmerMetrics metrics = WasmerMetrics.get();
+
+        try (Module module = new Module(getBytes("tests.wasm"));
+             Imports imports = Imports.from(Collections.emptyList(), module);
+             Instance instance = module.instantiate(imports)) {
+            assertTrue(module.getCompiledCodeBytes() > 0);
+            assertTrue(metrics.getLiveModules() >= 1);
+            assertTrue(metrics.getLiveImports() >= 1);
+            assertTrue(metrics.getLiveInstances() >= 1);
+            assertTrue(metrics.getLiveMemories() >= 1);
+            assertTrue(metrics.getCommittedMemoryBytes() >= instance.exports.getMemory("memory").dataSize());
+            assertTrue(metrics.getCompiledCodeBytes() >= module.getCompiledCodeBytes());
+            assertTrue(metrics.getCompileTimes().getCount() >= 1);
+            assertTrue(metrics.getInstantiateTimes().getCount() >= 1);
+        }
+    }
+
+    @Test
+    void recordCalls() throws Exception {
+        WasmerMetrics metrics = WasmerMetrics.get();
+        metrics.setCallMetricsEnabled(true);
+
+        try (Module module = new Module(getBytes("import_simple.wasm"))) {
+            Imports imports = Imports.from(Collections.singletonList(
+                new ImportObject.HostFuncImport("env", "mul_from_java", (HostFunction) argv -> (int) argv[0] * (int) argv[1],
+                    Arrays.asList(Type.I32, Type.I32), Collections.singletonList(Type.I32))
+            ), module);
+            Instance instance = module.instantiate(imports);
+            long exportCalls = count(metrics.getExportCalls().get("double_each_arg_then_mul"));
+            long importCalls = count(metrics.getImportCalls().get("env.mul_from_java"));
+
+            assertEquals(24, instance.exports.getExportedFunction("double_each_arg_then_mul").callI32(2, 3));
+            assertEquals(24, instance.exports.getFunction("double_each_arg_then_mul").apply(2, 3)[0]);
+
+            LatencyHistogram calls = metrics.getExportCalls().get("double_each_arg_then_mul");
+            assertEquals(exportCalls + 2, calls.getCount());
+            assertTrue(calls.getP99Nanos() <= calls.getMaxNanos());
+            assertEquals(importCalls + 2, metrics.getImportCalls().get("env.mul_from_java").getCount());
+
+            instance.close();
+            imports.close();
+        } finally {
+            metrics.setCallMetricsEnabled(false);
+        }
+    }
+
+    @Test
+    void registerOverJmx() throws Exception {
+        ObjectName name = WasmerMetrics.get().register();
+
+        assertEquals(name, WasmerMetrics.get().register());
+        assertTrue(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "LiveInstances") instanceof Long);
+    }
+
+    private static long count(LatencyHistogram histogram) {
+        return histogram == null ? 0L : histogram.getCount();
+    }
+}
@@ -0,0 +1,130 @@
+package org.wasmer.scale;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class ScaleCodecTest {
+    private static byte[] encode(ScaleWriterAction action) {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        action.write(new ScaleWriter(buffer));
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        return bytes;
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+
+        for (int nth = 0; nth < values.length; nth++) {
+            bytes[nth] = (byte) values[nth];
+        }
+
+        return bytes;
+    }
+
+    @FunctionalInterface
+    private interface ScaleWriterAction {
+        void write(ScaleWriter writer);
+    }
+
+    @Test
+    void compactIntegers() {
+        long[] values = {0L, 1L, 63L, 64L, 16383L, 16384L, (1L << 30) - 1, 1L << 30, 0xffffffffL, 1L << 32, -1L};
+        byte[][] encodings = {
+            bytes(0x00),
+            bytes(0x04),
+            bytes(0xfc),
+            bytes(0x01, 0x01),
+            bytes(0xfd, 0xff),
+            bytes(0x02, 0x00, 0x01, 0x00),
+            bytes(0xfe, 0xff, 0xff, 0xff),
+            bytes(0x03, 0x00, 0x00, 0x00, 0x40),
+            bytes(0x03, 0xff, 0xff, 0xff, 0xff),
+            bytes(0x07, 0x00, 0x00, 0x00, 0x00, 0x01),
+            bytes(0x13, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff),
+        };
+
+        for (int nth = 0; nth < values.length; nth++) {
+            long value = values[nth];
+            byte[] encoding = encode(writer -> writer.writeCompact(value));
+
+            assertArrayEquals(encodings[nth], encoding);
+            assertEquals(encoding.length, ScaleWriter.compactSize(value));
+            assertEquals(value, new ScaleReader(ByteBuffer.wrap(encoding)).readCompact());
+        }
+    }
+
+    @Test
+    void compactBigIntegers() {
+        BigInteger value = BigInteger.ONE.shiftLeft(100).add(BigInteger.valueOf(5));
+        byte[] encoding = encode(writer -> writer.writeCompact(value));
+
+        assertEquals(1 + 13, encoding.length);
+        assertEquals((13 - 4) << 2 | 0b11, encoding[0] & 0xff);
+        assertEquals(value, new ScaleReader(ByteBuffer.wrap(encoding)).readCompactBigInteger());
+        assertEquals(BigInteger.valueOf(64), new ScaleReader(ByteBuffer.wrap(bytes(0x01, 0x01))).readCompactBigInteger());
+        assertThrows(ScaleException.class, () -> new ScaleReader(ByteBuffer.wrap(encoding)).readCompact());
+    }
+
+    @Test
+    void bytesOptionsAndVectors() {
+        byte[] encoding = encode(writer -> writer
+            .writeBytes(bytes(1, 2, 3))
+            .writeOption(null, ScaleWriter::writeU32)
+            .writeOption(7, ScaleWriter::writeU32)
+            .writeVector(Arrays.asList(1L, 2L), ScaleWriter::writeU64)
+            .writeString("wasmer")
+            .writeBool(true));
+
+        ScaleReader reader = new ScaleReader(ByteBuffer.wrap(encoding));
+
+        assertArrayEquals(bytes(1, 2, 3), reader.readBytes());
+        assertEquals(Optional.empty(), reader.readOption(ScaleReader::readU32));
+        assertEquals(Optional.of(7), reader.readOption(ScaleReader::readU32));
+        assertEquals(Arrays.asList(1L, 2L), reader.readVector(ScaleReader::readU64));
+        assertEquals("wasmer", reader.readString());
+        assertTrue(reader.readBool());
+        assertEquals(0, reader.remaining());
+    }
+
+    @Test
+    void streamedReads() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        new ScaleWriter(buffer)
+            .writeVector(Arrays.asList(bytes(1), bytes(2, 3)), ScaleWriter::writeBytes)
+            .writeU16(0xbeef);
+        buffer.flip();
+
+        ScaleReader reader = new ScaleReader(buffer);
+        Iterator<ByteBuffer> elements = reader.vectorIterator(ScaleReader::readByteBuffer);
+
+        ByteBuffer first = elements.next();
+        assertEquals(1, first.remaining());
+        assertEquals(1, first.get(0));
+
+        // The elements are views of the buffer, not copies.
+        buffer.put(5, (byte) 9);
+        assertEquals(9, elements.next().get(1));
+        assertFalse(elements.hasNext());
+        assertEquals(0xbeef, reader.readU16());
+    }
+
+    @Test
+    void truncatedData() {
+        assertThrows(ScaleException.class, () -> new ScaleReader(ByteBuffer.wrap(bytes(0x10, 1))).readBytes());
+        assertThrows(ScaleException.class, () -> new ScaleReader(ByteBuffer.wrap(bytes(2))).readOption(ScaleReader::readU8));
+        assertThrows(ScaleException.class, () -> new ScaleWriter(ByteBuffer.allocate(2)).writeU32(1));
+    }
+}
@@ -0,0 +1,14 @@
+(module
+  (import "env" "ext_allocator_malloc_version_1" (func $malloc (param i32) (result i32)))
+  (import "env" "ext_allocator_free_version_1" (func $free (param i32)))
+
+  (memory (export "memory") 1)
+  (global (export "__heap_base") i32 (i32.const 1028))
+
+  (func (export "malloc") (param i32) (result i32)
+    local.get 0
+    call $malloc)
+
+  (func (export "free") (param i32)
+    local.get 0
+    call $free))
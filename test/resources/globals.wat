@@ -0,0 +1,27 @@
+(module
+  (type $get_type (func (result i32)))
+
+  (import "env" "base" (global $base i32))
+
+  (global $counter (mut i32) (i32.const 7))
+  (global $big i64 (i64.const 42))
+  (global $ratio (mut f64) (f64.const 0.5))
+
+  (func $increment (type $get_type) (result i32)
+    global.get $counter
+    i32.const 1
+    i32.add
+    global.set $counter
+    global.get $counter)
+
+  (func $base_plus_counter (type $get_type) (result i32)
+    global.get $base
+    global.get $counter
+    i32.add)
+
+  (export "counter" (global $counter))
+  (export "big" (global $big))
+  (export "ratio" (global $ratio))
+  (export "base" (global $base))
+  (export "increment" (func $increment))
+  (export "base_plus_counter" (func $base_plus_counter)))
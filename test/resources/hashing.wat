@@ -0,0 +1,40 @@
+(module
+  (import "env" "ext_allocator_malloc_version_1" (func (param i32) (result i32)))
+  (import "env" "ext_allocator_free_version_1" (func (param i32)))
+  (import "env" "ext_hashing_blake2_256_version_1" (func $blake2_256 (param i64) (result i32)))
+  (import "env" "ext_hashing_keccak_256_version_1" (func $keccak_256 (param i64) (result i32)))
+  (import "env" "ext_hashing_sha2_256_version_1" (func $sha2_256 (param i64) (result i32)))
+  (import "env" "ext_hashing_twox_128_version_1" (func $twox_128 (param i64) (result i32)))
+  (import "env" "ext_crypto_ed25519_verify_version_1" (func $ed25519_verify (param i32 i64 i32) (result i32)))
+  (import "env" "ext_crypto_sr25519_verify_version_2" (func $sr25519_verify (param i32 i64 i32) (result i32)))
+
+  (memory (export "memory") 1)
+  (global (export "__heap_base") i32 (i32.const 4096))
+
+  (func (export "blake2_256") (param i64) (result i32)
+    local.get 0
+    call $blake2_256)
+
+  (func (export "keccak_256") (param i64) (result i32)
+    local.get 0
+    call $keccak_256)
+
+  (func (export "sha2_256") (param i64) (result i32)
+    local.get 0
+    call $sha2_256)
+
+  (func (export "twox_128") (param i64) (result i32)
+    local.get 0
+    call $twox_128)
+
+  (func (export "ed25519_verify") (param i32 i64 i32) (result i32)
+    local.get 0
+    local.get 1
+    local.get 2
+    call $ed25519_verify)
+
+  (func (export "sr25519_verify") (param i32 i64 i32) (result i32)
+    local.get 0
+    local.get 1
+    local.get 2
+    call $sr25519_verify))
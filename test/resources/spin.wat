@@ -0,0 +1,15 @@
+(module
+  (type $spin_type (func))
+  (type $sum_type (func (param i32 i32) (result i32)))
+
+  (func $spin (type $spin_type)
+    (loop $again
+      br $again))
+
+  (func $sum (type $sum_type) (param i32 i32) (result i32)
+    local.get 0
+    local.get 1
+    i32.add)
+
+  (export "spin" (func $spin))
+  (export "sum" (func $sum)))
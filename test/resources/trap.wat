@@ -0,0 +1,14 @@
+(module
+  (type $trap_type (func))
+  (type $divide_type (func (param i32 i32) (result i32)))
+
+  (func $trap (type $trap_type)
+    unreachable)
+
+  (func $divide (type $divide_type) (param i32 i32) (result i32)
+    local.get 0
+    local.get 1
+    i32.div_s)
+
+  (export "trap" (func $trap))
+  (export "divide" (func $divide)))